@@ -0,0 +1,27 @@
+package com.hyr.quartz.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*******************************************************************************
+ * @date 2026-10-17 6:20 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 基准测试入口,结果以JSON格式写入文件,便于不同版本之间对比
+ *
+ * 参数: [include正则] [结果文件],默认运行全部基准测试并写入target/jmh-result.json
+ ******************************************************************************/
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        String include = args.length > 0 ? args[0] : "com.hyr.quartz.benchmark.*";
+        String result = args.length > 1 ? args[1] : "target/jmh-result.json";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build();
+        new Runner(options).run();
+    }
+}
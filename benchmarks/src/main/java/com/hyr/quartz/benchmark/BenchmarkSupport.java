@@ -0,0 +1,200 @@
+package com.hyr.quartz.benchmark;
+
+import com.hyr.quartz.common.Constant;
+import com.hyr.quartz.connection.DruidConnectionPoolProvider;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+import org.quartz.impl.JobExecutionContextImpl;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.quartz.simpl.SimpleClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredBundle;
+import org.quartz.utils.DBConnectionManager;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Date;
+
+/*******************************************************************************
+ * @date 2026-10-17 6:20 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 基准测试公共方法
+ *
+ * 所有基准测试只使用内存和嵌入式H2,不访问quartz.properties中配置的MySQL。
+ ******************************************************************************/
+final class BenchmarkSupport {
+
+    final static String SCHEDULER_NAME = "BenchmarkScheduler";
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * 将基准测试的quartz配置写入临时文件,并通过quartz.config指向它。
+     * 需要在第一次调用QuartzUtils.getProperties之前执行。
+     */
+    static void useBenchmarkConfiguration() throws IOException {
+        File file = File.createTempFile("benchmark-quartz", ".properties");
+        file.deleteOnExit();
+        InputStream in = BenchmarkSupport.class.getResourceAsStream("/benchmark-quartz.properties");
+        try {
+            OutputStream out = new FileOutputStream(file);
+            try {
+                byte[] buffer = new byte[4096];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+        System.setProperty(Constant.QUARTZ_CONF_ENV_NAME, file.getAbsolutePath());
+    }
+
+    /**
+     * 创建H2内存库上的JobStoreTX,连接池使用项目中的DruidConnectionPoolProvider
+     *
+     * @param dataSourceName 数据源名称,同时作为H2库名
+     */
+    static JobStoreTX newH2JobStore(String dataSourceName) throws Exception {
+        DruidConnectionPoolProvider provider = new DruidConnectionPoolProvider();
+        provider.setUrl("jdbc:h2:mem:" + dataSourceName + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        provider.setUsername("sa");
+        provider.setPassword("");
+        provider.setDriverClassName("org.h2.Driver");
+        provider.setInitialSize(1);
+        provider.setMinIdle(1);
+        provider.setMaxActive(10);
+        provider.setMaxWait(10000);
+        provider.setTimeBetweenEvictionRunsMillis(60000);
+        provider.setMinEvictableIdleTimeMillis(30000);
+        provider.setValidationQuery("select 1");
+        provider.initialize();
+        DBConnectionManager.getInstance().addConnectionProvider(dataSourceName, provider);
+        createTables(dataSourceName);
+
+        JobStoreTX jobStore = new JobStoreTX();
+        jobStore.setDataSource(dataSourceName);
+        jobStore.setTablePrefix("QRTZ_");
+        jobStore.setInstanceId("benchmark");
+        jobStore.setInstanceName(SCHEDULER_NAME);
+        jobStore.setDriverDelegateClass("org.quartz.impl.jdbcjobstore.StdJDBCDelegate");
+        jobStore.initialize(new SimpleClassLoadHelper(), NoOpSignaler.INSTANCE);
+        return jobStore;
+    }
+
+    static void shutdownDataSource(String dataSourceName) {
+        try {
+            DBConnectionManager.getInstance().shutdown(dataSourceName);
+        } catch (SQLException ignore) {
+        }
+    }
+
+    /**
+     * 执行Quartz自带的H2建表脚本
+     */
+    private static void createTables(String dataSourceName) throws Exception {
+        StringBuilder script = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                JobStoreTX.class.getResourceAsStream("/org/quartz/impl/jdbcjobstore/tables_h2.sql"), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().startsWith("--")) {
+                    script.append(line).append('\n');
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        Connection connection = DBConnectionManager.getInstance().getConnection(dataSourceName);
+        try {
+            Statement statement = connection.createStatement();
+            for (String sql : script.toString().split(";")) {
+                if (sql.trim().length() > 0 && !sql.trim().equalsIgnoreCase("COMMIT")) {
+                    statement.execute(sql);
+                }
+            }
+            statement.close();
+            connection.commit();
+        } finally {
+            connection.close();
+        }
+    }
+
+    static JobDetail newJobDetail(String name, String group) {
+        return JobBuilder.newJob(NoOpJob.class).withIdentity(name, group).storeDurably().build();
+    }
+
+    /**
+     * 一直重复的触发器,每次触发后下次触发时间都会后移,可以被反复取出
+     */
+    static OperableTrigger newRepeatingTrigger(String name, String group, JobDetail jobDetail, long startTime) {
+        Trigger trigger = TriggerBuilder.newTrigger()
+                .withIdentity(TriggerKey.triggerKey(name, group))
+                .forJob(jobDetail)
+                .startAt(new Date(startTime))
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule().withIntervalInMilliseconds(1).repeatForever()
+                        .withMisfireHandlingInstructionIgnoreMisfires())
+                .build();
+        OperableTrigger operableTrigger = (OperableTrigger) trigger;
+        operableTrigger.computeFirstFireTime(null);
+        return operableTrigger;
+    }
+
+    /**
+     * 构造一次触发的上下文,不经过Scheduler
+     */
+    static JobExecutionContext newJobExecutionContext(Scheduler scheduler, JobDetail jobDetail, OperableTrigger trigger) {
+        Date now = new Date();
+        TriggerFiredBundle bundle = new TriggerFiredBundle(jobDetail, trigger, null, false, now, now,
+                trigger.getPreviousFireTime(), trigger.getNextFireTime());
+        return new JobExecutionContextImpl(scheduler, bundle, new NoOpJob());
+    }
+
+    public static class NoOpJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+        }
+    }
+
+    static final class NoOpSignaler implements SchedulerSignaler {
+
+        static final NoOpSignaler INSTANCE = new NoOpSignaler();
+
+        @Override
+        public void notifyTriggerListenersMisfired(Trigger trigger) {
+        }
+
+        @Override
+        public void notifySchedulerListenersFinalized(Trigger trigger) {
+        }
+
+        @Override
+        public void notifySchedulerListenersJobDeleted(org.quartz.JobKey jobKey) {
+        }
+
+        @Override
+        public void signalSchedulingChange(long candidateNewNextFireTime) {
+        }
+
+        @Override
+        public void notifySchedulerListenersError(String string, SchedulerException jpe) {
+        }
+    }
+}
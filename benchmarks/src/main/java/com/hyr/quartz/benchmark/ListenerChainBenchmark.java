@@ -0,0 +1,108 @@
+package com.hyr.quartz.benchmark;
+
+import com.hyr.quartz.listener.DefaultJobListener;
+import com.hyr.quartz.listener.DefaultTriggerListener;
+import com.hyr.quartz.plugin.AsyncHistorySink;
+import com.hyr.quartz.plugin.QuartzLoggingJobHistoryPlugin;
+import com.hyr.quartz.plugin.QuartzLoggingTriggerHistoryPlugin;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.Trigger;
+import org.quartz.spi.OperableTrigger;
+
+import java.util.concurrent.TimeUnit;
+
+/*******************************************************************************
+ * @date 2026-10-17 6:20 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 每次触发的监听器链开销
+ *
+ * 按JobRunShell的调用顺序依次调用DefaultTriggerListener、DefaultJobListener和两个日志插件。
+ * 日志输出到NullAppender,消息仍然被格式化。history=async时日志插件使用AsyncHistorySink。
+ ******************************************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListenerChainBenchmark {
+
+    @Param({"sync", "async"})
+    public String history;
+
+    private DefaultTriggerListener triggerListener;
+
+    private DefaultJobListener jobListener;
+
+    private QuartzLoggingTriggerHistoryPlugin triggerHistoryPlugin;
+
+    private QuartzLoggingJobHistoryPlugin jobHistoryPlugin;
+
+    private AsyncHistorySink historySink;
+
+    private OperableTrigger trigger;
+
+    private JobExecutionContext context;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        triggerListener = new DefaultTriggerListener("benchmarkTriggerListener");
+        jobListener = new DefaultJobListener("benchmarkJobListener");
+        triggerHistoryPlugin = new QuartzLoggingTriggerHistoryPlugin();
+        jobHistoryPlugin = new QuartzLoggingJobHistoryPlugin();
+        if ("async".equals(history)) {
+            historySink = new AsyncHistorySink("benchmark", 8192, AsyncHistorySink.OverflowPolicy.BLOCK);
+            historySink.start();
+            triggerHistoryPlugin.setHistorySink(historySink);
+            jobHistoryPlugin.setHistorySink(historySink);
+        }
+        JobDetail jobDetail = BenchmarkSupport.newJobDetail("job", "bench");
+        trigger = BenchmarkSupport.newRepeatingTrigger("trigger", "bench", jobDetail, System.currentTimeMillis());
+        context = BenchmarkSupport.newJobExecutionContext(null, jobDetail, trigger);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (historySink != null) {
+            historySink.shutdown();
+        }
+    }
+
+    /**
+     * 完整的一次触发
+     */
+    @Benchmark
+    public void fullChain(Blackhole blackhole) {
+        triggerListener.triggerFired(trigger, context);
+        triggerHistoryPlugin.triggerFired(trigger, context);
+        blackhole.consume(triggerListener.vetoJobExecution(trigger, context));
+        blackhole.consume(triggerHistoryPlugin.vetoJobExecution(trigger, context));
+        jobListener.jobToBeExecuted(context);
+        jobHistoryPlugin.jobToBeExecuted(context);
+        jobListener.jobWasExecuted(context, null);
+        jobHistoryPlugin.jobWasExecuted(context, null);
+        triggerListener.triggerComplete(trigger, context, Trigger.CompletedExecutionInstruction.NOOP);
+        triggerHistoryPlugin.triggerComplete(trigger, context, Trigger.CompletedExecutionInstruction.NOOP);
+    }
+
+    @Benchmark
+    public void defaultListeners(Blackhole blackhole) {
+        triggerListener.triggerFired(trigger, context);
+        blackhole.consume(triggerListener.vetoJobExecution(trigger, context));
+        jobListener.jobToBeExecuted(context);
+        jobListener.jobWasExecuted(context, null);
+        triggerListener.triggerComplete(trigger, context, Trigger.CompletedExecutionInstruction.NOOP);
+    }
+
+    @Benchmark
+    public void historyPlugins(Blackhole blackhole) {
+        triggerHistoryPlugin.triggerFired(trigger, context);
+        blackhole.consume(triggerHistoryPlugin.vetoJobExecution(trigger, context));
+        jobHistoryPlugin.jobToBeExecuted(context);
+        jobHistoryPlugin.jobWasExecuted(context, null);
+        triggerHistoryPlugin.triggerComplete(trigger, context, Trigger.CompletedExecutionInstruction.NOOP);
+    }
+}
@@ -0,0 +1,61 @@
+package com.hyr.quartz.benchmark;
+
+import com.hyr.quartz.plugin.MessageTemplate;
+import org.openjdk.jmh.annotations.*;
+
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/*******************************************************************************
+ * @date 2026-10-17 6:20 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 日志插件消息渲染,MessageFormat与预编译的MessageTemplate对比
+ ******************************************************************************/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageFormatBenchmark {
+
+    /**
+     * QuartzLoggingJobHistoryPlugin的默认消息
+     */
+    private final static String PATTERN = "Job {1}.{0} execution complete at {2, date, HH:mm:ss MM/dd/yyyy} and reports: {8}";
+
+    private Object[] arguments;
+
+    private MessageTemplate template;
+
+    private MessageTemplate.Arguments templateArguments;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Date now = new Date();
+        arguments = new Object[]{"job", "group", now, "trigger", "triggerGroup", now, now, 0, "result"};
+        template = MessageTemplate.compile(PATTERN);
+        templateArguments = new MessageTemplate.Arguments() {
+            @Override
+            public int size() {
+                return arguments.length;
+            }
+
+            @Override
+            public Object get(int index) {
+                return arguments[index];
+            }
+        };
+    }
+
+    @Benchmark
+    public String messageFormatStatic() {
+        return MessageFormat.format(PATTERN, arguments);
+    }
+
+    @Benchmark
+    public String messageTemplate() {
+        return template.render(templateArguments);
+    }
+}
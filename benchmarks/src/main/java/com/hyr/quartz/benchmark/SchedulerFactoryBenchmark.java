@@ -0,0 +1,50 @@
+package com.hyr.quartz.benchmark;
+
+import com.hyr.quartz.common.JOB_STORE_CLASS;
+import com.hyr.quartz.utils.QuartzUtils;
+import org.openjdk.jmh.annotations.*;
+import org.quartz.Scheduler;
+import org.quartz.impl.StdSchedulerFactory;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/*******************************************************************************
+ * @date 2026-10-17 6:20 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 配置加载和SchedulerFactory创建开销
+ ******************************************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchedulerFactoryBenchmark {
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkSupport.useBenchmarkConfiguration();
+    }
+
+    @Benchmark
+    public Properties getProperties() {
+        return QuartzUtils.getProperties();
+    }
+
+    @Benchmark
+    public StdSchedulerFactory getStdSchedulerFactory() throws Exception {
+        return QuartzUtils.getStdSchedulerFactory(10, Thread.NORM_PRIORITY, BenchmarkSupport.SCHEDULER_NAME, JOB_STORE_CLASS.RAMJOBSTORE);
+    }
+
+    /**
+     * 创建并关闭Scheduler,包括线程池和JobStore初始化
+     */
+    @Benchmark
+    public boolean createScheduler() throws Exception {
+        StdSchedulerFactory factory = QuartzUtils.getStdSchedulerFactory(10, Thread.NORM_PRIORITY, BenchmarkSupport.SCHEDULER_NAME, JOB_STORE_CLASS.RAMJOBSTORE);
+        Scheduler scheduler = factory.getScheduler();
+        scheduler.shutdown();
+        return scheduler.isShutdown();
+    }
+}
@@ -0,0 +1,95 @@
+package com.hyr.quartz.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.quartz.JobDetail;
+import org.quartz.Trigger;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.simpl.SimpleClassLoadHelper;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredResult;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*******************************************************************************
+ * @date 2026-10-17 6:20 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 触发器取出和触发吞吐量,RAMJobStore与JobStoreTX(H2)对比
+ *
+ * 每次操作模拟调度线程的一轮: acquireNextTriggers -> triggersFired -> triggeredJobComplete。
+ * 触发器一直重复,每轮触发后下次触发时间后移,可以被反复取出。
+ ******************************************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TriggerStoreBenchmark {
+
+    @Param({"RAM", "JDBC_H2"})
+    public String store;
+
+    @Param({"1", "10"})
+    public int batchSize;
+
+    @Param({"100"})
+    public int triggerCount;
+
+    private JobStore jobStore;
+
+    private String dataSourceName;
+
+    private long noLaterThan;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        if ("RAM".equals(store)) {
+            RAMJobStore ramJobStore = new RAMJobStore();
+            ramJobStore.initialize(new SimpleClassLoadHelper(), BenchmarkSupport.NoOpSignaler.INSTANCE);
+            jobStore = ramJobStore;
+        } else {
+            dataSourceName = "bench_" + System.nanoTime();
+            JobStoreTX jobStoreTX = BenchmarkSupport.newH2JobStore(dataSourceName);
+            jobStore = jobStoreTX;
+        }
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < triggerCount; i++) {
+            JobDetail jobDetail = BenchmarkSupport.newJobDetail("job_" + i, "bench");
+            OperableTrigger trigger = BenchmarkSupport.newRepeatingTrigger("trigger_" + i, "bench", jobDetail, now);
+            jobStore.storeJobAndTrigger(jobDetail, trigger);
+        }
+        // 所有触发器都在取出窗口内,测量的是存储本身的开销
+        noLaterThan = Long.MAX_VALUE / 2;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jobStore.shutdown();
+        if (dataSourceName != null) {
+            BenchmarkSupport.shutdownDataSource(dataSourceName);
+        }
+    }
+
+    @Benchmark
+    public int acquireFireComplete() throws Exception {
+        List<OperableTrigger> triggers = jobStore.acquireNextTriggers(noLaterThan, batchSize, 0L);
+        if (triggers.isEmpty()) {
+            return 0;
+        }
+        List<TriggerFiredResult> results = jobStore.triggersFired(triggers);
+        int fired = 0;
+        for (TriggerFiredResult result : results) {
+            if (result.getTriggerFiredBundle() == null) {
+                continue;
+            }
+            OperableTrigger trigger = result.getTriggerFiredBundle().getTrigger();
+            JobDetail jobDetail = result.getTriggerFiredBundle().getJobDetail();
+            jobStore.triggeredJobComplete(trigger, jobDetail, Trigger.CompletedExecutionInstruction.NOOP);
+            fired++;
+        }
+        return fired;
+    }
+}
@@ -0,0 +1,182 @@
+package com.hyr.quartz;
+
+import com.hyr.quartz.connection.DruidConnectionPoolProvider;
+import com.hyr.quartz.connection.ReadOnlyRouting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+/*******************************************************************************
+ * @date 2026-10-18 2:10 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: {@link DruidConnectionPoolProvider}从库路由和延迟回退测试
+ *
+ * 使用两个库模拟主库和从库(如两个内嵌H2: jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1 和 jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1),
+ * 各建一张ROUTING_MARKER表写入primary/replica,按查到的值判断连接来自哪个库;从库建REPLICA_LAG_TEST表作为延迟查询,
+ * 修改其中的Seconds_Behind_Master模拟复制延迟。依次检查:
+ * 1. 只读范围外走主库,只读范围内走从库
+ * 2. 延迟超过replicaMaxLagSeconds、延迟为NULL时只读查询回退主库
+ * 3. 延迟恢复后只读查询重新走从库
+ *
+ * 参数: primaryUrl replicaUrl [username=sa] [password=] [driverClassName=org.h2.Driver]
+ ******************************************************************************/
+public class ReplicaRoutingTest {
+
+    private final static Logger log = LoggerFactory.getLogger(ReplicaRoutingTest.class);
+
+    private static final int MAX_LAG_SECONDS = 5;
+
+    private static final long CHECK_INTERVAL_MILLIS = 100;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("usage: primaryUrl replicaUrl [username] [password] [driverClassName]");
+            return;
+        }
+        String username = args.length > 2 ? args[2] : "sa";
+        String password = args.length > 3 ? args[3] : "";
+        String driverClassName = args.length > 4 ? args[4] : "org.h2.Driver";
+
+        DruidConnectionPoolProvider provider = new DruidConnectionPoolProvider();
+        provider.setUrl(args[0]);
+        provider.setUsername(username);
+        provider.setPassword(password);
+        provider.setDriverClassName(driverClassName);
+        provider.setMaxActive(4);
+        provider.setMaxWait(3000);
+        provider.setMinEvictableIdleTimeMillis(300000);
+        provider.setShared(false);
+        provider.setReplicaUrl(args[1]);
+        provider.setReplicaLagQuery("SELECT Seconds_Behind_Master FROM REPLICA_LAG_TEST");
+        provider.setReplicaMaxLagSeconds(MAX_LAG_SECONDS);
+        provider.setReplicaCheckIntervalMillis(CHECK_INTERVAL_MILLIS);
+        provider.initialize();
+        try {
+            prepare(provider);
+            // 建表前的后台检查失败,等待下一次检查
+            Thread.sleep(CHECK_INTERVAL_MILLIS * 2);
+
+            // 1. 路由
+            check("primary".equals(readMarker(provider, false)), "write path should use primary");
+            check("replica".equals(readMarker(provider, true)), "read-only query should use replica");
+            check(provider.isReplicaAvailable(), "replica should be available");
+
+            // 2. 延迟超过阈值回退主库
+            setLag(provider, (long) MAX_LAG_SECONDS + 10);
+            check("primary".equals(readMarker(provider, true)), "read-only query should fall back to primary when lag exceeds threshold");
+            check(!provider.isReplicaAvailable(), "replica should be unavailable when lag exceeds threshold");
+            check(provider.getReplicaLagSeconds() == MAX_LAG_SECONDS + 10, "lag should be reported");
+
+            // 3. 恢复
+            setLag(provider, 0L);
+            check("replica".equals(readMarker(provider, true)), "read-only query should return to replica after lag recovers");
+
+            // 复制中断
+            setLag(provider, null);
+            check("primary".equals(readMarker(provider, true)), "read-only query should fall back to primary when replication stops");
+            setLag(provider, 1L);
+            check("replica".equals(readMarker(provider, true)), "read-only query should return to replica after replication resumes");
+
+            log.info("replica routing test passed. replicaReads:{} fallbackReads:{}", provider.getReplicaReads(), provider.getReplicaFallbackReads());
+        } finally {
+            provider.shutdown();
+        }
+    }
+
+    private static void prepare(DruidConnectionPoolProvider provider) throws SQLException {
+        Connection primary = provider.getConnection();
+        try {
+            createMarker(primary, "primary");
+        } finally {
+            primary.close();
+        }
+        Connection replica = provider.getReplicaDataSource().getConnection();
+        try {
+            createMarker(replica, "replica");
+            Statement statement = replica.createStatement();
+            try {
+                statement.execute("DROP TABLE IF EXISTS REPLICA_LAG_TEST");
+                statement.execute("CREATE TABLE REPLICA_LAG_TEST (Seconds_Behind_Master BIGINT)");
+                statement.execute("INSERT INTO REPLICA_LAG_TEST VALUES (0)");
+            } finally {
+                statement.close();
+            }
+        } finally {
+            replica.close();
+        }
+    }
+
+    private static void createMarker(Connection connection, String name) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            statement.execute("DROP TABLE IF EXISTS ROUTING_MARKER");
+            statement.execute("CREATE TABLE ROUTING_MARKER (NAME VARCHAR(16))");
+            statement.execute("INSERT INTO ROUTING_MARKER VALUES ('" + name + "')");
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * 修改从库延迟,等待超过检查间隔,后台重新检查
+     */
+    private static void setLag(DruidConnectionPoolProvider provider, Long lagSeconds) throws Exception {
+        Connection replica = provider.getReplicaDataSource().getConnection();
+        try {
+            PreparedStatement ps = replica.prepareStatement("UPDATE REPLICA_LAG_TEST SET Seconds_Behind_Master = ?");
+            try {
+                if (lagSeconds == null) {
+                    ps.setNull(1, Types.BIGINT);
+                } else {
+                    ps.setLong(1, lagSeconds);
+                }
+                ps.executeUpdate();
+            } finally {
+                ps.close();
+            }
+        } finally {
+            replica.close();
+        }
+        Thread.sleep(CHECK_INTERVAL_MILLIS * 2);
+    }
+
+    private static String readMarker(DruidConnectionPoolProvider provider, boolean readOnly) throws SQLException {
+        if (!readOnly) {
+            return readMarker(provider);
+        }
+        boolean previous = ReadOnlyRouting.enter();
+        try {
+            return readMarker(provider);
+        } finally {
+            ReadOnlyRouting.exit(previous);
+        }
+    }
+
+    private static String readMarker(DruidConnectionPoolProvider provider) throws SQLException {
+        Connection connection = provider.getConnection();
+        try {
+            Statement statement = connection.createStatement();
+            try {
+                ResultSet rs = statement.executeQuery("SELECT NAME FROM ROUTING_MARKER");
+                return rs.next() ? rs.getString(1) : null;
+            } finally {
+                statement.close();
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+        log.info("ok: {}", message);
+    }
+}
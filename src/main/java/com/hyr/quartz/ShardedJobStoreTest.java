@@ -0,0 +1,497 @@
+package com.hyr.quartz;
+
+import com.hyr.quartz.common.Constant;
+import com.hyr.quartz.common.JOB_STORE_CLASS;
+import com.hyr.quartz.connection.DruidConnectionPoolProvider;
+import com.hyr.quartz.jobstore.ShardedJobStore;
+import com.hyr.quartz.utils.QuartzUtils;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.TriggerBuilder;
+import org.quartz.impl.jdbcjobstore.StdJDBCDelegate;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredResult;
+import org.quartz.utils.DBConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*******************************************************************************
+ * @date 2026-10-18 2:40 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: {@link ShardedJobStore}分片归属和接管测试
+ *
+ * 在一个进程中模拟多个集群节点,每个节点一个ShardedJobStore,对每个分片库有自己的连接池,多个线程取触发器、触发、完成。依次检查:
+ * 1. 所有分片都被某个存活节点拥有,各节点拥有的分片不重叠,每个分片的任务都在触发
+ * 2. 停掉一个节点(停止取触发器和登记,不清理QRTZ_SCHEDULER_STATE,模拟宕机),租约过期后它的分片由其他节点接管,这些分片的任务继续触发
+ * 3. 整个过程中同一个触发器的同一次触发时间没有被触发两次
+ * 4. 在项目默认配置上改用这些分片库,通过QuartzUtils.getStdSchedulerFactory(..., SHARDEDJOBSTORE)创建调度器,每个任务组的任务都能触发;
+ *    再去掉dataSources,按org.quartz.jobStore.dataSource退化为单分片运行
+ *
+ * 分片库可以是多个内嵌H2: jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1,jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1,...
+ * 指定schemaScript时先在每个分片库执行该classpath建表脚本(如/org/quartz/impl/jdbcjobstore/tables_h2.sql),否则需要先建好表。
+ * 测试会清空SHARDED_TEST调度器的数据。
+ *
+ * 参数: urls(逗号分隔) username password [nodes=3] [threads=2] [groups=40] [seconds=5] [schemaScript]
+ ******************************************************************************/
+public class ShardedJobStoreTest {
+
+    private final static Logger log = LoggerFactory.getLogger(ShardedJobStoreTest.class);
+
+    private static final String SCHEDULER_NAME = "SHARDED_TEST";
+
+    private static final long REPEAT_INTERVAL_MILLIS = 200;
+
+    private static final long CLUSTER_CHECKIN_INTERVAL_MILLIS = 1000;
+
+    private static final long LEASE_REFRESH_INTERVAL_MILLIS = 500;
+
+    /**
+     * 租约过期(2倍登记间隔+7.5秒)之后再留出的等待时间
+     */
+    private static final long TAKEOVER_SLACK_MILLIS = 10000;
+
+    private static final int BATCH_SIZE = 10;
+
+    private static final ConcurrentHashMap<String, String> fired = new ConcurrentHashMap<>();
+
+    /**
+     * 分片 -> 最近一次触发时间
+     */
+    private static final ConcurrentHashMap<Integer, Long> lastShardFire = new ConcurrentHashMap<>();
+
+    private static final AtomicLong duplicates = new AtomicLong();
+
+    private static final AtomicLong fireCount = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("usage: urls username password [nodes] [threads] [groups] [seconds] [schemaScript]");
+            return;
+        }
+        String[] urls = args[0].split(",");
+        String username = args[1];
+        String password = args[2];
+        int nodes = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : 2;
+        int groups = args.length > 5 ? Integer.parseInt(args[5]) : 40;
+        int seconds = args.length > 6 ? Integer.parseInt(args[6]) : 5;
+        String schemaScript = args.length > 7 ? args[7] : null;
+        if (nodes < 2) {
+            throw new IllegalArgumentException("takeover needs at least 2 nodes");
+        }
+
+        if (schemaScript != null) {
+            for (String url : urls) {
+                createTables(url.trim(), username, password, schemaScript);
+            }
+        }
+        List<ShardedJobStore> stores = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            stores.add(createStore(i, urls, username, password, threads));
+        }
+        ShardedJobStore first = stores.get(0);
+        first.clearAllSchedulingData();
+        Set<Integer> usedShards = new TreeSet<>();
+        for (int i = 0; i < groups; i++) {
+            JobDetail jobDetail = JobBuilder.newJob(NoOpJob.class).withIdentity("job", "group" + i).build();
+            OperableTrigger trigger = (OperableTrigger) TriggerBuilder.newTrigger().withIdentity("trigger" + i, "SHARDED-GROUP").forJob(jobDetail)
+                    .withSchedule(SimpleScheduleBuilder.simpleSchedule().withIntervalInMilliseconds(REPEAT_INTERVAL_MILLIS).repeatForever())
+                    .build();
+            trigger.computeFirstFireTime(null);
+            first.storeJobAndTrigger(jobDetail, trigger);
+            usedShards.add(first.shardOf(jobDetail.getKey()));
+        }
+        log.info("shards:{} shards with jobs:{}", first.getShardCount(), usedShards);
+
+        List<AtomicBoolean> running = new ArrayList<>();
+        List<CountDownLatch> stopped = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            stores.get(i).schedulerStarted();
+            AtomicBoolean flag = new AtomicBoolean(true);
+            CountDownLatch latch = new CountDownLatch(threads);
+            running.add(flag);
+            stopped.add(latch);
+            for (int j = 0; j < threads; j++) {
+                startWorker(stores.get(i), flag, latch, "node" + i + "-" + j);
+            }
+        }
+
+        // 停掉的节点关闭时会关闭自己的连接池,最后用存活节点清理数据
+        ShardedJobStore survivor = first;
+        int victim = -1;
+        try {
+            // 1. 分片归属
+            long deadline = System.currentTimeMillis() + TAKEOVER_SLACK_MILLIS;
+            while (!ownsAllShards(stores, first.getShardCount()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(LEASE_REFRESH_INTERVAL_MILLIS);
+            }
+            check(ownsAllShards(stores, first.getShardCount()), "every shard should be owned by exactly one live node " + owners(stores));
+            long since = System.currentTimeMillis();
+            Thread.sleep(seconds * 1000L);
+            check(firedSince(usedShards, since), "jobs in every shard should fire " + lastShardFire);
+
+            // 2. 停掉拥有分片最多的节点,等租约过期后由其他节点接管
+            int candidate = 0;
+            for (int i = 1; i < nodes; i++) {
+                if (stores.get(i).getOwnedShards().size() > stores.get(candidate).getOwnedShards().size()) {
+                    candidate = i;
+                }
+            }
+            List<Integer> victimShards = stores.get(candidate).getOwnedShards();
+            check(!victimShards.isEmpty(), "stopped node should own shards " + owners(stores));
+            List<ShardedJobStore> survivors = new ArrayList<>(stores);
+            survivors.remove(candidate);
+            running.get(candidate).set(false);
+            stopped.get(candidate).await();
+            victim = candidate;
+            stores.get(victim).shutdown();
+            survivor = survivors.get(0);
+            log.info("node{} stopped. its shards:{}", victim, victimShards);
+            String victimId = "node" + victim;
+            deadline = System.currentTimeMillis() + 2 * CLUSTER_CHECKIN_INTERVAL_MILLIS + 7500 + TAKEOVER_SLACK_MILLIS;
+            while ((survivor.getLiveInstances().contains(victimId) || !ownsAllShards(survivors, survivor.getShardCount()))
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(LEASE_REFRESH_INTERVAL_MILLIS);
+            }
+            check(!survivor.getLiveInstances().contains(victimId), "stopped node should leave the live instances after its lease expires " + survivor.getLiveInstances());
+            check(ownsAllShards(survivors, survivor.getShardCount()), "shards of the stopped node should be taken over " + owners(survivors));
+            since = System.currentTimeMillis();
+            Thread.sleep(seconds * 1000L);
+            check(firedSince(usedShards, since), "jobs in taken over shards should fire again " + lastShardFire);
+
+            // 3. 不重复触发
+            check(duplicates.get() == 0, "no trigger should fire twice for the same scheduled time, duplicates: " + duplicates.get());
+            log.info("sharded job store test passed. nodes:{} threads:{} groups:{} fires:{}", nodes, threads, groups, fireCount.get());
+        } finally {
+            for (int i = 0; i < nodes; i++) {
+                running.get(i).set(false);
+            }
+            for (int i = 0; i < nodes; i++) {
+                stopped.get(i).await();
+            }
+            survivor.clearAllSchedulingData();
+            for (int i = 0; i < nodes; i++) {
+                if (i != victim) {
+                    stores.get(i).shutdown();
+                }
+            }
+        }
+
+        // 4. 通过QuartzUtils和项目默认配置创建调度器
+        runWithQuartzUtils(urls, username, password, threads, groups, seconds, true);
+        runWithQuartzUtils(urls, username, password, threads, groups, seconds, false);
+        log.info("sharded job store test with QuartzUtils passed.");
+    }
+
+    /**
+     * 默认配置上覆盖数据源后写到临时文件,作为外部配置加载
+     *
+     * @param sharded true使用所有分片库,false不配置dataSources,只用第一个库作为org.quartz.jobStore.dataSource
+     */
+    private static void runWithQuartzUtils(String[] urls, String username, String password, int threads, int groups, int seconds,
+                                           boolean sharded) throws Exception {
+        Properties props = QuartzUtils.getProperties();
+        props.setProperty("org.quartz.scheduler.instanceName", SCHEDULER_NAME);
+        props.setProperty("org.quartz.jobStore.tablePrefix", "QRTZ_");
+        props.setProperty("org.quartz.jobStore.isClustered", "false");
+        setDataSource(props, "quartz_ds", urls[0].trim(), username, password, threads);
+        StringBuilder dataSources = new StringBuilder();
+        for (int i = 0; i < urls.length; i++) {
+            setDataSource(props, "shardedTest" + i, urls[i].trim(), username, password, threads);
+            if (dataSources.length() > 0) {
+                dataSources.append(',');
+            }
+            dataSources.append("shardedTest").append(i);
+        }
+        if (sharded) {
+            props.setProperty("org.quartz.jobStore.dataSources", dataSources.toString());
+        }
+        File config = File.createTempFile("sharded-quartz", ".properties");
+        config.deleteOnExit();
+        OutputStream out = new FileOutputStream(config);
+        try {
+            props.store(out, null);
+        } finally {
+            out.close();
+        }
+        String previous = System.getProperty(Constant.QUARTZ_CONF_ENV_NAME);
+        System.setProperty(Constant.QUARTZ_CONF_ENV_NAME, config.getPath());
+        QuartzUtils.reloadProperties();
+
+        CountingJob.groups.clear();
+        Scheduler scheduler = QuartzUtils.getStdSchedulerFactory(threads, Thread.NORM_PRIORITY, "sharded", JOB_STORE_CLASS.SHARDEDJOBSTORE).getScheduler();
+        try {
+            scheduler.clear();
+            for (int i = 0; i < groups; i++) {
+                QuartzUtils.scheduleWithFixedDelay(scheduler, CountingJob.class, 0, REPEAT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS, -1,
+                        "job", "group" + i);
+            }
+            scheduler.start();
+            long deadline = System.currentTimeMillis() + seconds * 1000L;
+            while (CountingJob.groups.size() < groups && System.currentTimeMillis() < deadline) {
+                Thread.sleep(REPEAT_INTERVAL_MILLIS);
+            }
+            check(CountingJob.groups.size() == groups, (sharded ? "sharded" : "single shard") + " scheduler created by QuartzUtils should fire every job group, fired: "
+                    + CountingJob.groups.size() + "/" + groups);
+            scheduler.standby();
+            scheduler.clear();
+        } finally {
+            scheduler.shutdown(true);
+            if (previous == null) {
+                System.clearProperty(Constant.QUARTZ_CONF_ENV_NAME);
+            } else {
+                System.setProperty(Constant.QUARTZ_CONF_ENV_NAME, previous);
+            }
+            QuartzUtils.reloadProperties();
+        }
+    }
+
+    private static void setDataSource(Properties props, String name, String url, String username, String password, int threads) {
+        String prefix = "org.quartz.dataSource." + name + ".";
+        props.setProperty(prefix + "connectionProvider.class", DruidConnectionPoolProvider.class.getName());
+        props.setProperty(prefix + "url", url);
+        props.setProperty(prefix + "username", username);
+        props.setProperty(prefix + "password", password);
+        props.setProperty(prefix + "maxActive", String.valueOf(threads + 2));
+        props.setProperty(prefix + "maxWait", "5000");
+        props.setProperty(prefix + "minEvictableIdleTimeMillis", "300000");
+        props.setProperty(prefix + "filters", "stat");
+    }
+
+    private static void startWorker(final ShardedJobStore store, final AtomicBoolean running, final CountDownLatch stopped, String name) {
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    acquireLoop(store, running);
+                } catch (Exception e) {
+                    log.error("acquire loop error.", e);
+                } finally {
+                    stopped.countDown();
+                }
+            }
+        }, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private static void acquireLoop(ShardedJobStore store, AtomicBoolean running) throws Exception {
+        while (running.get()) {
+            List<OperableTrigger> acquired;
+            try {
+                acquired = store.acquireNextTriggers(System.currentTimeMillis() + 50, BATCH_SIZE, 0L);
+            } catch (JobPersistenceException e) {
+                log.debug("acquire error.", e);
+                continue;
+            }
+            if (acquired.isEmpty()) {
+                Thread.sleep(10);
+                continue;
+            }
+            List<TriggerFiredResult> results = store.triggersFired(acquired);
+            for (int i = 0; i < results.size(); i++) {
+                TriggerFiredResult result = results.get(i);
+                if (result.getTriggerFiredBundle() == null) {
+                    store.releaseAcquiredTrigger(acquired.get(i));
+                    continue;
+                }
+                OperableTrigger trigger = result.getTriggerFiredBundle().getTrigger();
+                JobDetail jobDetail = result.getTriggerFiredBundle().getJobDetail();
+                String fireKey = trigger.getKey() + "@" + result.getTriggerFiredBundle().getScheduledFireTime().getTime();
+                if (fired.putIfAbsent(fireKey, Thread.currentThread().getName()) != null) {
+                    duplicates.incrementAndGet();
+                    log.error("duplicate fire. trigger:{} by:{} and:{}", fireKey, fired.get(fireKey), Thread.currentThread().getName());
+                }
+                fireCount.incrementAndGet();
+                lastShardFire.put(store.shardOf(jobDetail.getKey()), System.currentTimeMillis());
+                store.triggeredJobComplete(trigger, jobDetail, CompletedExecutionInstruction.NOOP);
+            }
+        }
+    }
+
+    /**
+     * 每个分片恰好被一个节点拥有
+     */
+    private static boolean ownsAllShards(List<ShardedJobStore> stores, int shardCount) {
+        int[] owners = new int[shardCount];
+        for (ShardedJobStore store : stores) {
+            for (Integer shard : store.getOwnedShards()) {
+                owners[shard]++;
+            }
+        }
+        for (int count : owners) {
+            if (count != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String owners(List<ShardedJobStore> stores) {
+        List<List<Integer>> owned = new ArrayList<>();
+        for (ShardedJobStore store : stores) {
+            owned.add(store.getOwnedShards());
+        }
+        return owned.toString();
+    }
+
+    private static boolean firedSince(Set<Integer> shards, long since) {
+        for (Integer shard : shards) {
+            Long last = lastShardFire.get(shard);
+            if (last == null || last < since) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void createTables(String url, String username, String password, String schemaScript) throws Exception {
+        StringBuilder sql = new StringBuilder();
+        InputStream in = ShardedJobStoreTest.class.getResourceAsStream(schemaScript);
+        if (in == null) {
+            throw new IllegalArgumentException("schema script not found: " + schemaScript);
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().startsWith("--")) {
+                    sql.append(line).append('\n');
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        Connection conn = DriverManager.getConnection(url, username, password);
+        try {
+            Statement statement = conn.createStatement();
+            try {
+                for (String part : sql.toString().split(";")) {
+                    String ddl = part.trim();
+                    if (!ddl.isEmpty() && !"COMMIT".equalsIgnoreCase(ddl)) {
+                        statement.execute(ddl);
+                    }
+                }
+            } finally {
+                statement.close();
+            }
+        } finally {
+            conn.close();
+        }
+    }
+
+    private static ShardedJobStore createStore(int node, String[] urls, String username, String password, int threads) throws Exception {
+        StringBuilder dataSources = new StringBuilder();
+        for (int i = 0; i < urls.length; i++) {
+            String dataSource = "shardedTest" + node + "_" + i;
+            DruidConnectionPoolProvider provider = new DruidConnectionPoolProvider();
+            provider.setUrl(urls[i].trim());
+            provider.setUsername(username);
+            provider.setPassword(password);
+            provider.setMaxActive(threads + 2);
+            provider.setMinEvictableIdleTimeMillis(300000);
+            provider.setShared(false); // 每个节点每个分片一个连接池
+            provider.initialize();
+            DBConnectionManager.getInstance().addConnectionProvider(dataSource, provider);
+            if (dataSources.length() > 0) {
+                dataSources.append(',');
+            }
+            dataSources.append(dataSource);
+        }
+
+        ShardedJobStore store = new ShardedJobStore();
+        store.setDataSources(dataSources.toString());
+        store.setTablePrefix("QRTZ_");
+        store.setDriverDelegateClass(StdJDBCDelegate.class.getName());
+        store.setIsClustered(true);
+        store.setClusterCheckinInterval(CLUSTER_CHECKIN_INTERVAL_MILLIS);
+        store.setLeaseRefreshIntervalMillis(LEASE_REFRESH_INTERVAL_MILLIS);
+        store.setAcquireTriggersWithinLock(true);
+        store.setInstanceName(SCHEDULER_NAME);
+        store.setInstanceId("node" + node);
+        store.setThreadPoolSize(threads);
+        CascadingClassLoadHelper classLoadHelper = new CascadingClassLoadHelper();
+        classLoadHelper.initialize();
+        store.initialize(classLoadHelper, new NoOpSignaler());
+        return store;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+        log.info("ok: {}", message);
+    }
+
+    public static class NoOpJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+        }
+    }
+
+    /**
+     * 记录触发过的任务组
+     */
+    public static class CountingJob implements Job {
+
+        private static final Set<String> groups = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void execute(JobExecutionContext context) {
+            groups.add(context.getJobDetail().getKey().getGroup());
+        }
+    }
+
+    private static class NoOpSignaler implements SchedulerSignaler {
+        @Override
+        public void notifyTriggerListenersMisfired(Trigger trigger) {
+        }
+
+        @Override
+        public void notifySchedulerListenersFinalized(Trigger trigger) {
+        }
+
+        @Override
+        public void notifySchedulerListenersJobDeleted(JobKey jobKey) {
+        }
+
+        @Override
+        public void signalSchedulingChange(long candidateNewNextFireTime) {
+        }
+
+        @Override
+        public void notifySchedulerListenersError(String string, SchedulerException jpe) {
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.hyr.quartz;
+
+import com.hyr.quartz.connection.DruidConnectionPoolProvider;
+import com.hyr.quartz.jobstore.SkipLockedDelegate;
+import com.hyr.quartz.jobstore.SkipLockedJobStoreTX;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.TriggerBuilder;
+import org.quartz.impl.jdbcjobstore.JobStoreSupport;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.quartz.impl.jdbcjobstore.StdJDBCDelegate;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredResult;
+import org.quartz.utils.DBConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*******************************************************************************
+ * @date 2026-10-18 6:40 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: {@link SkipLockedJobStoreTX}取触发器的正确性测试
+ *
+ * 在一个进程中模拟多个集群节点(各自的JobStore、instanceId和连接池),每个节点多个线程同时取触发器、触发、完成,
+ * 检查同一个触发器的同一次触发时间是否被取到两次,以及结束时是否有取到但没有触发的记录。
+ * 需要先在数据库中执行Quartz的建表脚本(tables_mysql_innodb.sql),测试会清空SKIP_LOCKED_TEST调度器的数据。
+ *
+ * 参数: url username password [mode=skipLocked|global] [nodes=4] [threads=4] [triggers=200] [seconds=30] [lockClause]
+ * mode=global时使用JobStoreTX和全局锁,用于对比吞吐。
+ ******************************************************************************/
+public class SkipLockedJobStoreTest {
+
+    private final static Logger log = LoggerFactory.getLogger(SkipLockedJobStoreTest.class);
+
+    private static final String SCHEDULER_NAME = "SKIP_LOCKED_TEST";
+
+    private static final String GROUP_NAME = "SKIP-LOCKED-GROUP";
+
+    private static final long REPEAT_INTERVAL_MILLIS = 100;
+
+    private static final int BATCH_SIZE = 10;
+
+    private static final ConcurrentHashMap<String, String> fired = new ConcurrentHashMap<>();
+
+    private static final AtomicLong duplicates = new AtomicLong();
+
+    private static final AtomicLong fireCount = new AtomicLong();
+
+    private static final AtomicLong lateMillis = new AtomicLong();
+
+    private static final AtomicLong acquireFailures = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("usage: url username password [mode=skipLocked|global] [nodes] [threads] [triggers] [seconds] [lockClause]");
+            return;
+        }
+        String url = args[0];
+        String username = args[1];
+        String password = args[2];
+        boolean skipLocked = args.length <= 3 || !"global".equals(args[3]);
+        int nodes = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : 4;
+        int triggers = args.length > 6 ? Integer.parseInt(args[6]) : 200;
+        int seconds = args.length > 7 ? Integer.parseInt(args[7]) : 30;
+        String lockClause = args.length > 8 ? args[8] : null;
+
+        List<JobStoreSupport> stores = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            stores.add(createStore(i, url, username, password, skipLocked, lockClause, threads));
+        }
+        JobStoreSupport first = stores.get(0);
+        first.clearAllSchedulingData();
+        JobDetail jobDetail = JobBuilder.newJob(NoOpJob.class).withIdentity("job", GROUP_NAME).storeDurably().build();
+        first.storeJob(jobDetail, true);
+        for (int i = 0; i < triggers; i++) {
+            OperableTrigger trigger = (OperableTrigger) TriggerBuilder.newTrigger().withIdentity("trigger" + i, GROUP_NAME).forJob(jobDetail)
+                    .withSchedule(SimpleScheduleBuilder.simpleSchedule().withIntervalInMilliseconds(REPEAT_INTERVAL_MILLIS).repeatForever())
+                    .build();
+            trigger.computeFirstFireTime(null);
+            first.storeTrigger(trigger, true);
+        }
+
+        final long deadline = System.currentTimeMillis() + seconds * 1000L;
+        final CountDownLatch done = new CountDownLatch(nodes * threads);
+        final AtomicLong[] perNode = new AtomicLong[nodes];
+        for (int i = 0; i < nodes; i++) {
+            perNode[i] = new AtomicLong();
+            for (int j = 0; j < threads; j++) {
+                final JobStoreSupport store = stores.get(i);
+                final AtomicLong counter = perNode[i];
+                Thread worker = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            acquireLoop(store, counter, deadline);
+                        } catch (Exception e) {
+                            log.error("acquire loop error.", e);
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                }, "node" + i + "-" + j);
+                worker.start();
+            }
+        }
+        done.await();
+
+        // 所有取到的触发器都已触发完成或放回,不应留下QRTZ_FIRED_TRIGGERS记录
+        int firedLeft = countFiredTriggers("skipLockedTest0");
+        long fires = fireCount.get();
+        StringBuilder nodeCounts = new StringBuilder();
+        for (AtomicLong counter : perNode) {
+            nodeCounts.append(counter.get()).append(' ');
+        }
+        log.info("mode:{} nodes:{} threads:{} triggers:{} fires:{} fires/s:{} duplicates:{} avgLateMillis:{} acquireFailures:{} perNode:[{}] firedTriggersLeft:{}",
+                skipLocked ? "skipLocked" : "global", nodes, threads, triggers, fires, fires / seconds, duplicates.get(),
+                fires == 0 ? 0 : lateMillis.get() / fires, acquireFailures.get(), nodeCounts.toString().trim(), firedLeft);
+        first.clearAllSchedulingData();
+        for (JobStoreSupport store : stores) {
+            store.shutdown();
+        }
+        if (duplicates.get() > 0 || firedLeft > 0) {
+            throw new IllegalStateException("duplicate acquisitions: " + duplicates.get() + " fired triggers left: " + firedLeft);
+        }
+    }
+
+    private static void acquireLoop(JobStoreSupport store, AtomicLong counter, long deadline) throws Exception {
+        while (System.currentTimeMillis() < deadline) {
+            long now = System.currentTimeMillis();
+            List<OperableTrigger> acquired;
+            try {
+                acquired = store.acquireNextTriggers(now, BATCH_SIZE, 0L);
+            } catch (JobPersistenceException e) {
+                // 与QuartzSchedulerThread一致,取失败(如死锁被回滚)时重试
+                acquireFailures.incrementAndGet();
+                log.debug("acquire error.", e);
+                continue;
+            }
+            if (acquired.isEmpty()) {
+                Thread.sleep(1);
+                continue;
+            }
+            List<TriggerFiredResult> results = store.triggersFired(acquired);
+            for (int i = 0; i < results.size(); i++) {
+                TriggerFiredResult result = results.get(i);
+                if (result.getTriggerFiredBundle() == null) {
+                    // 与QuartzSchedulerThread一致,放回没有触发的触发器
+                    store.releaseAcquiredTrigger(acquired.get(i));
+                    continue;
+                }
+                OperableTrigger trigger = result.getTriggerFiredBundle().getTrigger();
+                long scheduled = result.getTriggerFiredBundle().getScheduledFireTime().getTime();
+                String fireKey = trigger.getKey() + "@" + scheduled;
+                if (fired.putIfAbsent(fireKey, Thread.currentThread().getName()) != null) {
+                    duplicates.incrementAndGet();
+                    log.error("duplicate fire. trigger:{} by:{} and:{}", fireKey, fired.get(fireKey), Thread.currentThread().getName());
+                }
+                fireCount.incrementAndGet();
+                lateMillis.addAndGet(Math.max(0, System.currentTimeMillis() - scheduled));
+                counter.incrementAndGet();
+                store.triggeredJobComplete(trigger, result.getTriggerFiredBundle().getJobDetail(), CompletedExecutionInstruction.NOOP);
+            }
+        }
+    }
+
+    private static int countFiredTriggers(String dataSource) throws Exception {
+        Connection conn = DBConnectionManager.getInstance().getConnection(dataSource);
+        try {
+            PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM QRTZ_FIRED_TRIGGERS WHERE SCHED_NAME = ?");
+            try {
+                ps.setString(1, SCHEDULER_NAME);
+                ResultSet rs = ps.executeQuery();
+                rs.next();
+                return rs.getInt(1);
+            } finally {
+                ps.close();
+            }
+        } finally {
+            conn.close();
+        }
+    }
+
+    private static JobStoreSupport createStore(int node, String url, String username, String password, boolean skipLocked,
+                                               String lockClause, int threads) throws Exception {
+        String dataSource = "skipLockedTest" + node;
+        DruidConnectionPoolProvider provider = new DruidConnectionPoolProvider();
+        provider.setUrl(url);
+        provider.setUsername(username);
+        provider.setPassword(password);
+        provider.setMaxActive(threads + 2);
+        provider.setShared(false); // 每个节点一个连接池
+        provider.initialize();
+        DBConnectionManager.getInstance().addConnectionProvider(dataSource, provider);
+
+        JobStoreSupport store = skipLocked ? new SkipLockedJobStoreTX() : new JobStoreTX();
+        store.setDataSource(dataSource);
+        store.setTablePrefix("QRTZ_");
+        store.setIsClustered(true);
+        store.setInstanceName(SCHEDULER_NAME);
+        store.setInstanceId("node" + node);
+        store.setThreadPoolSize(threads);
+        if (skipLocked) {
+            store.setDriverDelegateClass(SkipLockedDelegate.class.getName());
+            if (lockClause != null) {
+                store.setDriverDelegateInitString("lockClause=" + lockClause);
+            }
+        } else {
+            store.setDriverDelegateClass(StdJDBCDelegate.class.getName());
+        }
+        CascadingClassLoadHelper classLoadHelper = new CascadingClassLoadHelper();
+        classLoadHelper.initialize();
+        store.initialize(classLoadHelper, new NoOpSignaler());
+        return store;
+    }
+
+    public static class NoOpJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+        }
+    }
+
+    private static class NoOpSignaler implements SchedulerSignaler {
+        @Override
+        public void notifyTriggerListenersMisfired(Trigger trigger) {
+        }
+
+        @Override
+        public void notifySchedulerListenersFinalized(Trigger trigger) {
+        }
+
+        @Override
+        public void notifySchedulerListenersJobDeleted(JobKey jobKey) {
+        }
+
+        @Override
+        public void signalSchedulingChange(long candidateNewNextFireTime) {
+        }
+
+        @Override
+        public void notifySchedulerListenersError(String string, SchedulerException jpe) {
+        }
+    }
+}
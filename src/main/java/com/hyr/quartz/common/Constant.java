@@ -23,4 +23,189 @@ public class Constant {
      */
     public final static String QUARTZ_CONF_ENV_NAME="quartz.config";
 
+    /**
+     * 批量调度时每个分片的默认任务数,每个分片在JobStoreTX中对应一次事务
+     */
+    public final static int SCHEDULE_BATCH_CHUNK_SIZE = 500;
+
+    /**
+     * SchedulerContext中任务触发器索引的key
+     */
+    public final static String JOB_TRIGGER_INDEX_CONTEXT_KEY = "com.hyr.quartz.JOB_TRIGGER_INDEX";
+
+    /**
+     * SchedulerContext中运行中任务登记表的key
+     */
+    public final static String EXECUTING_JOB_REGISTRY_CONTEXT_KEY = "com.hyr.quartz.EXECUTING_JOB_REGISTRY";
+
+    /**
+     * SchedulerContext中JobStore数据源名的key,多个数据源逗号分隔
+     */
+    public final static String JOB_STORE_DATA_SOURCES_CONTEXT_KEY = "com.hyr.quartz.JOB_STORE_DATA_SOURCES";
+
+    /**
+     * 分组隔离线程池每个分区的默认队列上限
+     */
+    public final static int GROUP_BULKHEAD_QUEUE_CAPACITY = 10;
+
+    /**
+     * 分组隔离线程池关闭时等待排队任务执行的默认最长时间
+     */
+    public final static long GROUP_BULKHEAD_SHUTDOWN_DRAIN_MILLIS = 30000;
+
+    /**
+     * 日志插件异步输出的默认缓冲区大小
+     */
+    public final static int HISTORY_SINK_BUFFER_SIZE = 8192;
+
+    /**
+     * 预编译Cron表达式缓存的默认容量
+     */
+    public final static int CRON_EXPRESSION_CACHE_SIZE = 1024;
+
+    /**
+     * 连接池自动调整的默认采样间隔
+     */
+    public final static long POOL_AUTO_SIZE_INTERVAL_MILLIS = 5000;
+
+    /**
+     * 连接池自动调整时,平均等待连接超过该时间视为高负载
+     */
+    public final static long POOL_AUTO_SIZE_WAIT_MILLIS = 20;
+
+    /**
+     * 连续高负载多少次采样后扩容
+     */
+    public final static int POOL_AUTO_SIZE_GROW_SAMPLES = 2;
+
+    /**
+     * 连续低负载多少次采样后缩容
+     */
+    public final static int POOL_AUTO_SIZE_SHRINK_SAMPLES = 12;
+
+    /**
+     * 触发速率超过平均值的倍数视为突增
+     */
+    public final static double POOL_AUTO_SIZE_SURGE_FACTOR = 2.0;
+
+    /**
+     * 只读查询路由到从库时允许的最大复制延迟(秒)
+     */
+    public final static int REPLICA_MAX_LAG_SECONDS = 5;
+
+    /**
+     * 从库延迟检查的默认间隔
+     */
+    public final static long REPLICA_CHECK_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 从库取连接的默认最大等待时间,从库宕机时只读查询等待该时间后回退主库
+     */
+    public final static int REPLICA_MAX_WAIT_MILLIS = 500;
+
+    /**
+     * 重试触发器名 RETRY_TRIGGER_JOBNAME_FIREINSTANCEID
+     */
+    public final static String RETRY_TRIGGER_NAME_FORMAT = "RETRY_TRIGGER_%s_%s";
+
+    /**
+     * 重试触发器组名 RETRY_TRIGGER_GROUP_JOBGROUPNAME
+     */
+    public final static String RETRY_TRIGGER_GROUP_NAME_FORMAT = "RETRY_TRIGGER_GROUP_%s";
+
+    /**
+     * 重试触发器JobDataMap中重试次数的key
+     */
+    public final static String RETRY_ATTEMPT_KEY = "com.hyr.quartz.RETRY_ATTEMPT";
+
+    /**
+     * 任务执行失败的默认最大重试次数
+     */
+    public final static int RETRY_MAX_COUNT = 3;
+
+    /**
+     * 第一次重试的默认延迟
+     */
+    public final static long RETRY_INITIAL_DELAY_MILLIS = 1000;
+
+    /**
+     * 每次重试延迟的默认倍数
+     */
+    public final static double RETRY_MULTIPLIER = 2.0;
+
+    /**
+     * 重试的默认最大延迟
+     */
+    public final static long RETRY_MAX_DELAY_MILLIS = 60000;
+
+    /**
+     * 重试延迟的默认随机浮动比例
+     */
+    public final static double RETRY_JITTER = 0.2;
+
+    /**
+     * SchedulerContext中熔断监听器的key
+     */
+    public final static String CIRCUIT_BREAKER_LISTENER_CONTEXT_KEY = "com.hyr.quartz.CIRCUIT_BREAKER_LISTENER";
+
+    /**
+     * 熔断器默认失败阈值
+     */
+    public final static int CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+
+    /**
+     * 熔断器统计失败次数的默认时间窗口
+     */
+    public final static long CIRCUIT_BREAKER_WINDOW_MILLIS = 60000;
+
+    /**
+     * 熔断器默认熔断时长,之后半开试探
+     */
+    public final static long CIRCUIT_BREAKER_OPEN_MILLIS = 30000;
+
+    /**
+     * 二进制JobDataMap编码后超过该字节数时压缩
+     */
+    public final static int JOB_DATA_COMPRESS_THRESHOLD = 512;
+
+    /**
+     * 任务JobDataMap中指定写入方式的key,值为sync或writeBehind
+     */
+    public final static String JOB_DATA_WRITE_MODE_KEY = "_jobDataWriteMode";
+
+    /**
+     * JobDataMap同步写入,在任务完成的事务中写入
+     */
+    public final static String JOB_DATA_WRITE_SYNC = "sync";
+
+    /**
+     * JobDataMap延迟批量写入
+     */
+    public final static String JOB_DATA_WRITE_BEHIND = "writeBehind";
+
+    /**
+     * 延迟写入的JobDataMap默认写入间隔
+     */
+    public final static long JOB_DATA_FLUSH_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 任务完成合并提交的默认等待窗口
+     */
+    public final static long GROUP_COMMIT_WINDOW_MILLIS = 5;
+
+    /**
+     * 任务完成合并提交时一个事务最多包含的完成数
+     */
+    public final static int GROUP_COMMIT_MAX_BATCH_SIZE = 100;
+
+    /**
+     * 等待合并提交的完成队列默认容量
+     */
+    public final static int GROUP_COMMIT_QUEUE_CAPACITY = 10000;
+
+    /**
+     * 分片JobStore刷新租约和分片归属的默认间隔
+     */
+    public final static long SHARD_LEASE_REFRESH_INTERVAL_MILLIS = 5000;
+
 }
@@ -9,17 +9,37 @@ package com.hyr.quartz.common;
 public enum JOB_STORE_CLASS {
 
     //  正常启动
-    RAMJOBSTORE("org.quartz.simpl.RAMJobStore"),
+    RAMJOBSTORE("org.quartz.simpl.RAMJobStore", false),
     // 更新
-    JOBSTORETX("org.quartz.impl.jdbcjobstore.JobStoreTX");
+    JOBSTORETX("org.quartz.impl.jdbcjobstore.JobStoreTX", true),
+    // 触发器和任务编码后存放在堆外内存,适合百万级内存触发器
+    OFFHEAPJOBSTORE("com.hyr.quartz.jobstore.OffHeapJobStore", false),
+    // 时间轮存放待触发的触发器,适合大量短间隔触发器
+    TIMINGWHEELJOBSTORE("com.hyr.quartz.jobstore.TimingWheelJobStore", false),
+    // JobDataMap内容不变时不写入,可延迟批量写入
+    WRITEBEHINDJOBSTORETX("com.hyr.quartz.jobstore.WriteBehindJobStoreTX", true),
+    // 任务完成的写入合并提交,适合大量短任务
+    GROUPCOMMITJOBSTORETX("com.hyr.quartz.jobstore.GroupCommitJobStoreTX", true),
+    // 按任务组分片到多个库,集群节点按租约分配分片
+    SHARDEDJOBSTORE("com.hyr.quartz.jobstore.ShardedJobStore", true),
+    // 取触发器不获取全局锁,用SKIP LOCKED行锁并行取触发器,需要MySQL 8
+    SKIPLOCKEDJOBSTORETX("com.hyr.quartz.jobstore.SkipLockedJobStoreTX", true);
 
     private String className = null;
 
-    JOB_STORE_CLASS(String className) {
+    // 是否使用数据库,内存JobStore不需要配置文件中的JDBC参数和数据源
+    private boolean jdbc;
+
+    JOB_STORE_CLASS(String className, boolean jdbc) {
         this.className = className;
+        this.jdbc = jdbc;
     }
 
     public String getClassName() {
         return className;
     }
+
+    public boolean isJdbc() {
+        return jdbc;
+    }
 }
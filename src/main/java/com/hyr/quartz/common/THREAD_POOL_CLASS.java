@@ -0,0 +1,27 @@
+package com.hyr.quartz.common;
+
+/*******************************************************************************
+ *
+ * @date 2026-10-17 5:10 PM
+ * @author: <a href=mailto:@huangyr>黄跃然</a>
+ * @Description: 工作线程池参数
+ ******************************************************************************/
+public enum THREAD_POOL_CLASS {
+
+    // 固定数量的平台线程
+    SIMPLETHREADPOOL("org.quartz.simpl.SimpleThreadPool"),
+    // 每个任务一个虚拟线程,threadCount为并发上限。适合IO密集型任务
+    VIRTUALTHREADPOOL("com.hyr.quartz.threadpool.VirtualThreadPool"),
+    // 按任务组隔离,threadCount为共享溢出线程数,分区通过org.quartz.threadPool.groupLimits配置,需要配合GroupBulkheadJobFactory
+    GROUPBULKHEADTHREADPOOL("com.hyr.quartz.threadpool.GroupBulkheadThreadPool");
+
+    private String className = null;
+
+    THREAD_POOL_CLASS(String className) {
+        this.className = className;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+}
@@ -1,6 +1,7 @@
 package com.hyr.quartz.connection;
 
 import com.alibaba.druid.pool.DruidDataSource;
+import com.hyr.quartz.common.Constant;
 import org.quartz.utils.ConnectionProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,6 +13,14 @@ import java.sql.SQLException;
  * @date 2019-09-03 13:32
  * @author: <a href=mailto:@huangyr>黄跃然</a>
  * @Description: 自定义Druid连接池
+ *
+ * 默认每个Provider独占一个连接池;shared=true时配置相同的Provider通过{@link DruidDataSourceRegistry}共用一个连接池,
+ * 最后一个Provider shutdown时关闭。共用时连接池要容纳所有调度器的工作线程,maxActive需按调度器数量放大。
+ * 配置了dataSourceName(QuartzUtils创建调度器时自动填入)时按数据源名登记,同名数据源被后创建的调度器替换后,
+ * 被替换的Provider在其调度器关闭时释放。
+ * autoSize=true时由{@link DruidPoolAutoSizer}按负载在[autoSizeMinActive, autoSizeMaxActive]之间调整maxActive和minIdle。
+ * 配置了replicaUrl时,{@link ReadOnlyRouting}范围内的只读查询使用从库连接池,其余(调度线程和所有写操作)走主库;
+ * 从库延迟超过replicaMaxLagSeconds或不可用时回退主库,见{@link ReplicaLagMonitor}。
  ******************************************************************************/
 public class DruidConnectionPoolProvider implements ConnectionProvider {
 
@@ -44,12 +53,44 @@ public class DruidConnectionPoolProvider implements ConnectionProvider {
     private String druidWhiteList;
     private String druidBlackList;
     private String druidResetEnable;
+    private String dataSourceName; // DBConnectionManager中的数据源名
+    private int connectionDemand; // 使用该数据源的调度器需要的连接数(threadCount+2),超过maxActive时告警,0为未知
+    private boolean shared; // 是否与配置相同的Provider共用连接池
+    private boolean autoSize; // 是否按负载自动调整连接池大小
+    private int autoSizeMinActive; // 自动调整时maxActive的下限,默认取minIdle
+    private int autoSizeMaxActive; // 自动调整时maxActive的上限,默认取maxActive
+    private long autoSizeIntervalMillis = Constant.POOL_AUTO_SIZE_INTERVAL_MILLIS; // 采样间隔
+    private long autoSizeWaitMillis = Constant.POOL_AUTO_SIZE_WAIT_MILLIS; // 平均等待连接超过该时间视为高负载
+    private String replicaUrl; // 从库地址,为空不做读写分离
+    private String replicaUsername; // 从库用户名,默认同主库
+    private String replicaPassword; // 从库密码,默认同主库
+    private String replicaLagQuery; // 查询从库延迟(秒)的SQL,如SHOW SLAVE STATUS
+    private int replicaMaxLagSeconds = Constant.REPLICA_MAX_LAG_SECONDS; // 允许的最大延迟
+    private long replicaCheckIntervalMillis = Constant.REPLICA_CHECK_INTERVAL_MILLIS; // 延迟检查间隔
+    private int replicaMaxWait = Constant.REPLICA_MAX_WAIT_MILLIS; // 从库取连接最大等待时间,超时回退主库
 
     /**
      * Druid连接池
      */
     private DruidDataSource dataSource;
 
+    /**
+     * 是否已shutdown,防止重复释放共享连接池
+     */
+    private boolean closed;
+
+    /**
+     * 独占连接池时的自动调整,共享连接池的自动调整由{@link DruidDataSourceRegistry}持有
+     */
+    private DruidPoolAutoSizer autoSizer;
+
+    /**
+     * 从库连接池,未配置replicaUrl时为null
+     */
+    private DruidConnectionPoolProvider replica;
+
+    private ReplicaLagMonitor replicaMonitor;
+
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
      *
@@ -60,17 +101,119 @@ public class DruidConnectionPoolProvider implements ConnectionProvider {
 
     @Override
     public Connection getConnection() throws SQLException {
+        if (replicaMonitor != null && ReadOnlyRouting.isReadOnly()) {
+            Connection connection = replicaMonitor.getConnection();
+            if (connection != null) {
+                return connection;
+            }
+        }
         return dataSource.getConnection();
     }
 
     @Override
     public void shutdown() throws SQLException {
-        dataSource.close();
+        DruidDataSourceRegistry.unregister(this).close();
+    }
+
+    private synchronized void close() throws SQLException {
+        if (closed || dataSource == null) {
+            return;
+        }
+        closed = true;
+        if (replicaMonitor != null) {
+            replicaMonitor.stop();
+        }
+        if (replica != null) {
+            replica.close();
+        }
+        if (shared) {
+            DruidDataSourceRegistry.release(dataSource);
+        } else {
+            if (autoSizer != null) {
+                autoSizer.stop();
+            }
+            dataSource.close();
+        }
     }
 
     @Override
-    public void initialize() {
-        dataSource = new DruidDataSource();
+    public synchronized void initialize() {
+        open();
+        DruidDataSourceRegistry.register(this);
+    }
+
+    private void open() {
+        closed = false;
+        if (shared) {
+            dataSource = DruidDataSourceRegistry.acquire(this);
+        } else {
+            dataSource = createDataSource();
+            autoSizer = createAutoSizer(getPoolName(), dataSource);
+            if (autoSizer != null) {
+                autoSizer.start();
+            }
+        }
+        if (replicaUrl != null && !replicaUrl.trim().isEmpty()) {
+            replica = createReplicaProvider();
+            replica.open();
+            replicaMonitor = new ReplicaLagMonitor(replica.getUsername() + "@" + replicaUrl, replica, replicaLagQuery,
+                    replicaMaxLagSeconds, replicaCheckIntervalMillis);
+            replicaMonitor.start();
+            log.info("druid connection pool read-only queries routed to replica. replicaUrl:{} maxLagSeconds:{}", replicaUrl, replicaMaxLagSeconds);
+        }
+    }
+
+    /**
+     * 从库连接池沿用主库的连接池参数,不自动调整大小。取连接等待replicaMaxWait,从库宕机时尽快回退主库
+     */
+    private DruidConnectionPoolProvider createReplicaProvider() {
+        DruidConnectionPoolProvider provider = new DruidConnectionPoolProvider();
+        provider.setUrl(replicaUrl);
+        provider.setUsername(replicaUsername != null ? replicaUsername : username);
+        provider.setPassword(replicaPassword != null ? replicaPassword : password);
+        provider.setDriverClassName(driverClassName);
+        provider.setInitialSize(initialSize);
+        provider.setMinIdle(minIdle);
+        provider.setMaxActive(maxActive);
+        provider.setMaxWait(Math.min(maxWait, replicaMaxWait));
+        provider.setTimeBetweenEvictionRunsMillis(timeBetweenEvictionRunsMillis);
+        provider.setMinEvictableIdleTimeMillis(minEvictableIdleTimeMillis);
+        provider.setValidationQuery(validationQuery);
+        provider.setTestWhileIdle(testWhileIdle);
+        provider.setTestOnBorrow(testOnBorrow);
+        provider.setTestOnReturn(testOnReturn);
+        provider.setPoolPreparedStatements(poolPreparedStatements);
+        provider.setMaxPoolPreparedStatementPerConnectionSize(maxPoolPreparedStatementPerConnectionSize);
+        provider.setFilters(filters);
+        provider.setConnectionProperties(connectionProperties);
+        provider.setShared(shared);
+        return provider;
+    }
+
+    /**
+     * 日志和监控中的连接池名称
+     */
+    String getPoolName() {
+        return dataSourceName != null ? dataSourceName : username + "@" + url;
+    }
+
+    /**
+     * 按当前配置创建连接池的自动调整,未开启时返回null
+     */
+    DruidPoolAutoSizer createAutoSizer(String name, DruidDataSource dataSource) {
+        if (!autoSize) {
+            return null;
+        }
+        int lower = autoSizeMinActive > 0 ? autoSizeMinActive : Math.max(1, minIdle);
+        int upper = autoSizeMaxActive > 0 ? autoSizeMaxActive : Math.max(lower, maxActive);
+        return new DruidPoolAutoSizer(name, dataSource, lower, upper, minIdle, autoSizeIntervalMillis, autoSizeWaitMillis);
+    }
+
+    /**
+     * 按当前配置创建连接池
+     */
+    DruidDataSource createDataSource() {
+        DruidDataSource dataSource = new DruidDataSource();
         log.info("start init druid connection pool. config:{}", this.toString());
         try {
             dataSource.setUrl(url);
@@ -94,6 +237,21 @@ public class DruidConnectionPoolProvider implements ConnectionProvider {
         } catch (Exception e) {
             log.error("druid connection pool init error.", e);
         }
+        return dataSource;
+    }
+
+    /**
+     * 共享连接池的key,连接、连接池参数和自动调整参数都相同才共用
+     */
+    String poolKey() {
+        return url + '\u0000' + username + '\u0000' + password + '\u0000' + driverClassName + '\u0000'
+                + initialSize + ',' + minIdle + ',' + maxActive + ',' + maxWait + ','
+                + timeBetweenEvictionRunsMillis + ',' + minEvictableIdleTimeMillis + '\u0000'
+                + validationQuery + '\u0000' + testWhileIdle + ',' + testOnBorrow + ',' + testOnReturn + ','
+                + poolPreparedStatements + ',' + maxPoolPreparedStatementPerConnectionSize + '\u0000'
+                + filters + '\u0000' + connectionProperties + '\u0000'
+                + autoSize + ',' + autoSizeMinActive + ',' + autoSizeMaxActive + ','
+                + autoSizeIntervalMillis + ',' + autoSizeWaitMillis;
     }
 
     @Override
@@ -122,6 +280,15 @@ public class DruidConnectionPoolProvider implements ConnectionProvider {
                 ", druidWhiteList='" + druidWhiteList + '\'' +
                 ", druidBlackList='" + druidBlackList + '\'' +
                 ", druidResetEnable='" + druidResetEnable + '\'' +
+                ", dataSourceName='" + dataSourceName + '\'' +
+                ", connectionDemand=" + connectionDemand +
+                ", shared=" + shared +
+                ", autoSize=" + autoSize +
+                ", autoSizeMinActive=" + autoSizeMinActive +
+                ", autoSizeMaxActive=" + autoSizeMaxActive +
+                ", replicaUrl='" + replicaUrl + '\'' +
+                ", replicaMaxLagSeconds=" + replicaMaxLagSeconds +
+                ", replicaMaxWait=" + replicaMaxWait +
                 ", dataSource=" + dataSource +
                 '}';
     }
@@ -310,6 +477,168 @@ public class DruidConnectionPoolProvider implements ConnectionProvider {
         this.druidResetEnable = druidResetEnable;
     }
 
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    public void setDataSourceName(String dataSourceName) {
+        this.dataSourceName = dataSourceName;
+    }
+
+    public int getConnectionDemand() {
+        return connectionDemand;
+    }
+
+    public void setConnectionDemand(int connectionDemand) {
+        this.connectionDemand = connectionDemand;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
+    public boolean isAutoSize() {
+        return autoSize;
+    }
+
+    public void setAutoSize(boolean autoSize) {
+        this.autoSize = autoSize;
+    }
+
+    public int getAutoSizeMinActive() {
+        return autoSizeMinActive;
+    }
+
+    public void setAutoSizeMinActive(int autoSizeMinActive) {
+        this.autoSizeMinActive = autoSizeMinActive;
+    }
+
+    public int getAutoSizeMaxActive() {
+        return autoSizeMaxActive;
+    }
+
+    public void setAutoSizeMaxActive(int autoSizeMaxActive) {
+        this.autoSizeMaxActive = autoSizeMaxActive;
+    }
+
+    public long getAutoSizeIntervalMillis() {
+        return autoSizeIntervalMillis;
+    }
+
+    public void setAutoSizeIntervalMillis(long autoSizeIntervalMillis) {
+        this.autoSizeIntervalMillis = autoSizeIntervalMillis;
+    }
+
+    public long getAutoSizeWaitMillis() {
+        return autoSizeWaitMillis;
+    }
+
+    public void setAutoSizeWaitMillis(long autoSizeWaitMillis) {
+        this.autoSizeWaitMillis = autoSizeWaitMillis;
+    }
+
+    /**
+     * 连接池的自动调整,未开启时返回null
+     */
+    public DruidPoolAutoSizer getAutoSizer() {
+        return shared ? DruidDataSourceRegistry.getAutoSizer(dataSource) : autoSizer;
+    }
+
+    public String getReplicaUrl() {
+        return replicaUrl;
+    }
+
+    public void setReplicaUrl(String replicaUrl) {
+        this.replicaUrl = replicaUrl;
+    }
+
+    public String getReplicaUsername() {
+        return replicaUsername;
+    }
+
+    public void setReplicaUsername(String replicaUsername) {
+        this.replicaUsername = replicaUsername;
+    }
+
+    public String getReplicaPassword() {
+        return replicaPassword;
+    }
+
+    public void setReplicaPassword(String replicaPassword) {
+        this.replicaPassword = replicaPassword;
+    }
+
+    public String getReplicaLagQuery() {
+        return replicaLagQuery;
+    }
+
+    public void setReplicaLagQuery(String replicaLagQuery) {
+        this.replicaLagQuery = replicaLagQuery;
+    }
+
+    public int getReplicaMaxLagSeconds() {
+        return replicaMaxLagSeconds;
+    }
+
+    public void setReplicaMaxLagSeconds(int replicaMaxLagSeconds) {
+        this.replicaMaxLagSeconds = replicaMaxLagSeconds;
+    }
+
+    public long getReplicaCheckIntervalMillis() {
+        return replicaCheckIntervalMillis;
+    }
+
+    public void setReplicaCheckIntervalMillis(long replicaCheckIntervalMillis) {
+        this.replicaCheckIntervalMillis = replicaCheckIntervalMillis;
+    }
+
+    public int getReplicaMaxWait() {
+        return replicaMaxWait;
+    }
+
+    public void setReplicaMaxWait(int replicaMaxWait) {
+        this.replicaMaxWait = replicaMaxWait;
+    }
+
+    /**
+     * 从库当前是否可用于只读查询,未配置从库时返回false
+     */
+    public boolean isReplicaAvailable() {
+        return replicaMonitor != null && replicaMonitor.isAvailable();
+    }
+
+    /**
+     * 最近一次检查到的从库延迟(秒),未检查或复制中断为-1
+     */
+    public long getReplicaLagSeconds() {
+        return replicaMonitor == null ? -1 : replicaMonitor.getLastLagSeconds();
+    }
+
+    /**
+     * 路由到从库的只读查询数
+     */
+    public long getReplicaReads() {
+        return replicaMonitor == null ? 0 : replicaMonitor.getReplicaReads();
+    }
+
+    /**
+     * 从库不可用回退主库的只读查询数
+     */
+    public long getReplicaFallbackReads() {
+        return replicaMonitor == null ? 0 : replicaMonitor.getFallbackReads();
+    }
+
+    /**
+     * 从库连接池,未配置从库时返回null
+     */
+    public DruidDataSource getReplicaDataSource() {
+        return replica == null ? null : replica.getDataSource();
+    }
+
     public DruidDataSource getDataSource() {
         return dataSource;
     }
@@ -0,0 +1,255 @@
+package com.hyr.quartz.connection;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*******************************************************************************
+ * @date 2026-10-18 1:10 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 共享的Druid连接池
+ *
+ * 每个调度器都会创建自己的{@link DruidConnectionPoolProvider},连接同一个库时各自持有initialSize~maxActive个连接,
+ * 调度器多了会耗尽数据库的max_connections。Provider初始化时从这里按连接配置(url、用户名和连接池参数)取得连接池,
+ * 配置相同的Provider共用一个DruidDataSource,按引用计数管理,最后一个Provider shutdown时关闭。
+ * 创建连接池的Provider开启了autoSize时,连接池的{@link DruidPoolAutoSizer}也随连接池创建和关闭。
+ *
+ * 另外按DBConnectionManager中的数据源名登记Provider:多个调度器使用同名数据源时,DBConnectionManager只保留最后注册的Provider,
+ * 每个JobStore关闭时都按名称shutdown这一个Provider。登记后同名的Provider按注册先后依次关闭,每个调度器关闭释放一个,不会遗漏被替换的Provider。
+ ******************************************************************************/
+public final class DruidDataSourceRegistry {
+
+    private final static Logger log = LoggerFactory.getLogger(DruidDataSourceRegistry.class);
+
+    // 连接配置 -> 连接池
+    private final static Map<String, PooledDataSource> POOLS = new LinkedHashMap<>();
+
+    private final static Map<DruidDataSource, PooledDataSource> BY_DATA_SOURCE = new IdentityHashMap<>();
+
+    // 数据源名 -> 以该名称初始化且尚未关闭的Provider,按注册先后排列,最后一个是DBConnectionManager当前持有的
+    private final static Map<String, List<DruidConnectionPoolProvider>> BY_NAME = new HashMap<>();
+
+    // 所有已初始化且尚未关闭的Provider
+    private final static List<DruidConnectionPoolProvider> LIVE = new ArrayList<>();
+
+    private DruidDataSourceRegistry() {
+    }
+
+    /**
+     * 取得与provider配置相同的连接池,不存在时创建,引用计数加一
+     */
+    static DruidDataSource acquire(DruidConnectionPoolProvider provider) {
+        String key = provider.poolKey();
+        synchronized (POOLS) {
+            PooledDataSource pooled = POOLS.get(key);
+            if (pooled == null) {
+                String name = provider.getPoolName();
+                DruidDataSource dataSource = provider.createDataSource();
+                pooled = new PooledDataSource(key, name, dataSource, provider.createAutoSizer(name, dataSource));
+                POOLS.put(key, pooled);
+                BY_DATA_SOURCE.put(pooled.dataSource, pooled);
+                log.info("create shared druid connection pool. name:{}", pooled.name);
+                if (pooled.autoSizer != null) {
+                    pooled.autoSizer.start();
+                }
+            }
+            pooled.references++;
+            log.info("acquire shared druid connection pool. name:{} references:{}", pooled.name, pooled.references);
+            return pooled.dataSource;
+        }
+    }
+
+    /**
+     * 引用计数减一,归零时关闭连接池
+     */
+    static void release(DruidDataSource dataSource) {
+        PooledDataSource closing = null;
+        synchronized (POOLS) {
+            PooledDataSource pooled = BY_DATA_SOURCE.get(dataSource);
+            if (pooled == null) {
+                return;
+            }
+            pooled.references--;
+            log.info("release shared druid connection pool. name:{} references:{}", pooled.name, pooled.references);
+            if (pooled.references == 0) {
+                POOLS.remove(pooled.key);
+                BY_DATA_SOURCE.remove(dataSource);
+                closing = pooled;
+            }
+        }
+        // 关闭连接在锁外进行
+        if (closing != null) {
+            if (closing.autoSizer != null) {
+                closing.autoSizer.stop();
+            }
+            closing.dataSource.close();
+            log.info("close shared druid connection pool. name:{}", closing.name);
+        }
+    }
+
+    /**
+     * 登记初始化完成的Provider,使用连接池的调度器需要的连接数超过maxActive时告警
+     */
+    static void register(DruidConnectionPoolProvider provider) {
+        String name = provider.getDataSourceName();
+        int demand = 0;
+        int schedulers = 0;
+        synchronized (POOLS) {
+            LIVE.add(provider);
+            if (name != null) {
+                List<DruidConnectionPoolProvider> providers = BY_NAME.get(name);
+                if (providers == null) {
+                    providers = new ArrayList<>();
+                    BY_NAME.put(name, providers);
+                }
+                providers.add(provider);
+            }
+            // 同名数据源的调度器都从最后注册的Provider取连接,共享连接池的调度器都从同一个DruidDataSource取连接
+            for (DruidConnectionPoolProvider live : LIVE) {
+                if (live.getConnectionDemand() > 0 && routedDataSource(live) == provider.getDataSource()) {
+                    demand += live.getConnectionDemand();
+                    schedulers++;
+                }
+            }
+        }
+        DruidPoolAutoSizer autoSizer = provider.getAutoSizer();
+        int maxActive = autoSizer != null ? autoSizer.getUpperMaxActive() : provider.getDataSource().getMaxActive();
+        if (demand > maxActive) {
+            log.warn("druid connection pool maxActive is lower than scheduler demand. name:{} schedulers:{} demand:{} maxActive:{}",
+                    provider.getPoolName(), schedulers, demand, maxActive);
+        }
+    }
+
+    /**
+     * 注销关闭中的Provider。JobStore关闭时按数据源名shutdown的总是最后注册的Provider,
+     * 同名的Provider还有多个时改为关闭最早注册的一个,最后注册的Provider继续为其余调度器提供连接。
+     *
+     * @return 需要关闭的Provider
+     */
+    static DruidConnectionPoolProvider unregister(DruidConnectionPoolProvider provider) {
+        String name = provider.getDataSourceName();
+        synchronized (POOLS) {
+            List<DruidConnectionPoolProvider> providers = name == null ? null : BY_NAME.get(name);
+            DruidConnectionPoolProvider target = provider;
+            if (providers != null && providers.size() > 1 && providers.get(providers.size() - 1) == provider) {
+                target = providers.get(0);
+                log.info("release replaced druid connection provider. name:{} remaining:{}", name, providers.size() - 1);
+            }
+            if (providers != null) {
+                providers.remove(target);
+                if (providers.isEmpty()) {
+                    BY_NAME.remove(name);
+                }
+            }
+            LIVE.remove(target);
+            return target;
+        }
+    }
+
+    /**
+     * 调度器实际取连接的连接池
+     */
+    private static DruidDataSource routedDataSource(DruidConnectionPoolProvider provider) {
+        List<DruidConnectionPoolProvider> providers = provider.getDataSourceName() == null ? null : BY_NAME.get(provider.getDataSourceName());
+        if (providers == null || !providers.contains(provider)) {
+            return provider.getDataSource();
+        }
+        return providers.get(providers.size() - 1).getDataSource();
+    }
+
+    /**
+     * 调度器按数据源名取连接的连接池,即该名称最后注册的Provider的连接池,未登记时返回null
+     */
+    public static DruidDataSource getDataSource(String dataSourceName) {
+        synchronized (POOLS) {
+            List<DruidConnectionPoolProvider> providers = BY_NAME.get(dataSourceName);
+            return providers == null ? null : providers.get(providers.size() - 1).getDataSource();
+        }
+    }
+
+    /**
+     * 调度器按数据源名取连接的连接池的自动调整,即该名称最后注册的Provider的自动调整,未登记或未开启时返回null
+     */
+    public static DruidPoolAutoSizer getAutoSizer(String dataSourceName) {
+        DruidConnectionPoolProvider provider;
+        synchronized (POOLS) {
+            List<DruidConnectionPoolProvider> providers = BY_NAME.get(dataSourceName);
+            if (providers == null) {
+                return null;
+            }
+            provider = providers.get(providers.size() - 1);
+        }
+        return provider.getAutoSizer();
+    }
+
+    /**
+     * 共享连接池的自动调整,连接池不存在或未开启时返回null
+     */
+    public static DruidPoolAutoSizer getAutoSizer(DruidDataSource dataSource) {
+        synchronized (POOLS) {
+            PooledDataSource pooled = BY_DATA_SOURCE.get(dataSource);
+            return pooled == null ? null : pooled.autoSizer;
+        }
+    }
+
+    public static int getPoolCount() {
+        synchronized (POOLS) {
+            return POOLS.size();
+        }
+    }
+
+    /**
+     * 所有连接池的汇总统计
+     */
+    public static DruidPoolStatistics getStatistics() {
+        DruidPoolStatistics total = new DruidPoolStatistics("total");
+        for (DruidPoolStatistics statistics : getPoolStatistics()) {
+            total.add(statistics);
+        }
+        return total;
+    }
+
+    /**
+     * 每个连接池的统计
+     */
+    public static List<DruidPoolStatistics> getPoolStatistics() {
+        List<PooledDataSource> pools;
+        synchronized (POOLS) {
+            pools = new ArrayList<>(POOLS.values());
+        }
+        List<DruidPoolStatistics> result = new ArrayList<>(pools.size());
+        for (PooledDataSource pooled : pools) {
+            DruidPoolStatistics statistics = new DruidPoolStatistics(pooled.name);
+            statistics.add(pooled.dataSource, pooled.references);
+            result.add(statistics);
+        }
+        return result;
+    }
+
+    private static class PooledDataSource {
+
+        private final String key;
+
+        private final String name;
+
+        private final DruidDataSource dataSource;
+
+        private final DruidPoolAutoSizer autoSizer;
+
+        private int references;
+
+        PooledDataSource(String key, String name, DruidDataSource dataSource, DruidPoolAutoSizer autoSizer) {
+            this.key = key;
+            this.name = name;
+            this.dataSource = dataSource;
+            this.autoSizer = autoSizer;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.hyr.quartz.connection;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.hyr.quartz.common.Constant;
+import com.hyr.quartz.utils.MxBeanManager;
+import org.quartz.JobExecutionContext;
+import org.quartz.Trigger;
+import org.quartz.TriggerListener;
+import org.quartz.listeners.TriggerListenerSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ObjectName;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*******************************************************************************
+ * @date 2026-10-18 1:40 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: Druid连接池大小自动调整
+ *
+ * 按固定间隔采样连接池的等待时间、等待线程数、使用中连接数,以及调度器的触发速率,在[lowerMaxActive, upperMaxActive]
+ * 之间调整maxActive,minIdle随之取maxActive的1/4(不小于配置的下限)。
+ * 带滞后:连续{@link Constant#POOL_AUTO_SIZE_GROW_SAMPLES}次高负载才扩容,连续{@link Constant#POOL_AUTO_SIZE_SHRINK_SAMPLES}次
+ * 低负载才缩容,调整后重新计数,避免整点触发高峰前后来回抖动。
+ *
+ * 调度器的触发速率需要把{@link #getTriggerListener()}绑定到调度器上,未绑定时用连接池的借出速率代替。
+ * 通过QuartzUtils创建的调度器在绑定监听器或启动时按JobStore的数据源名自动绑定。
+ *
+ * 启动后通过{@link MxBeanManager#registerMBean}注册为com.hyr.quartz:type=DruidPoolAutoSizer,name=连接池名#序号,
+ * 连接池名为数据源名(未配置时为用户名@url),序号区分同名的连接池,
+ * 扩缩容次数、最近一次调整和采样值可以在JMX中查看,停止时注销。
+ ******************************************************************************/
+public class DruidPoolAutoSizer implements DruidPoolAutoSizerMXBean {
+
+    private final static Logger log = LoggerFactory.getLogger(DruidPoolAutoSizer.class);
+
+    /**
+     * 所有连接池共用的采样线程
+     */
+    private static ScheduledExecutorService executor;
+
+    /**
+     * MBean和监听器名称的序号
+     */
+    private final static AtomicInteger sequence = new AtomicInteger();
+
+    private final String name;
+    private final int id; // 区分同名连接池
+    private final DruidDataSource dataSource;
+    private final int lowerMaxActive; // maxActive下限
+    private final int upperMaxActive; // maxActive上限
+    private final int lowerMinIdle; // minIdle下限
+    private final long intervalMillis; // 采样间隔
+    private final long growWaitMillis; // 平均等待时间达到该值视为高负载
+
+    private final AtomicLong fireCount = new AtomicLong();
+    private final AtomicLong misfireCount = new AtomicLong();
+    private final TriggerListener triggerListener;
+
+    private ScheduledFuture<?> future;
+
+    private ObjectName objectName;
+
+    /*
+     * 采样状态,只在采样线程中修改
+     */
+    private long lastWaitCount;
+    private long lastWaitMillis;
+    private long lastConnectCount;
+    private double demandAverage = -1; // 触发或借出速率的指数平均
+    private int highSamples;
+    private int lowSamples;
+
+    /*
+     * 指标
+     */
+    private volatile long growCount;
+    private volatile long shrinkCount;
+    private volatile long lastAverageWaitMillis;
+    private volatile double lastDemandRate;
+    private volatile long lastResizeTime;
+    private volatile String lastDecision = "none";
+
+    public DruidPoolAutoSizer(String name, DruidDataSource dataSource, int lowerMaxActive, int upperMaxActive, int lowerMinIdle,
+                              long intervalMillis, long growWaitMillis) {
+        if (lowerMaxActive <= 0 || upperMaxActive < lowerMaxActive) {
+            throw new IllegalArgumentException("invalid maxActive bounds: " + lowerMaxActive + "~" + upperMaxActive);
+        }
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis must be positive");
+        }
+        this.name = name;
+        this.id = sequence.incrementAndGet();
+        this.dataSource = dataSource;
+        this.lowerMaxActive = lowerMaxActive;
+        this.upperMaxActive = upperMaxActive;
+        this.lowerMinIdle = Math.max(0, Math.min(lowerMinIdle, lowerMaxActive));
+        this.intervalMillis = intervalMillis;
+        this.growWaitMillis = growWaitMillis;
+        this.triggerListener = new TriggerListenerSupport() {
+            @Override
+            public String getName() {
+                return "DruidPoolAutoSizer_" + DruidPoolAutoSizer.this.name + "#" + id;
+            }
+
+            @Override
+            public void triggerFired(Trigger trigger, JobExecutionContext context) {
+                fireCount.incrementAndGet();
+            }
+
+            @Override
+            public void triggerMisfired(Trigger trigger) {
+                // 错过触发说明调度器取不到连接或线程,作为高负载信号
+                misfireCount.incrementAndGet();
+            }
+        };
+    }
+
+    public synchronized void start() {
+        if (future != null) {
+            return;
+        }
+        lastWaitCount = dataSource.getNotEmptyWaitCount();
+        lastWaitMillis = dataSource.getNotEmptyWaitMillis();
+        lastConnectCount = dataSource.getConnectCount();
+        future = getExecutor().scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sample();
+                } catch (Exception e) {
+                    log.error("druid connection pool auto size error. name:{}", name, e);
+                }
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        objectName = MxBeanManager.registerMBean("DruidPoolAutoSizer", name + "#" + id, this);
+        log.info("start druid connection pool auto size. name:{} maxActive:{}~{} minIdle>={} intervalMillis:{}",
+                name, lowerMaxActive, upperMaxActive, lowerMinIdle, intervalMillis);
+    }
+
+    public synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+            MxBeanManager.unregisterMBean(objectName);
+            objectName = null;
+            log.info("stop druid connection pool auto size. name:{}", name);
+        }
+    }
+
+    /**
+     * 一次采样和调整
+     */
+    void sample() {
+        if (dataSource.isClosed()) {
+            return;
+        }
+        int maxActive = dataSource.getMaxActive();
+        int active = dataSource.getActiveCount();
+        int waiting = dataSource.getWaitThreadCount();
+
+        long waitCount = dataSource.getNotEmptyWaitCount();
+        long waitMillis = dataSource.getNotEmptyWaitMillis();
+        long connectCount = dataSource.getConnectCount();
+        long waits = waitCount - lastWaitCount;
+        long averageWaitMillis = waits > 0 ? (waitMillis - lastWaitMillis) / waits : 0;
+        long fires = fireCount.getAndSet(0);
+        long misfires = misfireCount.getAndSet(0);
+        // 绑定了TriggerListener时用调度器的触发数,否则用连接借出数
+        long demand = fires > 0 ? fires : connectCount - lastConnectCount;
+        double demandRate = demand * 1000.0 / intervalMillis;
+        lastWaitCount = waitCount;
+        lastWaitMillis = waitMillis;
+        lastConnectCount = connectCount;
+
+        boolean surge = demandAverage >= 0 && demandRate > 1 && demandRate > demandAverage * Constant.POOL_AUTO_SIZE_SURGE_FACTOR;
+        demandAverage = demandAverage < 0 ? demandRate : demandAverage * 0.8 + demandRate * 0.2;
+        lastAverageWaitMillis = averageWaitMillis;
+        lastDemandRate = demandRate;
+
+        boolean high = waiting > 0 || misfires > 0 || (waits > 0 && averageWaitMillis >= growWaitMillis)
+                || active * 10 >= maxActive * 8 || surge;
+        boolean low = waiting == 0 && waits == 0 && active * 10 <= maxActive * 3 && !surge;
+        if (high) {
+            highSamples++;
+            lowSamples = 0;
+        } else if (low) {
+            lowSamples++;
+            highSamples = 0;
+        } else {
+            highSamples = 0;
+            lowSamples = 0;
+        }
+
+        if (highSamples >= Constant.POOL_AUTO_SIZE_GROW_SAMPLES && maxActive < upperMaxActive) {
+            int target = Math.max(maxActive + 1, Math.max(maxActive * 3 / 2, active + waiting + 1));
+            resize(maxActive, Math.min(upperMaxActive, target), active, waiting, averageWaitMillis, demandRate);
+            growCount++;
+        } else if (lowSamples >= Constant.POOL_AUTO_SIZE_SHRINK_SAMPLES && maxActive > lowerMaxActive) {
+            int target = Math.max(lowerMaxActive, Math.max(active + 1, maxActive * 3 / 4));
+            if (target < maxActive) {
+                resize(maxActive, target, active, waiting, averageWaitMillis, demandRate);
+                shrinkCount++;
+            }
+        }
+    }
+
+    private void resize(int oldMaxActive, int newMaxActive, int active, int waiting, long averageWaitMillis, double demandRate) {
+        int newMinIdle = Math.max(lowerMinIdle, newMaxActive / 4);
+        // minIdle不能大于maxActive,扩容先调maxActive,缩容先调minIdle
+        if (newMaxActive > oldMaxActive) {
+            dataSource.setMaxActive(newMaxActive);
+            dataSource.setMinIdle(newMinIdle);
+        } else {
+            dataSource.setMinIdle(newMinIdle);
+            dataSource.setMaxActive(newMaxActive);
+        }
+        highSamples = 0;
+        lowSamples = 0;
+        lastResizeTime = System.currentTimeMillis();
+        lastDecision = (newMaxActive > oldMaxActive ? "grow " : "shrink ") + oldMaxActive + "->" + newMaxActive;
+        log.info("resize druid connection pool. name:{} maxActive:{}->{} minIdle:{} active:{} waiting:{} avgWaitMillis:{} demandRate:{}/s",
+                name, oldMaxActive, newMaxActive, newMinIdle, active, waiting, averageWaitMillis, String.format("%.1f", demandRate));
+    }
+
+    private static synchronized ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "druid-pool-autosizer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * 绑定到调度器上统计触发速率,QuartzUtils创建的调度器在{@link com.hyr.quartz.utils.QuartzUtils#bindSchedulerListenerManager}
+     * 和{@link com.hyr.quartz.utils.QuartzUtils#start}时自动绑定,也可以通过{@link DruidDataSourceRegistry#getAutoSizer(String)}按数据源名取得后手动绑定
+     */
+    public TriggerListener getTriggerListener() {
+        return triggerListener;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getMaxActive() {
+        return dataSource.getMaxActive();
+    }
+
+    @Override
+    public int getMinIdle() {
+        return dataSource.getMinIdle();
+    }
+
+    @Override
+    public int getLowerMaxActive() {
+        return lowerMaxActive;
+    }
+
+    @Override
+    public int getUpperMaxActive() {
+        return upperMaxActive;
+    }
+
+    @Override
+    public long getGrowCount() {
+        return growCount;
+    }
+
+    @Override
+    public long getShrinkCount() {
+        return shrinkCount;
+    }
+
+    /**
+     * 最近一次采样的平均等待时间
+     */
+    @Override
+    public long getLastAverageWaitMillis() {
+        return lastAverageWaitMillis;
+    }
+
+    /**
+     * 最近一次采样的触发或借出速率(每秒)
+     */
+    @Override
+    public double getLastDemandRate() {
+        return lastDemandRate;
+    }
+
+    @Override
+    public long getLastResizeTime() {
+        return lastResizeTime;
+    }
+
+    @Override
+    public String getLastDecision() {
+        return lastDecision;
+    }
+
+    @Override
+    public String toString() {
+        return "DruidPoolAutoSizer{" +
+                "name='" + name + '\'' +
+                ", maxActive=" + getMaxActive() +
+                ", minIdle=" + getMinIdle() +
+                ", bounds=" + lowerMaxActive + "~" + upperMaxActive +
+                ", growCount=" + growCount +
+                ", shrinkCount=" + shrinkCount +
+                ", lastAverageWaitMillis=" + lastAverageWaitMillis +
+                ", lastDemandRate=" + lastDemandRate +
+                ", lastDecision='" + lastDecision + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,55 @@
+package com.hyr.quartz.connection;
+
+/*******************************************************************************
+ * @date 2026-10-18 1:40 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: {@link DruidPoolAutoSizer}的JMX指标
+ ******************************************************************************/
+public interface DruidPoolAutoSizerMXBean {
+
+    String getName();
+
+    /**
+     * 当前maxActive
+     */
+    int getMaxActive();
+
+    /**
+     * 当前minIdle
+     */
+    int getMinIdle();
+
+    int getLowerMaxActive();
+
+    int getUpperMaxActive();
+
+    /**
+     * 扩容次数
+     */
+    long getGrowCount();
+
+    /**
+     * 缩容次数
+     */
+    long getShrinkCount();
+
+    /**
+     * 最近一次采样的平均等待时间
+     */
+    long getLastAverageWaitMillis();
+
+    /**
+     * 最近一次采样的触发或借出速率(每秒)
+     */
+    double getLastDemandRate();
+
+    /**
+     * 最近一次调整的时间戳
+     */
+    long getLastResizeTime();
+
+    /**
+     * 最近一次调整,如grow 8->12
+     */
+    String getLastDecision();
+}
@@ -0,0 +1,106 @@
+package com.hyr.quartz.connection;
+
+import com.alibaba.druid.pool.DruidDataSource;
+
+/*******************************************************************************
+ * @date 2026-10-18 1:10 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: Druid连接池统计,单个连接池或多个连接池的汇总
+ ******************************************************************************/
+public class DruidPoolStatistics {
+
+    private final String name; // 连接池名称,汇总时为total
+    private int pools; // 连接池数
+    private int references; // 引用连接池的Provider数
+    private int activeCount; // 使用中的连接
+    private int idleCount; // 池中空闲的连接
+    private int maxActive; // 最大连接数
+    private int waitThreadCount; // 正在等待连接的线程
+    private long waitCount; // 累计等待次数
+    private long waitMillis; // 累计等待时间
+    private long connectErrorCount; // 累计建连失败次数
+
+    DruidPoolStatistics(String name) {
+        this.name = name;
+    }
+
+    void add(DruidDataSource dataSource, int references) {
+        this.pools++;
+        this.references += references;
+        this.activeCount += dataSource.getActiveCount();
+        this.idleCount += dataSource.getPoolingCount();
+        this.maxActive += dataSource.getMaxActive();
+        this.waitThreadCount += dataSource.getWaitThreadCount();
+        this.waitCount += dataSource.getNotEmptyWaitCount();
+        this.waitMillis += dataSource.getNotEmptyWaitMillis();
+        this.connectErrorCount += dataSource.getConnectErrorCount();
+    }
+
+    void add(DruidPoolStatistics statistics) {
+        this.pools += statistics.pools;
+        this.references += statistics.references;
+        this.activeCount += statistics.activeCount;
+        this.idleCount += statistics.idleCount;
+        this.maxActive += statistics.maxActive;
+        this.waitThreadCount += statistics.waitThreadCount;
+        this.waitCount += statistics.waitCount;
+        this.waitMillis += statistics.waitMillis;
+        this.connectErrorCount += statistics.connectErrorCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPools() {
+        return pools;
+    }
+
+    public int getReferences() {
+        return references;
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public int getIdleCount() {
+        return idleCount;
+    }
+
+    public int getMaxActive() {
+        return maxActive;
+    }
+
+    public int getWaitThreadCount() {
+        return waitThreadCount;
+    }
+
+    public long getWaitCount() {
+        return waitCount;
+    }
+
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+
+    public long getConnectErrorCount() {
+        return connectErrorCount;
+    }
+
+    @Override
+    public String toString() {
+        return "DruidPoolStatistics{" +
+                "name='" + name + '\'' +
+                ", pools=" + pools +
+                ", references=" + references +
+                ", activeCount=" + activeCount +
+                ", idleCount=" + idleCount +
+                ", maxActive=" + maxActive +
+                ", waitThreadCount=" + waitThreadCount +
+                ", waitCount=" + waitCount +
+                ", waitMillis=" + waitMillis +
+                ", connectErrorCount=" + connectErrorCount +
+                '}';
+    }
+}
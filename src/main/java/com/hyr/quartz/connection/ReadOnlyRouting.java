@@ -0,0 +1,52 @@
+package com.hyr.quartz.connection;
+
+/*******************************************************************************
+ * @date 2026-10-18 2:10 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 只读查询的路由标记
+ *
+ * JobStoreSupport在调用线程上取连接,在只读范围内{@link DruidConnectionPoolProvider}会把连接路由到从库。
+ * 只能包住不加锁的只读调用(getJobKeys、getTriggerState等),调度线程和写操作始终走主库。
+ *
+ * <pre>
+ * boolean previous = ReadOnlyRouting.enter();
+ * try {
+ *     return scheduler.getJobKeys(GroupMatcher.anyJobGroup());
+ * } finally {
+ *     ReadOnlyRouting.exit(previous);
+ * }
+ * </pre>
+ ******************************************************************************/
+public final class ReadOnlyRouting {
+
+    private final static ThreadLocal<Boolean> READ_ONLY = new ThreadLocal<>();
+
+    private ReadOnlyRouting() {
+    }
+
+    /**
+     * 进入只读范围
+     *
+     * @return 进入前的状态, 交给 {@link #exit(boolean)} 恢复
+     */
+    public static boolean enter() {
+        boolean previous = isReadOnly();
+        READ_ONLY.set(Boolean.TRUE);
+        return previous;
+    }
+
+    /**
+     * 退出只读范围,恢复进入前的状态
+     */
+    public static void exit(boolean previous) {
+        if (previous) {
+            READ_ONLY.set(Boolean.TRUE);
+        } else {
+            READ_ONLY.remove();
+        }
+    }
+
+    public static boolean isReadOnly() {
+        return READ_ONLY.get() != null;
+    }
+}
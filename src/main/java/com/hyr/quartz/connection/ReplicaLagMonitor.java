@@ -0,0 +1,202 @@
+package com.hyr.quartz.connection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*******************************************************************************
+ * @date 2026-10-18 2:10 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 从库可用性和复制延迟检查
+ *
+ * 由后台线程每隔checkIntervalMillis检查一次,取连接的线程只读取上次的结果,从库宕机时检查不会阻塞只读查询。
+ * 延迟查询取Seconds_Behind_Master/Seconds_Behind_Source列(可直接配置SHOW SLAVE STATUS),没有该列时取第一列,单位秒;
+ * 未配置延迟查询时只检查能否取得连接。查询超时为检查间隔(至少1秒)。
+ * 延迟为NULL(复制中断)、超过maxLagSeconds、查询或取连接失败时从库不可用,只读查询回退主库,到下次检查再恢复。
+ * 两次检查之间从库宕机时,取连接最多等待从库连接池的maxWait(replicaMaxWait)后回退主库。
+ ******************************************************************************/
+class ReplicaLagMonitor {
+
+    private final static Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final String name;
+    private final DruidConnectionPoolProvider replica;
+    private final String lagQuery; // 为空只检查连接是否可用
+    private final int maxLagSeconds;
+    private final long checkIntervalMillis;
+
+    /**
+     * 所有从库共用的检查线程
+     */
+    private static ScheduledExecutorService executor;
+
+    private ScheduledFuture<?> future;
+    private volatile boolean available = true;
+    private volatile long lastLagSeconds = -1;
+
+    private final AtomicLong replicaReads = new AtomicLong();
+    private final AtomicLong fallbackReads = new AtomicLong();
+
+    ReplicaLagMonitor(String name, DruidConnectionPoolProvider replica, String lagQuery, int maxLagSeconds, long checkIntervalMillis) {
+        this.name = name;
+        this.replica = replica;
+        this.lagQuery = lagQuery == null || lagQuery.trim().isEmpty() ? null : lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    /**
+     * 开始后台检查,立即检查一次
+     */
+    synchronized void start() {
+        if (future != null) {
+            return;
+        }
+        future = getExecutor().scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    check();
+                } catch (Exception e) {
+                    markUnavailable("check failed: " + e.getMessage());
+                }
+            }
+        }, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    /**
+     * 取从库连接,从库不可用时返回null
+     */
+    Connection getConnection() {
+        if (!available) {
+            fallbackReads.incrementAndGet();
+            return null;
+        }
+        try {
+            Connection connection = replica.getConnection();
+            replicaReads.incrementAndGet();
+            return connection;
+        } catch (SQLException e) {
+            markUnavailable("get connection failed: " + e.getMessage());
+            fallbackReads.incrementAndGet();
+            return null;
+        }
+    }
+
+    void check() {
+        if (lagQuery == null) {
+            // 没有延迟查询时只检查能否取得连接
+            try {
+                replica.getConnection().close();
+            } catch (SQLException e) {
+                markUnavailable("get connection failed: " + e.getMessage());
+                return;
+            }
+            if (!available) {
+                available = true;
+                log.info("replica available again. name:{}", name);
+            }
+            return;
+        }
+        Long lag;
+        try {
+            lag = queryLag();
+        } catch (SQLException e) {
+            markUnavailable("lag query failed: " + e.getMessage());
+            return;
+        }
+        lastLagSeconds = lag == null ? -1 : lag;
+        if (lag == null) {
+            markUnavailable("replication is not running");
+        } else if (lag > maxLagSeconds) {
+            markUnavailable("lag " + lag + "s exceeds " + maxLagSeconds + "s");
+        } else if (!available) {
+            available = true;
+            log.info("replica available again. name:{} lagSeconds:{}", name, lag);
+        }
+    }
+
+    private Long queryLag() throws SQLException {
+        Connection connection = replica.getConnection();
+        try {
+            Statement statement = connection.createStatement();
+            try {
+                statement.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(checkIntervalMillis)));
+                ResultSet rs = statement.executeQuery(lagQuery);
+                if (!rs.next()) {
+                    return null;
+                }
+                int column = 1;
+                ResultSetMetaData metaData = rs.getMetaData();
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    String label = metaData.getColumnLabel(i);
+                    if ("Seconds_Behind_Master".equalsIgnoreCase(label) || "Seconds_Behind_Source".equalsIgnoreCase(label)) {
+                        column = i;
+                        break;
+                    }
+                }
+                long lag = rs.getLong(column);
+                return rs.wasNull() ? null : lag;
+            } finally {
+                statement.close();
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void markUnavailable(String reason) {
+        if (available) {
+            log.warn("replica unavailable, read-only queries fall back to primary. name:{} reason:{}", name, reason);
+        }
+        available = false;
+    }
+
+    private static synchronized ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "replica-lag-monitor");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    boolean isAvailable() {
+        return available;
+    }
+
+    long getLastLagSeconds() {
+        return lastLagSeconds;
+    }
+
+    long getReplicaReads() {
+        return replicaReads.get();
+    }
+
+    long getFallbackReads() {
+        return fallbackReads.get();
+    }
+}
@@ -0,0 +1,357 @@
+package com.hyr.quartz.cron;
+
+import org.quartz.CronExpression;
+
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/*******************************************************************************
+ * @date 2026-10-17 11:10 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 预编译的Cron表达式
+ *
+ * 解析交给{@link CronExpression},解析结果按字段编成"下一个合法值"查找表(秒、分、时、日、月为数组,
+ * 星期为到下一个合法星期的天数,年为位图)。计算下次触发时间时在本地时间上逐字段查表进位,
+ * 不再创建Calendar和遍历TreeSet。不可变,多个触发器共享同一实例。
+ *
+ * 以下情况委托给CronExpression.getTimeAfter,保证结果与Quartz完全一致:
+ * <ul>
+ * <li>表达式含L、W、#等特殊日期规则</li>
+ * <li>结果前后一天内时区偏移有变化(夏令时切换)</li>
+ * <li>之后不再触发</li>
+ * </ul>
+ ******************************************************************************/
+public final class CompiledCronExpression {
+
+    private final static long SECOND_MILLIS = 1000L;
+
+    private final static long DAY_MILLIS = 24L * 60 * 60 * SECOND_MILLIS;
+
+    // CronExpression在2999年之后不再计算
+    private final static int MAX_YEAR = 2999;
+
+    private final static long NONE = Long.MIN_VALUE;
+
+    private final CronExpression cronExpression;
+
+    private final TimeZone timeZone;
+
+    private final boolean compiled;
+
+    // 下标为当前值,内容为不小于当前值的第一个合法值,没有时为-1
+    private byte[] nextSecond;
+
+    private byte[] nextMinute;
+
+    private byte[] nextHour;
+
+    private byte[] nextDayOfMonth;
+
+    private byte[] nextMonth;
+
+    // 下标为星期(1=周日),内容为到下一个合法星期的天数
+    private byte[] dayOfWeekDistance;
+
+    private BitSet years;
+
+    CompiledCronExpression(String expression, TimeZone timeZone) throws ParseException {
+        CronExpression cronExpression = new CronExpression(expression);
+        cronExpression.setTimeZone(timeZone);
+        this.cronExpression = cronExpression;
+        this.timeZone = timeZone;
+        this.compiled = compile(cronExpression.getExpressionSummary());
+    }
+
+    public String getCronExpression() {
+        return cronExpression.getCronExpression();
+    }
+
+    public TimeZone getTimeZone() {
+        return timeZone;
+    }
+
+    public String getExpressionSummary() {
+        return cronExpression.getExpressionSummary();
+    }
+
+    /**
+     * @return 是否走查表计算,含L、W、#的表达式始终委托给CronExpression
+     */
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    /**
+     * 与{@link CronExpression#getTimeAfter(Date)}语义相同
+     */
+    public Date getTimeAfter(Date afterTime) {
+        if (!compiled) {
+            return cronExpression.getTimeAfter(afterTime);
+        }
+        // 与CronExpression一致: 从下一秒开始,忽略毫秒
+        long start = Math.floorDiv(afterTime.getTime() + SECOND_MILLIS, SECOND_MILLIS) * SECOND_MILLIS;
+        int offset = timeZone.getOffset(start);
+        long local = nextLocalTime(start + offset);
+        if (local == NONE) {
+            return cronExpression.getTimeAfter(afterTime);
+        }
+        long time = local - offset;
+        if (timeZone.getOffset(time) != offset
+                || timeZone.getOffset(time - DAY_MILLIS) != offset
+                || timeZone.getOffset(time + DAY_MILLIS) != offset) {
+            return cronExpression.getTimeAfter(afterTime);
+        }
+        return new Date(time);
+    }
+
+    /**
+     * 在本地时间上查找不早于local的第一个匹配时间
+     *
+     * @return 本地时间毫秒数,没有时返回{@link #NONE}
+     */
+    private long nextLocalTime(long local) {
+        long epochDay = Math.floorDiv(local, DAY_MILLIS);
+        int secondOfDay = (int) (Math.floorMod(local, DAY_MILLIS) / SECOND_MILLIS);
+        int[] date = civilFromDays(epochDay);
+        int year = date[0];
+        int month = date[1];
+        int day = date[2];
+        int hour = secondOfDay / 3600;
+        int minute = secondOfDay / 60 % 60;
+        int second = secondOfDay % 60;
+
+        while (true) {
+            if (year > MAX_YEAR) {
+                return NONE;
+            }
+            int y = years.nextSetBit(year);
+            if (y < 0) {
+                return NONE;
+            }
+            if (y != year) {
+                year = y;
+                month = 1;
+                day = 1;
+                hour = minute = second = 0;
+            }
+
+            int m = nextMonth[month];
+            if (m < 0) {
+                year++;
+                month = 1;
+                day = 1;
+                hour = minute = second = 0;
+                continue;
+            }
+            if (m != month) {
+                month = m;
+                day = 1;
+                hour = minute = second = 0;
+            }
+
+            int d = nextDay(year, month, day);
+            if (d < 0) {
+                month++;
+                day = 1;
+                hour = minute = second = 0;
+                continue;
+            }
+            if (d != day) {
+                day = d;
+                hour = minute = second = 0;
+            }
+
+            int h = nextHour[hour];
+            if (h < 0) {
+                day++;
+                hour = minute = second = 0;
+                continue;
+            }
+            if (h != hour) {
+                hour = h;
+                minute = second = 0;
+            }
+
+            int mi = nextMinute[minute];
+            if (mi < 0) {
+                hour++;
+                minute = second = 0;
+                continue;
+            }
+            if (mi != minute) {
+                minute = mi;
+                second = 0;
+            }
+
+            int s = nextSecond[second];
+            if (s < 0) {
+                minute++;
+                second = 0;
+                continue;
+            }
+            return daysFromCivil(year, month, day) * DAY_MILLIS + ((hour * 60L + minute) * 60L + s) * SECOND_MILLIS;
+        }
+    }
+
+    /**
+     * 当月不早于day的第一个合法日期,没有时返回-1
+     */
+    private int nextDay(int year, int month, int day) {
+        int lastDay = lastDayOfMonth(year, month);
+        if (day > lastDay) {
+            return -1;
+        }
+        int d;
+        if (dayOfWeekDistance != null) {
+            int dayOfWeek = (int) Math.floorMod(daysFromCivil(year, month, day) + 4, 7L) + 1; // 1970-01-01是周四
+            d = day + dayOfWeekDistance[dayOfWeek];
+        } else {
+            d = nextDayOfMonth[day];
+        }
+        return d < 0 || d > lastDay ? -1 : d;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * 编译
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * 按CronExpression的字段摘要生成查找表,摘要中的集合已经展开了范围、步长和名称
+     *
+     * @return 含特殊日期规则无法编译时返回false
+     */
+    private boolean compile(String summary) {
+        Map<String, String> fields = new HashMap<String, String>();
+        for (String line : summary.split("\n")) {
+            int index = line.indexOf(':');
+            if (index > 0) {
+                fields.put(line.substring(0, index).trim(), line.substring(index + 1).trim());
+            }
+        }
+        if (!"false".equals(fields.get("lastdayOfWeek")) || !"false".equals(fields.get("nearestWeekday"))
+                || !"0".equals(fields.get("NthDayOfWeek")) || !"false".equals(fields.get("lastdayOfMonth"))) {
+            return false;
+        }
+        String daysOfMonth = fields.get("daysOfMonth");
+        String daysOfWeek = fields.get("daysOfWeek");
+        if ("?".equals(daysOfMonth) == "?".equals(daysOfWeek)) {
+            return false;
+        }
+
+        nextSecond = nextValueTable(values(fields.get("seconds"), 0, 59), 60);
+        nextMinute = nextValueTable(values(fields.get("minutes"), 0, 59), 60);
+        nextHour = nextValueTable(values(fields.get("hours"), 0, 23), 24);
+        nextMonth = nextValueTable(values(fields.get("months"), 1, 12), 13);
+        if ("?".equals(daysOfMonth)) {
+            BitSet allowed = values(daysOfWeek, 1, 7);
+            dayOfWeekDistance = new byte[8];
+            for (int dayOfWeek = 1; dayOfWeek <= 7; dayOfWeek++) {
+                int distance = 0;
+                while (distance < 7 && !allowed.get((dayOfWeek - 1 + distance) % 7 + 1)) {
+                    distance++;
+                }
+                if (distance == 7) {
+                    return false;
+                }
+                dayOfWeekDistance[dayOfWeek] = (byte) distance;
+            }
+        } else {
+            nextDayOfMonth = nextValueTable(values(daysOfMonth, 1, 31), 32);
+        }
+        years = values(fields.get("years"), 1970, CronExpression.MAX_YEAR);
+        return true;
+    }
+
+    private static BitSet values(String field, int min, int max) {
+        BitSet bits = new BitSet();
+        if (field == null || field.isEmpty() || "?".equals(field)) {
+            return bits;
+        }
+        if ("*".equals(field)) {
+            bits.set(min, max + 1);
+            return bits;
+        }
+        for (String value : field.split(",")) {
+            int v = Integer.parseInt(value.trim());
+            if (v >= min && v <= max) {
+                bits.set(v);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * 多留一个下标作为进位哨兵,值恒为-1
+     */
+    private static byte[] nextValueTable(BitSet allowed, int size) {
+        byte[] table = new byte[size + 1];
+        Arrays.fill(table, (byte) -1);
+        int next = -1;
+        for (int value = size - 1; value >= 0; value--) {
+            if (allowed.get(value)) {
+                next = value;
+            }
+            table[value] = (byte) next;
+        }
+        return table;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * 公历换算
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private static int lastDayOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * 1970-01-01起的天数
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400L);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * @return {年, 月, 日}
+     */
+    private static int[] civilFromDays(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097L);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        return new int[]{year, month, day};
+    }
+}
@@ -0,0 +1,73 @@
+package com.hyr.quartz.cron;
+
+import org.quartz.CronTrigger;
+import org.quartz.ScheduleBuilder;
+import org.quartz.spi.MutableTrigger;
+
+import java.text.ParseException;
+import java.util.TimeZone;
+
+/*******************************************************************************
+ * @date 2026-10-17 11:10 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 生成{@link CompiledCronTrigger}的ScheduleBuilder
+ *
+ * 用法与CronScheduleBuilder相同,表达式从{@link CronExpressionCache}取得。
+ ******************************************************************************/
+public class CompiledCronScheduleBuilder extends ScheduleBuilder<CronTrigger> {
+
+    private CompiledCronExpression cronExpression;
+
+    private int misfireInstruction = CronTrigger.MISFIRE_INSTRUCTION_SMART_POLICY;
+
+    protected CompiledCronScheduleBuilder(CompiledCronExpression cronExpression) {
+        if (cronExpression == null) {
+            throw new NullPointerException("cronExpression cannot be null");
+        }
+        this.cronExpression = cronExpression;
+    }
+
+    @Override
+    public MutableTrigger build() {
+        CompiledCronTrigger ct = new CompiledCronTrigger();
+        ct.setCompiled(cronExpression);
+        ct.setMisfireInstruction(misfireInstruction);
+        return ct;
+    }
+
+    /**
+     * @param cronExpression cron表达式
+     * @throws RuntimeException 表达式不合法,与CronScheduleBuilder一致
+     */
+    public static CompiledCronScheduleBuilder cronSchedule(String cronExpression) {
+        try {
+            return new CompiledCronScheduleBuilder(CronExpressionCache.get(cronExpression));
+        } catch (ParseException e) {
+            throw new RuntimeException("CronExpression '" + cronExpression + "' is invalid.", e);
+        }
+    }
+
+    public CompiledCronScheduleBuilder inTimeZone(TimeZone timezone) {
+        try {
+            cronExpression = CronExpressionCache.get(cronExpression.getCronExpression(), timezone);
+        } catch (ParseException e) {
+            throw new RuntimeException("CronExpression '" + cronExpression.getCronExpression() + "' is invalid.", e);
+        }
+        return this;
+    }
+
+    public CompiledCronScheduleBuilder withMisfireHandlingInstructionIgnoreMisfires() {
+        misfireInstruction = CronTrigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY;
+        return this;
+    }
+
+    public CompiledCronScheduleBuilder withMisfireHandlingInstructionDoNothing() {
+        misfireInstruction = CronTrigger.MISFIRE_INSTRUCTION_DO_NOTHING;
+        return this;
+    }
+
+    public CompiledCronScheduleBuilder withMisfireHandlingInstructionFireAndProceed() {
+        misfireInstruction = CronTrigger.MISFIRE_INSTRUCTION_FIRE_ONCE_NOW;
+        return this;
+    }
+}
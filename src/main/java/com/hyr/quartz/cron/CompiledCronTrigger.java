@@ -0,0 +1,110 @@
+package com.hyr.quartz.cron;
+
+import org.quartz.CronExpression;
+import org.quartz.CronTrigger;
+import org.quartz.ScheduleBuilder;
+import org.quartz.impl.triggers.CronTriggerImpl;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.TimeZone;
+
+/*******************************************************************************
+ * @date 2026-10-17 11:10 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 使用预编译Cron表达式的CronTrigger
+ *
+ * 只保存表达式字符串,计算触发时间时使用{@link CronExpressionCache}中共享的{@link CompiledCronExpression}。
+ * 父类的CronExpression始终为空,JobStore克隆触发器时不会重新解析表达式。
+ * JDBC中按普通CronTrigger持久化,读回后为CronTriggerImpl,触发时间相同。
+ ******************************************************************************/
+public class CompiledCronTrigger extends CronTriggerImpl {
+
+    private static final long serialVersionUID = 6043857239151962011L;
+
+    private String cronExpression;
+
+    private transient CompiledCronExpression compiled;
+
+    public CompiledCronTrigger() {
+        super();
+    }
+
+    @Override
+    public void setCronExpression(String cronExpression) throws ParseException {
+        setCompiled(CronExpressionCache.get(cronExpression, getTimeZone()));
+    }
+
+    /**
+     * 与父类一致,使用表达式自带的时区
+     */
+    @Override
+    public void setCronExpression(CronExpression cronExpression) {
+        setTimeZone(cronExpression.getTimeZone());
+        this.cronExpression = cronExpression.getCronExpression();
+        this.compiled = null;
+    }
+
+    void setCompiled(CompiledCronExpression compiled) {
+        setTimeZone(compiled.getTimeZone());
+        this.cronExpression = compiled.getCronExpression();
+        this.compiled = compiled;
+    }
+
+    @Override
+    public String getCronExpression() {
+        return cronExpression;
+    }
+
+    @Override
+    public String getExpressionSummary() {
+        CompiledCronExpression compiled = compiled();
+        return compiled == null ? null : compiled.getExpressionSummary();
+    }
+
+    @Override
+    public ScheduleBuilder<CronTrigger> getScheduleBuilder() {
+        CompiledCronScheduleBuilder cb = CompiledCronScheduleBuilder.cronSchedule(getCronExpression())
+                .inTimeZone(getTimeZone());
+        switch (getMisfireInstruction()) {
+            case MISFIRE_INSTRUCTION_DO_NOTHING:
+                cb.withMisfireHandlingInstructionDoNothing();
+                break;
+            case MISFIRE_INSTRUCTION_FIRE_ONCE_NOW:
+                cb.withMisfireHandlingInstructionFireAndProceed();
+                break;
+            case MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY:
+                cb.withMisfireHandlingInstructionIgnoreMisfires();
+                break;
+            default:
+                break;
+        }
+        return cb;
+    }
+
+    @Override
+    protected Date getTimeAfter(Date afterTime) {
+        CompiledCronExpression compiled = compiled();
+        return compiled == null ? null : compiled.getTimeAfter(afterTime);
+    }
+
+    /**
+     * 时区被修改或反序列化后从缓存重新取得
+     */
+    private CompiledCronExpression compiled() {
+        if (cronExpression == null) {
+            return null;
+        }
+        CompiledCronExpression compiled = this.compiled;
+        TimeZone timeZone = getTimeZone();
+        if (compiled == null || (compiled.getTimeZone() != timeZone && !compiled.getTimeZone().getID().equals(timeZone.getID()))) {
+            try {
+                compiled = CronExpressionCache.get(cronExpression, timeZone);
+            } catch (ParseException e) {
+                throw new IllegalStateException("CronExpression '" + cronExpression + "' is invalid.", e);
+            }
+            this.compiled = compiled;
+        }
+        return compiled;
+    }
+}
@@ -0,0 +1,108 @@
+package com.hyr.quartz.cron;
+
+import com.hyr.quartz.common.Constant;
+
+import java.text.ParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*******************************************************************************
+ * @date 2026-10-17 11:10 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 预编译Cron表达式缓存
+ *
+ * 按表达式和时区ID缓存{@link CompiledCronExpression},相同的表达式只解析和编译一次,所有触发器共享。
+ * 容量有上限,超出后淘汰最久未使用的表达式,已经引用被淘汰实例的触发器不受影响。
+ ******************************************************************************/
+public final class CronExpressionCache {
+
+    private final static Map<String, CompiledCronExpression> CACHE = new LinkedHashMap<String, CompiledCronExpression>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledCronExpression> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    private volatile static int maxSize = Constant.CRON_EXPRESSION_CACHE_SIZE;
+
+    private final static AtomicLong hits = new AtomicLong();
+
+    private final static AtomicLong misses = new AtomicLong();
+
+    private CronExpressionCache() {
+    }
+
+    /**
+     * 使用默认时区
+     */
+    public static CompiledCronExpression get(String cronExpression) throws ParseException {
+        return get(cronExpression, TimeZone.getDefault());
+    }
+
+    /**
+     * @param cronExpression cron表达式
+     * @param timeZone       计算触发时间使用的时区
+     * @return 共享的编译结果
+     * @throws ParseException 表达式不合法
+     */
+    public static CompiledCronExpression get(String cronExpression, TimeZone timeZone) throws ParseException {
+        if (cronExpression == null) {
+            throw new IllegalArgumentException("cronExpression cannot be null");
+        }
+        if (timeZone == null) {
+            timeZone = TimeZone.getDefault();
+        }
+        String key = timeZone.getID() + ' ' + cronExpression;
+        synchronized (CACHE) {
+            CompiledCronExpression compiled = CACHE.get(key);
+            if (compiled != null) {
+                hits.incrementAndGet();
+                return compiled;
+            }
+        }
+        // 解析放在锁外,并发编译同一表达式时以先放入的为准
+        CompiledCronExpression compiled = new CompiledCronExpression(cronExpression, timeZone);
+        misses.incrementAndGet();
+        synchronized (CACHE) {
+            CompiledCronExpression exists = CACHE.get(key);
+            if (exists != null) {
+                return exists;
+            }
+            CACHE.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    public static int getMaxSize() {
+        return maxSize;
+    }
+
+    public static void setMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be > 0. maxSize:" + maxSize);
+        }
+        CronExpressionCache.maxSize = maxSize;
+    }
+
+    public static int size() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    public static long getHitCount() {
+        return hits.get();
+    }
+
+    public static long getMissCount() {
+        return misses.get();
+    }
+
+    public static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.hyr.quartz.job;
+
+import org.quartz.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/*******************************************************************************
+ * @date 2026-10-18 3:10 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 按依赖名称划分的熔断器
+ *
+ * CLOSED: 正常放行,windowMillis内失败failureThreshold次后转为OPEN
+ * OPEN: 拒绝执行,openMillis后转为HALF_OPEN
+ * HALF_OPEN: 只放行一次试探执行,成功转为CLOSED,失败重新OPEN
+ *
+ * 状态变化通过{@link #addStateListener}通知。
+ * 同名依赖共用一个熔断器,以第一次创建时的参数为准,之后以不同参数获取时告警(每组参数告警一次)。
+ ******************************************************************************/
+public class CircuitBreaker {
+
+    private final static Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private final static ConcurrentMap<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    private final static List<StateListener> STATE_LISTENERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * 已告警过的参数不一致的声明,避免每次执行重复告警
+     */
+    private final static Set<String> MISMATCH_WARNED = ConcurrentHashMap.newKeySet();
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 熔断器状态变化事件
+     */
+    public interface StateListener {
+
+        void stateChanged(CircuitBreaker circuitBreaker, State from, State to);
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long windowMillis;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private final Deque<Long> failureTimes = new ArrayDeque<>(); // 窗口内的失败时间
+    private long openedTime; // 进入OPEN的时间
+    private long trialTime; // 半开试探放行的时间,0表示没有试探中的执行
+
+    private CircuitBreaker(String name, int failureThreshold, long windowMillis, long openMillis) {
+        if (failureThreshold <= 0 || windowMillis <= 0 || openMillis <= 0) {
+            throw new IllegalArgumentException("invalid circuit breaker. name:" + name + " failureThreshold:" + failureThreshold
+                    + " windowMillis:" + windowMillis + " openMillis:" + openMillis);
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.windowMillis = windowMillis;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * 获取依赖对应的熔断器,不存在时按参数创建。已存在且参数不同时沿用已有的参数并告警。
+     */
+    public static CircuitBreaker of(String name, int failureThreshold, long windowMillis, long openMillis) {
+        CircuitBreaker circuitBreaker = BREAKERS.get(name);
+        if (circuitBreaker == null) {
+            CircuitBreaker created = new CircuitBreaker(name, failureThreshold, windowMillis, openMillis);
+            circuitBreaker = BREAKERS.putIfAbsent(name, created);
+            if (circuitBreaker == null) {
+                return created;
+            }
+        }
+        if (circuitBreaker.failureThreshold != failureThreshold || circuitBreaker.windowMillis != windowMillis
+                || circuitBreaker.openMillis != openMillis) {
+            if (MISMATCH_WARNED.add(name + ":" + failureThreshold + ":" + windowMillis + ":" + openMillis)) {
+                log.warn("circuit breaker settings differ from the existing breaker, existing settings are used. name:{} "
+                                + "failureThreshold:{} windowMillis:{} openMillis:{} requested failureThreshold:{} windowMillis:{} openMillis:{}",
+                        name, circuitBreaker.failureThreshold, circuitBreaker.windowMillis, circuitBreaker.openMillis,
+                        failureThreshold, windowMillis, openMillis);
+            }
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * 按任务类上的{@link Dependency}获取熔断器,未声明依赖返回null
+     */
+    public static CircuitBreaker forJob(Class<? extends Job> jobClass) {
+        Dependency dependency = jobClass.getAnnotation(Dependency.class);
+        if (dependency == null) {
+            return null;
+        }
+        return of(dependency.value(), dependency.failureThreshold(), dependency.windowMillis(), dependency.openMillis());
+    }
+
+    /**
+     * 已存在的熔断器,不存在返回null
+     */
+    public static CircuitBreaker get(String name) {
+        return BREAKERS.get(name);
+    }
+
+    public static void addStateListener(StateListener stateListener) {
+        STATE_LISTENERS.add(stateListener);
+    }
+
+    public static void removeStateListener(StateListener stateListener) {
+        STATE_LISTENERS.remove(stateListener);
+    }
+
+    /**
+     * 是否允许执行。HALF_OPEN时只放行一次试探,试探超过openMillis仍未返回结果时再放行一次。
+     */
+    public boolean allowExecution() {
+        State from;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            from = state;
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.OPEN) {
+                if (now - openedTime < openMillis) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+            } else if (trialTime != 0 && now - trialTime < openMillis) {
+                return false;
+            }
+            trialTime = now;
+        }
+        if (from != State.HALF_OPEN) {
+            fireStateChanged(from, State.HALF_OPEN);
+        }
+        return true;
+    }
+
+    public void recordSuccess() {
+        State from;
+        synchronized (this) {
+            from = state;
+            if (state != State.HALF_OPEN) {
+                return;
+            }
+            state = State.CLOSED;
+            failureTimes.clear();
+            trialTime = 0;
+        }
+        fireStateChanged(from, State.CLOSED);
+    }
+
+    public void recordFailure() {
+        State from;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            from = state;
+            if (state == State.OPEN) {
+                return;
+            }
+            if (state == State.CLOSED) {
+                failureTimes.addLast(now);
+                while (!failureTimes.isEmpty() && now - failureTimes.peekFirst() > windowMillis) {
+                    failureTimes.pollFirst();
+                }
+                if (failureTimes.size() < failureThreshold) {
+                    return;
+                }
+            }
+            state = State.OPEN;
+            openedTime = now;
+            failureTimes.clear();
+            trialTime = 0;
+        }
+        fireStateChanged(from, State.OPEN);
+    }
+
+    /**
+     * 放行的试探执行没有真正执行(被其他监听器否决),允许下一次试探
+     */
+    public synchronized void releaseTrial() {
+        trialTime = 0;
+    }
+
+    /**
+     * 当前状态,OPEN到期后在下一次{@link #allowExecution()}时才转为HALF_OPEN
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void fireStateChanged(State from, State to) {
+        if (to == State.OPEN) {
+            log.warn("circuit breaker open. name:{} from:{} openMillis:{}", name, from, openMillis);
+        } else {
+            log.info("circuit breaker state changed. name:{} {}->{}", name, from, to);
+        }
+        for (StateListener stateListener : STATE_LISTENERS) {
+            try {
+                stateListener.stateChanged(this, from, to);
+            } catch (Exception e) {
+                log.error("circuit breaker state listener error. name:{}", name, e);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker{" +
+                "name='" + name + '\'' +
+                ", state=" + state +
+                ", failureThreshold=" + failureThreshold +
+                ", windowMillis=" + windowMillis +
+                ", openMillis=" + openMillis +
+                '}';
+    }
+}
@@ -0,0 +1,46 @@
+package com.hyr.quartz.job;
+
+import com.hyr.quartz.common.Constant;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*******************************************************************************
+ * @date 2026-10-18 3:10 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 声明任务调用的外部依赖
+ *
+ * 调用同一个依赖的任务共用一个{@link CircuitBreaker},依赖故障时由
+ * {@link com.hyr.quartz.listener.CircuitBreakerListener}否决后续触发,{@link QuartzJob#retryExecJob}也不再重试。
+ * 同名依赖以第一次使用时的参数为准,之后参数不同的声明会告警。
+ ******************************************************************************/
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Dependency {
+
+    /**
+     * 依赖名称
+     */
+    String value();
+
+    /**
+     * 时间窗口内失败多少次后熔断
+     */
+    int failureThreshold() default Constant.CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+
+    /**
+     * 统计失败次数的时间窗口
+     */
+    long windowMillis() default Constant.CIRCUIT_BREAKER_WINDOW_MILLIS;
+
+    /**
+     * 熔断多久后半开,放行一次试探执行
+     */
+    long openMillis() default Constant.CIRCUIT_BREAKER_OPEN_MILLIS;
+}
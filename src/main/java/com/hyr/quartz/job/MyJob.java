@@ -9,6 +9,7 @@ import java.util.Date;
 
 @DisallowConcurrentExecution // 不允许并发执行多个Job实例。 当前Job执行完毕后，才会执行下一个。一进一出。
 @PersistJobDataAfterExecution // 每次执行JOB后，更新Job内容
+@Dependency("jobService") // 调用JobService,下游故障时熔断
 public class MyJob extends QuartzJob {
 
     //    private final static Logger _log = Logger.getLogger(MyJob.class);
@@ -1,48 +1,88 @@
 package com.hyr.quartz.job;
 
+import com.hyr.quartz.common.Constant;
 import org.quartz.Job;
+import org.quartz.JobDataMap;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Date;
+
 /*******************************************************************************
  * @date 2018-11-13 下午 5:53
  * @author: <a href=mailto:huangyr>黄跃然</a>
  * @Description: Quartz任务抽象类
+ *
+ * 执行失败时通过{@link #retryExecJob}重试。重试次数记在重试触发器的JobDataMap中,每次触发(fire instance)单独计数,
+ * 不同任务、同一任务的不同触发互不影响。重试不在当前工作线程上立即重跑,而是按{@link #getRetryBackoff()}的退避时间
+ * 调度一个一次性的重试触发器,退避期间工作线程可以执行其他任务。
+ * 任务类声明了{@link Dependency}且依赖已熔断时不再重试。
  ******************************************************************************/
 public abstract class QuartzJob implements Job {
 
     private final static Logger log = LoggerFactory.getLogger(QuartzJob.class);
 
-    private static int CUR_RETRY_COUNT;
-
-    static {
-        CUR_RETRY_COUNT = 0;
+    /**
+     * 重试策略,子类可覆盖
+     */
+    protected RetryBackoff getRetryBackoff() {
+        return RetryBackoff.DEFAULT;
     }
 
     /**
-     * 任务执行失败，最大重试次数
+     * 当前是第几次重试,首次执行为0
      */
-    @SuppressWarnings("FieldCanBeLocal")
-    private static int MAX_RETRY_COUNT;
-
-    static {
-        MAX_RETRY_COUNT = 3;
+    protected int getRetryAttempt(JobExecutionContext jobExecutionContext) {
+        // useProperties=true时JobDataMap只能保存String
+        String attempt = jobExecutionContext.getTrigger().getJobDataMap().getString(Constant.RETRY_ATTEMPT_KEY);
+        return attempt == null ? 0 : Integer.parseInt(attempt);
     }
 
-    void retryExecJob(Exception e, JobExecutionContext jobExecutionContext) throws JobExecutionException {
-        String jobName = jobExecutionContext.getJobDetail().getKey().getName();
-        if (CUR_RETRY_COUNT < MAX_RETRY_COUNT) {
-            CUR_RETRY_COUNT++;
-            // 通过JobExecutionException异常,通知scheduler如何处理
-            JobExecutionException jee = new JobExecutionException(e);
-            jee.setRefireImmediately(true); // 立即重新执行任务
-            // jee.setUnscheduleAllTriggers(true); // 立即停止所有相关这个任务的触发器
-            log.warn("jobName:{} is retry exec. retryCount:{}", jobName, CUR_RETRY_COUNT);
-            throw jee;
-        } else {
-            CUR_RETRY_COUNT = 0;
+    protected void retryExecJob(Exception e, JobExecutionContext jobExecutionContext) throws JobExecutionException {
+        JobKey jobKey = jobExecutionContext.getJobDetail().getKey();
+        String jobName = jobKey.getName();
+        RetryBackoff backoff = getRetryBackoff();
+        int attempt = getRetryAttempt(jobExecutionContext) + 1;
+        if (attempt > backoff.getMaxRetryCount()) {
+            log.warn("jobName:{} retry exhausted. retryCount:{}", jobName, attempt - 1);
+            // 抛出异常让JobListener记录本次失败,不再重试
+            throw new JobExecutionException(e);
+        }
+        CircuitBreaker circuitBreaker = CircuitBreaker.forJob(getClass());
+        if (circuitBreaker != null && circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            // 依赖已熔断,重试也会失败,直接失败
+            log.warn("jobName:{} skip retry, dependency:{} is open.", jobName, circuitBreaker.getName());
+            throw new JobExecutionException(e);
+        }
+
+        long delayMillis = backoff.delayMillis(attempt);
+        // 沿用本次触发的数据,重试时合并后的JobDataMap与首次执行一致
+        JobDataMap retryData = new JobDataMap(jobExecutionContext.getTrigger().getJobDataMap());
+        retryData.put(Constant.RETRY_ATTEMPT_KEY, String.valueOf(attempt));
+        Trigger retryTrigger = TriggerBuilder.newTrigger()
+                .withIdentity(String.format(Constant.RETRY_TRIGGER_NAME_FORMAT, jobName, jobExecutionContext.getFireInstanceId()),
+                        String.format(Constant.RETRY_TRIGGER_GROUP_NAME_FORMAT, jobKey.getGroup()))
+                .forJob(jobKey)
+                .usingJobData(retryData)
+                .startAt(new Date(System.currentTimeMillis() + delayMillis))
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule().withMisfireHandlingInstructionFireNow())
+                .build();
+        // 通过JobExecutionException异常,通知scheduler如何处理
+        JobExecutionException jee = new JobExecutionException(e);
+        // jee.setUnscheduleAllTriggers(true); // 立即停止所有相关这个任务的触发器
+        try {
+            jobExecutionContext.getScheduler().scheduleJob(retryTrigger);
+            log.warn("jobName:{} is retry exec. retryCount:{} delayMillis:{}", jobName, attempt, delayMillis);
+        } catch (SchedulerException se) {
+            log.error("jobName:{} schedule retry error. retryCount:{}", jobName, attempt, se);
         }
+        throw jee;
     }
 }
@@ -0,0 +1,86 @@
+package com.hyr.quartz.job;
+
+import com.hyr.quartz.common.Constant;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*******************************************************************************
+ * @date 2026-10-18 2:40 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 任务重试的退避策略
+ *
+ * 第n次重试的基础延迟为initialDelayMillis * multiplier^(n-1),不超过maxDelayMillis,
+ * 再在[1-jitter, 1+jitter]倍之间随机,避免同一时刻失败的任务在同一时刻重试。
+ ******************************************************************************/
+public class RetryBackoff {
+
+    /**
+     * 默认策略,参数见{@link Constant}
+     */
+    public final static RetryBackoff DEFAULT = new RetryBackoff(Constant.RETRY_MAX_COUNT, Constant.RETRY_INITIAL_DELAY_MILLIS,
+            Constant.RETRY_MULTIPLIER, Constant.RETRY_MAX_DELAY_MILLIS, Constant.RETRY_JITTER);
+
+    private final int maxRetryCount; // 最大重试次数
+    private final long initialDelayMillis; // 第一次重试的延迟
+    private final double multiplier; // 每次重试延迟的倍数
+    private final long maxDelayMillis; // 最大延迟
+    private final double jitter; // 随机浮动比例 0~1
+
+    public RetryBackoff(int maxRetryCount, long initialDelayMillis, double multiplier, long maxDelayMillis, double jitter) {
+        if (maxRetryCount < 0 || initialDelayMillis < 0 || multiplier < 1 || maxDelayMillis < initialDelayMillis) {
+            throw new IllegalArgumentException("invalid retry backoff. maxRetryCount:" + maxRetryCount + " initialDelayMillis:" + initialDelayMillis
+                    + " multiplier:" + multiplier + " maxDelayMillis:" + maxDelayMillis);
+        }
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("jitter must between 0 and 1");
+        }
+        this.maxRetryCount = maxRetryCount;
+        this.initialDelayMillis = initialDelayMillis;
+        this.multiplier = multiplier;
+        this.maxDelayMillis = maxDelayMillis;
+        this.jitter = jitter;
+    }
+
+    /**
+     * 第attempt次重试(从1开始)的延迟
+     */
+    public long delayMillis(int attempt) {
+        double delay = initialDelayMillis * Math.pow(multiplier, Math.max(0, attempt - 1));
+        delay = Math.min(delay, maxDelayMillis);
+        if (jitter > 0) {
+            delay = delay * (1 - jitter + ThreadLocalRandom.current().nextDouble() * 2 * jitter);
+        }
+        return (long) delay;
+    }
+
+    public int getMaxRetryCount() {
+        return maxRetryCount;
+    }
+
+    public long getInitialDelayMillis() {
+        return initialDelayMillis;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryBackoff{" +
+                "maxRetryCount=" + maxRetryCount +
+                ", initialDelayMillis=" + initialDelayMillis +
+                ", multiplier=" + multiplier +
+                ", maxDelayMillis=" + maxDelayMillis +
+                ", jitter=" + jitter +
+                '}';
+    }
+}
@@ -0,0 +1,24 @@
+package com.hyr.quartz.job;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*******************************************************************************
+ * @date 2026-10-18 4:20 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 与@PersistJobDataAfterExecution一起使用,JobDataMap延迟批量写入
+ *
+ * 使用{@link com.hyr.quartz.jobstore.WriteBehindJobStoreTX}时,任务完成后变化的JobDataMap先放在内存中,
+ * 按间隔和在shutdown时合并写入数据库。进程崩溃时会丢失最后一个间隔内的变化,需要崩溃安全的任务不要使用。
+ * 单个任务可以在JobDataMap中用{@link com.hyr.quartz.common.Constant#JOB_DATA_WRITE_MODE_KEY}覆盖。
+ ******************************************************************************/
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface WriteBehindJobData {
+}
@@ -0,0 +1,132 @@
+package com.hyr.quartz.jobstore;
+
+import com.hyr.quartz.common.Constant;
+import org.quartz.JobDataMap;
+import org.quartz.impl.jdbcjobstore.NoSuchDelegateException;
+import org.quartz.impl.jdbcjobstore.StdJDBCDelegate;
+import org.quartz.spi.ClassLoadHelper;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.sql.Blob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Properties;
+
+/*******************************************************************************
+ * @date 2026-10-18 3:40 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: JobDataMap使用二进制编码的DriverDelegate
+ *
+ * 任务和触发器的JOB_DATA列都用{@link JobDataCodec}编码,支持String以外的基本类型,比Java序列化和Properties文本更小、更快,
+ * 编码后超过compressThreshold字节时压缩;key含不成对代理字符的JobDataMap仍用Java序列化保存。
+ * 读取时按内容识别格式,原有的Java序列化和Properties(useProperties=true)数据照常读取,下次写入时转为新格式。
+ * 日历和BLOB触发器的BLOB_DATA不受影响。
+ *
+ * 配置:
+ * org.quartz.jobStore.driverDelegateClass:com.hyr.quartz.jobstore.BinaryJobDataDelegate
+ * org.quartz.jobStore.driverDelegateInitString:compressThreshold=512
+ ******************************************************************************/
+public class BinaryJobDataDelegate extends StdJDBCDelegate {
+
+    private final static String COMPRESS_THRESHOLD = "compressThreshold";
+
+    /**
+     * Java序列化流的开头
+     */
+    private final static int JAVA_SERIALIZATION_MAGIC_0 = 0xAC;
+    private final static int JAVA_SERIALIZATION_MAGIC_1 = 0xED;
+
+    private int compressThreshold = Constant.JOB_DATA_COMPRESS_THRESHOLD;
+
+    @Override
+    public void initialize(Logger logger, String tablePrefix, String schedName, String instanceId, ClassLoadHelper classLoadHelper,
+                           boolean useProperties, String initString) throws NoSuchDelegateException {
+        // 取出本类的设置,其余交给StdJDBCDelegate
+        StringBuilder rest = new StringBuilder();
+        if (initString != null) {
+            for (String setting : initString.split("\\|")) {
+                String[] parts = setting.split("=", 2);
+                if (parts[0].trim().equals(COMPRESS_THRESHOLD) && parts.length == 2) {
+                    try {
+                        compressThreshold = Integer.parseInt(parts[1].trim());
+                    } catch (NumberFormatException e) {
+                        throw new NoSuchDelegateException("Invalid " + COMPRESS_THRESHOLD + ": '" + parts[1] + "'");
+                    }
+                } else if (!setting.trim().isEmpty()) {
+                    if (rest.length() > 0) {
+                        rest.append('|');
+                    }
+                    rest.append(setting);
+                }
+            }
+        }
+        super.initialize(logger, tablePrefix, schedName, instanceId, classLoadHelper, useProperties, rest.length() == 0 ? null : rest.toString());
+    }
+
+    /**
+     * 始终按二进制格式读写JobDataMap,不再限制只能保存String
+     */
+    @Override
+    protected boolean canUseProperties() {
+        return false;
+    }
+
+    @Override
+    protected ByteArrayOutputStream serializeJobData(JobDataMap data) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(0);
+        if (data != null) {
+            byte[] bytes = JobDataCodec.encode(data.getWrappedMap(), compressThreshold);
+            if (bytes == null) {
+                return super.serializeJobData(data);
+            }
+            baos.write(bytes, 0, bytes.length);
+        }
+        return baos;
+    }
+
+    @Override
+    protected Object getObjectFromBlob(ResultSet rs, String colName) throws ClassNotFoundException, IOException, SQLException {
+        if (!COL_JOB_DATAMAP.equals(colName)) {
+            return super.getObjectFromBlob(rs, colName);
+        }
+        byte[] bytes = readBlob(rs, colName);
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (JobDataCodec.isEncoded(bytes)) {
+            return JobDataCodec.decode(bytes);
+        }
+        if ((bytes[0] & 0xFF) == JAVA_SERIALIZATION_MAGIC_0 && bytes.length > 1 && (bytes[1] & 0xFF) == JAVA_SERIALIZATION_MAGIC_1) {
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            try {
+                return in.readObject();
+            } finally {
+                in.close();
+            }
+        }
+        // useProperties=true时写入的Properties文本
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(bytes));
+        return new HashMap<Object, Object>(properties);
+    }
+
+    /**
+     * 读取BLOB的全部内容,子类可按数据库覆盖
+     */
+    protected byte[] readBlob(ResultSet rs, String colName) throws IOException, SQLException {
+        Blob blob = rs.getBlob(colName);
+        if (blob == null) {
+            return null;
+        }
+        return blob.getBytes(1, (int) blob.length());
+    }
+
+    public int getCompressThreshold() {
+        return compressThreshold;
+    }
+}
@@ -0,0 +1,175 @@
+package com.hyr.quartz.jobstore;
+
+import java.nio.ByteBuffer;
+
+/*******************************************************************************
+ * @date 2026-10-17 7:10 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 按下次触发时间排序的堆外二叉堆
+ *
+ * 每项16字节(触发时间、优先级、slot),存放在直接内存中,满了按两倍扩容。
+ * 排序与TriggerTimeComparator一致:触发时间升序,优先级降序,相同时按slot升序代替按key排序。
+ * 每个slot在堆中的位置写回记录的positionField字段,删除和判断是否在堆中都是O(1)定位。
+ ******************************************************************************/
+final class FireTimeIndex {
+
+    final static int NOT_INDEXED = -1;
+
+    private final static int ENTRY_SIZE = 16;
+
+    private final static int TIME = 0;
+
+    private final static int PRIORITY = 8;
+
+    private final static int SLOT = 12;
+
+    private final static int INITIAL_CAPACITY = 1024;
+
+    private final SlotTable table;
+
+    private final int positionField;
+
+    private ByteBuffer heap = ByteBuffer.allocateDirect(INITIAL_CAPACITY * ENTRY_SIZE);
+
+    private int size;
+
+    FireTimeIndex(SlotTable table, int positionField) {
+        this.table = table;
+        this.positionField = positionField;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int slot) {
+        return table.getInt(slot, positionField) != NOT_INDEXED;
+    }
+
+    void add(int slot, long time, int priority) {
+        if (contains(slot)) {
+            remove(slot);
+        }
+        if ((size + 1) * ENTRY_SIZE > heap.capacity()) {
+            ByteBuffer bigger = ByteBuffer.allocateDirect(heap.capacity() * 2);
+            heap.clear();
+            bigger.put(heap);
+            heap = bigger;
+        }
+        int position = size++;
+        set(position, time, priority, slot);
+        siftUp(position);
+    }
+
+    /**
+     * 最早触发的slot,为空时返回{@link SlotTable#NULL_SLOT}
+     */
+    int peek() {
+        return size == 0 ? SlotTable.NULL_SLOT : slotAt(0);
+    }
+
+    /**
+     * 取出最早触发的slot,为空时返回{@link SlotTable#NULL_SLOT}
+     */
+    int poll() {
+        if (size == 0) {
+            return SlotTable.NULL_SLOT;
+        }
+        int slot = slotAt(0);
+        removeAt(0);
+        return slot;
+    }
+
+    boolean remove(int slot) {
+        int position = table.getInt(slot, positionField);
+        if (position == NOT_INDEXED) {
+            return false;
+        }
+        removeAt(position);
+        return true;
+    }
+
+    long getCapacity() {
+        return heap.capacity();
+    }
+
+    private void removeAt(int position) {
+        table.putInt(slotAt(position), positionField, NOT_INDEXED);
+        int last = --size;
+        if (position == last) {
+            return;
+        }
+        int base = last * ENTRY_SIZE;
+        set(position, heap.getLong(base + TIME), heap.getInt(base + PRIORITY), heap.getInt(base + SLOT));
+        siftDown(position);
+        siftUp(position);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (compare(position, parent) >= 0) {
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int child = (position << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && compare(child + 1, child) < 0) {
+                child++;
+            }
+            if (compare(position, child) <= 0) {
+                break;
+            }
+            swap(position, child);
+            position = child;
+        }
+    }
+
+    private int compare(int a, int b) {
+        int baseA = a * ENTRY_SIZE;
+        int baseB = b * ENTRY_SIZE;
+        long timeA = heap.getLong(baseA + TIME);
+        long timeB = heap.getLong(baseB + TIME);
+        if (timeA != timeB) {
+            return timeA < timeB ? -1 : 1;
+        }
+        int priorityA = heap.getInt(baseA + PRIORITY);
+        int priorityB = heap.getInt(baseB + PRIORITY);
+        if (priorityA != priorityB) {
+            return priorityA > priorityB ? -1 : 1;
+        }
+        int slotA = heap.getInt(baseA + SLOT);
+        int slotB = heap.getInt(baseB + SLOT);
+        return slotA < slotB ? -1 : (slotA == slotB ? 0 : 1);
+    }
+
+    private void swap(int a, int b) {
+        int baseA = a * ENTRY_SIZE;
+        int baseB = b * ENTRY_SIZE;
+        long time = heap.getLong(baseA + TIME);
+        int priority = heap.getInt(baseA + PRIORITY);
+        int slot = heap.getInt(baseA + SLOT);
+        set(a, heap.getLong(baseB + TIME), heap.getInt(baseB + PRIORITY), heap.getInt(baseB + SLOT));
+        set(b, time, priority, slot);
+    }
+
+    private void set(int position, long time, int priority, int slot) {
+        int base = position * ENTRY_SIZE;
+        heap.putLong(base + TIME, time);
+        heap.putInt(base + PRIORITY, priority);
+        heap.putInt(base + SLOT, slot);
+        table.putInt(slot, positionField, position);
+    }
+
+    private int slotAt(int position) {
+        return heap.getInt(position * ENTRY_SIZE + SLOT);
+    }
+}
@@ -0,0 +1,353 @@
+package com.hyr.quartz.jobstore;
+
+import com.hyr.quartz.common.Constant;
+import org.quartz.JobDetail;
+import org.quartz.JobPersistenceException;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.quartz.impl.jdbcjobstore.StdJDBCConstants;
+import org.quartz.impl.jdbcjobstore.Util;
+import org.quartz.spi.OperableTrigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*******************************************************************************
+ * @date 2026-10-18 5:10 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 任务完成的写入合并提交(group commit)的JobStoreTX
+ *
+ * JobStoreTX每个任务完成都单独开启事务、获取TRIGGER_ACCESS锁、更新QRTZ_TRIGGERS、删除QRTZ_FIRED_TRIGGERS并提交,
+ * 大量短任务时数据库的提交次数成为瓶颈。这里工作线程只把完成信息放入队列,由一个提交线程把batchWindowMillis内
+ * (最多maxBatchSize个)的完成在一次加锁、一个事务中写入并提交。只需要删除QRTZ_FIRED_TRIGGERS的完成
+ * (NOOP、允许并发、无需保存JobDataMap)用一个JDBC批量语句删除,其余按JobStoreTX原有逻辑在同一事务中执行。
+ * 合并提交失败时逐个按原有逻辑重试,一个完成的问题不影响同批的其他完成。
+ *
+ * 工作线程不等待提交,可以通过{@link #triggeredJobCompleteAsync}拿到提交结果。
+ * 进程崩溃时未提交的完成和执行中的任务一样留在QRTZ_FIRED_TRIGGERS中,由恢复流程处理;shutdown时会先提交队列中剩余的完成。
+ *
+ * 配置:
+ * org.quartz.jobStore.class:com.hyr.quartz.jobstore.GroupCommitJobStoreTX
+ * org.quartz.jobStore.batchWindowMillis:5
+ * org.quartz.jobStore.maxBatchSize:100
+ ******************************************************************************/
+public class GroupCommitJobStoreTX extends JobStoreTX {
+
+    private final static Logger log = LoggerFactory.getLogger(GroupCommitJobStoreTX.class);
+
+    private long batchWindowMillis = Constant.GROUP_COMMIT_WINDOW_MILLIS;
+
+    private int maxBatchSize = Constant.GROUP_COMMIT_MAX_BATCH_SIZE;
+
+    private int queueCapacity = Constant.GROUP_COMMIT_QUEUE_CAPACITY; // 队列满时工作线程等待
+
+    private BlockingQueue<Completion> queue;
+
+    private Committer committer;
+
+    /**
+     * 工作线程放入队列时持有读锁,停止提交线程时持有写锁,保证停止后不会再有完成进入队列
+     */
+    private final ReadWriteLock queueLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong completions = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private volatile int largestBatch;
+
+    @Override
+    public void schedulerStarted() throws SchedulerException {
+        super.schedulerStarted();
+        synchronized (this) {
+            if (committer == null) {
+                queue = new LinkedBlockingQueue<>(queueCapacity);
+                committer = new Committer();
+                committer.start();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        Committer current;
+        queueLock.writeLock().lock();
+        try {
+            synchronized (this) {
+                current = committer;
+                committer = null;
+            }
+            if (current != null) {
+                current.halt();
+            }
+        } finally {
+            queueLock.writeLock().unlock();
+        }
+        if (current != null) {
+            // 提交线程写完队列中剩余的完成后退出,之后再关闭连接池
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        super.shutdown();
+    }
+
+    /**
+     * 放入队列后立即返回,不等待提交
+     */
+    @Override
+    public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail, CompletedExecutionInstruction triggerInstCode) {
+        triggeredJobCompleteAsync(trigger, jobDetail, triggerInstCode);
+    }
+
+    /**
+     * 提交任务完成,返回的future在所在批次提交后完成
+     */
+    public CompletableFuture<Void> triggeredJobCompleteAsync(OperableTrigger trigger, JobDetail jobDetail,
+                                                             CompletedExecutionInstruction triggerInstCode) {
+        Completion completion = new Completion(trigger, jobDetail, triggerInstCode);
+        completions.incrementAndGet();
+        boolean queued = false;
+        queueLock.readLock().lock();
+        try {
+            Committer current = committer;
+            if (current != null && current.isRunning()) {
+                queue.put(completion);
+                queued = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queueLock.readLock().unlock();
+        }
+        if (!queued) {
+            // 未启动或正在关闭,按原有方式同步提交
+            completeEach(Collections.singletonList(completion));
+        }
+        return completion.future;
+    }
+
+    /**
+     * 一个事务中写入一批完成
+     */
+    private void commit(final List<Completion> batch) {
+        try {
+            executeInNonManagedTXLock(LOCK_TRIGGER_ACCESS, new TransactionCallback<Void>() {
+                @Override
+                public Void execute(Connection conn) throws JobPersistenceException {
+                    List<Completion> deletes = new ArrayList<>(batch.size());
+                    for (Completion completion : batch) {
+                        if (completion.isDeleteOnly()) {
+                            deletes.add(completion);
+                        } else {
+                            triggeredJobComplete(conn, completion.trigger, completion.jobDetail, completion.triggerInstCode);
+                        }
+                    }
+                    deleteFiredTriggers(conn, deletes);
+                    return null;
+                }
+            }, null);
+        } catch (JobPersistenceException e) {
+            log.warn("group commit error, fall back to single commits. size:{}", batch.size(), e);
+            fallbacks.incrementAndGet();
+            completeEach(batch);
+            return;
+        }
+        commits.incrementAndGet();
+        if (batch.size() > largestBatch) {
+            largestBatch = batch.size();
+        }
+        for (Completion completion : batch) {
+            completion.future.complete(null);
+        }
+    }
+
+    /**
+     * 按JobStoreTX原有逻辑逐个提交,失败时按dbRetryInterval重试直到成功或shutdown
+     */
+    private void completeEach(List<Completion> batch) {
+        for (Completion completion : batch) {
+            try {
+                super.triggeredJobComplete(completion.trigger, completion.jobDetail, completion.triggerInstCode);
+                completion.future.complete(null);
+            } catch (RuntimeException e) {
+                completion.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void deleteFiredTriggers(Connection conn, List<Completion> deletes) throws JobPersistenceException {
+        if (deletes.isEmpty()) {
+            return;
+        }
+        String sql = Util.rtp(StdJDBCConstants.DELETE_FIRED_TRIGGER, getTablePrefix(), "'" + getInstanceName() + "'");
+        try {
+            PreparedStatement ps = conn.prepareStatement(sql);
+            try {
+                for (Completion completion : deletes) {
+                    ps.setString(1, completion.trigger.getFireInstanceId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            } finally {
+                ps.close();
+            }
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Couldn't delete fired triggers: " + e.getMessage(), e);
+        }
+    }
+
+    private final class Committer extends Thread {
+
+        private volatile boolean running = true;
+
+        Committer() {
+            super(getInstanceName() + "_GroupCommitter");
+            setDaemon(getMakeThreadsDaemons());
+        }
+
+        boolean isRunning() {
+            return running;
+        }
+
+        void halt() {
+            running = false;
+        }
+
+        @Override
+        public void run() {
+            List<Completion> batch = new ArrayList<>(maxBatchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    Completion first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    // 等待同一窗口内的其他完成
+                    long deadline = System.currentTimeMillis() + batchWindowMillis;
+                    while (batch.size() < maxBatchSize) {
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (batch.size() >= maxBatchSize || remaining <= 0) {
+                            break;
+                        }
+                        Completion next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    commit(batch);
+                } catch (InterruptedException e) {
+                    log.warn("group committer interrupted.");
+                } catch (RuntimeException e) {
+                    log.error("group commit error. size:{}", batch.size(), e);
+                    for (Completion completion : batch) {
+                        completion.future.completeExceptionally(e);
+                    }
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private final static class Completion {
+
+        private final OperableTrigger trigger;
+        private final JobDetail jobDetail;
+        private final CompletedExecutionInstruction triggerInstCode;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Completion(OperableTrigger trigger, JobDetail jobDetail, CompletedExecutionInstruction triggerInstCode) {
+            this.trigger = trigger;
+            this.jobDetail = jobDetail;
+            this.triggerInstCode = triggerInstCode;
+        }
+
+        /**
+         * 只需要删除QRTZ_FIRED_TRIGGERS中的记录
+         */
+        boolean isDeleteOnly() {
+            return triggerInstCode == CompletedExecutionInstruction.NOOP
+                    && !jobDetail.isConcurrentExectionDisallowed()
+                    && !(jobDetail.isPersistJobDataAfterExecution() && jobDetail.getJobDataMap().isDirty());
+        }
+    }
+
+    public long getBatchWindowMillis() {
+        return batchWindowMillis;
+    }
+
+    public void setBatchWindowMillis(long batchWindowMillis) {
+        this.batchWindowMillis = batchWindowMillis;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * 任务完成次数
+     */
+    public long getCompletions() {
+        return completions.get();
+    }
+
+    /**
+     * 合并提交的事务数
+     */
+    public long getCommits() {
+        return commits.get();
+    }
+
+    /**
+     * 合并提交失败改为逐个提交的次数
+     */
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    /**
+     * 最大的一批完成数
+     */
+    public int getLargestBatch() {
+        return largestBatch;
+    }
+
+    /**
+     * 等待提交的完成数
+     */
+    public int getQueueSize() {
+        BlockingQueue<Completion> current = queue;
+        return current == null ? 0 : current.size();
+    }
+}
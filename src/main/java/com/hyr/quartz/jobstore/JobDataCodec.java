@@ -0,0 +1,421 @@
+package com.hyr.quartz.jobstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*******************************************************************************
+ * @date 2026-10-18 3:40 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: JobDataMap的二进制编码
+ *
+ * 格式: 'Q' 'J' | 版本(1字节) | 标志(1字节, bit0压缩) | 正文
+ * 压缩时正文为 原长度(varint) + Deflate数据,否则为:
+ * 条目数(varint) | { key长度(varint) key(UTF-8) 类型(1字节) 值 }...
+ * 字符串和字节数组以varint长度开头,int/long为zigzag varint,其他不认识的Serializable值退回Java序列化。
+ * 含有不成对代理字符的字符串按UTF-8编码会变成'?',这样的值退回Java序列化(modified UTF-8可以保留);
+ * 这样的key无法编码,{@link #encode}返回null,由调用方对整个Map使用Java序列化。
+ * 编码后超过压缩阈值且压缩后更小时才压缩。
+ ******************************************************************************/
+public final class JobDataCodec {
+
+    private final static byte MAGIC_0 = 'Q';
+    private final static byte MAGIC_1 = 'J';
+    private final static byte VERSION = 1;
+    private final static int FLAG_COMPRESSED = 1;
+    private final static int HEADER_SIZE = 4;
+
+    private final static byte TYPE_NULL = 0;
+    private final static byte TYPE_STRING = 1;
+    private final static byte TYPE_INT = 2;
+    private final static byte TYPE_LONG = 3;
+    private final static byte TYPE_TRUE = 4;
+    private final static byte TYPE_FALSE = 5;
+    private final static byte TYPE_DOUBLE = 6;
+    private final static byte TYPE_FLOAT = 7;
+    private final static byte TYPE_SHORT = 8;
+    private final static byte TYPE_BYTE = 9;
+    private final static byte TYPE_CHAR = 10;
+    private final static byte TYPE_BYTES = 11;
+    private final static byte TYPE_DATE = 12;
+    private final static byte TYPE_SERIALIZED = 13;
+
+    private JobDataCodec() {
+    }
+
+    /**
+     * 是否是本格式编码的数据
+     */
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length >= HEADER_SIZE && data[0] == MAGIC_0 && data[1] == MAGIC_1;
+    }
+
+    /**
+     * @param data              JobDataMap或其他String为key的Map
+     * @param compressThreshold 编码后超过该字节数时尝试压缩,小于0不压缩
+     * @return 编码结果,有key含不成对的代理字符时返回null
+     */
+    public static byte[] encode(Map<?, ?> data, int compressThreshold) throws IOException {
+        Output out = new Output(256);
+        out.writeByte(MAGIC_0);
+        out.writeByte(MAGIC_1);
+        out.writeByte(VERSION);
+        out.writeByte(0);
+        out.writeVarint(data.size());
+        for (Map.Entry<?, ?> entry : data.entrySet()) {
+            if (!(entry.getKey() instanceof String)) {
+                throw new IOException("JobDataMap keys must be Strings. offending Key: " + entry.getKey());
+            }
+            if (!isWellFormed((String) entry.getKey())) {
+                return null;
+            }
+            out.writeString((String) entry.getKey());
+            writeValue(out, (String) entry.getKey(), entry.getValue());
+        }
+
+        int bodySize = out.size - HEADER_SIZE;
+        if (compressThreshold < 0 || bodySize <= compressThreshold) {
+            return out.toByteArray();
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(out.buffer, HEADER_SIZE, bodySize);
+            deflater.finish();
+            Output compressed = new Output(bodySize / 2 + 16);
+            compressed.writeByte(MAGIC_0);
+            compressed.writeByte(MAGIC_1);
+            compressed.writeByte(VERSION);
+            compressed.writeByte(FLAG_COMPRESSED);
+            compressed.writeVarint(bodySize);
+            while (!deflater.finished()) {
+                compressed.ensure(256);
+                compressed.size += deflater.deflate(compressed.buffer, compressed.size, compressed.buffer.length - compressed.size);
+                if (compressed.size >= out.size) {
+                    // 压缩后不会更小
+                    return out.toByteArray();
+                }
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static Map<String, Object> decode(byte[] data) throws IOException, ClassNotFoundException {
+        if (!isEncoded(data)) {
+            throw new StreamCorruptedException("not an encoded JobDataMap");
+        }
+        if (data[2] != VERSION) {
+            throw new StreamCorruptedException("unsupported JobDataMap encoding version: " + data[2]);
+        }
+        Input in = new Input(data, HEADER_SIZE, data.length);
+        if ((data[3] & FLAG_COMPRESSED) != 0) {
+            int bodySize = in.readVarint();
+            byte[] body = new byte[bodySize];
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(data, in.position, data.length - in.position);
+                int n = 0;
+                while (n < bodySize) {
+                    int inflated = inflater.inflate(body, n, bodySize - n);
+                    if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                        break;
+                    }
+                    n += inflated;
+                }
+                if (n != bodySize) {
+                    throw new StreamCorruptedException("truncated JobDataMap data");
+                }
+            } catch (DataFormatException e) {
+                throw new StreamCorruptedException("corrupted JobDataMap data: " + e.getMessage());
+            } finally {
+                inflater.end();
+            }
+            in = new Input(body, 0, bodySize);
+        }
+
+        int count = in.readVarint();
+        Map<String, Object> map = new HashMap<>(Math.max(16, count * 4 / 3 + 1));
+        for (int i = 0; i < count; i++) {
+            String key = in.readString();
+            map.put(key, readValue(in));
+        }
+        return map;
+    }
+
+    private static void writeValue(Output out, String key, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof String && isWellFormed((String) value)) {
+            out.writeByte(TYPE_STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INT);
+            out.writeVarlong(zigzag((Integer) value));
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeVarlong(zigzag((Long) value));
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TYPE_TRUE : TYPE_FALSE);
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeFixed64(Double.doubleToRawLongBits((Double) value));
+        } else if (value instanceof Float) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFixed32(Float.floatToRawIntBits((Float) value));
+        } else if (value instanceof Short) {
+            out.writeByte(TYPE_SHORT);
+            out.writeVarlong(zigzag((Short) value));
+        } else if (value instanceof Byte) {
+            out.writeByte(TYPE_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            out.writeByte(TYPE_CHAR);
+            out.writeVarint((Character) value);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            out.writeByte(TYPE_BYTES);
+            out.writeVarint(bytes.length);
+            out.writeBytes(bytes, 0, bytes.length);
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(TYPE_DATE);
+            out.writeVarlong(zigzag(((Date) value).getTime()));
+        } else if (value instanceof Serializable) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(baos);
+            oos.writeObject(value);
+            oos.close();
+            byte[] bytes = baos.toByteArray();
+            out.writeByte(TYPE_SERIALIZED);
+            out.writeVarint(bytes.length);
+            out.writeBytes(bytes, 0, bytes.length);
+        } else {
+            throw new IOException("Unable to serialize JobDataMap because the value of property '" + key + "' is not serializable: "
+                    + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(Input in) throws IOException, ClassNotFoundException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return in.readString();
+            case TYPE_INT:
+                return (int) unzigzag(in.readVarlong());
+            case TYPE_LONG:
+                return unzigzag(in.readVarlong());
+            case TYPE_TRUE:
+                return Boolean.TRUE;
+            case TYPE_FALSE:
+                return Boolean.FALSE;
+            case TYPE_DOUBLE:
+                return Double.longBitsToDouble(in.readFixed64());
+            case TYPE_FLOAT:
+                return Float.intBitsToFloat(in.readFixed32());
+            case TYPE_SHORT:
+                return (short) unzigzag(in.readVarlong());
+            case TYPE_BYTE:
+                return in.readByte();
+            case TYPE_CHAR:
+                return (char) in.readVarint();
+            case TYPE_BYTES:
+                return in.readBytes(in.readVarint());
+            case TYPE_DATE:
+                return new Date(unzigzag(in.readVarlong()));
+            case TYPE_SERIALIZED:
+                byte[] bytes = in.readBytes(in.readVarint());
+                ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+                try {
+                    return ois.readObject();
+                } finally {
+                    ois.close();
+                }
+            default:
+                throw new StreamCorruptedException("unknown JobDataMap value type: " + type);
+        }
+    }
+
+    /**
+     * 代理字符都成对出现,可以无损地按UTF-8编码
+     */
+    private static boolean isWellFormed(String value) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (Character.isHighSurrogate(c)) {
+                if (i + 1 == length || !Character.isLowSurrogate(value.charAt(i + 1))) {
+                    return false;
+                }
+                i++;
+            } else if (Character.isLowSurrogate(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 可增长的字节缓冲,不加锁
+     */
+    private static class Output {
+
+        private byte[] buffer;
+        private int size;
+
+        Output(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buffer[size++] = (byte) b;
+        }
+
+        void writeBytes(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        void writeVarint(int value) {
+            writeVarlong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarlong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeFixed32(int value) {
+            ensure(4);
+            for (int i = 0; i < 4; i++) {
+                buffer[size++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void writeFixed64(long value) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                buffer[size++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    private static class Input {
+
+        private final byte[] buffer;
+        private int position;
+        private final int limit;
+
+        Input(byte[] buffer, int position, int limit) {
+            this.buffer = buffer;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        private void require(int length) throws StreamCorruptedException {
+            if (length < 0 || position + length > limit) {
+                throw new StreamCorruptedException("truncated JobDataMap data");
+            }
+        }
+
+        byte readByte() throws StreamCorruptedException {
+            require(1);
+            return buffer[position++];
+        }
+
+        byte[] readBytes(int length) throws StreamCorruptedException {
+            require(length);
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        int readVarint() throws StreamCorruptedException {
+            long value = readVarlong();
+            if (value > Integer.MAX_VALUE) {
+                throw new StreamCorruptedException("invalid JobDataMap length: " + value);
+            }
+            return (int) value;
+        }
+
+        long readVarlong() throws StreamCorruptedException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new StreamCorruptedException("malformed varint in JobDataMap data");
+        }
+
+        int readFixed32() throws StreamCorruptedException {
+            require(4);
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value |= (buffer[position++] & 0xFF) << (i * 8);
+            }
+            return value;
+        }
+
+        long readFixed64() throws StreamCorruptedException {
+            require(8);
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value |= (long) (buffer[position++] & 0xFF) << (i * 8);
+            }
+            return value;
+        }
+
+        String readString() throws StreamCorruptedException {
+            int length = readVarint();
+            require(length);
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
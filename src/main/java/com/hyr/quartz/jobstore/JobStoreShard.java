@@ -0,0 +1,89 @@
+package com.hyr.quartz.jobstore;
+
+import org.quartz.JobPersistenceException;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.quartz.impl.jdbcjobstore.SchedulerStateRecord;
+import org.quartz.impl.jdbcjobstore.StdJDBCConstants;
+import org.quartz.impl.jdbcjobstore.Util;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/*******************************************************************************
+ * @date 2026-10-18 5:50 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: {@link ShardedJobStore}的一个分片
+ *
+ * 每个分片是一个独立的JobStoreTX,有自己的数据源、表前缀(或schema)和QRTZ_LOCKS,
+ * 这里只补充分片调度需要的两个不加锁的查询。
+ ******************************************************************************/
+class JobStoreShard extends JobStoreTX {
+
+    private final static String SELECT_NEXT_FIRE_TIME = "SELECT MIN(" + StdJDBCConstants.COL_NEXT_FIRE_TIME + ") FROM "
+            + StdJDBCConstants.TABLE_PREFIX_SUBST + StdJDBCConstants.TABLE_TRIGGERS + " WHERE "
+            + StdJDBCConstants.COL_SCHEDULER_NAME + " = " + StdJDBCConstants.SCHED_NAME_SUBST + " AND "
+            + StdJDBCConstants.COL_TRIGGER_STATE + " = ? AND " + StdJDBCConstants.COL_NEXT_FIRE_TIME + " >= ?";
+
+    private final int index;
+
+    JobStoreShard(int index) {
+        this.index = index;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * 可以取出的触发器中最早的下次触发时间,没有时返回-1。条件与取触发器相同,走IDX_QRTZ_T_NFT_ST索引。
+     */
+    long peekNextFireTime() throws JobPersistenceException {
+        return executeWithoutLock(new TransactionCallback<Long>() {
+            @Override
+            public Long execute(Connection conn) throws JobPersistenceException {
+                String sql = Util.rtp(SELECT_NEXT_FIRE_TIME, getTablePrefix(), "'" + getInstanceName() + "'");
+                try {
+                    PreparedStatement ps = conn.prepareStatement(sql);
+                    try {
+                        ps.setString(1, STATE_WAITING);
+                        ps.setBigDecimal(2, new BigDecimal(String.valueOf(getMisfireTime())));
+                        ResultSet rs = ps.executeQuery();
+                        try {
+                            if (rs.next()) {
+                                long nextFireTime = rs.getLong(1);
+                                return rs.wasNull() ? -1L : nextFireTime;
+                            }
+                            return -1L;
+                        } finally {
+                            rs.close();
+                        }
+                    } finally {
+                        ps.close();
+                    }
+                } catch (SQLException e) {
+                    throw new JobPersistenceException("Couldn't select next fire time: " + e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 在本分片登记过的调度实例
+     */
+    List<SchedulerStateRecord> selectSchedulerStates() throws JobPersistenceException {
+        return executeWithoutLock(new TransactionCallback<List<SchedulerStateRecord>>() {
+            @Override
+            public List<SchedulerStateRecord> execute(Connection conn) throws JobPersistenceException {
+                try {
+                    return getDelegate().selectSchedulerStateRecords(conn, null);
+                } catch (SQLException e) {
+                    throw new JobPersistenceException("Couldn't select scheduler states: " + e.getMessage(), e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package com.hyr.quartz.jobstore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*******************************************************************************
+ * @date 2026-10-17 7:10 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 名称字典,用于组名和日历名
+ *
+ * 记录中只保存int编号,按组查询时先匹配名称再按编号扫描。编号带引用计数,计数归零后回收复用,
+ * 字典大小只与当前存在的名称数量有关。
+ ******************************************************************************/
+final class NameTable {
+
+    final static int NO_ID = -1;
+
+    private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+    private String[] names = new String[16];
+
+    private int[] refs = new int[16];
+
+    private final List<Integer> freeIds = new ArrayList<Integer>();
+
+    private int limit;
+
+    /**
+     * 引用名称,不存在时分配编号
+     */
+    int acquire(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            if (!freeIds.isEmpty()) {
+                id = freeIds.remove(freeIds.size() - 1);
+            } else {
+                if (limit == names.length) {
+                    names = Arrays.copyOf(names, limit * 2);
+                    refs = Arrays.copyOf(refs, limit * 2);
+                }
+                id = limit++;
+            }
+            names[id] = name;
+            ids.put(name, id);
+        }
+        refs[id]++;
+        return id;
+    }
+
+    void release(int id) {
+        if (--refs[id] == 0) {
+            ids.remove(names[id]);
+            names[id] = null;
+            freeIds.add(id);
+        }
+    }
+
+    int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? NO_ID : id;
+    }
+
+    String nameOf(int id) {
+        return names[id];
+    }
+
+    int refCount(int id) {
+        return id == NO_ID ? 0 : refs[id];
+    }
+
+    /**
+     * 当前被引用的名称
+     */
+    List<String> names() {
+        return new ArrayList<String>(ids.keySet());
+    }
+}
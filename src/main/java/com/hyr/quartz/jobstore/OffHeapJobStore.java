@@ -0,0 +1,1440 @@
+package com.hyr.quartz.jobstore;
+
+import org.quartz.Calendar;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.SchedulerConfigException;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.impl.matchers.StringMatcher;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredBundle;
+import org.quartz.spi.TriggerFiredResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*******************************************************************************
+ * @date 2026-10-17 7:10 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 堆外内存JobStore
+ *
+ * 语义与RAMJobStore一致(不持久化、不支持集群),区别在于触发器和任务不以对象形式常驻堆内:
+ * <ul>
+ * <li>触发器和任务编码后存放在直接内存slab中,见{@link RecordCodec}</li>
+ * <li>状态、下次触发时间、所属任务等定长字段存放在堆外记录表中,见{@link SlotTable}</li>
+ * <li>key索引、按任务串联的触发器链表、按下次触发时间排序的二叉堆都在堆外,只保存int和long</li>
+ * </ul>
+ * 取出触发器时才解码触发器,触发时才解码JobDetail,堆内只有组名、日历等少量数据,
+ * 百万级触发器时堆占用和GC停顿基本不随触发器数量增长。
+ *
+ * 直接内存上限由-XX:MaxDirectMemorySize控制,默认与最大堆相同,触发器很多时需要调大。
+ * 配置:
+ * <pre>
+ * org.quartz.jobStore.class = com.hyr.quartz.jobstore.OffHeapJobStore
+ * org.quartz.jobStore.misfireThreshold = 60000
+ * org.quartz.jobStore.slabSize = 16777216
+ * </pre>
+ ******************************************************************************/
+public class OffHeapJobStore implements JobStore {
+
+    private final static Logger log = LoggerFactory.getLogger(OffHeapJobStore.class);
+
+    // 触发器状态,与RAMJobStore一致
+    private final static int STATE_WAITING = 0;
+
+    private final static int STATE_ACQUIRED = 1;
+
+    private final static int STATE_COMPLETE = 3;
+
+    private final static int STATE_PAUSED = 4;
+
+    private final static int STATE_BLOCKED = 5;
+
+    private final static int STATE_PAUSED_BLOCKED = 6;
+
+    private final static int STATE_ERROR = 7;
+
+    // 触发器记录字段
+    private final static int T_STATE = SlotTable.FIRST_FIELD;
+
+    private final static int T_HASH = T_STATE + 4;
+
+    private final static int T_NEXT_FIRE_TIME = T_HASH + 4;
+
+    private final static int T_PRIORITY = T_NEXT_FIRE_TIME + 8;
+
+    private final static int T_GROUP = T_PRIORITY + 4;
+
+    private final static int T_JOB = T_GROUP + 4;
+
+    private final static int T_NEXT_BY_JOB = T_JOB + 4;
+
+    private final static int T_PREV_BY_JOB = T_NEXT_BY_JOB + 4;
+
+    private final static int T_NEXT_IN_BUCKET = T_PREV_BY_JOB + 4;
+
+    private final static int T_INDEX_POSITION = T_NEXT_IN_BUCKET + 4;
+
+    private final static int T_CALENDAR = T_INDEX_POSITION + 4;
+
+    private final static int T_DATA = T_CALENDAR + 4;
+
+    private final static int T_DATA_LENGTH = T_DATA + 8;
+
+    private final static int T_MISFIRE_INSTRUCTION = T_DATA_LENGTH + 4;
+
+    private final static int TRIGGER_RECORD_SIZE = T_MISFIRE_INSTRUCTION + 4;
+
+    // 任务记录字段
+    private final static int J_HASH = SlotTable.FIRST_FIELD;
+
+    private final static int J_GROUP = J_HASH + 4;
+
+    private final static int J_NEXT_IN_BUCKET = J_GROUP + 4;
+
+    private final static int J_FIRST_TRIGGER = J_NEXT_IN_BUCKET + 4;
+
+    private final static int J_DATA = J_FIRST_TRIGGER + 4;
+
+    private final static int J_DATA_LENGTH = J_DATA + 8;
+
+    private final static int J_FLAGS = J_DATA_LENGTH + 4;
+
+    private final static int J_TRIGGER_COUNT = J_FLAGS + 4;
+
+    private final static int JOB_RECORD_SIZE = J_TRIGGER_COUNT + 8;
+
+    // 任务标记
+    private final static int FLAG_DURABLE = 1;
+
+    private final static int FLAG_CONCURRENT_EXECUTION_DISALLOWED = 2;
+
+    private final static int FLAG_PERSIST_JOB_DATA = 4;
+
+    private final static int FLAG_BLOCKED = 8;
+
+    private final static long NO_TIME = Long.MIN_VALUE;
+
+    private final static int NULL_SLOT = SlotTable.NULL_SLOT;
+
+    private final static AtomicLong ftrCtr = new AtomicLong(System.currentTimeMillis());
+
+    private final Object lock = new Object();
+
+    private int slabSize = 16 * 1024 * 1024; // 记录slab大小(字节),单条记录不能超过
+
+    private long misfireThreshold = 5000L;
+
+    private SchedulerSignaler signaler;
+
+    private RecordCodec codec;
+
+    private OffHeapSlabs slabs;
+
+    private SlotTable triggers;
+
+    private SlotTable jobs;
+
+    private SlotHashIndex triggersByKey;
+
+    private SlotHashIndex jobsByKey;
+
+    private FireTimeIndex timeTriggers;
+
+    private NameTable triggerGroups;
+
+    private NameTable jobGroups;
+
+    private NameTable calendarNames; // 被触发器引用的日历名
+
+    private final HashMap<String, Calendar> calendarsByName = new HashMap<String, Calendar>(25);
+
+    private final HashSet<String> pausedTriggerGroups = new HashSet<String>();
+
+    private final HashSet<String> pausedJobGroups = new HashSet<String>();
+
+    public OffHeapJobStore() {
+    }
+
+    public long getMisfireThreshold() {
+        return misfireThreshold;
+    }
+
+    public void setMisfireThreshold(long misfireThreshold) {
+        if (misfireThreshold < 1) {
+            throw new IllegalArgumentException("Misfire threshold must be larger than 0");
+        }
+        this.misfireThreshold = misfireThreshold;
+    }
+
+    public int getSlabSize() {
+        return slabSize;
+    }
+
+    public void setSlabSize(int slabSize) {
+        this.slabSize = slabSize;
+    }
+
+    /**
+     * 已申请的直接内存字节数
+     */
+    public long getOffHeapCapacity() {
+        synchronized (lock) {
+            return slabs.getCapacity() + triggers.getCapacity() + jobs.getCapacity() + timeTriggers.getCapacity();
+        }
+    }
+
+    /**
+     * 记录实际占用的直接内存字节数,不含定长记录表和索引
+     */
+    public long getOffHeapRecordBytes() {
+        synchronized (lock) {
+            return slabs.getUsedBytes();
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * JobStore Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    @Override
+    public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler signaler) throws SchedulerConfigException {
+        if (slabSize < 1024) {
+            throw new SchedulerConfigException("slabSize must be >= 1024. slabSize:" + slabSize);
+        }
+        this.signaler = signaler;
+        this.codec = new RecordCodec(loadHelper);
+        synchronized (lock) {
+            reset();
+        }
+        log.info("off-heap job store initialized. slabSize:{}", slabSize);
+    }
+
+    @Override
+    public void schedulerStarted() {
+        // nothing to do
+    }
+
+    @Override
+    public void schedulerPaused() {
+        // nothing to do
+    }
+
+    @Override
+    public void schedulerResumed() {
+        // nothing to do
+    }
+
+    /**
+     * 释放全部堆外内存
+     */
+    @Override
+    public void shutdown() {
+        synchronized (lock) {
+            if (slabs == null) {
+                return;
+            }
+            log.info("off-heap job store shutdown. triggers:{}, jobs:{}, recordBytes:{}",
+                    triggers.size(), jobs.size(), slabs.getUsedBytes());
+            reset();
+        }
+    }
+
+    @Override
+    public boolean supportsPersistence() {
+        return false;
+    }
+
+    @Override
+    public long getEstimatedTimeToReleaseAndAcquireTrigger() {
+        return 5;
+    }
+
+    @Override
+    public boolean isClustered() {
+        return false;
+    }
+
+    @Override
+    public void storeJobAndTrigger(JobDetail newJob, OperableTrigger newTrigger) throws JobPersistenceException {
+        synchronized (lock) {
+            storeJob(newJob, false);
+            storeTrigger(newTrigger, false);
+        }
+    }
+
+    @Override
+    public void storeJob(JobDetail newJob, boolean replaceExisting) throws JobPersistenceException {
+        synchronized (lock) {
+            int jobSlot = findJob(newJob.getKey());
+            if (jobSlot != NULL_SLOT && !replaceExisting) {
+                throw new ObjectAlreadyExistsException(newJob);
+            }
+            try {
+                if (jobSlot == NULL_SLOT) {
+                    insertJob(newJob);
+                } else {
+                    saveJob(jobSlot, newJob);
+                }
+            } catch (OutOfMemoryError e) {
+                throw outOfMemory(e);
+            }
+        }
+    }
+
+    @Override
+    public void storeJobsAndTriggers(Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, boolean replace)
+            throws JobPersistenceException {
+        synchronized (lock) {
+            if (!replace) {
+                for (Map.Entry<JobDetail, Set<? extends Trigger>> e : triggersAndJobs.entrySet()) {
+                    if (checkExists(e.getKey().getKey())) {
+                        throw new ObjectAlreadyExistsException(e.getKey());
+                    }
+                    for (Trigger trigger : e.getValue()) {
+                        if (checkExists(trigger.getKey())) {
+                            throw new ObjectAlreadyExistsException(trigger);
+                        }
+                    }
+                }
+            }
+            for (Map.Entry<JobDetail, Set<? extends Trigger>> e : triggersAndJobs.entrySet()) {
+                storeJob(e.getKey(), true);
+                for (Trigger trigger : e.getValue()) {
+                    storeTrigger((OperableTrigger) trigger, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除任务和引用它的全部触发器
+     */
+    @Override
+    public boolean removeJob(JobKey jobKey) {
+        synchronized (lock) {
+            int jobSlot = findJob(jobKey);
+            if (jobSlot == NULL_SLOT) {
+                return false;
+            }
+            int slot = jobs.getInt(jobSlot, J_FIRST_TRIGGER);
+            while (slot != NULL_SLOT) {
+                int next = triggers.getInt(slot, T_NEXT_BY_JOB);
+                deleteTrigger(slot);
+                slot = next;
+            }
+            deleteJob(jobSlot);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean removeJobs(List<JobKey> jobKeys) {
+        boolean allFound = true;
+        synchronized (lock) {
+            for (JobKey key : jobKeys) {
+                allFound = removeJob(key) && allFound;
+            }
+        }
+        return allFound;
+    }
+
+    @Override
+    public JobDetail retrieveJob(JobKey jobKey) throws JobPersistenceException {
+        synchronized (lock) {
+            int jobSlot = findJob(jobKey);
+            return jobSlot == NULL_SLOT ? null : loadJob(jobSlot);
+        }
+    }
+
+    @Override
+    public void storeTrigger(OperableTrigger newTrigger, boolean replaceExisting) throws JobPersistenceException {
+        synchronized (lock) {
+            int slot = findTrigger(newTrigger.getKey());
+            if (slot != NULL_SLOT) {
+                if (!replaceExisting) {
+                    throw new ObjectAlreadyExistsException(newTrigger);
+                }
+                removeTrigger(slot, false);
+            }
+            int jobSlot = findJob(newTrigger.getJobKey());
+            if (jobSlot == NULL_SLOT) {
+                throw new JobPersistenceException("The job (" + newTrigger.getJobKey()
+                        + ") referenced by the trigger does not exist.");
+            }
+            try {
+                slot = insertTrigger(newTrigger, jobSlot);
+            } catch (OutOfMemoryError e) {
+                throw outOfMemory(e);
+            }
+
+            boolean blocked = (jobs.getInt(jobSlot, J_FLAGS) & FLAG_BLOCKED) != 0;
+            if (pausedTriggerGroups.contains(newTrigger.getKey().getGroup())
+                    || pausedJobGroups.contains(newTrigger.getJobKey().getGroup())) {
+                triggers.putInt(slot, T_STATE, blocked ? STATE_PAUSED_BLOCKED : STATE_PAUSED);
+            } else if (blocked) {
+                triggers.putInt(slot, T_STATE, STATE_BLOCKED);
+            } else {
+                triggers.putInt(slot, T_STATE, STATE_WAITING);
+                addToTimeTriggers(slot);
+            }
+        }
+    }
+
+    @Override
+    public boolean removeTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        synchronized (lock) {
+            int slot = findTrigger(triggerKey);
+            if (slot == NULL_SLOT) {
+                return false;
+            }
+            removeTrigger(slot, true);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean removeTriggers(List<TriggerKey> triggerKeys) throws JobPersistenceException {
+        boolean allFound = true;
+        synchronized (lock) {
+            for (TriggerKey key : triggerKeys) {
+                allFound = removeTrigger(key) && allFound;
+            }
+        }
+        return allFound;
+    }
+
+    @Override
+    public boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger) throws JobPersistenceException {
+        synchronized (lock) {
+            int slot = findTrigger(triggerKey);
+            if (slot == NULL_SLOT) {
+                return false;
+            }
+            OperableTrigger oldTrigger = loadTrigger(slot);
+            if (!oldTrigger.getJobKey().equals(newTrigger.getJobKey())) {
+                throw new JobPersistenceException("New trigger is not related to the same job as the old trigger.");
+            }
+            deleteTrigger(slot);
+            try {
+                storeTrigger(newTrigger, false);
+            } catch (JobPersistenceException e) {
+                storeTrigger(oldTrigger, false); // 恢复原触发器
+                throw e;
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public OperableTrigger retrieveTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        synchronized (lock) {
+            int slot = findTrigger(triggerKey);
+            return slot == NULL_SLOT ? null : loadTrigger(slot);
+        }
+    }
+
+    @Override
+    public boolean checkExists(JobKey jobKey) {
+        synchronized (lock) {
+            return findJob(jobKey) != NULL_SLOT;
+        }
+    }
+
+    @Override
+    public boolean checkExists(TriggerKey triggerKey) {
+        synchronized (lock) {
+            return findTrigger(triggerKey) != NULL_SLOT;
+        }
+    }
+
+    /**
+     * 删除全部任务、触发器和日历,已暂停的组保留
+     */
+    @Override
+    public void clearAllSchedulingData() {
+        synchronized (lock) {
+            reset();
+            calendarsByName.clear();
+        }
+    }
+
+    @Override
+    public void storeCalendar(String name, Calendar calendar, boolean replaceExisting, boolean updateTriggers)
+            throws JobPersistenceException {
+        calendar = (Calendar) calendar.clone();
+        synchronized (lock) {
+            Calendar obj = calendarsByName.get(name);
+            if (obj != null && !replaceExisting) {
+                throw new ObjectAlreadyExistsException("Calendar with name '" + name + "' already exists.");
+            }
+            calendarsByName.put(name, calendar);
+
+            int calendarId = calendarNames.idOf(name);
+            if (obj != null && updateTriggers && calendarId != NameTable.NO_ID) {
+                for (int slot = 0; slot < triggers.limit(); slot++) {
+                    if (triggers.isUsed(slot) && triggers.getInt(slot, T_CALENDAR) == calendarId) {
+                        OperableTrigger trigger = loadTrigger(slot);
+                        trigger.updateWithNewCalendar(calendar, getMisfireThreshold());
+                        saveTrigger(slot, trigger);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean removeCalendar(String calName) throws JobPersistenceException {
+        synchronized (lock) {
+            if (calendarNames.refCount(calendarNames.idOf(calName)) > 0) {
+                throw new JobPersistenceException("Calender cannot be removed if it referenced by a Trigger!");
+            }
+            return calendarsByName.remove(calName) != null;
+        }
+    }
+
+    @Override
+    public Calendar retrieveCalendar(String calName) {
+        synchronized (lock) {
+            Calendar cal = calendarsByName.get(calName);
+            return cal == null ? null : (Calendar) cal.clone();
+        }
+    }
+
+    @Override
+    public int getNumberOfJobs() {
+        synchronized (lock) {
+            return jobs.size();
+        }
+    }
+
+    @Override
+    public int getNumberOfTriggers() {
+        synchronized (lock) {
+            return triggers.size();
+        }
+    }
+
+    @Override
+    public int getNumberOfCalendars() {
+        synchronized (lock) {
+            return calendarsByName.size();
+        }
+    }
+
+    @Override
+    public Set<JobKey> getJobKeys(GroupMatcher<JobKey> matcher) throws JobPersistenceException {
+        synchronized (lock) {
+            BitSet groupIds = matchGroups(jobGroups, matcher);
+            if (groupIds.isEmpty()) {
+                return Collections.emptySet();
+            }
+            Set<JobKey> keys = new HashSet<JobKey>();
+            for (int jobSlot = 0; jobSlot < jobs.limit(); jobSlot++) {
+                if (jobs.isUsed(jobSlot) && groupIds.get(jobs.getInt(jobSlot, J_GROUP))) {
+                    keys.add(loadJobKey(jobSlot));
+                }
+            }
+            return keys;
+        }
+    }
+
+    @Override
+    public Set<TriggerKey> getTriggerKeys(GroupMatcher<TriggerKey> matcher) throws JobPersistenceException {
+        synchronized (lock) {
+            BitSet groupIds = matchGroups(triggerGroups, matcher);
+            if (groupIds.isEmpty()) {
+                return Collections.emptySet();
+            }
+            Set<TriggerKey> keys = new HashSet<TriggerKey>();
+            for (int slot = 0; slot < triggers.limit(); slot++) {
+                if (triggers.isUsed(slot) && groupIds.get(triggers.getInt(slot, T_GROUP))) {
+                    keys.add(loadTriggerKey(slot));
+                }
+            }
+            return keys;
+        }
+    }
+
+    @Override
+    public List<String> getJobGroupNames() {
+        synchronized (lock) {
+            return new LinkedList<String>(jobGroups.names());
+        }
+    }
+
+    @Override
+    public List<String> getTriggerGroupNames() {
+        synchronized (lock) {
+            return new LinkedList<String>(triggerGroups.names());
+        }
+    }
+
+    @Override
+    public List<String> getCalendarNames() {
+        synchronized (lock) {
+            return new LinkedList<String>(calendarsByName.keySet());
+        }
+    }
+
+    @Override
+    public List<OperableTrigger> getTriggersForJob(JobKey jobKey) throws JobPersistenceException {
+        List<OperableTrigger> result = new ArrayList<OperableTrigger>();
+        synchronized (lock) {
+            int jobSlot = findJob(jobKey);
+            if (jobSlot == NULL_SLOT) {
+                return result;
+            }
+            for (int slot = jobs.getInt(jobSlot, J_FIRST_TRIGGER); slot != NULL_SLOT; slot = triggers.getInt(slot, T_NEXT_BY_JOB)) {
+                result.add(loadTrigger(slot));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public TriggerState getTriggerState(TriggerKey triggerKey) {
+        synchronized (lock) {
+            int slot = findTrigger(triggerKey);
+            if (slot == NULL_SLOT) {
+                return TriggerState.NONE;
+            }
+            switch (triggers.getInt(slot, T_STATE)) {
+                case STATE_COMPLETE:
+                    return TriggerState.COMPLETE;
+                case STATE_PAUSED:
+                case STATE_PAUSED_BLOCKED:
+                    return TriggerState.PAUSED;
+                case STATE_BLOCKED:
+                    return TriggerState.BLOCKED;
+                case STATE_ERROR:
+                    return TriggerState.ERROR;
+                default:
+                    return TriggerState.NORMAL;
+            }
+        }
+    }
+
+    @Override
+    public void resetTriggerFromErrorState(TriggerKey triggerKey) {
+        synchronized (lock) {
+            int slot = findTrigger(triggerKey);
+            if (slot == NULL_SLOT || triggers.getInt(slot, T_STATE) != STATE_ERROR) {
+                return;
+            }
+            if (pausedTriggerGroups.contains(triggerKey.getGroup())) {
+                triggers.putInt(slot, T_STATE, STATE_PAUSED);
+            } else {
+                triggers.putInt(slot, T_STATE, STATE_WAITING);
+                addToTimeTriggers(slot);
+            }
+        }
+    }
+
+    @Override
+    public void pauseTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            int slot = findTrigger(triggerKey);
+            if (slot != NULL_SLOT) {
+                pauseTrigger(slot);
+            }
+        }
+    }
+
+    @Override
+    public Collection<String> pauseTriggers(GroupMatcher<TriggerKey> matcher) {
+        List<String> pausedGroups = new LinkedList<String>();
+        synchronized (lock) {
+            StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+            switch (operator) {
+                case EQUALS:
+                    if (pausedTriggerGroups.add(matcher.getCompareToValue())) {
+                        pausedGroups.add(matcher.getCompareToValue());
+                    }
+                    break;
+                default:
+                    for (String group : triggerGroups.names()) {
+                        if (operator.evaluate(group, matcher.getCompareToValue()) && pausedTriggerGroups.add(group)) {
+                            pausedGroups.add(group);
+                        }
+                    }
+            }
+            pauseTriggerGroups(pausedGroups);
+        }
+        return pausedGroups;
+    }
+
+    @Override
+    public void pauseJob(JobKey jobKey) {
+        synchronized (lock) {
+            int jobSlot = findJob(jobKey);
+            if (jobSlot != NULL_SLOT) {
+                pauseTriggersOfJob(jobSlot);
+            }
+        }
+    }
+
+    @Override
+    public Collection<String> pauseJobs(GroupMatcher<JobKey> matcher) {
+        List<String> pausedGroups = new LinkedList<String>();
+        synchronized (lock) {
+            StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+            switch (operator) {
+                case EQUALS:
+                    if (pausedJobGroups.add(matcher.getCompareToValue())) {
+                        pausedGroups.add(matcher.getCompareToValue());
+                    }
+                    break;
+                default:
+                    for (String group : jobGroups.names()) {
+                        if (operator.evaluate(group, matcher.getCompareToValue()) && pausedJobGroups.add(group)) {
+                            pausedGroups.add(group);
+                        }
+                    }
+            }
+            BitSet groupIds = groupIds(jobGroups, pausedGroups);
+            for (int jobSlot = 0; jobSlot < jobs.limit(); jobSlot++) {
+                if (jobs.isUsed(jobSlot) && groupIds.get(jobs.getInt(jobSlot, J_GROUP))) {
+                    pauseTriggersOfJob(jobSlot);
+                }
+            }
+        }
+        return pausedGroups;
+    }
+
+    @Override
+    public void resumeTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        synchronized (lock) {
+            int slot = findTrigger(triggerKey);
+            if (slot != NULL_SLOT) {
+                resumeTrigger(slot);
+            }
+        }
+    }
+
+    @Override
+    public Collection<String> resumeTriggers(GroupMatcher<TriggerKey> matcher) throws JobPersistenceException {
+        Set<String> groups = new HashSet<String>();
+        synchronized (lock) {
+            BitSet groupIds = matchGroups(triggerGroups, matcher);
+            for (int slot = 0; slot < triggers.limit() && !groupIds.isEmpty(); slot++) {
+                if (!triggers.isUsed(slot) || !groupIds.get(triggers.getInt(slot, T_GROUP))) {
+                    continue;
+                }
+                groups.add(triggerGroups.nameOf(triggers.getInt(slot, T_GROUP)));
+                int jobSlot = triggers.getInt(slot, T_JOB);
+                if (pausedJobGroups.contains(jobGroups.nameOf(jobs.getInt(jobSlot, J_GROUP)))) {
+                    continue;
+                }
+                resumeTrigger(slot);
+            }
+
+            // 删除匹配的已暂停组
+            StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+            if (operator == StringMatcher.StringOperatorName.EQUALS) {
+                pausedTriggerGroups.remove(matcher.getCompareToValue());
+            } else {
+                Iterator<String> iterator = pausedTriggerGroups.iterator();
+                while (iterator.hasNext()) {
+                    if (operator.evaluate(iterator.next(), matcher.getCompareToValue())) {
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+        return new ArrayList<String>(groups);
+    }
+
+    @Override
+    public Set<String> getPausedTriggerGroups() {
+        synchronized (lock) {
+            return new HashSet<String>(pausedTriggerGroups);
+        }
+    }
+
+    @Override
+    public void resumeJob(JobKey jobKey) throws JobPersistenceException {
+        synchronized (lock) {
+            int jobSlot = findJob(jobKey);
+            if (jobSlot != NULL_SLOT) {
+                resumeTriggersOfJob(jobSlot);
+            }
+        }
+    }
+
+    @Override
+    public Collection<String> resumeJobs(GroupMatcher<JobKey> matcher) throws JobPersistenceException {
+        Set<String> resumedGroups = new HashSet<String>();
+        synchronized (lock) {
+            BitSet groupIds = matchGroups(jobGroups, matcher);
+            for (String pausedJobGroup : pausedJobGroups) {
+                if (matcher.getCompareWithOperator().evaluate(pausedJobGroup, matcher.getCompareToValue())) {
+                    resumedGroups.add(pausedJobGroup);
+                }
+            }
+            pausedJobGroups.removeAll(resumedGroups);
+            for (int jobSlot = 0; jobSlot < jobs.limit() && !groupIds.isEmpty(); jobSlot++) {
+                if (jobs.isUsed(jobSlot) && groupIds.get(jobs.getInt(jobSlot, J_GROUP))) {
+                    resumeTriggersOfJob(jobSlot);
+                }
+            }
+        }
+        return resumedGroups;
+    }
+
+    @Override
+    public void pauseAll() {
+        synchronized (lock) {
+            List<String> pausedGroups = new LinkedList<String>();
+            for (String group : triggerGroups.names()) {
+                if (pausedTriggerGroups.add(group)) {
+                    pausedGroups.add(group);
+                }
+            }
+            pauseTriggerGroups(pausedGroups);
+        }
+    }
+
+    @Override
+    public void resumeAll() throws JobPersistenceException {
+        synchronized (lock) {
+            pausedJobGroups.clear();
+            resumeTriggers(GroupMatcher.anyTriggerGroup());
+        }
+    }
+
+    @Override
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow) {
+        synchronized (lock) {
+            List<OperableTrigger> result = new ArrayList<OperableTrigger>();
+            if (timeTriggers.size() == 0) {
+                return result;
+            }
+            Set<Integer> acquiredJobsForNoConcurrentExec = new HashSet<Integer>();
+            List<Integer> excludedTriggers = new ArrayList<Integer>();
+            long batchEnd = noLaterThan;
+
+            while (true) {
+                int slot = timeTriggers.poll();
+                if (slot == NULL_SLOT) {
+                    break;
+                }
+                try {
+                    if (applyMisfire(slot)) {
+                        addToTimeTriggers(slot);
+                        continue;
+                    }
+                    long nextFireTime = triggers.getLong(slot, T_NEXT_FIRE_TIME);
+                    if (nextFireTime > batchEnd) {
+                        addToTimeTriggers(slot);
+                        break;
+                    }
+
+                    // 同一批次中不允许并发的任务只取一个触发器,其他的放回
+                    int jobSlot = triggers.getInt(slot, T_JOB);
+                    if ((jobs.getInt(jobSlot, J_FLAGS) & FLAG_CONCURRENT_EXECUTION_DISALLOWED) != 0
+                            && !acquiredJobsForNoConcurrentExec.add(jobSlot)) {
+                        excludedTriggers.add(slot);
+                        continue;
+                    }
+
+                    OperableTrigger trigger = loadTrigger(slot);
+                    trigger.setFireInstanceId(getFiredTriggerRecordId());
+                    triggers.putInt(slot, T_STATE, STATE_ACQUIRED);
+                    if (result.isEmpty()) {
+                        batchEnd = Math.max(nextFireTime, System.currentTimeMillis()) + timeWindow;
+                    }
+                    result.add(trigger);
+                    if (result.size() == maxCount) {
+                        break;
+                    }
+                } catch (JobPersistenceException e) {
+                    // 记录无法解码,置为错误状态,避免反复取出
+                    triggers.putInt(slot, T_STATE, STATE_ERROR);
+                    log.error("acquire trigger error, trigger set to ERROR state. slot:" + slot, e);
+                }
+            }
+
+            for (Integer slot : excludedTriggers) {
+                addToTimeTriggers(slot);
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public void releaseAcquiredTrigger(OperableTrigger trigger) {
+        synchronized (lock) {
+            int slot = findTrigger(trigger.getKey());
+            if (slot != NULL_SLOT && triggers.getInt(slot, T_STATE) == STATE_ACQUIRED) {
+                triggers.putInt(slot, T_STATE, STATE_WAITING);
+                addToTimeTriggers(slot);
+            }
+        }
+    }
+
+    /**
+     * 触发时才解码JobDetail
+     */
+    @Override
+    public List<TriggerFiredResult> triggersFired(List<OperableTrigger> firedTriggers) {
+        synchronized (lock) {
+            List<TriggerFiredResult> results = new ArrayList<TriggerFiredResult>();
+            for (OperableTrigger trigger : firedTriggers) {
+                int slot = findTrigger(trigger.getKey());
+                // 取出后被删除、暂停、阻塞等
+                if (slot == NULL_SLOT || triggers.getInt(slot, T_STATE) != STATE_ACQUIRED) {
+                    continue;
+                }
+                Calendar cal = null;
+                int calendarId = triggers.getInt(slot, T_CALENDAR);
+                if (calendarId != NameTable.NO_ID) {
+                    cal = retrieveCalendar(calendarNames.nameOf(calendarId));
+                    if (cal == null) {
+                        continue;
+                    }
+                }
+
+                int jobSlot = triggers.getInt(slot, T_JOB);
+                OperableTrigger storedTrigger;
+                JobDetail job;
+                try {
+                    storedTrigger = loadTrigger(slot);
+                    job = loadJob(jobSlot);
+                } catch (JobPersistenceException e) {
+                    results.add(new TriggerFiredResult(e));
+                    continue;
+                }
+
+                Date prevFireTime = trigger.getPreviousFireTime();
+                timeTriggers.remove(slot);
+                storedTrigger.triggered(cal);
+                trigger.triggered(cal);
+                triggers.putInt(slot, T_STATE, STATE_WAITING);
+                try {
+                    saveTrigger(slot, storedTrigger);
+                } catch (JobPersistenceException e) {
+                    triggers.putInt(slot, T_STATE, STATE_ERROR);
+                    results.add(new TriggerFiredResult(e));
+                    continue;
+                }
+
+                TriggerFiredBundle bundle = new TriggerFiredBundle(job, trigger, cal, false, new Date(),
+                        trigger.getPreviousFireTime(), prevFireTime, trigger.getNextFireTime());
+
+                int flags = jobs.getInt(jobSlot, J_FLAGS);
+                if ((flags & FLAG_CONCURRENT_EXECUTION_DISALLOWED) != 0) {
+                    for (int t = jobs.getInt(jobSlot, J_FIRST_TRIGGER); t != NULL_SLOT; t = triggers.getInt(t, T_NEXT_BY_JOB)) {
+                        int state = triggers.getInt(t, T_STATE);
+                        if (state == STATE_WAITING) {
+                            triggers.putInt(t, T_STATE, STATE_BLOCKED);
+                        } else if (state == STATE_PAUSED) {
+                            triggers.putInt(t, T_STATE, STATE_PAUSED_BLOCKED);
+                        }
+                        timeTriggers.remove(t);
+                    }
+                    jobs.putInt(jobSlot, J_FLAGS, flags | FLAG_BLOCKED);
+                } else {
+                    addToTimeTriggers(slot);
+                }
+                results.add(new TriggerFiredResult(bundle));
+            }
+            return results;
+        }
+    }
+
+    @Override
+    public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail, CompletedExecutionInstruction triggerInstCode) {
+        synchronized (lock) {
+            int jobSlot = findJob(jobDetail.getKey());
+            int slot = findTrigger(trigger.getKey());
+
+            // 执行期间任务可能已被删除
+            if (jobSlot != NULL_SLOT) {
+                int flags = jobs.getInt(jobSlot, J_FLAGS);
+                if ((flags & FLAG_PERSIST_JOB_DATA) != 0) {
+                    JobDataMap newData = jobDetail.getJobDataMap();
+                    if (newData != null) {
+                        newData = (JobDataMap) newData.clone();
+                        newData.clearDirtyFlag();
+                    }
+                    try {
+                        JobDetail storedJob = loadJob(jobSlot);
+                        saveJob(jobSlot, storedJob.getJobBuilder().setJobData(newData).build());
+                    } catch (JobPersistenceException e) {
+                        log.error("persist job data error. jobKey:" + jobDetail.getKey(), e);
+                    }
+                }
+                if ((flags & FLAG_CONCURRENT_EXECUTION_DISALLOWED) != 0) {
+                    jobs.putInt(jobSlot, J_FLAGS, jobs.getInt(jobSlot, J_FLAGS) & ~FLAG_BLOCKED);
+                    for (int t = jobs.getInt(jobSlot, J_FIRST_TRIGGER); t != NULL_SLOT; t = triggers.getInt(t, T_NEXT_BY_JOB)) {
+                        int state = triggers.getInt(t, T_STATE);
+                        if (state == STATE_BLOCKED) {
+                            triggers.putInt(t, T_STATE, STATE_WAITING);
+                            addToTimeTriggers(t);
+                        } else if (state == STATE_PAUSED_BLOCKED) {
+                            triggers.putInt(t, T_STATE, STATE_PAUSED);
+                        }
+                    }
+                    signaler.signalSchedulingChange(0L);
+                }
+            }
+
+            // 执行期间触发器可能已被删除
+            if (slot == NULL_SLOT) {
+                return;
+            }
+            if (triggerInstCode == CompletedExecutionInstruction.DELETE_TRIGGER) {
+                if (trigger.getNextFireTime() == null) {
+                    // 执行期间可能被重新调度,存储中的触发器也没有下次触发时间才删除
+                    if (triggers.getLong(slot, T_NEXT_FIRE_TIME) == NO_TIME) {
+                        removeTrigger(slot, true);
+                    }
+                } else {
+                    removeTrigger(slot, true);
+                    signaler.signalSchedulingChange(0L);
+                }
+            } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_COMPLETE) {
+                triggers.putInt(slot, T_STATE, STATE_COMPLETE);
+                timeTriggers.remove(slot);
+                signaler.signalSchedulingChange(0L);
+            } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_ERROR) {
+                log.info("Trigger {} set to ERROR state.", trigger.getKey());
+                triggers.putInt(slot, T_STATE, STATE_ERROR);
+                signaler.signalSchedulingChange(0L);
+            } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR) {
+                log.info("All triggers of Job {} set to ERROR state.", trigger.getJobKey());
+                setAllTriggersOfJobToState(triggers.getInt(slot, T_JOB), STATE_ERROR);
+                signaler.signalSchedulingChange(0L);
+            } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_COMPLETE) {
+                setAllTriggersOfJobToState(triggers.getInt(slot, T_JOB), STATE_COMPLETE);
+                signaler.signalSchedulingChange(0L);
+            }
+        }
+    }
+
+    @Override
+    public void setInstanceId(String schedInstId) {
+    }
+
+    @Override
+    public void setInstanceName(String schedName) {
+    }
+
+    @Override
+    public void setThreadPoolSize(int poolSize) {
+    }
+
+    @Override
+    public long getAcquireRetryDelay(int failureCount) {
+        return 20;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Trigger state.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * 错过触发处理,与RAMJobStore.applyMisfire一致。只有确实错过时才解码触发器。
+     *
+     * @return 触发器的下次触发时间是否发生了变化
+     */
+    private boolean applyMisfire(int slot) throws JobPersistenceException {
+        long misfireTime = System.currentTimeMillis();
+        if (getMisfireThreshold() > 0) {
+            misfireTime -= getMisfireThreshold();
+        }
+        long nextFireTime = triggers.getLong(slot, T_NEXT_FIRE_TIME);
+        if (nextFireTime == NO_TIME || nextFireTime > misfireTime
+                || triggers.getInt(slot, T_MISFIRE_INSTRUCTION) == Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY) {
+            return false;
+        }
+
+        OperableTrigger trigger = loadTrigger(slot);
+        Calendar cal = null;
+        if (trigger.getCalendarName() != null) {
+            cal = retrieveCalendar(trigger.getCalendarName());
+        }
+        signaler.notifyTriggerListenersMisfired((OperableTrigger) trigger.clone());
+        trigger.updateAfterMisfire(cal);
+        saveTrigger(slot, trigger);
+
+        if (trigger.getNextFireTime() == null) {
+            triggers.putInt(slot, T_STATE, STATE_COMPLETE);
+            signaler.notifySchedulerListenersFinalized(trigger);
+            timeTriggers.remove(slot);
+        } else if (nextFireTime == trigger.getNextFireTime().getTime()) {
+            return false;
+        }
+        return true;
+    }
+
+    private void pauseTrigger(int slot) {
+        int state = triggers.getInt(slot, T_STATE);
+        if (state == STATE_COMPLETE) {
+            return;
+        }
+        triggers.putInt(slot, T_STATE, state == STATE_BLOCKED ? STATE_PAUSED_BLOCKED : STATE_PAUSED);
+        timeTriggers.remove(slot);
+    }
+
+    private void pauseTriggersOfJob(int jobSlot) {
+        for (int slot = jobs.getInt(jobSlot, J_FIRST_TRIGGER); slot != NULL_SLOT; slot = triggers.getInt(slot, T_NEXT_BY_JOB)) {
+            pauseTrigger(slot);
+        }
+    }
+
+    /**
+     * 暂停指定组的全部触发器,一次扫描
+     */
+    private void pauseTriggerGroups(Collection<String> groups) {
+        if (groups.isEmpty()) {
+            return;
+        }
+        BitSet groupIds = groupIds(triggerGroups, groups);
+        for (int slot = 0; slot < triggers.limit(); slot++) {
+            if (triggers.isUsed(slot) && groupIds.get(triggers.getInt(slot, T_GROUP))) {
+                pauseTrigger(slot);
+            }
+        }
+    }
+
+    private void resumeTrigger(int slot) throws JobPersistenceException {
+        int state = triggers.getInt(slot, T_STATE);
+        if (state != STATE_PAUSED && state != STATE_PAUSED_BLOCKED) {
+            return;
+        }
+        int jobSlot = triggers.getInt(slot, T_JOB);
+        boolean blocked = (jobs.getInt(jobSlot, J_FLAGS) & FLAG_BLOCKED) != 0;
+        triggers.putInt(slot, T_STATE, blocked ? STATE_BLOCKED : STATE_WAITING);
+
+        applyMisfire(slot);
+
+        if (triggers.getInt(slot, T_STATE) == STATE_WAITING) {
+            addToTimeTriggers(slot);
+        }
+    }
+
+    private void resumeTriggersOfJob(int jobSlot) throws JobPersistenceException {
+        for (int slot = jobs.getInt(jobSlot, J_FIRST_TRIGGER); slot != NULL_SLOT; slot = triggers.getInt(slot, T_NEXT_BY_JOB)) {
+            resumeTrigger(slot);
+        }
+    }
+
+    private void setAllTriggersOfJobToState(int jobSlot, int state) {
+        for (int slot = jobs.getInt(jobSlot, J_FIRST_TRIGGER); slot != NULL_SLOT; slot = triggers.getInt(slot, T_NEXT_BY_JOB)) {
+            triggers.putInt(slot, T_STATE, state);
+            if (state != STATE_WAITING) {
+                timeTriggers.remove(slot);
+            }
+        }
+    }
+
+    private void addToTimeTriggers(int slot) {
+        long nextFireTime = triggers.getLong(slot, T_NEXT_FIRE_TIME);
+        if (nextFireTime != NO_TIME) {
+            timeTriggers.add(slot, nextFireTime, triggers.getInt(slot, T_PRIORITY));
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Records.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private void reset() {
+        slabs = new OffHeapSlabs(slabSize);
+        triggers = new SlotTable(TRIGGER_RECORD_SIZE);
+        jobs = new SlotTable(JOB_RECORD_SIZE);
+        triggersByKey = new SlotHashIndex(triggers, T_HASH, T_NEXT_IN_BUCKET);
+        jobsByKey = new SlotHashIndex(jobs, J_HASH, J_NEXT_IN_BUCKET);
+        timeTriggers = new FireTimeIndex(triggers, T_INDEX_POSITION);
+        triggerGroups = new NameTable();
+        jobGroups = new NameTable();
+        calendarNames = new NameTable();
+    }
+
+    private int findTrigger(TriggerKey key) {
+        int hash = key.hashCode();
+        byte[] keyBytes = codec.encodeKey(key.getGroup(), key.getName());
+        for (int slot = triggersByKey.first(hash); slot != NULL_SLOT; slot = triggersByKey.next(slot)) {
+            if (triggers.getInt(slot, T_HASH) == hash && triggers.getInt(slot, T_DATA_LENGTH) >= keyBytes.length
+                    && slabs.startsWith(triggers.getLong(slot, T_DATA), keyBytes)) {
+                return slot;
+            }
+        }
+        return NULL_SLOT;
+    }
+
+    private int findJob(JobKey key) {
+        int hash = key.hashCode();
+        byte[] keyBytes = codec.encodeKey(key.getGroup(), key.getName());
+        for (int jobSlot = jobsByKey.first(hash); jobSlot != NULL_SLOT; jobSlot = jobsByKey.next(jobSlot)) {
+            if (jobs.getInt(jobSlot, J_HASH) == hash && jobs.getInt(jobSlot, J_DATA_LENGTH) >= keyBytes.length
+                    && slabs.startsWith(jobs.getLong(jobSlot, J_DATA), keyBytes)) {
+                return jobSlot;
+            }
+        }
+        return NULL_SLOT;
+    }
+
+    private int insertTrigger(OperableTrigger trigger, int jobSlot) throws JobPersistenceException {
+        int length = codec.encodeTrigger(trigger);
+        long handle = allocate(length);
+        slabs.write(handle, codec.encoded(), length);
+
+        int slot = triggers.allocate();
+        triggers.putInt(slot, T_STATE, STATE_WAITING);
+        triggers.putInt(slot, T_HASH, trigger.getKey().hashCode());
+        triggers.putLong(slot, T_DATA, handle);
+        triggers.putInt(slot, T_DATA_LENGTH, length);
+        triggers.putInt(slot, T_INDEX_POSITION, FireTimeIndex.NOT_INDEXED);
+        setTriggerFields(slot, trigger);
+        triggers.putInt(slot, T_GROUP, triggerGroups.acquire(trigger.getKey().getGroup()));
+        triggers.putInt(slot, T_CALENDAR, trigger.getCalendarName() == null
+                ? NameTable.NO_ID : calendarNames.acquire(trigger.getCalendarName()));
+
+        // 加到任务的触发器链表头部
+        int first = jobs.getInt(jobSlot, J_FIRST_TRIGGER);
+        triggers.putInt(slot, T_JOB, jobSlot);
+        triggers.putInt(slot, T_NEXT_BY_JOB, first);
+        triggers.putInt(slot, T_PREV_BY_JOB, NULL_SLOT);
+        if (first != NULL_SLOT) {
+            triggers.putInt(first, T_PREV_BY_JOB, slot);
+        }
+        jobs.putInt(jobSlot, J_FIRST_TRIGGER, slot);
+        jobs.putInt(jobSlot, J_TRIGGER_COUNT, jobs.getInt(jobSlot, J_TRIGGER_COUNT) + 1);
+
+        triggersByKey.add(slot);
+        return slot;
+    }
+
+    /**
+     * 触发器内容变化后写回,在排序堆中时按新的触发时间重新排序
+     */
+    private void saveTrigger(int slot, OperableTrigger trigger) throws JobPersistenceException {
+        int length = codec.encodeTrigger(trigger);
+        long handle = triggers.getLong(slot, T_DATA);
+        try {
+            handle = slabs.reallocate(handle, triggers.getInt(slot, T_DATA_LENGTH), length);
+        } catch (OutOfMemoryError e) {
+            throw outOfMemory(e);
+        } catch (IllegalArgumentException e) {
+            throw new JobPersistenceException(e.getMessage());
+        }
+        slabs.write(handle, codec.encoded(), length);
+        triggers.putLong(slot, T_DATA, handle);
+        triggers.putInt(slot, T_DATA_LENGTH, length);
+        setTriggerFields(slot, trigger);
+        if (timeTriggers.contains(slot)) {
+            addToTimeTriggers(slot);
+            if (triggers.getLong(slot, T_NEXT_FIRE_TIME) == NO_TIME) {
+                timeTriggers.remove(slot);
+            }
+        }
+    }
+
+    private void setTriggerFields(int slot, OperableTrigger trigger) {
+        Date nextFireTime = trigger.getNextFireTime();
+        triggers.putLong(slot, T_NEXT_FIRE_TIME, nextFireTime == null ? NO_TIME : nextFireTime.getTime());
+        triggers.putInt(slot, T_PRIORITY, trigger.getPriority());
+        triggers.putInt(slot, T_MISFIRE_INSTRUCTION, trigger.getMisfireInstruction());
+    }
+
+    /**
+     * 删除触发器,任务没有其他触发器且不是持久任务时一并删除
+     */
+    private void removeTrigger(int slot, boolean removeOrphanedJob) {
+        int jobSlot = triggers.getInt(slot, T_JOB);
+        deleteTrigger(slot);
+        if (removeOrphanedJob && jobs.getInt(jobSlot, J_TRIGGER_COUNT) == 0
+                && (jobs.getInt(jobSlot, J_FLAGS) & FLAG_DURABLE) == 0) {
+            JobKey jobKey = null;
+            try {
+                jobKey = loadJobKey(jobSlot);
+            } catch (JobPersistenceException e) {
+                log.error("decode job key error. slot:" + jobSlot, e);
+            }
+            deleteJob(jobSlot);
+            if (jobKey != null) {
+                signaler.notifySchedulerListenersJobDeleted(jobKey);
+            }
+        }
+    }
+
+    private void deleteTrigger(int slot) {
+        triggersByKey.remove(slot);
+        timeTriggers.remove(slot);
+
+        int jobSlot = triggers.getInt(slot, T_JOB);
+        int next = triggers.getInt(slot, T_NEXT_BY_JOB);
+        int prev = triggers.getInt(slot, T_PREV_BY_JOB);
+        if (prev == NULL_SLOT) {
+            jobs.putInt(jobSlot, J_FIRST_TRIGGER, next);
+        } else {
+            triggers.putInt(prev, T_NEXT_BY_JOB, next);
+        }
+        if (next != NULL_SLOT) {
+            triggers.putInt(next, T_PREV_BY_JOB, prev);
+        }
+        jobs.putInt(jobSlot, J_TRIGGER_COUNT, jobs.getInt(jobSlot, J_TRIGGER_COUNT) - 1);
+
+        triggerGroups.release(triggers.getInt(slot, T_GROUP));
+        int calendarId = triggers.getInt(slot, T_CALENDAR);
+        if (calendarId != NameTable.NO_ID) {
+            calendarNames.release(calendarId);
+        }
+        slabs.free(triggers.getLong(slot, T_DATA), triggers.getInt(slot, T_DATA_LENGTH));
+        triggers.free(slot);
+    }
+
+    private void insertJob(JobDetail jobDetail) throws JobPersistenceException {
+        int length = codec.encodeJob(jobDetail);
+        long handle = allocate(length);
+        slabs.write(handle, codec.encoded(), length);
+
+        int jobSlot = jobs.allocate();
+        jobs.putInt(jobSlot, J_HASH, jobDetail.getKey().hashCode());
+        jobs.putInt(jobSlot, J_GROUP, jobGroups.acquire(jobDetail.getKey().getGroup()));
+        jobs.putInt(jobSlot, J_FIRST_TRIGGER, NULL_SLOT);
+        jobs.putInt(jobSlot, J_TRIGGER_COUNT, 0);
+        jobs.putLong(jobSlot, J_DATA, handle);
+        jobs.putInt(jobSlot, J_DATA_LENGTH, length);
+        jobs.putInt(jobSlot, J_FLAGS, flagsOf(jobDetail));
+        jobsByKey.add(jobSlot);
+    }
+
+    private void saveJob(int jobSlot, JobDetail jobDetail) throws JobPersistenceException {
+        int length = codec.encodeJob(jobDetail);
+        long handle;
+        try {
+            handle = slabs.reallocate(jobs.getLong(jobSlot, J_DATA), jobs.getInt(jobSlot, J_DATA_LENGTH), length);
+        } catch (IllegalArgumentException e) {
+            throw new JobPersistenceException(e.getMessage());
+        }
+        slabs.write(handle, codec.encoded(), length);
+        jobs.putLong(jobSlot, J_DATA, handle);
+        jobs.putInt(jobSlot, J_DATA_LENGTH, length);
+        // 保留正在执行的阻塞标记
+        jobs.putInt(jobSlot, J_FLAGS, flagsOf(jobDetail) | (jobs.getInt(jobSlot, J_FLAGS) & FLAG_BLOCKED));
+    }
+
+    private void deleteJob(int jobSlot) {
+        jobsByKey.remove(jobSlot);
+        jobGroups.release(jobs.getInt(jobSlot, J_GROUP));
+        slabs.free(jobs.getLong(jobSlot, J_DATA), jobs.getInt(jobSlot, J_DATA_LENGTH));
+        jobs.free(jobSlot);
+    }
+
+    private static int flagsOf(JobDetail jobDetail) {
+        int flags = 0;
+        if (jobDetail.isDurable()) {
+            flags |= FLAG_DURABLE;
+        }
+        if (jobDetail.isConcurrentExectionDisallowed()) {
+            flags |= FLAG_CONCURRENT_EXECUTION_DISALLOWED;
+        }
+        if (jobDetail.isPersistJobDataAfterExecution()) {
+            flags |= FLAG_PERSIST_JOB_DATA;
+        }
+        return flags;
+    }
+
+    private OperableTrigger loadTrigger(int slot) throws JobPersistenceException {
+        int length = triggers.getInt(slot, T_DATA_LENGTH);
+        return codec.decodeTrigger(read(triggers.getLong(slot, T_DATA), length), length);
+    }
+
+    private TriggerKey loadTriggerKey(int slot) throws JobPersistenceException {
+        int length = triggers.getInt(slot, T_DATA_LENGTH);
+        return codec.decodeTriggerKey(read(triggers.getLong(slot, T_DATA), length), length);
+    }
+
+    private JobDetail loadJob(int jobSlot) throws JobPersistenceException {
+        int length = jobs.getInt(jobSlot, J_DATA_LENGTH);
+        return codec.decodeJob(read(jobs.getLong(jobSlot, J_DATA), length), length);
+    }
+
+    private JobKey loadJobKey(int jobSlot) throws JobPersistenceException {
+        int length = jobs.getInt(jobSlot, J_DATA_LENGTH);
+        return codec.decodeJobKey(read(jobs.getLong(jobSlot, J_DATA), length), length);
+    }
+
+    private byte[] read(long handle, int length) {
+        byte[] bytes = codec.readBuffer(length);
+        slabs.read(handle, bytes, length);
+        return bytes;
+    }
+
+    private long allocate(int length) throws JobPersistenceException {
+        try {
+            return slabs.allocate(length);
+        } catch (IllegalArgumentException e) {
+            throw new JobPersistenceException(e.getMessage());
+        }
+    }
+
+    private JobPersistenceException outOfMemory(OutOfMemoryError e) {
+        return new JobPersistenceException("off-heap memory exhausted, consider increasing -XX:MaxDirectMemorySize. recordBytes:"
+                + slabs.getUsedBytes(), e);
+    }
+
+    /**
+     * 匹配的组编号
+     */
+    private static BitSet matchGroups(NameTable groups, GroupMatcher<?> matcher) {
+        StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+        BitSet groupIds = new BitSet();
+        if (operator == StringMatcher.StringOperatorName.EQUALS) {
+            int id = groups.idOf(matcher.getCompareToValue());
+            if (id != NameTable.NO_ID) {
+                groupIds.set(id);
+            }
+            return groupIds;
+        }
+        for (String group : groups.names()) {
+            if (operator.evaluate(group, matcher.getCompareToValue())) {
+                groupIds.set(groups.idOf(group));
+            }
+        }
+        return groupIds;
+    }
+
+    private static BitSet groupIds(NameTable groups, Collection<String> names) {
+        BitSet groupIds = new BitSet();
+        for (String name : names) {
+            int id = groups.idOf(name);
+            if (id != NameTable.NO_ID) {
+                groupIds.set(id);
+            }
+        }
+        return groupIds;
+    }
+
+    private String getFiredTriggerRecordId() {
+        return String.valueOf(ftrCtr.incrementAndGet());
+    }
+}
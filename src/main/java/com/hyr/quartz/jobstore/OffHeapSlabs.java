@@ -0,0 +1,194 @@
+package com.hyr.quartz.jobstore;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*******************************************************************************
+ * @date 2026-10-17 7:10 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 堆外变长记录分配器
+ *
+ * 从固定大小的直接内存slab中按大小等级切分记录块,等级按1.5倍递增,浪费不超过三分之一。
+ * 释放的块按等级挂到空闲链表上(链表指针写在块的前8个字节),后续同等级分配优先复用。
+ * 记录句柄为(slab序号 << 32 | 偏移)。非线程安全,由调用方加锁。
+ ******************************************************************************/
+final class OffHeapSlabs {
+
+    final static long NULL_HANDLE = -1L;
+
+    private final static int MIN_CHUNK_SIZE = 16;
+
+    private final int slabSize;
+
+    private final int[] chunkSizes; // 大小等级
+
+    private final long[] freeHeads; // 每个等级的空闲链表头
+
+    private ByteBuffer[] slabs = new ByteBuffer[8];
+
+    private int slabCount;
+
+    private int position; // 最后一个slab的分配位置
+
+    private long usedBytes;
+
+    OffHeapSlabs(int slabSize) {
+        if (slabSize < 1024) {
+            throw new IllegalArgumentException("slab size must be >= 1024. slabSize:" + slabSize);
+        }
+        this.slabSize = slabSize;
+        List<Integer> sizes = new ArrayList<Integer>();
+        for (int size = MIN_CHUNK_SIZE; size < slabSize; size <<= 1) {
+            sizes.add(size);
+            int middle = size + (size >> 1);
+            if (middle < slabSize) {
+                sizes.add(middle);
+            }
+        }
+        sizes.add(slabSize);
+        chunkSizes = new int[sizes.size()];
+        for (int i = 0; i < chunkSizes.length; i++) {
+            chunkSizes[i] = sizes.get(i);
+        }
+        freeHeads = new long[chunkSizes.length];
+        Arrays.fill(freeHeads, NULL_HANDLE);
+        position = slabSize;
+    }
+
+    /**
+     * 分配能容纳length字节的块
+     *
+     * @throws IllegalArgumentException length超过slab大小
+     * @throws OutOfMemoryError         直接内存不足
+     */
+    long allocate(int length) {
+        int sizeClass = sizeClass(length);
+        int size = chunkSizes[sizeClass];
+        long handle = freeHeads[sizeClass];
+        if (handle != NULL_HANDLE) {
+            freeHeads[sizeClass] = slab(handle).getLong(offset(handle));
+        } else {
+            if (position + size > slabSize) {
+                newSlab();
+            }
+            handle = ((long) (slabCount - 1) << 32) | position;
+            position += size;
+        }
+        usedBytes += size;
+        return handle;
+    }
+
+    void free(long handle, int length) {
+        int sizeClass = sizeClass(length);
+        slab(handle).putLong(offset(handle), freeHeads[sizeClass]);
+        freeHeads[sizeClass] = handle;
+        usedBytes -= chunkSizes[sizeClass];
+    }
+
+    /**
+     * 记录长度变化后重新分配。等级不变时原地复用,否则先分配新块再释放旧块,分配失败时旧块仍然有效。
+     */
+    long reallocate(long handle, int oldLength, int newLength) {
+        if (sizeClass(oldLength) == sizeClass(newLength)) {
+            return handle;
+        }
+        long newHandle = allocate(newLength);
+        free(handle, oldLength);
+        return newHandle;
+    }
+
+    void write(long handle, byte[] src, int length) {
+        ByteBuffer slab = slab(handle);
+        slab.position(offset(handle));
+        slab.put(src, 0, length);
+    }
+
+    void read(long handle, byte[] dst, int length) {
+        ByteBuffer slab = slab(handle);
+        slab.position(offset(handle));
+        slab.get(dst, 0, length);
+    }
+
+    /**
+     * 块内容是否以prefix开头
+     */
+    boolean startsWith(long handle, byte[] prefix) {
+        ByteBuffer slab = slab(handle);
+        int offset = offset(handle);
+        for (int i = 0; i < prefix.length; i++) {
+            if (slab.get(offset + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 已申请的直接内存字节数
+     */
+    long getCapacity() {
+        return (long) slabCount * slabSize;
+    }
+
+    /**
+     * 已分配出去的块字节数
+     */
+    long getUsedBytes() {
+        return usedBytes;
+    }
+
+    private void newSlab() {
+        recycleTail();
+        if (slabCount == slabs.length) {
+            slabs = Arrays.copyOf(slabs, slabs.length * 2);
+        }
+        slabs[slabCount++] = ByteBuffer.allocateDirect(slabSize);
+        position = 0;
+    }
+
+    /**
+     * 把最后一个slab剩余的空间切成块放入空闲链表
+     */
+    private void recycleTail() {
+        if (slabCount == 0) {
+            return;
+        }
+        int sizeClass = chunkSizes.length - 1;
+        while (slabSize - position >= MIN_CHUNK_SIZE) {
+            while (chunkSizes[sizeClass] > slabSize - position) {
+                sizeClass--;
+            }
+            long handle = ((long) (slabCount - 1) << 32) | position;
+            slab(handle).putLong(position, freeHeads[sizeClass]);
+            freeHeads[sizeClass] = handle;
+            position += chunkSizes[sizeClass];
+        }
+    }
+
+    private int sizeClass(int length) {
+        if (length > slabSize) {
+            throw new IllegalArgumentException("record is larger than slab size. length:" + length + ", slabSize:" + slabSize);
+        }
+        int low = 0;
+        int high = chunkSizes.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (chunkSizes[middle] < length) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private ByteBuffer slab(long handle) {
+        return slabs[(int) (handle >>> 32)];
+    }
+
+    private static int offset(long handle) {
+        return (int) handle;
+    }
+}
@@ -0,0 +1,424 @@
+package com.hyr.quartz.jobstore;
+
+import org.quartz.CronExpression;
+import org.quartz.Job;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.TriggerKey;
+import org.quartz.impl.JobDetailImpl;
+import org.quartz.impl.triggers.AbstractTrigger;
+import org.quartz.impl.triggers.CronTriggerImpl;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Map;
+import java.util.TimeZone;
+
+/*******************************************************************************
+ * @date 2026-10-17 7:10 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 触发器和任务的二进制编码
+ *
+ * 记录以key(组名、名称)开头,按key查找时直接比较记录前缀,不需要解码。
+ * SimpleTriggerImpl、CronTriggerImpl和JobDetailImpl按字段紧凑编码,
+ * 其他实现类退化为Java序列化。JobDataMap中的字符串和基本类型直接编码,其他值单独Java序列化。
+ * 非线程安全,由调用方加锁。
+ ******************************************************************************/
+final class RecordCodec {
+
+    private final static byte TYPE_SERIALIZED = 0;
+
+    private final static byte TYPE_SIMPLE_TRIGGER = 1;
+
+    private final static byte TYPE_CRON_TRIGGER = 2;
+
+    private final static byte TYPE_JOB_DETAIL = 1;
+
+    private final static byte VALUE_NULL = 0;
+
+    private final static byte VALUE_STRING = 1;
+
+    private final static byte VALUE_INTEGER = 2;
+
+    private final static byte VALUE_LONG = 3;
+
+    private final static byte VALUE_BOOLEAN = 4;
+
+    private final static byte VALUE_SERIALIZED = 5;
+
+    private final static long NO_TIME = Long.MIN_VALUE;
+
+    private final ClassLoadHelper loadHelper;
+
+    private final RecordBuffer buffer = new RecordBuffer();
+
+    private final DataOutputStream out = new DataOutputStream(buffer);
+
+    private byte[] readBuffer = new byte[512];
+
+    RecordCodec(ClassLoadHelper loadHelper) {
+        this.loadHelper = loadHelper;
+    }
+
+    /**
+     * 最近一次encode的结果,长度为encode的返回值
+     */
+    byte[] encoded() {
+        return buffer.bytes();
+    }
+
+    /**
+     * 读取记录用的缓冲区,下一次调用前有效
+     */
+    byte[] readBuffer(int length) {
+        if (readBuffer.length < length) {
+            readBuffer = new byte[Math.max(length, readBuffer.length * 2)];
+        }
+        return readBuffer;
+    }
+
+    /**
+     * key的编码,与记录开头的字节相同
+     */
+    byte[] encodeKey(String group, String name) {
+        buffer.reset();
+        try {
+            writeString(out, group);
+            writeString(out, name);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] key = new byte[buffer.size()];
+        System.arraycopy(buffer.bytes(), 0, key, 0, key.length);
+        return key;
+    }
+
+    int encodeTrigger(OperableTrigger trigger) throws JobPersistenceException {
+        buffer.reset();
+        try {
+            writeString(out, trigger.getKey().getGroup());
+            writeString(out, trigger.getKey().getName());
+            writeString(out, trigger.getJobKey().getGroup());
+            writeString(out, trigger.getJobKey().getName());
+            if (trigger.getClass() == SimpleTriggerImpl.class) {
+                SimpleTriggerImpl simpleTrigger = (SimpleTriggerImpl) trigger;
+                out.writeByte(TYPE_SIMPLE_TRIGGER);
+                writeTriggerFields(simpleTrigger);
+                out.writeInt(simpleTrigger.getRepeatCount());
+                out.writeLong(simpleTrigger.getRepeatInterval());
+                out.writeInt(simpleTrigger.getTimesTriggered());
+            } else if (trigger.getClass() == CronTriggerImpl.class) {
+                CronTriggerImpl cronTrigger = (CronTriggerImpl) trigger;
+                out.writeByte(TYPE_CRON_TRIGGER);
+                writeTriggerFields(cronTrigger);
+                writeString(out, cronTrigger.getCronExpression());
+                writeString(out, cronTrigger.getTimeZone().getID());
+            } else {
+                out.writeByte(TYPE_SERIALIZED);
+                writeBytes(out, serialize(trigger));
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new JobPersistenceException("encode trigger error. triggerKey:" + trigger.getKey(), e);
+        }
+        return buffer.size();
+    }
+
+    OperableTrigger decodeTrigger(byte[] bytes, int length) throws JobPersistenceException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, length));
+        try {
+            String group = readString(in);
+            String name = readString(in);
+            String jobGroup = readString(in);
+            String jobName = readString(in);
+            byte type = in.readByte();
+            AbstractTrigger<?> trigger;
+            if (type == TYPE_SIMPLE_TRIGGER) {
+                SimpleTriggerImpl simpleTrigger = new SimpleTriggerImpl();
+                readTriggerFields(in, simpleTrigger);
+                simpleTrigger.setRepeatCount(in.readInt());
+                simpleTrigger.setRepeatInterval(in.readLong());
+                simpleTrigger.setTimesTriggered(in.readInt());
+                trigger = simpleTrigger;
+            } else if (type == TYPE_CRON_TRIGGER) {
+                CronTriggerImpl cronTrigger = new CronTriggerImpl();
+                readTriggerFields(in, cronTrigger);
+                CronExpression cronExpression = new CronExpression(readString(in));
+                cronExpression.setTimeZone(TimeZone.getTimeZone(readString(in)));
+                cronTrigger.setCronExpression(cronExpression);
+                trigger = cronTrigger;
+            } else {
+                return (OperableTrigger) deserialize(readBytes(in));
+            }
+            trigger.setName(name);
+            trigger.setGroup(group);
+            trigger.setJobName(jobName);
+            trigger.setJobGroup(jobGroup);
+            return trigger;
+        } catch (IOException e) {
+            throw new JobPersistenceException("decode trigger error.", e);
+        } catch (ClassNotFoundException e) {
+            throw new JobPersistenceException("decode trigger error.", e);
+        } catch (ParseException e) {
+            throw new JobPersistenceException("decode cron trigger error.", e);
+        }
+    }
+
+    TriggerKey decodeTriggerKey(byte[] bytes, int length) throws JobPersistenceException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, length));
+        try {
+            String group = readString(in);
+            return new TriggerKey(readString(in), group);
+        } catch (IOException e) {
+            throw new JobPersistenceException("decode trigger key error.", e);
+        }
+    }
+
+    int encodeJob(JobDetail jobDetail) throws JobPersistenceException {
+        buffer.reset();
+        try {
+            writeString(out, jobDetail.getKey().getGroup());
+            writeString(out, jobDetail.getKey().getName());
+            if (jobDetail.getClass() == JobDetailImpl.class) {
+                out.writeByte(TYPE_JOB_DETAIL);
+                writeString(out, jobDetail.getDescription());
+                writeString(out, jobDetail.getJobClass().getName());
+                out.writeBoolean(jobDetail.isDurable());
+                out.writeBoolean(jobDetail.requestsRecovery());
+                writeJobDataMap(jobDetail.getJobDataMap());
+            } else {
+                out.writeByte(TYPE_SERIALIZED);
+                writeBytes(out, serialize(jobDetail));
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new JobPersistenceException("encode job error. jobKey:" + jobDetail.getKey(), e);
+        }
+        return buffer.size();
+    }
+
+    JobDetail decodeJob(byte[] bytes, int length) throws JobPersistenceException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, length));
+        try {
+            String group = readString(in);
+            String name = readString(in);
+            byte type = in.readByte();
+            if (type != TYPE_JOB_DETAIL) {
+                return (JobDetail) deserialize(readBytes(in));
+            }
+            JobDetailImpl jobDetail = new JobDetailImpl();
+            jobDetail.setName(name);
+            jobDetail.setGroup(group);
+            jobDetail.setDescription(readString(in));
+            jobDetail.setJobClass(loadHelper.loadClass(readString(in), Job.class));
+            jobDetail.setDurability(in.readBoolean());
+            jobDetail.setRequestsRecovery(in.readBoolean());
+            JobDataMap jobDataMap = readJobDataMap(in);
+            if (jobDataMap != null) {
+                jobDetail.setJobDataMap(jobDataMap);
+            }
+            return jobDetail;
+        } catch (IOException e) {
+            throw new JobPersistenceException("decode job error.", e);
+        } catch (ClassNotFoundException e) {
+            throw new JobPersistenceException("decode job error. job class not found.", e);
+        }
+    }
+
+    JobKey decodeJobKey(byte[] bytes, int length) throws JobPersistenceException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, length));
+        try {
+            String group = readString(in);
+            return new JobKey(readString(in), group);
+        } catch (IOException e) {
+            throw new JobPersistenceException("decode job key error.", e);
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Fields.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private void writeTriggerFields(AbstractTrigger<?> trigger) throws IOException {
+        writeString(out, trigger.getDescription());
+        writeString(out, trigger.getCalendarName());
+        out.writeInt(trigger.getMisfireInstruction());
+        out.writeInt(trigger.getPriority());
+        writeJobDataMap(trigger.getJobDataMap());
+        out.writeLong(timeOf(trigger.getStartTime()));
+        out.writeLong(timeOf(trigger.getEndTime()));
+        out.writeLong(timeOf(trigger.getNextFireTime()));
+        out.writeLong(timeOf(trigger.getPreviousFireTime()));
+    }
+
+    private void readTriggerFields(DataInputStream in, AbstractTrigger<?> trigger) throws IOException, ClassNotFoundException {
+        trigger.setDescription(readString(in));
+        trigger.setCalendarName(readString(in));
+        trigger.setMisfireInstruction(in.readInt());
+        trigger.setPriority(in.readInt());
+        JobDataMap jobDataMap = readJobDataMap(in);
+        if (jobDataMap != null) {
+            trigger.setJobDataMap(jobDataMap);
+        }
+        long startTime = in.readLong();
+        if (startTime != NO_TIME) {
+            trigger.setStartTime(new Date(startTime));
+        }
+        trigger.setEndTime(dateOf(in.readLong()));
+        trigger.setNextFireTime(dateOf(in.readLong()));
+        trigger.setPreviousFireTime(dateOf(in.readLong()));
+    }
+
+    private void writeJobDataMap(JobDataMap jobDataMap) throws IOException {
+        if (jobDataMap == null || jobDataMap.isEmpty()) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(jobDataMap.size());
+        for (Map.Entry<String, Object> entry : jobDataMap.entrySet()) {
+            writeString(out, entry.getKey());
+            Object value = entry.getValue();
+            if (value == null) {
+                out.writeByte(VALUE_NULL);
+            } else if (value instanceof String) {
+                out.writeByte(VALUE_STRING);
+                writeString(out, (String) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(VALUE_INTEGER);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(VALUE_LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(VALUE_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else {
+                out.writeByte(VALUE_SERIALIZED);
+                writeBytes(out, serialize(value));
+            }
+        }
+    }
+
+    private JobDataMap readJobDataMap(DataInputStream in) throws IOException, ClassNotFoundException {
+        int size = in.readInt();
+        if (size == 0) {
+            return null;
+        }
+        JobDataMap jobDataMap = new JobDataMap();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            byte type = in.readByte();
+            switch (type) {
+                case VALUE_NULL:
+                    jobDataMap.put(key, null);
+                    break;
+                case VALUE_STRING:
+                    jobDataMap.put(key, readString(in));
+                    break;
+                case VALUE_INTEGER:
+                    jobDataMap.put(key, in.readInt());
+                    break;
+                case VALUE_LONG:
+                    jobDataMap.put(key, in.readLong());
+                    break;
+                case VALUE_BOOLEAN:
+                    jobDataMap.put(key, in.readBoolean());
+                    break;
+                default:
+                    jobDataMap.put(key, deserialize(readBytes(in)));
+            }
+        }
+        jobDataMap.clearDirtyFlag();
+        return jobDataMap;
+    }
+
+    private byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+        objectOut.writeObject(value);
+        objectOut.close();
+        return bytes.toByteArray();
+    }
+
+    private Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                try {
+                    return Class.forName(desc.getName(), false, loadHelper.getClassLoader());
+                } catch (ClassNotFoundException e) {
+                    return super.resolveClass(desc);
+                }
+            }
+        };
+        try {
+            return objectIn.readObject();
+        } finally {
+            objectIn.close();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static long timeOf(Date date) {
+        return date == null ? NO_TIME : date.getTime();
+    }
+
+    private static Date dateOf(long time) {
+        return time == NO_TIME ? null : new Date(time);
+    }
+
+    /**
+     * 可以直接访问内部数组的ByteArrayOutputStream,避免每次编码复制
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+
+        RecordBuffer() {
+            super(512);
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,894 @@
+package com.hyr.quartz.jobstore;
+
+import com.hyr.quartz.common.Constant;
+import org.quartz.Calendar;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.SchedulerConfigException;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.TriggerKey;
+import org.quartz.impl.jdbcjobstore.InvalidConfigurationException;
+import org.quartz.impl.jdbcjobstore.SchedulerStateRecord;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/*******************************************************************************
+ * @date 2026-10-18 5:50 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 按任务组分片到多个库(表前缀或schema)的JDBC JobStore
+ *
+ * 集群中所有节点共用一行QRTZ_LOCKS.TRIGGER_ACCESS,节点多了以后吞吐不再增加。这里把任务按JobKey的组名哈希到N个分片,
+ * 每个分片是一个独立的JobStoreTX,有自己的数据源(各自的DruidConnectionPoolProvider连接池)、表和锁行。
+ * 任务和它的触发器在同一分片,只有TriggerKey的操作依次查找各分片,组匹配的查询和暂停/恢复对所有分片执行,日历保存到所有分片。
+ *
+ * 分片归属:
+ * 每个节点在各分片的QRTZ_SCHEDULER_STATE中定期登记(clusterCheckinInterval),以0号分片的登记作为租约,
+ * 最近登记时间+2倍登记间隔+7.5秒内有效。节点按租约有效的实例用rendezvous哈希分配分片,只从自己的分片取触发器,
+ * 节点加入或失效时只有少量分片换主。换主的短暂期间两个节点可能同时从一个分片取触发器,仍由该分片的锁行保证不重复触发;
+ * 失效节点正在执行的触发器由各分片的ClusterManager按原有流程恢复。
+ * 这样每个锁行基本只由一个节点竞争,增加分片和节点时锁竞争随之下降。非集群时本节点拥有所有分片。
+ *
+ * 分片数和数据源顺序决定任务所在的分片,上线后修改需要迁移数据。
+ *
+ * 配置:
+ * org.quartz.jobStore.class:com.hyr.quartz.jobstore.ShardedJobStore
+ * org.quartz.jobStore.dataSources:shard0,shard1,shard2,shard3
+ * org.quartz.jobStore.tablePrefix:qrtz_
+ * org.quartz.jobStore.tablePrefixes:s0.qrtz_,s1.qrtz_,s2.qrtz_,s3.qrtz_  (可选,每个分片的表前缀或schema)
+ * org.quartz.jobStore.isClustered:true
+ * org.quartz.dataSource.shard0.connectionProvider.class:com.hyr.quartz.connection.DruidConnectionPoolProvider
+ *
+ * 没有配置dataSources时按JDBC JobStore的org.quartz.jobStore.dataSource退化为单分片;两者都配置时忽略dataSource。
+ ******************************************************************************/
+public class ShardedJobStore implements JobStore {
+
+    private final static Logger log = LoggerFactory.getLogger(ShardedJobStore.class);
+
+    /**
+     * 租约宽限,与ClusterManager判断节点失效一致
+     */
+    private final static long LEASE_GRACE_MILLIS = 7500;
+
+    private String dataSources;
+
+    private String dataSource;
+
+    private String tablePrefix = "QRTZ_";
+
+    private String tablePrefixes;
+
+    private String driverDelegateClass;
+
+    private String driverDelegateInitString;
+
+    private boolean clustered;
+
+    private long clusterCheckinInterval = 7500;
+
+    private long misfireThreshold = 60000;
+
+    private boolean useProperties;
+
+    private boolean acquireTriggersWithinLock;
+
+    private long leaseRefreshIntervalMillis = Constant.SHARD_LEASE_REFRESH_INTERVAL_MILLIS;
+
+    private String instanceId;
+
+    private String instanceName;
+
+    private int threadPoolSize;
+
+    private JobStoreShard[] shards;
+
+    private volatile JobStoreShard[] ownedShards = new JobStoreShard[0];
+
+    private volatile List<String> liveInstances = Collections.emptyList();
+
+    private SchedulerSignaler signaler;
+
+    private ScheduledExecutorService leaseRefresher;
+
+    @Override
+    public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler signaler) throws SchedulerConfigException {
+        String[] names;
+        if (dataSources != null && !dataSources.trim().isEmpty()) {
+            if (dataSource != null) {
+                log.warn("sharded job store ignores dataSource when dataSources is set. dataSource:{} dataSources:{}", dataSource, dataSources);
+            }
+            names = split(dataSources);
+        } else if (dataSource != null && !dataSource.trim().isEmpty()) {
+            log.warn("sharded job store has no dataSources, fall back to a single shard. dataSource:{}", dataSource);
+            names = new String[]{dataSource.trim()};
+        } else {
+            throw new SchedulerConfigException("ShardedJobStore requires dataSources.");
+        }
+        String[] prefixes = tablePrefixes == null ? null : split(tablePrefixes);
+        if (prefixes != null && prefixes.length != names.length) {
+            throw new SchedulerConfigException("tablePrefixes count " + prefixes.length + " doesn't match dataSources count " + names.length);
+        }
+        this.signaler = signaler;
+        shards = new JobStoreShard[names.length];
+        for (int i = 0; i < names.length; i++) {
+            JobStoreShard shard = new JobStoreShard(i);
+            shard.setDataSource(names[i]);
+            shard.setTablePrefix(prefixes == null ? tablePrefix : prefixes[i]);
+            try {
+                if (driverDelegateClass != null) {
+                    shard.setDriverDelegateClass(driverDelegateClass);
+                }
+                shard.setDriverDelegateInitString(driverDelegateInitString);
+            } catch (InvalidConfigurationException e) {
+                throw new SchedulerConfigException(e.getMessage(), e);
+            }
+            shard.setIsClustered(clustered);
+            shard.setClusterCheckinInterval(clusterCheckinInterval);
+            shard.setMisfireThreshold(misfireThreshold);
+            shard.setUseProperties(String.valueOf(useProperties));
+            shard.setAcquireTriggersWithinLock(acquireTriggersWithinLock);
+            shard.setInstanceId(instanceId);
+            shard.setInstanceName(instanceName);
+            shard.setThreadPoolSize(threadPoolSize);
+            shard.initialize(loadHelper, signaler);
+            shards[i] = shard;
+        }
+        ownedShards = shards;
+        log.info("sharded job store initialized. shards:{} clustered:{}", shards.length, clustered);
+    }
+
+    @Override
+    public void schedulerStarted() throws SchedulerException {
+        for (JobStoreShard shard : shards) {
+            shard.schedulerStarted();
+        }
+        if (clustered) {
+            refreshLeases();
+            synchronized (this) {
+                if (leaseRefresher == null) {
+                    leaseRefresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, instanceName + "_ShardLeaseRefresher");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                    leaseRefresher.scheduleWithFixedDelay(new Runnable() {
+                        @Override
+                        public void run() {
+                            refreshLeases();
+                        }
+                    }, leaseRefreshIntervalMillis, leaseRefreshIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void schedulerPaused() {
+        for (JobStoreShard shard : shards) {
+            shard.schedulerPaused();
+        }
+    }
+
+    @Override
+    public void schedulerResumed() {
+        for (JobStoreShard shard : shards) {
+            shard.schedulerResumed();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (this) {
+            if (leaseRefresher != null) {
+                leaseRefresher.shutdownNow();
+                leaseRefresher = null;
+            }
+        }
+        for (JobStoreShard shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    @Override
+    public boolean supportsPersistence() {
+        return true;
+    }
+
+    @Override
+    public long getEstimatedTimeToReleaseAndAcquireTrigger() {
+        return shards[0].getEstimatedTimeToReleaseAndAcquireTrigger();
+    }
+
+    @Override
+    public boolean isClustered() {
+        return clustered;
+    }
+
+    /////////////////////////////////////////////////////////////////////////////
+    // 任务和触发器
+    /////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void storeJobAndTrigger(JobDetail newJob, OperableTrigger newTrigger) throws JobPersistenceException {
+        JobStoreShard shard = shardFor(newJob.getKey());
+        checkTriggerElsewhere(shard, newTrigger.getKey(), false);
+        shard.storeJobAndTrigger(newJob, newTrigger);
+    }
+
+    @Override
+    public void storeJob(JobDetail newJob, boolean replaceExisting) throws JobPersistenceException {
+        shardFor(newJob.getKey()).storeJob(newJob, replaceExisting);
+    }
+
+    @Override
+    public void storeJobsAndTriggers(Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, boolean replace) throws JobPersistenceException {
+        Map<JobStoreShard, Map<JobDetail, Set<? extends Trigger>>> byShard = new LinkedHashMap<>();
+        for (Map.Entry<JobDetail, Set<? extends Trigger>> entry : triggersAndJobs.entrySet()) {
+            JobStoreShard shard = shardFor(entry.getKey().getKey());
+            for (Trigger trigger : entry.getValue()) {
+                checkTriggerElsewhere(shard, trigger.getKey(), replace);
+            }
+            Map<JobDetail, Set<? extends Trigger>> shardJobs = byShard.get(shard);
+            if (shardJobs == null) {
+                shardJobs = new LinkedHashMap<>();
+                byShard.put(shard, shardJobs);
+            }
+            shardJobs.put(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<JobStoreShard, Map<JobDetail, Set<? extends Trigger>>> entry : byShard.entrySet()) {
+            entry.getKey().storeJobsAndTriggers(entry.getValue(), replace);
+        }
+    }
+
+    @Override
+    public boolean removeJob(JobKey jobKey) throws JobPersistenceException {
+        return shardFor(jobKey).removeJob(jobKey);
+    }
+
+    @Override
+    public boolean removeJobs(List<JobKey> jobKeys) throws JobPersistenceException {
+        boolean allFound = true;
+        for (JobKey jobKey : jobKeys) {
+            allFound = removeJob(jobKey) && allFound;
+        }
+        return allFound;
+    }
+
+    @Override
+    public JobDetail retrieveJob(JobKey jobKey) throws JobPersistenceException {
+        return shardFor(jobKey).retrieveJob(jobKey);
+    }
+
+    @Override
+    public void storeTrigger(OperableTrigger newTrigger, boolean replaceExisting) throws JobPersistenceException {
+        JobStoreShard shard = shardFor(newTrigger.getJobKey());
+        checkTriggerElsewhere(shard, newTrigger.getKey(), replaceExisting);
+        shard.storeTrigger(newTrigger, replaceExisting);
+    }
+
+    @Override
+    public boolean removeTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        JobStoreShard shard = findShard(triggerKey);
+        return shard != null && shard.removeTrigger(triggerKey);
+    }
+
+    @Override
+    public boolean removeTriggers(List<TriggerKey> triggerKeys) throws JobPersistenceException {
+        boolean allFound = true;
+        for (TriggerKey triggerKey : triggerKeys) {
+            allFound = removeTrigger(triggerKey) && allFound;
+        }
+        return allFound;
+    }
+
+    @Override
+    public boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger) throws JobPersistenceException {
+        JobStoreShard shard = findShard(triggerKey);
+        if (shard == null) {
+            return false;
+        }
+        // 新触发器必须属于同一个任务,因此在同一分片,不是同一任务时由JobStoreSupport报错
+        return shard.replaceTrigger(triggerKey, newTrigger);
+    }
+
+    @Override
+    public OperableTrigger retrieveTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        JobStoreShard shard = findShard(triggerKey);
+        return shard == null ? null : shard.retrieveTrigger(triggerKey);
+    }
+
+    @Override
+    public boolean checkExists(JobKey jobKey) throws JobPersistenceException {
+        return shardFor(jobKey).checkExists(jobKey);
+    }
+
+    @Override
+    public boolean checkExists(TriggerKey triggerKey) throws JobPersistenceException {
+        return findShard(triggerKey) != null;
+    }
+
+    @Override
+    public void clearAllSchedulingData() throws JobPersistenceException {
+        for (JobStoreShard shard : shards) {
+            shard.clearAllSchedulingData();
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////////
+    // 日历,保存到所有分片
+    /////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void storeCalendar(String name, Calendar calendar, boolean replaceExisting, boolean updateTriggers)
+            throws JobPersistenceException {
+        for (JobStoreShard shard : shards) {
+            shard.storeCalendar(name, calendar, replaceExisting, updateTriggers);
+        }
+    }
+
+    @Override
+    public boolean removeCalendar(String calName) throws JobPersistenceException {
+        boolean removed = false;
+        for (JobStoreShard shard : shards) {
+            removed = shard.removeCalendar(calName) || removed;
+        }
+        return removed;
+    }
+
+    @Override
+    public Calendar retrieveCalendar(String calName) throws JobPersistenceException {
+        return shards[0].retrieveCalendar(calName);
+    }
+
+    @Override
+    public int getNumberOfJobs() throws JobPersistenceException {
+        int count = 0;
+        for (JobStoreShard shard : shards) {
+            count += shard.getNumberOfJobs();
+        }
+        return count;
+    }
+
+    @Override
+    public int getNumberOfTriggers() throws JobPersistenceException {
+        int count = 0;
+        for (JobStoreShard shard : shards) {
+            count += shard.getNumberOfTriggers();
+        }
+        return count;
+    }
+
+    @Override
+    public int getNumberOfCalendars() throws JobPersistenceException {
+        return shards[0].getNumberOfCalendars();
+    }
+
+    @Override
+    public Set<JobKey> getJobKeys(GroupMatcher<JobKey> matcher) throws JobPersistenceException {
+        Set<JobKey> keys = new HashSet<>();
+        for (JobStoreShard shard : shards) {
+            keys.addAll(shard.getJobKeys(matcher));
+        }
+        return keys;
+    }
+
+    @Override
+    public Set<TriggerKey> getTriggerKeys(GroupMatcher<TriggerKey> matcher) throws JobPersistenceException {
+        Set<TriggerKey> keys = new HashSet<>();
+        for (JobStoreShard shard : shards) {
+            keys.addAll(shard.getTriggerKeys(matcher));
+        }
+        return keys;
+    }
+
+    @Override
+    public List<String> getJobGroupNames() throws JobPersistenceException {
+        Set<String> names = new LinkedHashSet<>();
+        for (JobStoreShard shard : shards) {
+            names.addAll(shard.getJobGroupNames());
+        }
+        return new ArrayList<>(names);
+    }
+
+    @Override
+    public List<String> getTriggerGroupNames() throws JobPersistenceException {
+        Set<String> names = new LinkedHashSet<>();
+        for (JobStoreShard shard : shards) {
+            names.addAll(shard.getTriggerGroupNames());
+        }
+        return new ArrayList<>(names);
+    }
+
+    @Override
+    public List<String> getCalendarNames() throws JobPersistenceException {
+        return shards[0].getCalendarNames();
+    }
+
+    @Override
+    public List<OperableTrigger> getTriggersForJob(JobKey jobKey) throws JobPersistenceException {
+        return shardFor(jobKey).getTriggersForJob(jobKey);
+    }
+
+    @Override
+    public TriggerState getTriggerState(TriggerKey triggerKey) throws JobPersistenceException {
+        JobStoreShard shard = findShard(triggerKey);
+        return shard == null ? TriggerState.NONE : shard.getTriggerState(triggerKey);
+    }
+
+    @Override
+    public void resetTriggerFromErrorState(TriggerKey triggerKey) throws JobPersistenceException {
+        JobStoreShard shard = findShard(triggerKey);
+        if (shard != null) {
+            shard.resetTriggerFromErrorState(triggerKey);
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////////
+    // 暂停和恢复
+    /////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void pauseTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        JobStoreShard shard = findShard(triggerKey);
+        if (shard != null) {
+            shard.pauseTrigger(triggerKey);
+        }
+    }
+
+    @Override
+    public Collection<String> pauseTriggers(GroupMatcher<TriggerKey> matcher) throws JobPersistenceException {
+        // 每个分片都记录暂停的组,之后加入该组的触发器在任何分片都是暂停状态
+        Set<String> groups = new HashSet<>();
+        for (JobStoreShard shard : shards) {
+            groups.addAll(shard.pauseTriggers(matcher));
+        }
+        return groups;
+    }
+
+    @Override
+    public void pauseJob(JobKey jobKey) throws JobPersistenceException {
+        shardFor(jobKey).pauseJob(jobKey);
+    }
+
+    @Override
+    public Collection<String> pauseJobs(GroupMatcher<JobKey> groupMatcher) throws JobPersistenceException {
+        Set<String> groups = new HashSet<>();
+        for (JobStoreShard shard : shards) {
+            groups.addAll(shard.pauseJobs(groupMatcher));
+        }
+        return groups;
+    }
+
+    @Override
+    public void resumeTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        JobStoreShard shard = findShard(triggerKey);
+        if (shard != null) {
+            shard.resumeTrigger(triggerKey);
+        }
+    }
+
+    @Override
+    public Collection<String> resumeTriggers(GroupMatcher<TriggerKey> matcher) throws JobPersistenceException {
+        Set<String> groups = new HashSet<>();
+        for (JobStoreShard shard : shards) {
+            groups.addAll(shard.resumeTriggers(matcher));
+        }
+        return groups;
+    }
+
+    @Override
+    public Set<String> getPausedTriggerGroups() throws JobPersistenceException {
+        Set<String> groups = new HashSet<>();
+        for (JobStoreShard shard : shards) {
+            groups.addAll(shard.getPausedTriggerGroups());
+        }
+        return groups;
+    }
+
+    @Override
+    public void resumeJob(JobKey jobKey) throws JobPersistenceException {
+        shardFor(jobKey).resumeJob(jobKey);
+    }
+
+    @Override
+    public Collection<String> resumeJobs(GroupMatcher<JobKey> matcher) throws JobPersistenceException {
+        Set<String> groups = new HashSet<>();
+        for (JobStoreShard shard : shards) {
+            groups.addAll(shard.resumeJobs(matcher));
+        }
+        return groups;
+    }
+
+    @Override
+    public void pauseAll() throws JobPersistenceException {
+        for (JobStoreShard shard : shards) {
+            shard.pauseAll();
+        }
+    }
+
+    @Override
+    public void resumeAll() throws JobPersistenceException {
+        for (JobStoreShard shard : shards) {
+            shard.resumeAll();
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////////
+    // 触发
+    /////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * 从本节点拥有的分片中取触发器。先不加锁查询各分片最早的触发时间,只从时间窗口内有触发器的分片取,
+     * 合并后按触发时间排序,超出窗口或数量的触发器放回原分片。
+     */
+    @Override
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow) throws JobPersistenceException {
+        JobStoreShard[] owned = ownedShards;
+        final Map<JobStoreShard, Long> nextFireTimes = new HashMap<>();
+        for (JobStoreShard shard : owned) {
+            long nextFireTime = shard.peekNextFireTime();
+            if (nextFireTime >= 0 && nextFireTime <= noLaterThan + timeWindow) {
+                nextFireTimes.put(shard, nextFireTime);
+            }
+        }
+        if (nextFireTimes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<JobStoreShard> candidates = new ArrayList<>(nextFireTimes.keySet());
+        Collections.sort(candidates, new Comparator<JobStoreShard>() {
+            @Override
+            public int compare(JobStoreShard o1, JobStoreShard o2) {
+                return Long.compare(nextFireTimes.get(o1), nextFireTimes.get(o2));
+            }
+        });
+        long batchEnd = Math.max(nextFireTimes.get(candidates.get(0)), System.currentTimeMillis()) + timeWindow;
+
+        List<OperableTrigger> acquired = new ArrayList<>();
+        for (JobStoreShard shard : candidates) {
+            if (acquired.size() >= maxCount || nextFireTimes.get(shard) > batchEnd) {
+                break;
+            }
+            acquired.addAll(shard.acquireNextTriggers(noLaterThan, maxCount - acquired.size(), timeWindow));
+        }
+        if (acquired.isEmpty()) {
+            return acquired;
+        }
+        Collections.sort(acquired, new Comparator<OperableTrigger>() {
+            @Override
+            public int compare(OperableTrigger o1, OperableTrigger o2) {
+                return o1.getNextFireTime().compareTo(o2.getNextFireTime());
+            }
+        });
+        // 各分片各自按窗口取,合并后以最早的触发器重新计算窗口
+        long end = Math.max(acquired.get(0).getNextFireTime().getTime(), System.currentTimeMillis()) + timeWindow;
+        List<OperableTrigger> batch = new ArrayList<>(acquired.size());
+        for (OperableTrigger trigger : acquired) {
+            if (batch.size() < maxCount && trigger.getNextFireTime().getTime() <= end) {
+                batch.add(trigger);
+            } else {
+                shardFor(trigger.getJobKey()).releaseAcquiredTrigger(trigger);
+            }
+        }
+        return batch;
+    }
+
+    @Override
+    public void releaseAcquiredTrigger(OperableTrigger trigger) {
+        shardFor(trigger.getJobKey()).releaseAcquiredTrigger(trigger);
+    }
+
+    /**
+     * 返回结果的顺序与传入的触发器一致,QuartzSchedulerThread按下标对应
+     */
+    @Override
+    public List<TriggerFiredResult> triggersFired(List<OperableTrigger> triggers) throws JobPersistenceException {
+        Map<JobStoreShard, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < triggers.size(); i++) {
+            JobStoreShard shard = shardFor(triggers.get(i).getJobKey());
+            List<Integer> list = positions.get(shard);
+            if (list == null) {
+                list = new ArrayList<>();
+                positions.put(shard, list);
+            }
+            list.add(i);
+        }
+        TriggerFiredResult[] results = new TriggerFiredResult[triggers.size()];
+        for (Map.Entry<JobStoreShard, List<Integer>> entry : positions.entrySet()) {
+            List<OperableTrigger> shardTriggers = new ArrayList<>(entry.getValue().size());
+            for (Integer i : entry.getValue()) {
+                shardTriggers.add(triggers.get(i));
+            }
+            List<TriggerFiredResult> shardResults = entry.getKey().triggersFired(shardTriggers);
+            for (int j = 0; j < shardResults.size(); j++) {
+                results[entry.getValue().get(j)] = shardResults.get(j);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail, CompletedExecutionInstruction triggerInstCode) {
+        shardFor(jobDetail.getKey()).triggeredJobComplete(trigger, jobDetail, triggerInstCode);
+    }
+
+    @Override
+    public long getAcquireRetryDelay(int failureCount) {
+        return shards[0].getAcquireRetryDelay(failureCount);
+    }
+
+    /////////////////////////////////////////////////////////////////////////////
+    // 分片路由和归属
+    /////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * 任务所在的分片,按组名哈希。String.hashCode在各JVM中一致,各节点的结果相同。
+     */
+    public int shardOf(JobKey jobKey) {
+        return (jobKey.getGroup().hashCode() & Integer.MAX_VALUE) % shards.length;
+    }
+
+    private JobStoreShard shardFor(JobKey jobKey) {
+        return shards[shardOf(jobKey)];
+    }
+
+    /**
+     * TriggerKey不含任务组,依次查找各分片
+     */
+    private JobStoreShard findShard(TriggerKey triggerKey) throws JobPersistenceException {
+        for (JobStoreShard shard : shards) {
+            if (shard.checkExists(triggerKey)) {
+                return shard;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 触发器的任务换到其他组时,同名触发器可能在别的分片,按replaceExisting报错或先删除
+     */
+    private void checkTriggerElsewhere(JobStoreShard target, TriggerKey triggerKey, boolean replaceExisting) throws JobPersistenceException {
+        for (JobStoreShard shard : shards) {
+            if (shard != target && shard.checkExists(triggerKey)) {
+                if (!replaceExisting) {
+                    throw new ObjectAlreadyExistsException("Trigger " + triggerKey + " already exists in shard " + shard.getIndex());
+                }
+                shard.removeTrigger(triggerKey);
+            }
+        }
+    }
+
+    /**
+     * 按0号分片中的登记刷新租约有效的实例,并重新分配分片。
+     * 分配变化时通知QuartzSchedulerThread,没有分片的节点不用等到idleWaitTime结束才开始取新分片的触发器。
+     */
+    private synchronized void refreshLeases() {
+        long now = System.currentTimeMillis();
+        List<String> live = new ArrayList<>();
+        live.add(instanceId);
+        try {
+            for (SchedulerStateRecord record : shards[0].selectSchedulerStates()) {
+                long leaseEnd = record.getCheckinTimestamp() + 2 * record.getCheckinInterval() + LEASE_GRACE_MILLIS;
+                if (leaseEnd >= now && !record.getSchedulerInstanceId().equals(instanceId)) {
+                    live.add(record.getSchedulerInstanceId());
+                }
+            }
+        } catch (JobPersistenceException e) {
+            // 读不到时保持原来的分配
+            log.warn("refresh shard leases error.", e);
+            return;
+        }
+        Collections.sort(live);
+        if (live.equals(liveInstances)) {
+            return;
+        }
+        List<JobStoreShard> owned = new ArrayList<>();
+        for (JobStoreShard shard : shards) {
+            if (instanceId.equals(ownerOf(shard.getIndex(), live))) {
+                owned.add(shard);
+            }
+        }
+        liveInstances = live;
+        ownedShards = owned.toArray(new JobStoreShard[0]);
+        log.info("shard assignment changed. instances:{} owned:{}", live, getOwnedShards());
+        signaler.signalSchedulingChange(0L);
+    }
+
+    /**
+     * rendezvous哈希,分片归属于权重最大的实例
+     */
+    static String ownerOf(int shard, List<String> instances) {
+        String owner = null;
+        long best = 0;
+        for (String instance : instances) {
+            long weight = mix(instance.hashCode() * 0x9E3779B97F4A7C15L + shard);
+            if (owner == null || weight > best || (weight == best && instance.compareTo(owner) < 0)) {
+                owner = instance;
+                best = weight;
+            }
+        }
+        return owner;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static String[] split(String value) {
+        String[] parts = value.split(",");
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = parts[i].trim();
+        }
+        return parts;
+    }
+
+    /**
+     * 本节点拥有的分片
+     */
+    public List<Integer> getOwnedShards() {
+        List<Integer> owned = new ArrayList<>();
+        for (JobStoreShard shard : ownedShards) {
+            owned.add(shard.getIndex());
+        }
+        return owned;
+    }
+
+    /**
+     * 租约有效的实例
+     */
+    public List<String> getLiveInstances() {
+        return liveInstances;
+    }
+
+    public int getShardCount() {
+        return shards == null ? split(dataSources).length : shards.length;
+    }
+
+    /////////////////////////////////////////////////////////////////////////////
+    // 配置
+    /////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void setInstanceId(String schedInstId) {
+        this.instanceId = schedInstId;
+    }
+
+    @Override
+    public void setInstanceName(String schedName) {
+        this.instanceName = schedName;
+    }
+
+    @Override
+    public void setThreadPoolSize(int poolSize) {
+        this.threadPoolSize = poolSize;
+    }
+
+    public String getDataSources() {
+        return dataSources;
+    }
+
+    public void setDataSources(String dataSources) {
+        this.dataSources = dataSources;
+    }
+
+    public String getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * 单分片时的数据源,配置了dataSources时忽略
+     */
+    public void setDataSource(String dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public String getTablePrefix() {
+        return tablePrefix;
+    }
+
+    public void setTablePrefix(String tablePrefix) {
+        this.tablePrefix = tablePrefix;
+    }
+
+    public String getTablePrefixes() {
+        return tablePrefixes;
+    }
+
+    public void setTablePrefixes(String tablePrefixes) {
+        this.tablePrefixes = tablePrefixes;
+    }
+
+    public String getDriverDelegateClass() {
+        return driverDelegateClass;
+    }
+
+    public void setDriverDelegateClass(String driverDelegateClass) {
+        this.driverDelegateClass = driverDelegateClass;
+    }
+
+    public String getDriverDelegateInitString() {
+        return driverDelegateInitString;
+    }
+
+    public void setDriverDelegateInitString(String driverDelegateInitString) {
+        this.driverDelegateInitString = driverDelegateInitString;
+    }
+
+    public void setIsClustered(boolean clustered) {
+        this.clustered = clustered;
+    }
+
+    public long getClusterCheckinInterval() {
+        return clusterCheckinInterval;
+    }
+
+    public void setClusterCheckinInterval(long clusterCheckinInterval) {
+        this.clusterCheckinInterval = clusterCheckinInterval;
+    }
+
+    public long getMisfireThreshold() {
+        return misfireThreshold;
+    }
+
+    public void setMisfireThreshold(long misfireThreshold) {
+        this.misfireThreshold = misfireThreshold;
+    }
+
+    public boolean isUseProperties() {
+        return useProperties;
+    }
+
+    public void setUseProperties(boolean useProperties) {
+        this.useProperties = useProperties;
+    }
+
+    public boolean isAcquireTriggersWithinLock() {
+        return acquireTriggersWithinLock;
+    }
+
+    public void setAcquireTriggersWithinLock(boolean acquireTriggersWithinLock) {
+        this.acquireTriggersWithinLock = acquireTriggersWithinLock;
+    }
+
+    public long getLeaseRefreshIntervalMillis() {
+        return leaseRefreshIntervalMillis;
+    }
+
+    public void setLeaseRefreshIntervalMillis(long leaseRefreshIntervalMillis) {
+        this.leaseRefreshIntervalMillis = leaseRefreshIntervalMillis;
+    }
+}
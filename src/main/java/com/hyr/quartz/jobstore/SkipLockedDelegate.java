@@ -0,0 +1,132 @@
+package com.hyr.quartz.jobstore;
+
+import org.quartz.TriggerKey;
+import org.quartz.impl.jdbcjobstore.NoSuchDelegateException;
+import org.quartz.impl.jdbcjobstore.StdJDBCDelegate;
+import org.quartz.spi.ClassLoadHelper;
+import org.slf4j.Logger;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.quartz.TriggerKey.triggerKey;
+
+/*******************************************************************************
+ * @date 2026-10-18 6:40 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 用SELECT ... FOR UPDATE SKIP LOCKED选取待触发触发器的DriverDelegate,配合{@link SkipLockedJobStoreTX}使用
+ *
+ * 选取语句只按NEXT_FIRE_TIME排序并用LIMIT限制行数,MySQL 8按IDX_QRTZ_T_NFT_ST索引顺序扫描,只锁定返回的行,
+ * 其他节点跳过已被锁定的行,各节点同时取到互不相交的一批触发器。原语句还按PRIORITY排序,会使MySQL先取出全部到期的行再排序,
+ * 锁住所有到期触发器,因此优先级只在取到的一批内排序。
+ *
+ * 配置:
+ * org.quartz.jobStore.driverDelegateClass:com.hyr.quartz.jobstore.SkipLockedDelegate
+ * org.quartz.jobStore.driverDelegateInitString:lockClause=FOR UPDATE SKIP LOCKED
+ * lockClause可按数据库调整,不支持SKIP LOCKED的数据库(如H2 1.4)可设为FOR UPDATE,各节点在行锁上排队
+ ******************************************************************************/
+public class SkipLockedDelegate extends StdJDBCDelegate {
+
+    private final static String LOCK_CLAUSE = "lockClause";
+
+    private final static String DEFAULT_LOCK_CLAUSE = "FOR UPDATE SKIP LOCKED";
+
+    private final static String SELECT_TRIGGERS_TO_ACQUIRE = "SELECT "
+            + COL_TRIGGER_NAME + ", " + COL_TRIGGER_GROUP + ", "
+            + COL_NEXT_FIRE_TIME + ", " + COL_PRIORITY + " FROM "
+            + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND " + COL_TRIGGER_STATE + " = ? AND " + COL_NEXT_FIRE_TIME + " <= ? "
+            + "AND (" + COL_MISFIRE_INSTRUCTION + " = -1 OR (" + COL_MISFIRE_INSTRUCTION + " != -1 AND " + COL_NEXT_FIRE_TIME + " >= ?)) "
+            + "ORDER BY " + COL_NEXT_FIRE_TIME + " ASC LIMIT ? ";
+
+    private String lockClause = DEFAULT_LOCK_CLAUSE;
+
+    @Override
+    public void initialize(Logger logger, String tablePrefix, String schedName, String instanceId, ClassLoadHelper classLoadHelper,
+                           boolean useProperties, String initString) throws NoSuchDelegateException {
+        // 取出本类的设置,其余交给StdJDBCDelegate
+        StringBuilder rest = new StringBuilder();
+        if (initString != null) {
+            for (String setting : initString.split("\\|")) {
+                String[] parts = setting.split("=", 2);
+                if (parts[0].trim().equals(LOCK_CLAUSE) && parts.length == 2) {
+                    lockClause = parts[1].trim();
+                } else if (!setting.trim().isEmpty()) {
+                    if (rest.length() > 0) {
+                        rest.append('|');
+                    }
+                    rest.append(setting);
+                }
+            }
+        }
+        super.initialize(logger, tablePrefix, schedName, instanceId, classLoadHelper, useProperties, rest.length() == 0 ? null : rest.toString());
+    }
+
+    /**
+     * 选取并锁定最多maxCount个待触发的触发器,已被其他事务锁定的行跳过。锁在acquire事务提交时释放。
+     */
+    @Override
+    public List<TriggerKey> selectTriggerToAcquire(Connection conn, long noLaterThan, long noEarlierThan, int maxCount)
+            throws SQLException {
+        if (maxCount < 1) {
+            maxCount = 1;
+        }
+        List<Candidate> candidates = new ArrayList<>(maxCount);
+        PreparedStatement ps = conn.prepareStatement(rtp(SELECT_TRIGGERS_TO_ACQUIRE) + lockClause);
+        try {
+            ps.setString(1, STATE_WAITING);
+            ps.setBigDecimal(2, new BigDecimal(String.valueOf(noLaterThan)));
+            ps.setBigDecimal(3, new BigDecimal(String.valueOf(noEarlierThan)));
+            ps.setInt(4, maxCount);
+            ResultSet rs = ps.executeQuery();
+            try {
+                while (rs.next()) {
+                    candidates.add(new Candidate(triggerKey(rs.getString(COL_TRIGGER_NAME), rs.getString(COL_TRIGGER_GROUP)),
+                            rs.getLong(COL_NEXT_FIRE_TIME), rs.getInt(COL_PRIORITY)));
+                }
+            } finally {
+                rs.close();
+            }
+        } finally {
+            ps.close();
+        }
+        // 同一时间触发的按优先级
+        Collections.sort(candidates, new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate o1, Candidate o2) {
+                int c = Long.compare(o1.nextFireTime, o2.nextFireTime);
+                return c != 0 ? c : Integer.compare(o2.priority, o1.priority);
+            }
+        });
+        List<TriggerKey> keys = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            keys.add(candidate.key);
+        }
+        return keys;
+    }
+
+    public String getLockClause() {
+        return lockClause;
+    }
+
+    private final static class Candidate {
+
+        private final TriggerKey key;
+        private final long nextFireTime;
+        private final int priority;
+
+        Candidate(TriggerKey key, long nextFireTime, int priority) {
+            this.key = key;
+            this.nextFireTime = nextFireTime;
+            this.priority = priority;
+        }
+    }
+}
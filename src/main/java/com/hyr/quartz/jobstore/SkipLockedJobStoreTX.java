@@ -0,0 +1,98 @@
+package com.hyr.quartz.jobstore;
+
+import org.quartz.JobPersistenceException;
+import org.quartz.SchedulerConfigException;
+import org.quartz.impl.jdbcjobstore.FiredTriggerRecord;
+import org.quartz.impl.jdbcjobstore.InvalidConfigurationException;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.quartz.impl.jdbcjobstore.StdJDBCDelegate;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/*******************************************************************************
+ * @date 2026-10-18 6:40 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 取触发器时不获取QRTZ_LOCKS全局锁,用行锁(SKIP LOCKED)并行取触发器的JobStoreTX
+ *
+ * JobStoreTX取一批触发器(batchTriggerAcquisitionMaxCount>1)时要先锁住QRTZ_LOCKS的TRIGGER_ACCESS行,集群中的取触发器是串行的。
+ * 这里取触发器不获取全局锁,由{@link SkipLockedDelegate}用SELECT ... FOR UPDATE SKIP LOCKED锁定待触发的行,
+ * 之后仍按JobStoreSupport原有逻辑把触发器改为ACQUIRED并写入QRTZ_FIRED_TRIGGERS,提交时释放行锁。
+ * 各节点同时取到互不相交的一批触发器;触发、完成、misfire处理和修改任务仍使用全局锁,语义不变。
+ *
+ * 需要数据库支持SKIP LOCKED(MySQL 8.0.1+),建议事务隔离级别使用READ COMMITTED,减少InnoDB的间隙锁。
+ *
+ * 配置:
+ * org.quartz.jobStore.class:com.hyr.quartz.jobstore.SkipLockedJobStoreTX
+ * org.quartz.jobStore.driverDelegateClass:com.hyr.quartz.jobstore.SkipLockedDelegate(配置为StdJDBCDelegate时自动替换)
+ * org.quartz.scheduler.batchTriggerAcquisitionMaxCount:10
+ ******************************************************************************/
+public class SkipLockedJobStoreTX extends JobStoreTX {
+
+    private final static Logger log = LoggerFactory.getLogger(SkipLockedJobStoreTX.class);
+
+    @Override
+    public void initialize(ClassLoadHelper classLoadHelper, SchedulerSignaler schedSignaler) throws SchedulerConfigException {
+        if (StdJDBCDelegate.class.getName().equals(getDriverDelegateClass())) {
+            // 通过JOB_STORE_CLASS切换时quartz.properties中仍是StdJDBCDelegate
+            try {
+                setDriverDelegateClass(SkipLockedDelegate.class.getName());
+            } catch (InvalidConfigurationException e) {
+                throw new SchedulerConfigException(e.getMessage(), e);
+            }
+            log.info("use driver delegate {} instead of {}", SkipLockedDelegate.class.getName(), StdJDBCDelegate.class.getName());
+        }
+        super.initialize(classLoadHelper, schedSignaler);
+        try {
+            if (!(getDelegate() instanceof SkipLockedDelegate)) {
+                throw new SchedulerConfigException("SkipLockedJobStoreTX requires driverDelegateClass "
+                        + SkipLockedDelegate.class.getName() + " or a subclass.");
+            }
+        } catch (JobPersistenceException e) {
+            throw new SchedulerConfigException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 与JobStoreSupport相同,只是不获取TRIGGER_ACCESS锁
+     */
+    @Override
+    public List<OperableTrigger> acquireNextTriggers(final long noLaterThan, final int maxCount, final long timeWindow)
+            throws JobPersistenceException {
+        return executeInNonManagedTXLock(null,
+                new TransactionCallback<List<OperableTrigger>>() {
+                    @Override
+                    public List<OperableTrigger> execute(Connection conn) throws JobPersistenceException {
+                        return acquireNextTrigger(conn, noLaterThan, maxCount, timeWindow);
+                    }
+                },
+                new TransactionValidator<List<OperableTrigger>>() {
+                    @Override
+                    public Boolean validate(Connection conn, List<OperableTrigger> result) throws JobPersistenceException {
+                        // 提交结果不确定时,按QRTZ_FIRED_TRIGGERS中本实例的记录判断是否已取到
+                        try {
+                            Set<String> fireInstanceIds = new HashSet<>();
+                            for (FiredTriggerRecord record : getDelegate().selectInstancesFiredTriggerRecords(conn, getInstanceId())) {
+                                fireInstanceIds.add(record.getFireInstanceId());
+                            }
+                            for (OperableTrigger trigger : result) {
+                                if (fireInstanceIds.contains(trigger.getFireInstanceId())) {
+                                    return true;
+                                }
+                            }
+                            return false;
+                        } catch (SQLException e) {
+                            throw new JobPersistenceException("error validating trigger acquisition", e);
+                        }
+                    }
+                });
+    }
+}
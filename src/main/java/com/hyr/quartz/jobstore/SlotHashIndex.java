@@ -0,0 +1,107 @@
+package com.hyr.quartz.jobstore;
+
+import java.nio.ByteBuffer;
+
+/*******************************************************************************
+ * @date 2026-10-17 7:10 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: {@link SlotTable}上的堆外哈希索引
+ *
+ * 桶数组存放在直接内存中,冲突链通过记录中的nextField字段串联,哈希值保存在记录的hashField字段。
+ * 只按哈希值定位链表,键是否相等由调用方比较。负载超过0.75时桶数组扩容一倍。
+ ******************************************************************************/
+final class SlotHashIndex {
+
+    private final static int INITIAL_CAPACITY = 1024;
+
+    private final SlotTable table;
+
+    private final int hashField;
+
+    private final int nextField;
+
+    private ByteBuffer buckets;
+
+    private int mask;
+
+    private int size;
+
+    SlotHashIndex(SlotTable table, int hashField, int nextField) {
+        this.table = table;
+        this.hashField = hashField;
+        this.nextField = nextField;
+        this.buckets = newBuckets(INITIAL_CAPACITY);
+        this.mask = INITIAL_CAPACITY - 1;
+    }
+
+    /**
+     * 哈希值所在链表的第一条记录
+     */
+    int first(int hash) {
+        return buckets.getInt(bucket(hash) << 2);
+    }
+
+    int next(int slot) {
+        return table.getInt(slot, nextField);
+    }
+
+    /**
+     * 加入索引,记录的hashField需要已经写入
+     */
+    void add(int slot) {
+        int offset = bucket(table.getInt(slot, hashField)) << 2;
+        table.putInt(slot, nextField, buckets.getInt(offset));
+        buckets.putInt(offset, slot);
+        if (++size > (mask + 1) / 4 * 3) {
+            resize((mask + 1) * 2);
+        }
+    }
+
+    void remove(int slot) {
+        int offset = bucket(table.getInt(slot, hashField)) << 2;
+        int current = buckets.getInt(offset);
+        if (current == slot) {
+            buckets.putInt(offset, table.getInt(slot, nextField));
+            size--;
+            return;
+        }
+        while (current != SlotTable.NULL_SLOT) {
+            int next = table.getInt(current, nextField);
+            if (next == slot) {
+                table.putInt(current, nextField, table.getInt(slot, nextField));
+                size--;
+                return;
+            }
+            current = next;
+        }
+    }
+
+    private void resize(int capacity) {
+        ByteBuffer oldBuckets = buckets;
+        int oldCapacity = mask + 1;
+        buckets = newBuckets(capacity);
+        mask = capacity - 1;
+        for (int i = 0; i < oldCapacity; i++) {
+            int slot = oldBuckets.getInt(i << 2);
+            while (slot != SlotTable.NULL_SLOT) {
+                int next = table.getInt(slot, nextField);
+                int offset = bucket(table.getInt(slot, hashField)) << 2;
+                table.putInt(slot, nextField, buckets.getInt(offset));
+                buckets.putInt(offset, slot);
+                slot = next;
+            }
+        }
+    }
+
+    private int bucket(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static ByteBuffer newBuckets(int capacity) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(capacity << 2);
+        for (int i = 0; i < capacity; i++) {
+            buffer.putInt(i << 2, SlotTable.NULL_SLOT);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,116 @@
+package com.hyr.quartz.jobstore;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*******************************************************************************
+ * @date 2026-10-17 7:10 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 堆外定长记录表
+ *
+ * 每条记录占recordSize字节,按序号(slot)访问,存放在按需追加的直接内存slab中。
+ * 前8个字节保留给表自身(占用标记和空闲链表),调用方的字段从{@link #FIRST_FIELD}开始。
+ * 非线程安全,由调用方加锁。
+ ******************************************************************************/
+final class SlotTable {
+
+    final static int NULL_SLOT = -1;
+
+    final static int FIRST_FIELD = 8;
+
+    private final static int USED = 0;
+
+    private final static int NEXT_FREE = 4;
+
+    private final static int SLAB_SHIFT = 14;
+
+    private final static int SLAB_SLOTS = 1 << SLAB_SHIFT;
+
+    private final static int SLAB_MASK = SLAB_SLOTS - 1;
+
+    private final int recordSize;
+
+    private ByteBuffer[] slabs = new ByteBuffer[8];
+
+    private int limit; // 分配过的最大序号+1
+
+    private int freeHead = NULL_SLOT;
+
+    private int size;
+
+    SlotTable(int recordSize) {
+        if (recordSize < FIRST_FIELD || recordSize % 8 != 0) {
+            throw new IllegalArgumentException("record size must be a multiple of 8 and >= " + FIRST_FIELD);
+        }
+        this.recordSize = recordSize;
+    }
+
+    int allocate() {
+        int slot;
+        if (freeHead != NULL_SLOT) {
+            slot = freeHead;
+            freeHead = getInt(slot, NEXT_FREE);
+        } else {
+            slot = limit;
+            int slabIndex = slot >>> SLAB_SHIFT;
+            if (slabIndex == slabs.length) {
+                slabs = Arrays.copyOf(slabs, slabs.length * 2);
+            }
+            if (slabs[slabIndex] == null) {
+                slabs[slabIndex] = ByteBuffer.allocateDirect(SLAB_SLOTS * recordSize);
+            }
+            limit++;
+        }
+        putInt(slot, USED, 1);
+        size++;
+        return slot;
+    }
+
+    void free(int slot) {
+        putInt(slot, USED, 0);
+        putInt(slot, NEXT_FREE, freeHead);
+        freeHead = slot;
+        size--;
+    }
+
+    boolean isUsed(int slot) {
+        return getInt(slot, USED) != 0;
+    }
+
+    /**
+     * 遍历上界,[0, limit)中isUsed的为有效记录
+     */
+    int limit() {
+        return limit;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getCapacity() {
+        long capacity = 0;
+        for (ByteBuffer slab : slabs) {
+            if (slab != null) {
+                capacity += slab.capacity();
+            }
+        }
+        return capacity;
+    }
+
+    int getInt(int slot, int field) {
+        return slabs[slot >>> SLAB_SHIFT].getInt((slot & SLAB_MASK) * recordSize + field);
+    }
+
+    void putInt(int slot, int field, int value) {
+        slabs[slot >>> SLAB_SHIFT].putInt((slot & SLAB_MASK) * recordSize + field, value);
+    }
+
+    long getLong(int slot, int field) {
+        return slabs[slot >>> SLAB_SHIFT].getLong((slot & SLAB_MASK) * recordSize + field);
+    }
+
+    void putLong(int slot, int field, long value) {
+        slabs[slot >>> SLAB_SHIFT].putLong((slot & SLAB_MASK) * recordSize + field, value);
+    }
+}
@@ -0,0 +1,1010 @@
+package com.hyr.quartz.jobstore;
+
+import org.quartz.Calendar;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.SchedulerConfigException;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.impl.matchers.StringMatcher;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredBundle;
+import org.quartz.spi.TriggerFiredResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*******************************************************************************
+ * @date 2026-10-17 8:20 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 时间轮JobStore
+ *
+ * 语义与RAMJobStore一致,等待触发的触发器由TreeSet换成分层时间轮{@link TriggerTimingWheel}。
+ * 近期触发器的插入、删除和取出为O(1),大量短间隔SimpleTrigger反复触发时取出不再是瓶颈,
+ * 持有store锁的时间也随之缩短。触发时间由触发器自身计算,取出顺序与RAMJobStore相同。
+ *
+ * 配置:
+ * <pre>
+ * org.quartz.jobStore.class = com.hyr.quartz.jobstore.TimingWheelJobStore
+ * org.quartz.jobStore.misfireThreshold = 60000
+ * org.quartz.jobStore.tickMillis = 1
+ * </pre>
+ ******************************************************************************/
+public class TimingWheelJobStore implements JobStore {
+
+    private final static Logger log = LoggerFactory.getLogger(TimingWheelJobStore.class);
+
+    private final static AtomicLong ftrCtr = new AtomicLong(System.currentTimeMillis());
+
+    private final HashMap<JobKey, JobWrapper> jobsByKey = new HashMap<JobKey, JobWrapper>(1000);
+
+    private final HashMap<TriggerKey, TriggerWrapper> triggersByKey = new HashMap<TriggerKey, TriggerWrapper>(1000);
+
+    private final HashMap<String, HashMap<JobKey, JobWrapper>> jobsByGroup = new HashMap<String, HashMap<JobKey, JobWrapper>>(25);
+
+    private final HashMap<String, HashMap<TriggerKey, TriggerWrapper>> triggersByGroup = new HashMap<String, HashMap<TriggerKey, TriggerWrapper>>(25);
+
+    private final HashMap<JobKey, List<TriggerWrapper>> triggersByJob = new HashMap<JobKey, List<TriggerWrapper>>(1000);
+
+    private final HashMap<String, Calendar> calendarsByName = new HashMap<String, Calendar>(25);
+
+    private final HashSet<String> pausedTriggerGroups = new HashSet<String>();
+
+    private final HashSet<String> pausedJobGroups = new HashSet<String>();
+
+    private final HashSet<JobKey> blockedJobs = new HashSet<JobKey>();
+
+    private final Object lock = new Object();
+
+    private TriggerTimingWheel timeTriggers;
+
+    private long tickMillis = 1L; // 时间轮一个tick的毫秒数
+
+    private long misfireThreshold = 5000L;
+
+    private SchedulerSignaler signaler;
+
+    public TimingWheelJobStore() {
+    }
+
+    public long getMisfireThreshold() {
+        return misfireThreshold;
+    }
+
+    public void setMisfireThreshold(long misfireThreshold) {
+        if (misfireThreshold < 1) {
+            throw new IllegalArgumentException("Misfire threshold must be larger than 0");
+        }
+        this.misfireThreshold = misfireThreshold;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    public void setTickMillis(long tickMillis) {
+        this.tickMillis = tickMillis;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * JobStore Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    @Override
+    public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler signaler) throws SchedulerConfigException {
+        if (tickMillis < 1) {
+            throw new SchedulerConfigException("tickMillis must be > 0. tickMillis:" + tickMillis);
+        }
+        this.signaler = signaler;
+        synchronized (lock) {
+            this.timeTriggers = new TriggerTimingWheel(tickMillis);
+        }
+        log.info("timing wheel job store initialized. tickMillis:{}", tickMillis);
+    }
+
+    @Override
+    public void schedulerStarted() {
+        // nothing to do
+    }
+
+    @Override
+    public void schedulerPaused() {
+        // nothing to do
+    }
+
+    @Override
+    public void schedulerResumed() {
+        // nothing to do
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public boolean supportsPersistence() {
+        return false;
+    }
+
+    @Override
+    public long getEstimatedTimeToReleaseAndAcquireTrigger() {
+        return 5;
+    }
+
+    @Override
+    public boolean isClustered() {
+        return false;
+    }
+
+    /**
+     * 删除全部任务、触发器和日历,已暂停的组保留
+     */
+    @Override
+    public void clearAllSchedulingData() {
+        synchronized (lock) {
+            timeTriggers.clear();
+            jobsByKey.clear();
+            triggersByKey.clear();
+            jobsByGroup.clear();
+            triggersByGroup.clear();
+            triggersByJob.clear();
+            calendarsByName.clear();
+            blockedJobs.clear();
+        }
+    }
+
+    @Override
+    public void storeJobAndTrigger(JobDetail newJob, OperableTrigger newTrigger) throws JobPersistenceException {
+        synchronized (lock) {
+            storeJob(newJob, false);
+            storeTrigger(newTrigger, false);
+        }
+    }
+
+    @Override
+    public void storeJob(JobDetail newJob, boolean replaceExisting) throws ObjectAlreadyExistsException {
+        JobWrapper jw = new JobWrapper((JobDetail) newJob.clone());
+        synchronized (lock) {
+            JobWrapper orig = jobsByKey.get(jw.key);
+            if (orig != null) {
+                if (!replaceExisting) {
+                    throw new ObjectAlreadyExistsException(newJob);
+                }
+                orig.jobDetail = jw.jobDetail;
+                return;
+            }
+            HashMap<JobKey, JobWrapper> grpMap = jobsByGroup.get(jw.key.getGroup());
+            if (grpMap == null) {
+                grpMap = new HashMap<JobKey, JobWrapper>(100);
+                jobsByGroup.put(jw.key.getGroup(), grpMap);
+            }
+            grpMap.put(jw.key, jw);
+            jobsByKey.put(jw.key, jw);
+        }
+    }
+
+    @Override
+    public void storeJobsAndTriggers(Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, boolean replace)
+            throws JobPersistenceException {
+        synchronized (lock) {
+            if (!replace) {
+                for (Map.Entry<JobDetail, Set<? extends Trigger>> e : triggersAndJobs.entrySet()) {
+                    if (checkExists(e.getKey().getKey())) {
+                        throw new ObjectAlreadyExistsException(e.getKey());
+                    }
+                    for (Trigger trigger : e.getValue()) {
+                        if (checkExists(trigger.getKey())) {
+                            throw new ObjectAlreadyExistsException(trigger);
+                        }
+                    }
+                }
+            }
+            for (Map.Entry<JobDetail, Set<? extends Trigger>> e : triggersAndJobs.entrySet()) {
+                storeJob(e.getKey(), true);
+                for (Trigger trigger : e.getValue()) {
+                    storeTrigger((OperableTrigger) trigger, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除任务和引用它的全部触发器
+     */
+    @Override
+    public boolean removeJob(JobKey jobKey) {
+        boolean found = false;
+        synchronized (lock) {
+            for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+                removeTrigger(tw.key, false);
+                found = true;
+            }
+            found = (jobsByKey.remove(jobKey) != null) | found;
+            if (found) {
+                HashMap<JobKey, JobWrapper> grpMap = jobsByGroup.get(jobKey.getGroup());
+                if (grpMap != null) {
+                    grpMap.remove(jobKey);
+                    if (grpMap.isEmpty()) {
+                        jobsByGroup.remove(jobKey.getGroup());
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public boolean removeJobs(List<JobKey> jobKeys) {
+        boolean allFound = true;
+        synchronized (lock) {
+            for (JobKey key : jobKeys) {
+                allFound = removeJob(key) && allFound;
+            }
+        }
+        return allFound;
+    }
+
+    @Override
+    public JobDetail retrieveJob(JobKey jobKey) {
+        synchronized (lock) {
+            JobWrapper jw = jobsByKey.get(jobKey);
+            return jw != null ? (JobDetail) jw.jobDetail.clone() : null;
+        }
+    }
+
+    @Override
+    public void storeTrigger(OperableTrigger newTrigger, boolean replaceExisting) throws JobPersistenceException {
+        TriggerWrapper tw = new TriggerWrapper((OperableTrigger) newTrigger.clone());
+        synchronized (lock) {
+            if (triggersByKey.get(tw.key) != null) {
+                if (!replaceExisting) {
+                    throw new ObjectAlreadyExistsException(newTrigger);
+                }
+                removeTrigger(tw.key, false);
+            }
+            if (!jobsByKey.containsKey(tw.jobKey)) {
+                throw new JobPersistenceException("The job (" + tw.jobKey
+                        + ") referenced by the trigger does not exist.");
+            }
+
+            List<TriggerWrapper> jobList = triggersByJob.get(tw.jobKey);
+            if (jobList == null) {
+                jobList = new ArrayList<TriggerWrapper>(1);
+                triggersByJob.put(tw.jobKey, jobList);
+            }
+            jobList.add(tw);
+
+            HashMap<TriggerKey, TriggerWrapper> grpMap = triggersByGroup.get(tw.key.getGroup());
+            if (grpMap == null) {
+                grpMap = new HashMap<TriggerKey, TriggerWrapper>(100);
+                triggersByGroup.put(tw.key.getGroup(), grpMap);
+            }
+            grpMap.put(tw.key, tw);
+            triggersByKey.put(tw.key, tw);
+
+            if (pausedTriggerGroups.contains(tw.key.getGroup()) || pausedJobGroups.contains(tw.jobKey.getGroup())) {
+                tw.state = blockedJobs.contains(tw.jobKey) ? TriggerWrapper.STATE_PAUSED_BLOCKED : TriggerWrapper.STATE_PAUSED;
+            } else if (blockedJobs.contains(tw.jobKey)) {
+                tw.state = TriggerWrapper.STATE_BLOCKED;
+            } else {
+                timeTriggers.add(tw);
+            }
+        }
+    }
+
+    @Override
+    public boolean removeTrigger(TriggerKey triggerKey) {
+        return removeTrigger(triggerKey, true);
+    }
+
+    @Override
+    public boolean removeTriggers(List<TriggerKey> triggerKeys) {
+        boolean allFound = true;
+        synchronized (lock) {
+            for (TriggerKey key : triggerKeys) {
+                allFound = removeTrigger(key) && allFound;
+            }
+        }
+        return allFound;
+    }
+
+    @Override
+    public boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger) throws JobPersistenceException {
+        synchronized (lock) {
+            TriggerWrapper tw = triggersByKey.get(triggerKey);
+            if (tw == null) {
+                return false;
+            }
+            if (!tw.trigger.getJobKey().equals(newTrigger.getJobKey())) {
+                throw new JobPersistenceException("New trigger is not related to the same job as the old trigger.");
+            }
+            removeTrigger(triggerKey, false);
+            try {
+                storeTrigger(newTrigger, false);
+            } catch (JobPersistenceException e) {
+                storeTrigger(tw.trigger, false); // 恢复原触发器
+                throw e;
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public OperableTrigger retrieveTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            TriggerWrapper tw = triggersByKey.get(triggerKey);
+            return tw != null ? (OperableTrigger) tw.trigger.clone() : null;
+        }
+    }
+
+    @Override
+    public boolean checkExists(JobKey jobKey) {
+        synchronized (lock) {
+            return jobsByKey.containsKey(jobKey);
+        }
+    }
+
+    @Override
+    public boolean checkExists(TriggerKey triggerKey) {
+        synchronized (lock) {
+            return triggersByKey.containsKey(triggerKey);
+        }
+    }
+
+    @Override
+    public void storeCalendar(String name, Calendar calendar, boolean replaceExisting, boolean updateTriggers)
+            throws ObjectAlreadyExistsException {
+        calendar = (Calendar) calendar.clone();
+        synchronized (lock) {
+            Calendar obj = calendarsByName.get(name);
+            if (obj != null && !replaceExisting) {
+                throw new ObjectAlreadyExistsException("Calendar with name '" + name + "' already exists.");
+            }
+            calendarsByName.put(name, calendar);
+            if (obj != null && updateTriggers) {
+                for (TriggerWrapper tw : getTriggerWrappersForCalendar(name)) {
+                    boolean removed = timeTriggers.remove(tw);
+                    tw.trigger.updateWithNewCalendar(calendar, getMisfireThreshold());
+                    if (removed) {
+                        timeTriggers.add(tw);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean removeCalendar(String calName) throws JobPersistenceException {
+        synchronized (lock) {
+            if (!getTriggerWrappersForCalendar(calName).isEmpty()) {
+                throw new JobPersistenceException("Calender cannot be removed if it referenced by a Trigger!");
+            }
+            return calendarsByName.remove(calName) != null;
+        }
+    }
+
+    @Override
+    public Calendar retrieveCalendar(String calName) {
+        synchronized (lock) {
+            Calendar cal = calendarsByName.get(calName);
+            return cal != null ? (Calendar) cal.clone() : null;
+        }
+    }
+
+    @Override
+    public int getNumberOfJobs() {
+        synchronized (lock) {
+            return jobsByKey.size();
+        }
+    }
+
+    @Override
+    public int getNumberOfTriggers() {
+        synchronized (lock) {
+            return triggersByKey.size();
+        }
+    }
+
+    @Override
+    public int getNumberOfCalendars() {
+        synchronized (lock) {
+            return calendarsByName.size();
+        }
+    }
+
+    @Override
+    public Set<JobKey> getJobKeys(GroupMatcher<JobKey> matcher) {
+        Set<JobKey> outList = new HashSet<JobKey>();
+        synchronized (lock) {
+            for (String group : matchGroups(jobsByGroup.keySet(), matcher)) {
+                outList.addAll(jobsByGroup.get(group).keySet());
+            }
+        }
+        return outList;
+    }
+
+    @Override
+    public Set<TriggerKey> getTriggerKeys(GroupMatcher<TriggerKey> matcher) {
+        Set<TriggerKey> outList = new HashSet<TriggerKey>();
+        synchronized (lock) {
+            for (String group : matchGroups(triggersByGroup.keySet(), matcher)) {
+                outList.addAll(triggersByGroup.get(group).keySet());
+            }
+        }
+        return outList;
+    }
+
+    @Override
+    public List<String> getJobGroupNames() {
+        synchronized (lock) {
+            return new LinkedList<String>(jobsByGroup.keySet());
+        }
+    }
+
+    @Override
+    public List<String> getTriggerGroupNames() {
+        synchronized (lock) {
+            return new LinkedList<String>(triggersByGroup.keySet());
+        }
+    }
+
+    @Override
+    public List<String> getCalendarNames() {
+        synchronized (lock) {
+            return new LinkedList<String>(calendarsByName.keySet());
+        }
+    }
+
+    @Override
+    public List<OperableTrigger> getTriggersForJob(JobKey jobKey) {
+        List<OperableTrigger> trigList = new ArrayList<OperableTrigger>();
+        synchronized (lock) {
+            for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+                trigList.add((OperableTrigger) tw.trigger.clone());
+            }
+        }
+        return trigList;
+    }
+
+    @Override
+    public TriggerState getTriggerState(TriggerKey triggerKey) {
+        synchronized (lock) {
+            TriggerWrapper tw = triggersByKey.get(triggerKey);
+            if (tw == null) {
+                return TriggerState.NONE;
+            }
+            switch (tw.state) {
+                case TriggerWrapper.STATE_COMPLETE:
+                    return TriggerState.COMPLETE;
+                case TriggerWrapper.STATE_PAUSED:
+                case TriggerWrapper.STATE_PAUSED_BLOCKED:
+                    return TriggerState.PAUSED;
+                case TriggerWrapper.STATE_BLOCKED:
+                    return TriggerState.BLOCKED;
+                case TriggerWrapper.STATE_ERROR:
+                    return TriggerState.ERROR;
+                default:
+                    return TriggerState.NORMAL;
+            }
+        }
+    }
+
+    @Override
+    public void resetTriggerFromErrorState(TriggerKey triggerKey) {
+        synchronized (lock) {
+            TriggerWrapper tw = triggersByKey.get(triggerKey);
+            if (tw == null || tw.state != TriggerWrapper.STATE_ERROR) {
+                return;
+            }
+            if (pausedTriggerGroups.contains(triggerKey.getGroup())) {
+                tw.state = TriggerWrapper.STATE_PAUSED;
+            } else {
+                tw.state = TriggerWrapper.STATE_WAITING;
+                timeTriggers.add(tw);
+            }
+        }
+    }
+
+    @Override
+    public void pauseTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            TriggerWrapper tw = triggersByKey.get(triggerKey);
+            if (tw == null || tw.state == TriggerWrapper.STATE_COMPLETE) {
+                return;
+            }
+            tw.state = tw.state == TriggerWrapper.STATE_BLOCKED ? TriggerWrapper.STATE_PAUSED_BLOCKED : TriggerWrapper.STATE_PAUSED;
+            timeTriggers.remove(tw);
+        }
+    }
+
+    @Override
+    public Collection<String> pauseTriggers(GroupMatcher<TriggerKey> matcher) {
+        List<String> pausedGroups = new LinkedList<String>();
+        synchronized (lock) {
+            StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+            switch (operator) {
+                case EQUALS:
+                    if (pausedTriggerGroups.add(matcher.getCompareToValue())) {
+                        pausedGroups.add(matcher.getCompareToValue());
+                    }
+                    break;
+                default:
+                    for (String group : triggersByGroup.keySet()) {
+                        if (operator.evaluate(group, matcher.getCompareToValue()) && pausedTriggerGroups.add(group)) {
+                            pausedGroups.add(group);
+                        }
+                    }
+            }
+            for (String pausedGroup : pausedGroups) {
+                for (TriggerKey key : getTriggerKeys(GroupMatcher.triggerGroupEquals(pausedGroup))) {
+                    pauseTrigger(key);
+                }
+            }
+        }
+        return pausedGroups;
+    }
+
+    @Override
+    public void pauseJob(JobKey jobKey) {
+        synchronized (lock) {
+            for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+                pauseTrigger(tw.key);
+            }
+        }
+    }
+
+    @Override
+    public Collection<String> pauseJobs(GroupMatcher<JobKey> matcher) {
+        List<String> pausedGroups = new LinkedList<String>();
+        synchronized (lock) {
+            StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+            switch (operator) {
+                case EQUALS:
+                    if (pausedJobGroups.add(matcher.getCompareToValue())) {
+                        pausedGroups.add(matcher.getCompareToValue());
+                    }
+                    break;
+                default:
+                    for (String group : jobsByGroup.keySet()) {
+                        if (operator.evaluate(group, matcher.getCompareToValue()) && pausedJobGroups.add(group)) {
+                            pausedGroups.add(group);
+                        }
+                    }
+            }
+            for (String groupName : pausedGroups) {
+                for (JobKey jobKey : getJobKeys(GroupMatcher.jobGroupEquals(groupName))) {
+                    pauseJob(jobKey);
+                }
+            }
+        }
+        return pausedGroups;
+    }
+
+    @Override
+    public void resumeTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            TriggerWrapper tw = triggersByKey.get(triggerKey);
+            if (tw == null) {
+                return;
+            }
+            if (tw.state != TriggerWrapper.STATE_PAUSED && tw.state != TriggerWrapper.STATE_PAUSED_BLOCKED) {
+                return;
+            }
+            tw.state = blockedJobs.contains(tw.jobKey) ? TriggerWrapper.STATE_BLOCKED : TriggerWrapper.STATE_WAITING;
+
+            applyMisfire(tw);
+
+            if (tw.state == TriggerWrapper.STATE_WAITING) {
+                timeTriggers.add(tw);
+            }
+        }
+    }
+
+    @Override
+    public Collection<String> resumeTriggers(GroupMatcher<TriggerKey> matcher) {
+        Set<String> groups = new HashSet<String>();
+        synchronized (lock) {
+            for (TriggerKey triggerKey : getTriggerKeys(matcher)) {
+                groups.add(triggerKey.getGroup());
+                TriggerWrapper tw = triggersByKey.get(triggerKey);
+                if (tw != null && pausedJobGroups.contains(tw.jobKey.getGroup())) {
+                    continue;
+                }
+                resumeTrigger(triggerKey);
+            }
+            pausedTriggerGroups.removeAll(matchGroups(pausedTriggerGroups, matcher));
+        }
+        return new ArrayList<String>(groups);
+    }
+
+    @Override
+    public Set<String> getPausedTriggerGroups() {
+        synchronized (lock) {
+            return new HashSet<String>(pausedTriggerGroups);
+        }
+    }
+
+    @Override
+    public void resumeJob(JobKey jobKey) {
+        synchronized (lock) {
+            for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+                resumeTrigger(tw.key);
+            }
+        }
+    }
+
+    @Override
+    public Collection<String> resumeJobs(GroupMatcher<JobKey> matcher) {
+        Set<String> resumedGroups;
+        synchronized (lock) {
+            Set<JobKey> keys = getJobKeys(matcher);
+            resumedGroups = new HashSet<String>(matchGroups(pausedJobGroups, matcher));
+            pausedJobGroups.removeAll(resumedGroups);
+            for (JobKey key : keys) {
+                resumeJob(key);
+            }
+        }
+        return resumedGroups;
+    }
+
+    @Override
+    public void pauseAll() {
+        synchronized (lock) {
+            for (String name : getTriggerGroupNames()) {
+                pauseTriggers(GroupMatcher.triggerGroupEquals(name));
+            }
+        }
+    }
+
+    @Override
+    public void resumeAll() {
+        synchronized (lock) {
+            pausedJobGroups.clear();
+            resumeTriggers(GroupMatcher.anyTriggerGroup());
+        }
+    }
+
+    @Override
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow) {
+        synchronized (lock) {
+            List<OperableTrigger> result = new ArrayList<OperableTrigger>();
+            if (timeTriggers.size() == 0) {
+                return result;
+            }
+            Set<JobKey> acquiredJobKeysForNoConcurrentExec = new HashSet<JobKey>();
+            List<TriggerWrapper> excludedTriggers = new ArrayList<TriggerWrapper>();
+            long batchEnd = noLaterThan;
+
+            while (true) {
+                TriggerWrapper tw = timeTriggers.first();
+                if (tw == null) {
+                    break;
+                }
+                timeTriggers.remove(tw);
+
+                if (applyMisfire(tw)) {
+                    timeTriggers.add(tw);
+                    continue;
+                }
+                if (tw.trigger.getNextFireTime().getTime() > batchEnd) {
+                    timeTriggers.add(tw);
+                    break;
+                }
+
+                // 同一批次中不允许并发的任务只取一个触发器,其他的放回
+                JobDetail job = jobsByKey.get(tw.jobKey).jobDetail;
+                if (job.isConcurrentExectionDisallowed() && !acquiredJobKeysForNoConcurrentExec.add(tw.jobKey)) {
+                    excludedTriggers.add(tw);
+                    continue;
+                }
+
+                tw.state = TriggerWrapper.STATE_ACQUIRED;
+                tw.trigger.setFireInstanceId(getFiredTriggerRecordId());
+                if (result.isEmpty()) {
+                    batchEnd = Math.max(tw.trigger.getNextFireTime().getTime(), System.currentTimeMillis()) + timeWindow;
+                }
+                result.add((OperableTrigger) tw.trigger.clone());
+                if (result.size() == maxCount) {
+                    break;
+                }
+            }
+
+            for (TriggerWrapper tw : excludedTriggers) {
+                timeTriggers.add(tw);
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public void releaseAcquiredTrigger(OperableTrigger trigger) {
+        synchronized (lock) {
+            TriggerWrapper tw = triggersByKey.get(trigger.getKey());
+            if (tw != null && tw.state == TriggerWrapper.STATE_ACQUIRED) {
+                tw.state = TriggerWrapper.STATE_WAITING;
+                timeTriggers.add(tw);
+            }
+        }
+    }
+
+    @Override
+    public List<TriggerFiredResult> triggersFired(List<OperableTrigger> firedTriggers) {
+        synchronized (lock) {
+            List<TriggerFiredResult> results = new ArrayList<TriggerFiredResult>();
+            for (OperableTrigger trigger : firedTriggers) {
+                TriggerWrapper tw = triggersByKey.get(trigger.getKey());
+                // 取出后被删除、暂停、阻塞等
+                if (tw == null || tw.state != TriggerWrapper.STATE_ACQUIRED) {
+                    continue;
+                }
+                Calendar cal = null;
+                if (tw.trigger.getCalendarName() != null) {
+                    cal = retrieveCalendar(tw.trigger.getCalendarName());
+                    if (cal == null) {
+                        continue;
+                    }
+                }
+                Date prevFireTime = trigger.getPreviousFireTime();
+                // 取出和触发之间可能被替换
+                timeTriggers.remove(tw);
+                tw.trigger.triggered(cal);
+                trigger.triggered(cal);
+                tw.state = TriggerWrapper.STATE_WAITING;
+
+                TriggerFiredBundle bundle = new TriggerFiredBundle(retrieveJob(tw.jobKey), trigger, cal, false, new Date(),
+                        trigger.getPreviousFireTime(), prevFireTime, trigger.getNextFireTime());
+
+                JobDetail job = bundle.getJobDetail();
+                if (job.isConcurrentExectionDisallowed()) {
+                    for (TriggerWrapper ttw : getTriggerWrappersForJob(job.getKey())) {
+                        if (ttw.state == TriggerWrapper.STATE_WAITING) {
+                            ttw.state = TriggerWrapper.STATE_BLOCKED;
+                        }
+                        if (ttw.state == TriggerWrapper.STATE_PAUSED) {
+                            ttw.state = TriggerWrapper.STATE_PAUSED_BLOCKED;
+                        }
+                        timeTriggers.remove(ttw);
+                    }
+                    blockedJobs.add(job.getKey());
+                } else if (tw.trigger.getNextFireTime() != null) {
+                    timeTriggers.add(tw);
+                }
+                results.add(new TriggerFiredResult(bundle));
+            }
+            return results;
+        }
+    }
+
+    @Override
+    public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail, CompletedExecutionInstruction triggerInstCode) {
+        synchronized (lock) {
+            JobWrapper jw = jobsByKey.get(jobDetail.getKey());
+            TriggerWrapper tw = triggersByKey.get(trigger.getKey());
+
+            // 执行期间任务可能已被删除
+            if (jw != null) {
+                JobDetail jd = jw.jobDetail;
+                if (jd.isPersistJobDataAfterExecution()) {
+                    JobDataMap newData = jobDetail.getJobDataMap();
+                    if (newData != null) {
+                        newData = (JobDataMap) newData.clone();
+                        newData.clearDirtyFlag();
+                    }
+                    jd = jd.getJobBuilder().setJobData(newData).build();
+                    jw.jobDetail = jd;
+                }
+                if (jd.isConcurrentExectionDisallowed()) {
+                    blockedJobs.remove(jd.getKey());
+                    for (TriggerWrapper ttw : getTriggerWrappersForJob(jd.getKey())) {
+                        if (ttw.state == TriggerWrapper.STATE_BLOCKED) {
+                            ttw.state = TriggerWrapper.STATE_WAITING;
+                            timeTriggers.add(ttw);
+                        }
+                        if (ttw.state == TriggerWrapper.STATE_PAUSED_BLOCKED) {
+                            ttw.state = TriggerWrapper.STATE_PAUSED;
+                        }
+                    }
+                    signaler.signalSchedulingChange(0L);
+                }
+            } else {
+                blockedJobs.remove(jobDetail.getKey());
+            }
+
+            // 执行期间触发器可能已被删除
+            if (tw == null) {
+                return;
+            }
+            if (triggerInstCode == CompletedExecutionInstruction.DELETE_TRIGGER) {
+                if (trigger.getNextFireTime() == null) {
+                    // 执行期间可能被重新调度,存储中的触发器也没有下次触发时间才删除
+                    if (tw.trigger.getNextFireTime() == null) {
+                        removeTrigger(trigger.getKey());
+                    }
+                } else {
+                    removeTrigger(trigger.getKey());
+                    signaler.signalSchedulingChange(0L);
+                }
+            } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_COMPLETE) {
+                tw.state = TriggerWrapper.STATE_COMPLETE;
+                timeTriggers.remove(tw);
+                signaler.signalSchedulingChange(0L);
+            } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_ERROR) {
+                log.info("Trigger {} set to ERROR state.", trigger.getKey());
+                tw.state = TriggerWrapper.STATE_ERROR;
+                signaler.signalSchedulingChange(0L);
+            } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR) {
+                log.info("All triggers of Job {} set to ERROR state.", trigger.getJobKey());
+                setAllTriggersOfJobToState(trigger.getJobKey(), TriggerWrapper.STATE_ERROR);
+                signaler.signalSchedulingChange(0L);
+            } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_COMPLETE) {
+                setAllTriggersOfJobToState(trigger.getJobKey(), TriggerWrapper.STATE_COMPLETE);
+                signaler.signalSchedulingChange(0L);
+            }
+        }
+    }
+
+    @Override
+    public void setInstanceId(String schedInstId) {
+    }
+
+    @Override
+    public void setInstanceName(String schedName) {
+    }
+
+    @Override
+    public void setThreadPoolSize(int poolSize) {
+    }
+
+    @Override
+    public long getAcquireRetryDelay(int failureCount) {
+        return 20;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Helpers.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * 删除触发器,任务没有其他触发器且不是持久任务时一并删除
+     */
+    private boolean removeTrigger(TriggerKey key, boolean removeOrphanedJob) {
+        synchronized (lock) {
+            TriggerWrapper tw = triggersByKey.remove(key);
+            if (tw == null) {
+                return false;
+            }
+            HashMap<TriggerKey, TriggerWrapper> grpMap = triggersByGroup.get(key.getGroup());
+            if (grpMap != null) {
+                grpMap.remove(key);
+                if (grpMap.isEmpty()) {
+                    triggersByGroup.remove(key.getGroup());
+                }
+            }
+            List<TriggerWrapper> jobList = triggersByJob.get(tw.jobKey);
+            if (jobList != null) {
+                jobList.remove(tw);
+                if (jobList.isEmpty()) {
+                    triggersByJob.remove(tw.jobKey);
+                }
+            }
+            timeTriggers.remove(tw);
+
+            if (removeOrphanedJob) {
+                JobWrapper jw = jobsByKey.get(tw.jobKey);
+                if (jw != null && !triggersByJob.containsKey(tw.jobKey) && !jw.jobDetail.isDurable() && removeJob(jw.key)) {
+                    signaler.notifySchedulerListenersJobDeleted(jw.key);
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 错过触发处理,与RAMJobStore.applyMisfire一致
+     *
+     * @return 触发器的下次触发时间是否发生了变化
+     */
+    private boolean applyMisfire(TriggerWrapper tw) {
+        long misfireTime = System.currentTimeMillis();
+        if (getMisfireThreshold() > 0) {
+            misfireTime -= getMisfireThreshold();
+        }
+        Date tnft = tw.trigger.getNextFireTime();
+        if (tnft == null || tnft.getTime() > misfireTime
+                || tw.trigger.getMisfireInstruction() == Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY) {
+            return false;
+        }
+
+        Calendar cal = null;
+        if (tw.trigger.getCalendarName() != null) {
+            cal = retrieveCalendar(tw.trigger.getCalendarName());
+        }
+        signaler.notifyTriggerListenersMisfired((OperableTrigger) tw.trigger.clone());
+        tw.trigger.updateAfterMisfire(cal);
+
+        if (tw.trigger.getNextFireTime() == null) {
+            tw.state = TriggerWrapper.STATE_COMPLETE;
+            signaler.notifySchedulerListenersFinalized(tw.trigger);
+            timeTriggers.remove(tw);
+        } else if (tnft.equals(tw.trigger.getNextFireTime())) {
+            return false;
+        }
+        return true;
+    }
+
+    private void setAllTriggersOfJobToState(JobKey jobKey, int state) {
+        for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+            tw.state = state;
+            if (state != TriggerWrapper.STATE_WAITING) {
+                timeTriggers.remove(tw);
+            }
+        }
+    }
+
+    private List<TriggerWrapper> getTriggerWrappersForJob(JobKey jobKey) {
+        List<TriggerWrapper> jobList = triggersByJob.get(jobKey);
+        return jobList == null ? Collections.<TriggerWrapper>emptyList() : new ArrayList<TriggerWrapper>(jobList);
+    }
+
+    private List<TriggerWrapper> getTriggerWrappersForCalendar(String calName) {
+        List<TriggerWrapper> trigList = new ArrayList<TriggerWrapper>();
+        for (TriggerWrapper tw : triggersByKey.values()) {
+            if (calName.equals(tw.trigger.getCalendarName())) {
+                trigList.add(tw);
+            }
+        }
+        return trigList;
+    }
+
+    private static List<String> matchGroups(Collection<String> groups, GroupMatcher<?> matcher) {
+        StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+        List<String> matched = new ArrayList<String>();
+        if (operator == StringMatcher.StringOperatorName.EQUALS) {
+            if (groups.contains(matcher.getCompareToValue())) {
+                matched.add(matcher.getCompareToValue());
+            }
+            return matched;
+        }
+        for (String group : groups) {
+            if (operator.evaluate(group, matcher.getCompareToValue())) {
+                matched.add(group);
+            }
+        }
+        return matched;
+    }
+
+    private String getFiredTriggerRecordId() {
+        return String.valueOf(ftrCtr.incrementAndGet());
+    }
+}
+
+class JobWrapper {
+
+    final JobKey key;
+
+    JobDetail jobDetail;
+
+    JobWrapper(JobDetail jobDetail) {
+        this.jobDetail = jobDetail;
+        this.key = jobDetail.getKey();
+    }
+}
@@ -0,0 +1,283 @@
+package com.hyr.quartz.jobstore;
+
+import org.quartz.Trigger;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/*******************************************************************************
+ * @date 2026-10-17 8:20 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 按下次触发时间排列触发器的分层时间轮
+ *
+ * 时间按tickMillis划分为tick,共{@link #LEVELS}层,每层{@link #WHEEL_SIZE}个桶,第L层每个桶覆盖WHEEL_SIZE^L个tick。
+ * 默认1毫秒一个tick时,各层覆盖约0.5秒、4.4分钟、37小时、2年,更远的触发器放在有序的溢出集合中。
+ * <ul>
+ * <li>插入: 按与游标的距离直接定位到层和桶,挂到桶的双向链表上,O(1)</li>
+ * <li>删除: 触发器记录自己所在的层和桶,O(1)</li>
+ * <li>取最早: 游标推进到下一个非空桶(每层用位图查找),高层桶在游标进入时逐级下放。
+ *     游标所在tick及之前的触发器放在按TriggerTimeComparator排序的就绪集合中,
+ *     同一tick内和已过期的触发器仍按触发时间、优先级、key排序,取出顺序与TreeSet完全一致</li>
+ * </ul>
+ * 非线程安全,由调用方加锁。
+ ******************************************************************************/
+final class TriggerTimingWheel {
+
+    final static int LEVELS = 4;
+
+    final static int WHEEL_BITS = 9;
+
+    final static int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private final static int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    // 触发器所在位置
+    final static int NOT_SCHEDULED = -1;
+
+    private final static int IN_READY = -2;
+
+    private final static int IN_OVERFLOW = -3;
+
+    private final static Comparator<TriggerWrapper> COMPARATOR = new Comparator<TriggerWrapper>() {
+        private final Trigger.TriggerTimeComparator comparator = new Trigger.TriggerTimeComparator();
+
+        @Override
+        public int compare(TriggerWrapper o1, TriggerWrapper o2) {
+            return comparator.compare(o1.trigger, o2.trigger);
+        }
+    };
+
+    private final long tickMillis;
+
+    private final TriggerWrapper[][] buckets = new TriggerWrapper[LEVELS][WHEEL_SIZE];
+
+    private final long[][] occupied = new long[LEVELS][WHEEL_SIZE / 64];
+
+    /**
+     * 游标tick及之前的触发器
+     */
+    private final TreeSet<TriggerWrapper> ready = new TreeSet<TriggerWrapper>(COMPARATOR);
+
+    /**
+     * 超出最高层范围的触发器
+     */
+    private final TreeSet<TriggerWrapper> overflow = new TreeSet<TriggerWrapper>(COMPARATOR);
+
+    private long cursor = Long.MIN_VALUE; // 当前tick
+
+    private int size;
+
+    TriggerTimingWheel(long tickMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("tick millis must be > 0");
+        }
+        this.tickMillis = tickMillis;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 加入触发器,没有下次触发时间的不加入
+     */
+    void add(TriggerWrapper tw) {
+        if (tw.wheelLevel != NOT_SCHEDULED) {
+            remove(tw);
+        }
+        if (tw.trigger.getNextFireTime() == null) {
+            return;
+        }
+        long tick = Math.floorDiv(tw.trigger.getNextFireTime().getTime(), tickMillis);
+        if (size == 0 && tick - 1 > cursor) {
+            // 时间轮为空时把游标拉到当前触发器之前,新触发器尽量落在低层
+            cursor = tick - 1;
+        }
+        tw.wheelTick = tick;
+        place(tw);
+        size++;
+    }
+
+    boolean remove(TriggerWrapper tw) {
+        int level = tw.wheelLevel;
+        if (level == NOT_SCHEDULED) {
+            return false;
+        }
+        if (level == IN_READY) {
+            ready.remove(tw);
+        } else if (level == IN_OVERFLOW) {
+            overflow.remove(tw);
+        } else {
+            unlink(tw);
+        }
+        tw.wheelLevel = NOT_SCHEDULED;
+        size--;
+        return true;
+    }
+
+    /**
+     * 最早触发的触发器,不移除。为空时返回null。
+     */
+    TriggerWrapper first() {
+        if (size == 0) {
+            return null;
+        }
+        while (ready.isEmpty()) {
+            advance();
+        }
+        return ready.first();
+    }
+
+    void clear() {
+        for (int level = 0; level < LEVELS; level++) {
+            for (int bucket = 0; bucket < WHEEL_SIZE; bucket++) {
+                for (TriggerWrapper tw = buckets[level][bucket]; tw != null; tw = tw.wheelNext) {
+                    tw.wheelLevel = NOT_SCHEDULED;
+                }
+                buckets[level][bucket] = null;
+            }
+            Arrays.fill(occupied[level], 0L);
+        }
+        for (TriggerWrapper tw : ready) {
+            tw.wheelLevel = NOT_SCHEDULED;
+        }
+        for (TriggerWrapper tw : overflow) {
+            tw.wheelLevel = NOT_SCHEDULED;
+        }
+        ready.clear();
+        overflow.clear();
+        size = 0;
+    }
+
+    /**
+     * 就绪集合为空时,游标推进到下一个非空位置。
+     * 低层找到时推进到该tick,高层找到时推进到该桶起点并把桶下放,溢出集合是最后的来源。
+     */
+    private void advance() {
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = level * WHEEL_BITS;
+            long position = cursor >> shift;
+            int bucket = nextOccupied(level, (int) ((position + 1) & WHEEL_MASK));
+            if (bucket >= 0) {
+                long offset = (bucket - position) & WHEEL_MASK;
+                moveCursor((position + offset) << shift);
+                return;
+            }
+        }
+        moveCursor(overflow.first().wheelTick);
+    }
+
+    /**
+     * 游标前移,进入新的高层桶时逐级下放,再把当前tick的桶和溢出集合中进入范围的触发器重新放置
+     */
+    private void moveCursor(long tick) {
+        long previous = cursor;
+        cursor = tick;
+        for (int level = LEVELS - 1; level >= 0; level--) {
+            int shift = level * WHEEL_BITS;
+            if ((tick >> shift) != (previous >> shift)) {
+                cascade(level, (int) ((tick >> shift) & WHEEL_MASK));
+            }
+        }
+        long reach = ((cursor >> ((LEVELS - 1) * WHEEL_BITS)) + WHEEL_SIZE) << ((LEVELS - 1) * WHEEL_BITS);
+        while (!overflow.isEmpty() && overflow.first().wheelTick < reach) {
+            TriggerWrapper tw = overflow.pollFirst();
+            place(tw);
+        }
+    }
+
+    private void cascade(int level, int bucket) {
+        TriggerWrapper tw = buckets[level][bucket];
+        buckets[level][bucket] = null;
+        occupied[level][bucket >>> 6] &= ~(1L << bucket);
+        while (tw != null) {
+            TriggerWrapper next = tw.wheelNext;
+            tw.wheelPrev = null;
+            tw.wheelNext = null;
+            place(tw);
+            tw = next;
+        }
+    }
+
+    /**
+     * 按与游标的距离放入就绪集合、某一层或溢出集合
+     */
+    private void place(TriggerWrapper tw) {
+        long tick = tw.wheelTick;
+        if (tick <= cursor) {
+            tw.wheelLevel = IN_READY;
+            ready.add(tw);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = level * WHEEL_BITS;
+            if ((tick >> shift) - (cursor >> shift) < WHEEL_SIZE) {
+                link(tw, level, (int) ((tick >> shift) & WHEEL_MASK));
+                return;
+            }
+        }
+        tw.wheelLevel = IN_OVERFLOW;
+        overflow.add(tw);
+    }
+
+    private void link(TriggerWrapper tw, int level, int bucket) {
+        TriggerWrapper head = buckets[level][bucket];
+        tw.wheelLevel = level;
+        tw.wheelBucket = bucket;
+        tw.wheelPrev = null;
+        tw.wheelNext = head;
+        if (head != null) {
+            head.wheelPrev = tw;
+        }
+        buckets[level][bucket] = tw;
+        occupied[level][bucket >>> 6] |= 1L << bucket;
+    }
+
+    private void unlink(TriggerWrapper tw) {
+        int level = tw.wheelLevel;
+        int bucket = tw.wheelBucket;
+        if (tw.wheelPrev == null) {
+            buckets[level][bucket] = tw.wheelNext;
+            if (tw.wheelNext == null) {
+                occupied[level][bucket >>> 6] &= ~(1L << bucket);
+            }
+        } else {
+            tw.wheelPrev.wheelNext = tw.wheelNext;
+        }
+        if (tw.wheelNext != null) {
+            tw.wheelNext.wheelPrev = tw.wheelPrev;
+        }
+        tw.wheelPrev = null;
+        tw.wheelNext = null;
+    }
+
+    /**
+     * 从from开始循环查找第一个非空桶,没有时返回-1
+     */
+    private int nextOccupied(int level, int from) {
+        int bucket = nextSetBit(occupied[level], from, WHEEL_SIZE);
+        if (bucket < 0) {
+            bucket = nextSetBit(occupied[level], 0, from);
+        }
+        return bucket;
+    }
+
+    private static int nextSetBit(long[] bits, int from, int to) {
+        if (from >= to) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long value = bits[word] & (-1L << from);
+        while (true) {
+            if (value != 0) {
+                int bit = (word << 6) + Long.numberOfTrailingZeros(value);
+                return bit < to ? bit : -1;
+            }
+            if (++word >= bits.length || (word << 6) >= to) {
+                return -1;
+            }
+            value = bits[word];
+        }
+    }
+}
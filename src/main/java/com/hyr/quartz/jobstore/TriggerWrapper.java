@@ -0,0 +1,52 @@
+package com.hyr.quartz.jobstore;
+
+import org.quartz.JobKey;
+import org.quartz.TriggerKey;
+import org.quartz.spi.OperableTrigger;
+
+/*******************************************************************************
+ * @date 2026-10-18 3:10 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: {@link TimingWheelJobStore}中的触发器及其状态,同时记录在{@link TriggerTimingWheel}中的位置
+ ******************************************************************************/
+class TriggerWrapper {
+
+    final static int STATE_WAITING = 0;
+
+    final static int STATE_ACQUIRED = 1;
+
+    final static int STATE_COMPLETE = 3;
+
+    final static int STATE_PAUSED = 4;
+
+    final static int STATE_BLOCKED = 5;
+
+    final static int STATE_PAUSED_BLOCKED = 6;
+
+    final static int STATE_ERROR = 7;
+
+    final TriggerKey key;
+
+    final JobKey jobKey;
+
+    final OperableTrigger trigger;
+
+    int state = STATE_WAITING;
+
+    // 时间轮位置,由TriggerTimingWheel维护
+    int wheelLevel = TriggerTimingWheel.NOT_SCHEDULED;
+
+    int wheelBucket;
+
+    long wheelTick;
+
+    TriggerWrapper wheelPrev;
+
+    TriggerWrapper wheelNext;
+
+    TriggerWrapper(OperableTrigger trigger) {
+        this.trigger = trigger;
+        this.key = trigger.getKey();
+        this.jobKey = trigger.getJobKey();
+    }
+}
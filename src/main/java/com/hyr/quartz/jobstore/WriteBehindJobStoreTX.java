@@ -0,0 +1,316 @@
+package com.hyr.quartz.jobstore;
+
+import com.hyr.quartz.common.Constant;
+import com.hyr.quartz.job.WriteBehindJobData;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.impl.JobDetailImpl;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.quartz.spi.OperableTrigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*******************************************************************************
+ * @date 2026-10-18 4:20 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: @PersistJobDataAfterExecution任务的JobDataMap按内容判断是否写入,可延迟批量写入
+ *
+ * JobStoreTX在任务完成的事务中只要JobDataMap被修改过(put相同的值也算)就重写QRTZ_JOB_DETAILS。这里记录每个任务
+ * 最近一次写入内容的摘要,内容没变时跳过写入。同步写入的摘要在事务提交后才记录,提交失败重试时仍会写入。
+ * 摘要只记录本节点的写入,集群中其他节点修改后会过期,因此集群部署(isClustered)时不跳过写入。
+ *
+ * 内容变化时按任务的写入方式处理:
+ * sync: 默认,和原来一样在任务完成的事务中写入,崩溃安全
+ * writeBehind: 任务类标注了{@link WriteBehindJobData}或JobDataMap中{@link Constant#JOB_DATA_WRITE_MODE_KEY}为writeBehind,
+ * 只保留每个任务最新的JobDataMap,每隔flushIntervalMillis在一个事务中批量写入,shutdown时写入剩余部分。
+ * 尚未写入的数据在下次触发读取任务时覆盖数据库中的旧值,同一进程内看到的始终是最新值;进程崩溃会丢失最后一个间隔内的变化。
+ * 集群中其他节点在写入前读到的是旧值,集群部署时只对允许丢失更新的任务使用writeBehind。
+ *
+ * 配置:
+ * org.quartz.jobStore.class:com.hyr.quartz.jobstore.WriteBehindJobStoreTX
+ * org.quartz.jobStore.flushIntervalMillis:1000
+ ******************************************************************************/
+public class WriteBehindJobStoreTX extends JobStoreTX {
+
+    private final static Logger log = LoggerFactory.getLogger(WriteBehindJobStoreTX.class);
+
+    private long flushIntervalMillis = Constant.JOB_DATA_FLUSH_INTERVAL_MILLIS;
+
+    private boolean writeBehindByDefault; // 未声明写入方式的任务是否延迟写入
+
+    /**
+     * 每个任务最近一次写入(或等待写入)的JobDataMap摘要
+     */
+    private final ConcurrentHashMap<JobKey, byte[]> digests = new ConcurrentHashMap<>();
+
+    /**
+     * 等待写入的任务,同一任务只保留最新的
+     */
+    private final ConcurrentHashMap<JobKey, JobDetail> pending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flusher;
+
+    private final AtomicLong skippedWrites = new AtomicLong();
+    private final AtomicLong syncWrites = new AtomicLong();
+    private final AtomicLong deferredWrites = new AtomicLong();
+    private final AtomicLong flushedWrites = new AtomicLong();
+
+    /**
+     * 在进入事务前决定写入方式。事务由JobStoreSupport失败重试,不写入时传入不带修改标记的副本,调用方的JobDataMap保持原样。
+     */
+    @Override
+    public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail, CompletedExecutionInstruction triggerInstCode) {
+        if (!jobDetail.isPersistJobDataAfterExecution() || !jobDetail.getJobDataMap().isDirty()) {
+            super.triggeredJobComplete(trigger, jobDetail, triggerInstCode);
+            return;
+        }
+        JobKey jobKey = jobDetail.getKey();
+        byte[] digest = isClustered() ? null : digest(jobDetail.getJobDataMap());
+        if (digest != null && Arrays.equals(digest, digests.get(jobKey))) {
+            // 内容没有变化
+            skippedWrites.incrementAndGet();
+            super.triggeredJobComplete(trigger, withoutDataWrite(jobDetail), triggerInstCode);
+        } else if (isWriteBehind(jobDetail)) {
+            pending.put(jobKey, (JobDetail) jobDetail.clone());
+            putDigest(jobKey, digest);
+            deferredWrites.incrementAndGet();
+            super.triggeredJobComplete(trigger, withoutDataWrite(jobDetail), triggerInstCode);
+        } else {
+            // 同步写入,取代尚未写入的旧值,提交后再记录摘要
+            pending.remove(jobKey);
+            digests.remove(jobKey);
+            syncWrites.incrementAndGet();
+            super.triggeredJobComplete(trigger, jobDetail, triggerInstCode);
+            putDigest(jobKey, digest);
+        }
+    }
+
+    /**
+     * 未写入的JobDataMap覆盖数据库中的值
+     */
+    @Override
+    protected JobDetail retrieveJob(Connection conn, JobKey key) throws JobPersistenceException {
+        JobDetail jobDetail = super.retrieveJob(conn, key);
+        JobDetail unflushed = pending.get(key);
+        if (jobDetail != null && unflushed != null) {
+            JobDetailImpl merged = (JobDetailImpl) jobDetail.clone();
+            merged.setJobDataMap(new JobDataMap(unflushed.getJobDataMap().getWrappedMap()));
+            merged.getJobDataMap().clearDirtyFlag();
+            return merged;
+        }
+        return jobDetail;
+    }
+
+    /**
+     * 通过API保存任务时,丢弃未写入的旧值
+     */
+    @Override
+    protected void storeJob(Connection conn, JobDetail newJob, boolean replaceExisting) throws JobPersistenceException {
+        pending.remove(newJob.getKey());
+        digests.remove(newJob.getKey());
+        super.storeJob(conn, newJob, replaceExisting);
+    }
+
+    @Override
+    protected boolean removeJob(Connection conn, JobKey jobKey) throws JobPersistenceException {
+        pending.remove(jobKey);
+        digests.remove(jobKey);
+        return super.removeJob(conn, jobKey);
+    }
+
+    @Override
+    public void schedulerStarted() throws SchedulerException {
+        super.schedulerStarted();
+        synchronized (this) {
+            if (flusher == null) {
+                flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, getInstanceName() + "_JobDataFlusher");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+                flusher.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = flusher;
+            flusher = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(flushIntervalMillis + 5000, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ignore) {
+            }
+        }
+        // 关闭连接池前写入剩余部分
+        flush();
+        super.shutdown();
+    }
+
+    /**
+     * 在一个事务中写入所有等待写入的JobDataMap。持有TRIGGER_ACCESS锁,与同步写入的任务完成事务串行,
+     * 已被同步写入取代的旧值不再写入。
+     *
+     * @return 写入的任务数
+     */
+    public int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        final List<JobDetail> batch = new ArrayList<>(pending.values());
+        try {
+            executeInNonManagedTXLock(LOCK_TRIGGER_ACCESS, new TransactionCallback<Void>() {
+                @Override
+                public Void execute(Connection conn) throws JobPersistenceException {
+                    for (JobDetail jobDetail : batch) {
+                        if (pending.get(jobDetail.getKey()) != jobDetail) {
+                            continue;
+                        }
+                        try {
+                            getDelegate().updateJobData(conn, jobDetail);
+                        } catch (IOException e) {
+                            throw new JobPersistenceException("Couldn't serialize job data: " + e.getMessage(), e);
+                        } catch (SQLException e) {
+                            throw new JobPersistenceException("Couldn't update job data: " + e.getMessage(), e);
+                        }
+                    }
+                    return null;
+                }
+            }, null);
+        } catch (JobPersistenceException e) {
+            // 保留在pending中,下次重试
+            log.error("flush job data error. size:{}", batch.size(), e);
+            return 0;
+        }
+        for (JobDetail jobDetail : batch) {
+            // 写入期间又有新值时保留新值
+            pending.remove(jobDetail.getKey(), jobDetail);
+        }
+        flushedWrites.addAndGet(batch.size());
+        log.debug("flush job data. size:{}", batch.size());
+        return batch.size();
+    }
+
+    private boolean isWriteBehind(JobDetail jobDetail) {
+        Object mode = jobDetail.getJobDataMap().get(Constant.JOB_DATA_WRITE_MODE_KEY);
+        if (mode != null) {
+            return Constant.JOB_DATA_WRITE_BEHIND.equalsIgnoreCase(String.valueOf(mode));
+        }
+        return jobDetail.getJobClass().isAnnotationPresent(WriteBehindJobData.class) || writeBehindByDefault;
+    }
+
+    /**
+     * 不带修改标记的副本,JobStoreSupport不再写入JobDataMap
+     */
+    private static JobDetail withoutDataWrite(JobDetail jobDetail) {
+        JobDetail copy = (JobDetail) jobDetail.clone();
+        copy.getJobDataMap().clearDirtyFlag();
+        return copy;
+    }
+
+    private void putDigest(JobKey jobKey, byte[] digest) {
+        if (digest == null) {
+            digests.remove(jobKey);
+        } else {
+            digests.put(jobKey, digest);
+        }
+    }
+
+    /**
+     * 按key排序后编码,计算内容摘要。含有无法编码的值时返回null,按内容变化处理。
+     */
+    private static byte[] digest(JobDataMap jobDataMap) {
+        try {
+            byte[] encoded = JobDataCodec.encode(new TreeMap<>(jobDataMap.getWrappedMap()), -1);
+            return encoded == null ? null : MessageDigest.getInstance("MD5").digest(encoded);
+        } catch (IOException e) {
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public boolean isWriteBehindByDefault() {
+        return writeBehindByDefault;
+    }
+
+    public void setWriteBehindByDefault(boolean writeBehindByDefault) {
+        this.writeBehindByDefault = writeBehindByDefault;
+    }
+
+    /**
+     * 内容未变化跳过的写入次数
+     */
+    public long getSkippedWrites() {
+        return skippedWrites.get();
+    }
+
+    /**
+     * 在任务完成事务中同步写入的次数
+     */
+    public long getSyncWrites() {
+        return syncWrites.get();
+    }
+
+    /**
+     * 延迟写入的次数,合并前
+     */
+    public long getDeferredWrites() {
+        return deferredWrites.get();
+    }
+
+    /**
+     * 批量写入的行数,合并后
+     */
+    public long getFlushedWrites() {
+        return flushedWrites.get();
+    }
+
+    /**
+     * 等待写入的任务数
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,97 @@
+package com.hyr.quartz.listener;
+
+import com.hyr.quartz.job.CircuitBreaker;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobListener;
+import org.quartz.Trigger;
+import org.quartz.TriggerListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*******************************************************************************
+ * @date 2026-10-18 3:10 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 熔断监听器,同时作为TriggerListener和JobListener绑定
+ *
+ * vetoJobExecution中按任务类声明的{@link com.hyr.quartz.job.Dependency}查熔断器,熔断时否决本次触发,不占用工作线程;
+ * jobWasExecuted按执行结果(是否抛出JobExecutionException)记录成功或失败。
+ ******************************************************************************/
+public class CircuitBreakerListener implements TriggerListener, JobListener {
+
+    private final static Logger log = LoggerFactory.getLogger(CircuitBreakerListener.class);
+
+    /**
+     * 放行的熔断器存放在JobExecutionContext中的key
+     */
+    private final static String CIRCUIT_BREAKER_KEY = CircuitBreakerListener.class.getName() + ".CIRCUIT_BREAKER";
+
+    private String name; // 监听器名称
+
+    public CircuitBreakerListener(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public void triggerFired(Trigger trigger, JobExecutionContext jobExecutionContext) {
+    }
+
+    /**
+     * 熔断时否决执行
+     */
+    @Override
+    public boolean vetoJobExecution(Trigger trigger, JobExecutionContext jobExecutionContext) {
+        CircuitBreaker circuitBreaker = CircuitBreaker.forJob(jobExecutionContext.getJobDetail().getJobClass());
+        if (circuitBreaker == null) {
+            return false;
+        }
+        if (!circuitBreaker.allowExecution()) {
+            log.warn(getName() + " - the job is vetoed by circuit breaker. jobName:{} ,dependency:{}",
+                    trigger.getJobKey().getName(), circuitBreaker.getName());
+            return true;
+        }
+        jobExecutionContext.put(CIRCUIT_BREAKER_KEY, circuitBreaker);
+        return false;
+    }
+
+    @Override
+    public void triggerMisfired(Trigger trigger) {
+    }
+
+    @Override
+    public void triggerComplete(Trigger trigger, JobExecutionContext jobExecutionContext, Trigger.CompletedExecutionInstruction completedExecutionInstruction) {
+    }
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext jobExecutionContext) {
+    }
+
+    /**
+     * 其他监听器否决了已放行的执行,释放半开试探
+     */
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext jobExecutionContext) {
+        Object circuitBreaker = jobExecutionContext.get(CIRCUIT_BREAKER_KEY);
+        if (circuitBreaker != null) {
+            ((CircuitBreaker) circuitBreaker).releaseTrial();
+        }
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext jobExecutionContext, JobExecutionException e) {
+        Object circuitBreaker = jobExecutionContext.get(CIRCUIT_BREAKER_KEY);
+        if (circuitBreaker == null) {
+            return;
+        }
+        if (e == null) {
+            ((CircuitBreaker) circuitBreaker).recordSuccess();
+        } else {
+            ((CircuitBreaker) circuitBreaker).recordFailure();
+        }
+    }
+}
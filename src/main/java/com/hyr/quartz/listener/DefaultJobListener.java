@@ -3,12 +3,11 @@ package com.hyr.quartz.listener;
 import com.hyr.quartz.utils.MxBeanManager;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
 import org.quartz.JobListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ConcurrentHashMap;
-
 /*******************************************************************************
  * @date 2018-11-11 下午 11:11
  * @author: <a href=mailto:huangyr>黄跃然</a>
@@ -20,7 +19,7 @@ public class DefaultJobListener implements JobListener {
 
     private String name; // 监听器名称
 
-    private static ConcurrentHashMap<String, Long> jobStatus = new ConcurrentHashMap<>();
+    private final JobExecutionStatistics jobStatistics = new JobExecutionStatistics(); // 任务执行次数统计
 
     @Override
     public String getName() {
@@ -31,6 +30,15 @@ public class DefaultJobListener implements JobListener {
         this.name = name;
     }
 
+    /**
+     * 任务执行次数统计
+     *
+     * @return
+     */
+    public JobExecutionStatistics getJobStatistics() {
+        return jobStatistics;
+    }
+
     /**
      * job 将要被执行时调用这个方法。
      *
@@ -38,15 +46,16 @@ public class DefaultJobListener implements JobListener {
      */
     @Override
     public void jobToBeExecuted(JobExecutionContext jobExecutionContext) {
-        // FIXME 测试执行次数 是否正常。 生产环境删除
-        String jobName = jobExecutionContext.getJobDetail().getKey().getName();
-        String triggerName = jobExecutionContext.getTrigger().getKey().getName();
-        if (!jobStatus.containsKey(jobName)) {
-            jobStatus.put(jobName, 0L);
+        JobKey jobKey = jobExecutionContext.getJobDetail().getKey();
+        if (jobExecutionContext.getRefireCount() > 0) {
+            jobStatistics.incrementRefired(jobKey);
+        } else {
+            jobStatistics.incrementFired(jobKey);
+        }
+        if (log.isInfoEnabled()) {
+            String triggerName = jobExecutionContext.getTrigger().getKey().getName();
+            log.info(getName() + " - the job:{} is will to exec. count:{} ,triggerName:{}", jobKey.getName(), jobStatistics.getFiredCount(jobKey), triggerName);
         }
-        Long jobCount = jobStatus.get(jobName);
-        jobStatus.put(jobName, jobCount + 1); // 执行一次
-        log.info(getName() + " - the job:{} is will to exec. count:{} ,triggerName:{}", jobName, jobCount, triggerName);
     }
 
     /**
@@ -56,6 +65,7 @@ public class DefaultJobListener implements JobListener {
      */
     @Override
     public void jobExecutionVetoed(JobExecutionContext jobExecutionContext) {
+        jobStatistics.incrementVetoed(jobExecutionContext.getJobDetail().getKey());
         String jobName = jobExecutionContext.getJobDetail().getKey().getName();
         log.warn(getName() + " - the job:{} is vetoed.", jobName);
     }
@@ -69,6 +79,11 @@ public class DefaultJobListener implements JobListener {
      */
     @Override
     public void jobWasExecuted(JobExecutionContext jobExecutionContext, JobExecutionException e) {
+        if (e == null) {
+            jobStatistics.incrementSucceeded(jobExecutionContext.getJobDetail().getKey());
+        } else {
+            jobStatistics.incrementFailed(jobExecutionContext.getJobDetail().getKey());
+        }
         String jobName = jobExecutionContext.getJobDetail().getKey().getName();
         log.info(getName() + " - the job:{} is exec success.", jobName);
         MxBeanManager.setLog_level(MxBeanManager.LOG_INFO);
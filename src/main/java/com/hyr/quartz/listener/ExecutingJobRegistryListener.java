@@ -0,0 +1,300 @@
+package com.hyr.quartz.listener;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.JobListener;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/*******************************************************************************
+ * @date 2026-10-17 11:40 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: JobListener 运行中任务登记表
+ *
+ * 由jobToBeExecuted/jobWasExecuted维护,按JobKey、任务名、组名索引正在执行的任务。
+ * 查询不需要复制{@link org.quartz.Scheduler#getCurrentlyExecutingJobs()}列表。
+ * 需要在Scheduler启动前绑定,绑定前已开始执行的任务不会被登记。
+ *
+ * 任务的执行全部结束后移除它的索引项,登记表大小只与正在执行的任务数有关。
+ * 排在前面的监听器在jobWasExecuted中抛出异常,或排在后面的监听器在jobToBeExecuted中抛出异常时,
+ * Quartz不会再通知本监听器,登记无法按正常流程释放。因此同时记录执行任务的工作线程,
+ * 同一线程开始下一个任务时释放它遗留的登记;线程已结束的登记(如虚拟线程池)在登记新任务时定期清理。
+ ******************************************************************************/
+public class ExecutingJobRegistryListener implements JobListener {
+
+    /**
+     * 登记信息存放在JobExecutionContext中的key
+     */
+    private final static String EXECUTION_KEY = ExecutingJobRegistryListener.class.getName() + ".EXECUTION_KEY";
+
+    private String name; // 监听器名称
+
+    private final ConcurrentHashMap<JobKey, Set<JobExecutionContext>> executingByJob = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Set<JobExecutionContext>> executingByName = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Integer> executingCountByGroup = new ConcurrentHashMap<>();
+
+    /**
+     * 工作线程正在执行的任务,一个线程同一时间只执行一个任务
+     */
+    private final ConcurrentHashMap<Thread, JobExecutionContext> executingByThread = new ConcurrentHashMap<>();
+
+    /**
+     * 按触发时间排序,第一个即为最早开始执行的任务
+     */
+    private final ConcurrentSkipListMap<ExecutionKey, JobExecutionContext> executingByFireTime = new ConcurrentSkipListMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 上次清理已结束线程遗留登记的时间
+     */
+    private final AtomicLong lastSweepTime = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * 清理已结束线程遗留登记的间隔(毫秒)
+     */
+    private final static long SWEEP_INTERVAL = 1000L;
+
+    public ExecutingJobRegistryListener(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * job 将要被执行时登记。重新执行(refire)时沿用同一个JobExecutionContext,不会重复登记。
+     *
+     * @param jobExecutionContext
+     */
+    @Override
+    public void jobToBeExecuted(JobExecutionContext jobExecutionContext) {
+        if (jobExecutionContext.get(EXECUTION_KEY) != null) {
+            return;
+        }
+        JobKey jobKey = jobExecutionContext.getJobDetail().getKey();
+        Thread thread = Thread.currentThread();
+        ExecutionKey executionKey = new ExecutionKey(fireTimeOf(jobExecutionContext), sequence.incrementAndGet(), thread);
+        jobExecutionContext.put(EXECUTION_KEY, executionKey);
+
+        executingByFireTime.put(executionKey, jobExecutionContext);
+        add(executingByJob, jobKey, jobExecutionContext);
+        add(executingByName, jobKey.getName(), jobExecutionContext);
+        addCount(jobKey.getGroup(), 1);
+
+        JobExecutionContext abandoned = executingByThread.put(thread, jobExecutionContext);
+        if (abandoned != null && abandoned != jobExecutionContext) {
+            // 线程上一个任务的登记没有按正常流程释放
+            unregister(abandoned);
+        }
+        sweepTerminatedThreads();
+    }
+
+    /**
+     * 首次触发被否决时不会调用jobToBeExecuted,没有登记可移除。重新执行(refire)时被否决,需要移除之前的登记。
+     *
+     * @param jobExecutionContext
+     */
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext jobExecutionContext) {
+        unregister(jobExecutionContext);
+    }
+
+    /**
+     * job 被执行之后移除登记
+     *
+     * @param jobExecutionContext
+     * @param e
+     */
+    @Override
+    public void jobWasExecuted(JobExecutionContext jobExecutionContext, JobExecutionException e) {
+        if (e != null && e.refireImmediately()) {
+            // 立即重新执行,仍处于运行中
+            return;
+        }
+        unregister(jobExecutionContext);
+    }
+
+    /**
+     * 移除登记。正常释放和遗留登记的清理可能同时进行,只有从executingByFireTime中移除成功的一方继续移除索引。
+     */
+    private void unregister(JobExecutionContext jobExecutionContext) {
+        Object executionKey = jobExecutionContext.get(EXECUTION_KEY);
+        if (!(executionKey instanceof ExecutionKey) || !executingByFireTime.remove(executionKey, jobExecutionContext)) {
+            return;
+        }
+        jobExecutionContext.put(EXECUTION_KEY, null);
+
+        JobKey jobKey = jobExecutionContext.getJobDetail().getKey();
+        remove(executingByJob, jobKey, jobExecutionContext);
+        remove(executingByName, jobKey.getName(), jobExecutionContext);
+        addCount(jobKey.getGroup(), -1);
+        executingByThread.remove(((ExecutionKey) executionKey).thread, jobExecutionContext);
+    }
+
+    /**
+     * 释放已结束线程遗留的登记,每个间隔最多执行一次
+     */
+    private void sweepTerminatedThreads() {
+        long now = System.currentTimeMillis();
+        long last = lastSweepTime.get();
+        if (now - last < SWEEP_INTERVAL || !lastSweepTime.compareAndSet(last, now)) {
+            return;
+        }
+        for (Map.Entry<Thread, JobExecutionContext> entry : executingByThread.entrySet()) {
+            if (!entry.getKey().isAlive()) {
+                unregister(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 任务是否正在执行
+     */
+    public boolean isExecuting(JobKey jobKey) {
+        Set<JobExecutionContext> contexts = executingByJob.get(jobKey);
+        return contexts != null && !contexts.isEmpty();
+    }
+
+    /**
+     * 获取任务正在执行的一个实例,不存在返回null
+     */
+    public JobExecutionContext getExecutingJob(JobKey jobKey) {
+        return first(executingByJob.get(jobKey));
+    }
+
+    /**
+     * 按任务名获取正在执行的一个实例,不区分组,不存在返回null
+     */
+    public JobExecutionContext getExecutingJobByName(String jobName) {
+        return first(executingByName.get(jobName));
+    }
+
+    /**
+     * 任务正在执行的实例,只读视图
+     */
+    public Set<JobExecutionContext> getExecutingJobs(JobKey jobKey) {
+        Set<JobExecutionContext> contexts = executingByJob.get(jobKey);
+        if (contexts == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(contexts);
+    }
+
+    /**
+     * 组内正在执行的任务数
+     */
+    public int getExecutingCount(String group) {
+        Integer count = executingCountByGroup.get(group);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 正在执行的任务总数
+     */
+    public int getExecutingCount() {
+        return executingByFireTime.size();
+    }
+
+    /**
+     * 最早开始执行且仍在运行的任务,不存在返回null
+     */
+    public JobExecutionContext getOldestExecutingJob() {
+        Map.Entry<ExecutionKey, JobExecutionContext> entry = executingByFireTime.firstEntry();
+        return entry == null ? null : entry.getValue();
+    }
+
+    private static long fireTimeOf(JobExecutionContext jobExecutionContext) {
+        Date fireTime = jobExecutionContext.getFireTime();
+        return fireTime == null ? System.currentTimeMillis() : fireTime.getTime();
+    }
+
+    private static JobExecutionContext first(Set<JobExecutionContext> contexts) {
+        if (contexts == null) {
+            return null;
+        }
+        Iterator<JobExecutionContext> iterator = contexts.iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * 加入索引,在ConcurrentHashMap的compute中修改,与移除空索引项互斥
+     */
+    private static <K> void add(ConcurrentHashMap<K, Set<JobExecutionContext>> map, K key, final JobExecutionContext jobExecutionContext) {
+        map.compute(key, new BiFunction<K, Set<JobExecutionContext>, Set<JobExecutionContext>>() {
+            @Override
+            public Set<JobExecutionContext> apply(K k, Set<JobExecutionContext> contexts) {
+                if (contexts == null) {
+                    contexts = Collections.newSetFromMap(new ConcurrentHashMap<JobExecutionContext, Boolean>());
+                }
+                contexts.add(jobExecutionContext);
+                return contexts;
+            }
+        });
+    }
+
+    /**
+     * 移出索引,集合为空时移除索引项
+     */
+    private static <K> void remove(ConcurrentHashMap<K, Set<JobExecutionContext>> map, K key, final JobExecutionContext jobExecutionContext) {
+        map.computeIfPresent(key, new BiFunction<K, Set<JobExecutionContext>, Set<JobExecutionContext>>() {
+            @Override
+            public Set<JobExecutionContext> apply(K k, Set<JobExecutionContext> contexts) {
+                contexts.remove(jobExecutionContext);
+                return contexts.isEmpty() ? null : contexts;
+            }
+        });
+    }
+
+    /**
+     * 修改组内执行数,减到0时移除
+     */
+    private void addCount(String group, final int delta) {
+        executingCountByGroup.compute(group, new BiFunction<String, Integer, Integer>() {
+            @Override
+            public Integer apply(String g, Integer count) {
+                int value = (count == null ? 0 : count) + delta;
+                return value <= 0 ? null : value;
+            }
+        });
+    }
+
+    /**
+     * 按触发时间排序的登记key,触发时间相同按登记顺序
+     */
+    private static class ExecutionKey implements Comparable<ExecutionKey> {
+
+        private final long fireTime;
+        private final long sequence;
+        // 执行任务的工作线程
+        private final Thread thread;
+
+        ExecutionKey(long fireTime, long sequence, Thread thread) {
+            this.fireTime = fireTime;
+            this.sequence = sequence;
+            this.thread = thread;
+        }
+
+        @Override
+        public int compareTo(ExecutionKey o) {
+            if (fireTime != o.fireTime) {
+                return fireTime < o.fireTime ? -1 : 1;
+            }
+            return sequence < o.sequence ? -1 : (sequence == o.sequence ? 0 : 1);
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.hyr.quartz.listener;
+
+import org.quartz.JobKey;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*******************************************************************************
+ * @date 2026-10-17 1:30 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 按JobKey统计任务执行次数
+ *
+ * 每个JobKey一组LongAdder计数器,计数器创建后更新不再分配对象,也不装箱;同一任务在多个工作线程上并发执行时各线程累加到不同的单元,互不竞争。
+ * 通过{@link #snapshot(JobKey)}、{@link #snapshot()}获取某一时刻的只读快照。
+ ******************************************************************************/
+public class JobExecutionStatistics {
+
+    private final ConcurrentHashMap<JobKey, Counter> counters = new ConcurrentHashMap<>();
+
+    void incrementFired(JobKey jobKey) {
+        getOrCreate(jobKey).fired.increment();
+    }
+
+    void incrementRefired(JobKey jobKey) {
+        getOrCreate(jobKey).refired.increment();
+    }
+
+    void incrementSucceeded(JobKey jobKey) {
+        getOrCreate(jobKey).succeeded.increment();
+    }
+
+    void incrementFailed(JobKey jobKey) {
+        getOrCreate(jobKey).failed.increment();
+    }
+
+    void incrementVetoed(JobKey jobKey) {
+        getOrCreate(jobKey).vetoed.increment();
+    }
+
+    /**
+     * 当前触发次数,不存在返回0
+     */
+    public long getFiredCount(JobKey jobKey) {
+        Counter counter = counters.get(jobKey);
+        return counter == null ? 0 : counter.fired.sum();
+    }
+
+    /**
+     * 单个任务的统计快照,不存在返回null
+     */
+    public Snapshot snapshot(JobKey jobKey) {
+        Counter counter = counters.get(jobKey);
+        return counter == null ? null : counter.snapshot(jobKey);
+    }
+
+    /**
+     * 所有任务的统计快照
+     */
+    public Map<JobKey, Snapshot> snapshot() {
+        Map<JobKey, Snapshot> snapshots = new HashMap<>(counters.size() * 4 / 3 + 1);
+        for (Map.Entry<JobKey, Counter> entry : counters.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot(entry.getKey()));
+        }
+        return snapshots;
+    }
+
+    /**
+     * 移除任务的统计,任务删除后调用
+     */
+    public void remove(JobKey jobKey) {
+        counters.remove(jobKey);
+    }
+
+    public void clear() {
+        counters.clear();
+    }
+
+    private Counter getOrCreate(JobKey jobKey) {
+        Counter counter = counters.get(jobKey);
+        if (counter == null) {
+            Counter newCounter = new Counter();
+            counter = counters.putIfAbsent(jobKey, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    private static class Counter {
+        final LongAdder fired = new LongAdder();
+        final LongAdder refired = new LongAdder();
+        final LongAdder succeeded = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder vetoed = new LongAdder();
+
+        Snapshot snapshot(JobKey jobKey) {
+            return new Snapshot(jobKey, fired.sum(), refired.sum(), succeeded.sum(), failed.sum(), vetoed.sum());
+        }
+    }
+
+    /**
+     * 统计快照
+     */
+    public static class Snapshot {
+
+        private final JobKey jobKey;
+        private final long fired; // 触发次数,不包含重新执行
+        private final long refired; // 重新执行次数
+        private final long succeeded; // 执行成功次数
+        private final long failed; // 执行失败次数
+        private final long vetoed; // 被TriggerListener否决次数
+
+        Snapshot(JobKey jobKey, long fired, long refired, long succeeded, long failed, long vetoed) {
+            this.jobKey = jobKey;
+            this.fired = fired;
+            this.refired = refired;
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.vetoed = vetoed;
+        }
+
+        public JobKey getJobKey() {
+            return jobKey;
+        }
+
+        public long getFired() {
+            return fired;
+        }
+
+        public long getRefired() {
+            return refired;
+        }
+
+        public long getSucceeded() {
+            return succeeded;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getVetoed() {
+            return vetoed;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" +
+                    "jobKey=" + jobKey +
+                    ", fired=" + fired +
+                    ", refired=" + refired +
+                    ", succeeded=" + succeeded +
+                    ", failed=" + failed +
+                    ", vetoed=" + vetoed +
+                    '}';
+        }
+    }
+}
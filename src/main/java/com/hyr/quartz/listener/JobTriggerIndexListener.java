@@ -0,0 +1,276 @@
+package com.hyr.quartz.listener;
+
+import org.quartz.*;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.listeners.SchedulerListenerSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*******************************************************************************
+ * @date 2026-10-17 11:05 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: SchedulerListener 任务与触发器的进程内索引
+ *
+ * 由jobScheduled/jobUnscheduled/triggerFinalized/jobDeleted维护JobKey到TriggerKey的映射,
+ * 暂停/恢复/删除任务时直接定位触发器,无需遍历所有触发器组。
+ *
+ * {@link #rebuild(Scheduler)}在新的索引上全量加载,期间收到的变更同时记录下来,加载完成后在新索引上按顺序重放再整体替换,
+ * 加载期间删除的任务不会被旧的查询结果重新加入。查询读取当前索引,不受加载影响。
+ *
+ * 只能感知本Scheduler实例上的变更。集群中其他节点新增、删除的任务和触发器不会通知到本节点,索引会与JobStore不一致,
+ * 集群部署时需要定期{@link #rebuild(Scheduler)},或不使用索引而由JobStore查询。
+ ******************************************************************************/
+public class JobTriggerIndexListener extends SchedulerListenerSupport {
+
+    private final static Logger log = LoggerFactory.getLogger(JobTriggerIndexListener.class);
+
+    private String name; // 监听器名称
+
+    private volatile Index index = new Index();
+
+    /**
+     * 加载期间收到的变更,不在加载时为null。与变更的应用、索引替换一起由this锁保护
+     */
+    private List<Change> pendingChanges;
+
+    private final Object rebuildLock = new Object();
+
+    public JobTriggerIndexListener(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * 从JobStore中全量加载索引,绑定监听器后调用一次。
+     * 在新索引上加载,完成后重放加载期间的变更并替换当前索引,加载期间查询仍使用原索引。
+     *
+     * @param scheduler
+     * @throws SchedulerException
+     */
+    public void rebuild(Scheduler scheduler) throws SchedulerException {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                pendingChanges = new ArrayList<>();
+            }
+            Index rebuilt = new Index();
+            int replayed = 0;
+            boolean loaded = false;
+            try {
+                Set<JobKey> jobKeys = scheduler.getJobKeys(GroupMatcher.<JobKey>anyGroup());
+                for (JobKey jobKey : jobKeys) {
+                    rebuilt.getOrCreate(jobKey);
+                    List<? extends Trigger> triggers = scheduler.getTriggersOfJob(jobKey);
+                    for (Trigger trigger : triggers) {
+                        rebuilt.index(jobKey, trigger.getKey());
+                    }
+                }
+                loaded = true;
+            } finally {
+                synchronized (this) {
+                    // 加载失败时保留原索引
+                    if (loaded) {
+                        replayed = pendingChanges.size();
+                        for (Change change : pendingChanges) {
+                            change.apply(rebuilt);
+                        }
+                        index = rebuilt;
+                    }
+                    pendingChanges = null;
+                }
+            }
+            log.info(getName() + " - the job trigger index is rebuild. jobs:{}, triggers:{}, replayed:{}, cost:{}ms",
+                    rebuilt.triggersByJob.size(), rebuilt.jobByTrigger.size(), replayed, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 是否已索引该任务
+     */
+    public boolean containsJob(JobKey jobKey) {
+        return index.triggersByJob.containsKey(jobKey);
+    }
+
+    /**
+     * 获取任务的所有触发器,未索引的任务返回空集合
+     */
+    public Set<TriggerKey> getTriggerKeys(JobKey jobKey) {
+        Set<TriggerKey> triggerKeys = index.triggersByJob.get(jobKey);
+        if (triggerKeys == null) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(triggerKeys);
+    }
+
+    /**
+     * 获取触发器对应的任务
+     */
+    public JobKey getJobKey(TriggerKey triggerKey) {
+        return index.jobByTrigger.get(triggerKey);
+    }
+
+    public int getJobCount() {
+        return index.triggersByJob.size();
+    }
+
+    public int getTriggerCount() {
+        return index.jobByTrigger.size();
+    }
+
+    @Override
+    public void jobAdded(JobDetail job) {
+        final JobKey jobKey = job.getKey();
+        apply(new Change() {
+            @Override
+            public void apply(Index index) {
+                index.getOrCreate(jobKey);
+            }
+        });
+    }
+
+    @Override
+    public void jobDeleted(final JobKey jobKey) {
+        apply(new Change() {
+            @Override
+            public void apply(Index index) {
+                index.remove(jobKey);
+            }
+        });
+    }
+
+    @Override
+    public void jobScheduled(Trigger trigger) {
+        final JobKey jobKey = trigger.getJobKey();
+        final TriggerKey triggerKey = trigger.getKey();
+        apply(new Change() {
+            @Override
+            public void apply(Index index) {
+                index.index(jobKey, triggerKey);
+            }
+        });
+    }
+
+    @Override
+    public void jobUnscheduled(final TriggerKey triggerKey) {
+        apply(new Change() {
+            @Override
+            public void apply(Index index) {
+                index.unindex(triggerKey);
+            }
+        });
+    }
+
+    /**
+     * 触发器不会再触发,JobStore会将其删除
+     */
+    @Override
+    public void triggerFinalized(Trigger trigger) {
+        final TriggerKey triggerKey = trigger.getKey();
+        apply(new Change() {
+            @Override
+            public void apply(Index index) {
+                index.unindex(triggerKey);
+            }
+        });
+    }
+
+    @Override
+    public void schedulingDataCleared() {
+        apply(new Change() {
+            @Override
+            public void apply(Index index) {
+                index.clear();
+            }
+        });
+    }
+
+    /**
+     * 应用到当前索引,加载期间同时记录下来,加载完成后在新索引上重放
+     */
+    private synchronized void apply(Change change) {
+        change.apply(index);
+        if (pendingChanges != null) {
+            pendingChanges.add(change);
+        }
+    }
+
+    /**
+     * 索引的一次变更
+     */
+    private interface Change {
+        void apply(Index index);
+    }
+
+    /**
+     * 任务与触发器的映射
+     */
+    private static final class Index {
+
+        final ConcurrentHashMap<JobKey, Set<TriggerKey>> triggersByJob = new ConcurrentHashMap<>();
+
+        final ConcurrentHashMap<TriggerKey, JobKey> jobByTrigger = new ConcurrentHashMap<>();
+
+        Set<TriggerKey> getOrCreate(JobKey jobKey) {
+            Set<TriggerKey> triggerKeys = triggersByJob.get(jobKey);
+            if (triggerKeys == null) {
+                Set<TriggerKey> newTriggerKeys = Collections.newSetFromMap(new ConcurrentHashMap<TriggerKey, Boolean>());
+                triggerKeys = triggersByJob.putIfAbsent(jobKey, newTriggerKeys);
+                if (triggerKeys == null) {
+                    triggerKeys = newTriggerKeys;
+                }
+            }
+            return triggerKeys;
+        }
+
+        void index(JobKey jobKey, TriggerKey triggerKey) {
+            // replaceTrigger时触发器可能换绑到其他任务
+            JobKey oldJobKey = jobByTrigger.put(triggerKey, jobKey);
+            if (oldJobKey != null && !oldJobKey.equals(jobKey)) {
+                Set<TriggerKey> oldTriggerKeys = triggersByJob.get(oldJobKey);
+                if (oldTriggerKeys != null) {
+                    oldTriggerKeys.remove(triggerKey);
+                }
+            }
+            getOrCreate(jobKey).add(triggerKey);
+        }
+
+        void unindex(TriggerKey triggerKey) {
+            JobKey jobKey = jobByTrigger.remove(triggerKey);
+            if (jobKey != null) {
+                Set<TriggerKey> triggerKeys = triggersByJob.get(jobKey);
+                if (triggerKeys != null) {
+                    triggerKeys.remove(triggerKey);
+                    // 非持久化任务的最后一个触发器被移除时,JobStore会一并删除任务,但不会通知jobDeleted
+                    if (triggerKeys.isEmpty()) {
+                        triggersByJob.remove(jobKey, triggerKeys);
+                    }
+                }
+            }
+        }
+
+        void remove(JobKey jobKey) {
+            Set<TriggerKey> triggerKeys = triggersByJob.remove(jobKey);
+            if (triggerKeys != null) {
+                for (TriggerKey triggerKey : triggerKeys) {
+                    jobByTrigger.remove(triggerKey, jobKey);
+                }
+            }
+        }
+
+        void clear() {
+            triggersByJob.clear();
+            jobByTrigger.clear();
+        }
+    }
+
+}
@@ -0,0 +1,383 @@
+package com.hyr.quartz.plugin;
+
+import com.hyr.quartz.utils.HookPriority;
+import com.hyr.quartz.utils.ShutdownHookManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/*******************************************************************************
+ * @date 2026-10-17 3:40 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 任务/触发器历史异步输出
+ *
+ * 工作线程把事件写入有界无锁环形缓冲区后立即返回,由单个消费线程批量格式化并输出日志。
+ * 缓冲区中的{@link HistoryEvent}预先分配、循环复用。缓冲区满时按{@link OverflowPolicy}丢弃或等待。
+ * 消费线程空闲时先逐步加长等待时间,仍无事件则挂起,由发布事件的线程唤醒,空闲的调度器不会频繁唤醒消费线程。
+ *
+ * 启动后以{@link HookPriority#PLUGIN_PRIORITY}注册ShutdownHook,退出前输出缓冲区中剩余的事件。
+ * 未启动或已关闭时,事件在调用线程中同步输出。
+ ******************************************************************************/
+public class AsyncHistorySink {
+
+    private final static Logger log = LoggerFactory.getLogger(AsyncHistorySink.class);
+
+    /**
+     * 缓冲区满时的处理策略
+     */
+    public enum OverflowPolicy {
+        /**
+         * 丢弃事件,不阻塞工作线程
+         */
+        DROP,
+        /**
+         * 等待消费线程腾出空间
+         */
+        BLOCK
+    }
+
+    /**
+     * claim返回值: 事件被丢弃
+     */
+    final static long DROPPED = -1;
+
+    /**
+     * claim返回值: 未启动或已关闭,需要同步输出
+     */
+    final static long SYNC = -2;
+
+    private final static int NEW = 0;
+    private final static int RUNNING = 1;
+    private final static int CLOSING = 2;
+    private final static int TERMINATED = 3;
+
+    private final static int BATCH_SIZE = 256;
+
+    private final static long MIN_IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    private final static long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final static long FLUSH_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final static long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final static long DROP_REPORT_INTERVAL = 10000; // 丢弃告警间隔(毫秒)
+
+    private final String name;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final HistoryEvent[] events;
+
+    /**
+     * 每个槽位的序号。等于pos表示可写入,等于pos+1表示已发布待消费。
+     */
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong(); // 下一个写入位置
+
+    private volatile long head; // 下一个消费位置,只由消费线程或持有drainLock的线程修改
+
+    private final AtomicLong publishedCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private long reportedDropped; // 已告警的丢弃数
+
+    private volatile int state = NEW;
+
+    /**
+     * 消费线程已挂起等待唤醒。消费线程先置位再检查缓冲区,发布线程先发布再检查标志,不会漏掉唤醒。
+     */
+    private final AtomicBoolean sleeping = new AtomicBoolean();
+
+    private final Object drainLock = new Object();
+
+    private Thread consumer;
+
+    private final Runnable shutdownHook = new Runnable() {
+        @Override
+        public void run() {
+            shutdown();
+        }
+    };
+
+    /**
+     * @param name           名称,用于消费线程名和日志
+     * @param bufferSize     缓冲区大小,向上取整为2的幂
+     * @param overflowPolicy 缓冲区满时的处理策略
+     */
+    public AsyncHistorySink(String name, int bufferSize, OverflowPolicy overflowPolicy) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive:" + bufferSize);
+        }
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("overflowPolicy cannot be null");
+        }
+        int capacity = bufferSize > (1 << 30) ? (1 << 30) : Integer.highestOneBit(bufferSize);
+        if (capacity < bufferSize) {
+            capacity <<= 1;
+        }
+        this.name = name;
+        this.overflowPolicy = overflowPolicy;
+        this.mask = capacity - 1;
+        this.events = new HistoryEvent[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            events[i] = new HistoryEvent(this);
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 启动消费线程,并注册ShutdownHook
+     */
+    public synchronized void start() {
+        if (state != NEW) {
+            return;
+        }
+        consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                consume();
+            }
+        }, "QuartzHistorySink-" + name);
+        consumer.setDaemon(true);
+        state = RUNNING;
+        consumer.start();
+        ShutdownHookManager.get().addShutdownHook(shutdownHook, HookPriority.PLUGIN_PRIORITY.value());
+        log.info("history sink started. name:{} bufferSize:{} overflowPolicy:{}", name, events.length, overflowPolicy);
+    }
+
+    /**
+     * 停止接收异步事件,等待缓冲区中的事件全部输出后返回。之后的事件在调用线程中同步输出。
+     */
+    public void shutdown() {
+        Thread consumer;
+        synchronized (this) {
+            if (state == NEW) {
+                state = TERMINATED;
+                return;
+            }
+            if (state != RUNNING) {
+                return;
+            }
+            state = CLOSING;
+            consumer = this.consumer;
+        }
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!ShutdownHookManager.get().isShutdownInProgress()) {
+            ShutdownHookManager.get().removeShutdownHook(shutdownHook);
+        }
+        reportDropped();
+        log.info("history sink shutdown. name:{} published:{} dropped:{}", name, publishedCount.get(), droppedCount.get());
+    }
+
+    /**
+     * 等待调用前已发布的事件全部输出
+     *
+     * @param timeout  超时时间
+     * @param timeUnit 时间单位
+     * @return 是否在超时前全部输出
+     */
+    public boolean flush(long timeout, TimeUnit timeUnit) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+        while (head < target) {
+            if (state == TERMINATED) {
+                drainRemaining();
+                return head >= target;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(FLUSH_PARK_NANOS);
+        }
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int getBufferSize() {
+        return events.length;
+    }
+
+    /**
+     * 已写入缓冲区的事件数
+     */
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    /**
+     * 缓冲区满被丢弃的事件数
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * 缓冲区中待输出的事件数
+     */
+    public int getPendingCount() {
+        long pending = tail.get() - head;
+        return pending < 0 ? 0 : (int) pending;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Producer.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * 领取一个槽位
+     *
+     * @return 槽位序号;{@link #DROPPED}表示缓冲区已满被丢弃;{@link #SYNC}表示需要同步输出
+     */
+    long claim() {
+        while (true) {
+            int state = this.state;
+            if (state != RUNNING && state != CLOSING) {
+                return SYNC;
+            }
+            long pos = tail.get();
+            long diff = sequences.get((int) (pos & mask)) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    return pos;
+                }
+            } else if (diff < 0) {
+                // 缓冲区已满
+                if (overflowPolicy == OverflowPolicy.DROP) {
+                    droppedCount.incrementAndGet();
+                    return DROPPED;
+                }
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            }
+            // diff > 0: 槽位已被其他线程领取,重试
+        }
+    }
+
+    HistoryEvent get(long sequence) {
+        HistoryEvent event = events[(int) (sequence & mask)];
+        event.sequence = sequence;
+        return event;
+    }
+
+    void publish(HistoryEvent event) {
+        sequences.set((int) (event.sequence & mask), event.sequence + 1);
+        publishedCount.incrementAndGet();
+        if (sleeping.get() && sleeping.compareAndSet(true, false)) {
+            LockSupport.unpark(consumer);
+        }
+        if (state == TERMINATED) {
+            // 消费线程已退出,发布前领取的槽位由发布线程负责输出
+            drainRemaining();
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Consumer.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private void consume() {
+        long lastReportTime = System.currentTimeMillis();
+        long idleParkNanos = MIN_IDLE_PARK_NANOS;
+        while (state == RUNNING) {
+            if (drain(BATCH_SIZE) > 0) {
+                idleParkNanos = MIN_IDLE_PARK_NANOS;
+            } else if (idleParkNanos <= MAX_IDLE_PARK_NANOS) {
+                // 短暂空闲,逐步加长等待
+                LockSupport.parkNanos(idleParkNanos);
+                idleParkNanos <<= 1;
+            } else {
+                // 持续空闲,挂起到有事件发布、关闭或到达丢弃告警间隔
+                sleeping.set(true);
+                if (!isPublished(head) && state == RUNNING) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(DROP_REPORT_INTERVAL));
+                }
+                sleeping.set(false);
+                idleParkNanos = MIN_IDLE_PARK_NANOS;
+            }
+            long now = System.currentTimeMillis();
+            if (now - lastReportTime >= DROP_REPORT_INTERVAL) {
+                lastReportTime = now;
+                reportDropped();
+            }
+        }
+        // 关闭中,输出缓冲区中已发布的事件
+        while (drain(BATCH_SIZE) > 0) {
+        }
+        state = TERMINATED;
+        // 与publish中的检查配合,输出关闭前领取、关闭后才发布的事件
+        drainRemaining();
+    }
+
+    private void drainRemaining() {
+        synchronized (drainLock) {
+            while (drain(BATCH_SIZE) > 0) {
+            }
+        }
+    }
+
+    private boolean isPublished(long pos) {
+        return sequences.get((int) (pos & mask)) == pos + 1;
+    }
+
+    private int drain(int max) {
+        long pos = head;
+        int count = 0;
+        while (count < max) {
+            int index = (int) (pos & mask);
+            if (!isPublished(pos)) {
+                break;
+            }
+            HistoryEvent event = events[index];
+            try {
+                event.writer.write(event);
+            } catch (Throwable t) {
+                log.error("history sink write event error. name:{}", name, t);
+            }
+            event.clear();
+            sequences.lazySet(index, pos + events.length);
+            pos++;
+            count++;
+        }
+        head = pos;
+        return count;
+    }
+
+    private void reportDropped() {
+        long dropped = droppedCount.get();
+        if (dropped != reportedDropped) {
+            log.warn("history sink buffer full. name:{} dropped:{} totalDropped:{}", name, dropped - reportedDropped, dropped);
+            reportedDropped = dropped;
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.hyr.quartz.plugin;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.Trigger;
+
+import java.util.Date;
+
+/*******************************************************************************
+ * @date 2026-10-17 3:20 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 任务/触发器历史事件
+ *
+ * 异步模式下预分配在{@link AsyncHistorySink}的环形缓冲区中循环复用,只保存引用和基本类型,
+ * 发布事件不分配对象。消息在消费线程中由{@link HistoryEventWriter}格式化输出。
+ ******************************************************************************/
+final class HistoryEvent {
+
+    /**
+     * 时间为空
+     */
+    final static long NO_TIME = Long.MIN_VALUE;
+
+    /**
+     * 所属的环形缓冲区,同步输出的事件为null
+     */
+    final AsyncHistorySink owner;
+
+    /**
+     * 在环形缓冲区中的序号
+     */
+    long sequence = -1;
+
+    HistoryEventWriter writer;
+
+    int type;
+
+    String jobName;
+
+    String jobGroup;
+
+    String triggerName;
+
+    String triggerGroup;
+
+    long timestamp;
+
+    long previousFireTime = NO_TIME;
+
+    long nextFireTime = NO_TIME;
+
+    int refireCount;
+
+    // 任务执行历史记录,由QuartzBinaryJobHistoryPlugin填充
+
+    long fireTime;
+
+    long scheduledFireTime;
+
+    long runTime;
+
+    int resultCode;
+
+    /**
+     * 任务执行结果、异常信息或触发器完成指令
+     */
+    String report;
+
+    /**
+     * 触发器完成指令说明
+     */
+    String reportDetail;
+
+    Throwable throwable;
+
+    HistoryEvent(AsyncHistorySink owner) {
+        this.owner = owner;
+    }
+
+    void fill(HistoryEventWriter writer, int type, Trigger trigger, JobExecutionContext context) {
+        this.writer = writer;
+        this.type = type;
+        this.timestamp = System.currentTimeMillis();
+        this.triggerName = trigger.getKey().getName();
+        this.triggerGroup = trigger.getKey().getGroup();
+        this.previousFireTime = timeOf(trigger.getPreviousFireTime());
+        this.nextFireTime = timeOf(trigger.getNextFireTime());
+        if (context != null) {
+            this.jobName = context.getJobDetail().getKey().getName();
+            this.jobGroup = context.getJobDetail().getKey().getGroup();
+            this.refireCount = context.getRefireCount();
+        } else {
+            this.jobName = trigger.getJobKey().getName();
+            this.jobGroup = trigger.getJobKey().getGroup();
+            this.refireCount = 0;
+        }
+    }
+
+    void clear() {
+        writer = null;
+        jobName = null;
+        jobGroup = null;
+        triggerName = null;
+        triggerGroup = null;
+        report = null;
+        reportDetail = null;
+        throwable = null;
+    }
+
+    private static long timeOf(Date date) {
+        return date == null ? NO_TIME : date.getTime();
+    }
+
+    /**
+     * 将时间写入复用的Date,时间为空返回null
+     */
+    static Date toDate(long time, Date reuse) {
+        if (time == NO_TIME) {
+            return null;
+        }
+        reuse.setTime(time);
+        return reuse;
+    }
+}
@@ -0,0 +1,62 @@
+package com.hyr.quartz.plugin;
+
+/*******************************************************************************
+ * @date 2026-10-17 3:40 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 日志插件的历史事件发布入口
+ *
+ * 配置了{@link AsyncHistorySink}时从环形缓冲区领取事件,否则使用线程本地的事件同步输出。
+ ******************************************************************************/
+final class HistoryEventChannel {
+
+    private volatile AsyncHistorySink sink;
+
+    private final ThreadLocal<HistoryEvent> syncEvent = new ThreadLocal<HistoryEvent>() {
+        @Override
+        protected HistoryEvent initialValue() {
+            return new HistoryEvent(null);
+        }
+    };
+
+    AsyncHistorySink getSink() {
+        return sink;
+    }
+
+    void setSink(AsyncHistorySink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * 获取一个待填充的事件
+     *
+     * @return 事件,缓冲区已满被丢弃时返回null
+     */
+    HistoryEvent begin() {
+        AsyncHistorySink sink = this.sink;
+        if (sink != null) {
+            long sequence = sink.claim();
+            if (sequence >= 0) {
+                return sink.get(sequence);
+            }
+            if (sequence == AsyncHistorySink.DROPPED) {
+                return null;
+            }
+        }
+        return syncEvent.get();
+    }
+
+    /**
+     * 发布填充完成的事件
+     */
+    void commit(HistoryEvent event) {
+        if (event.owner != null) {
+            event.owner.publish(event);
+            return;
+        }
+        try {
+            event.writer.write(event);
+        } finally {
+            event.clear();
+        }
+    }
+}
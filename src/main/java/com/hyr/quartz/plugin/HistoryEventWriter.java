@@ -0,0 +1,13 @@
+package com.hyr.quartz.plugin;
+
+/*******************************************************************************
+ * @date 2026-10-17 3:20 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 历史事件输出
+ *
+ * 由日志插件实现,负责将事件格式化并输出。异步模式下只在{@link AsyncHistorySink}的消费线程中调用。
+ ******************************************************************************/
+interface HistoryEventWriter {
+
+    void write(HistoryEvent event);
+}
@@ -0,0 +1,91 @@
+package com.hyr.quartz.plugin;
+
+import org.quartz.JobKey;
+
+import java.util.Date;
+
+/*******************************************************************************
+ * @date 2026-10-17 4:30 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 任务执行历史记录,{@link JobHistoryStore}查询结果
+ ******************************************************************************/
+public class JobHistoryRecord {
+
+    /**
+     * 执行成功
+     */
+    public final static int RESULT_SUCCESS = 0;
+
+    /**
+     * 执行抛出异常
+     */
+    public final static int RESULT_FAILED = 1;
+
+    /**
+     * 被TriggerListener否决
+     */
+    public final static int RESULT_VETOED = 2;
+
+    private final JobKey jobKey;
+    private final long endTime; // 记录写入时间,索引时间
+    private final long fireTime; // 实际触发时间
+    private final long scheduledFireTime; // 计划触发时间
+    private final long runTime; // 执行耗时(毫秒)
+    private final int refireCount; // 重新执行次数
+    private final int resultCode; // 执行结果
+
+    JobHistoryRecord(JobKey jobKey, long endTime, long fireTime, long scheduledFireTime, long runTime, int refireCount, int resultCode) {
+        this.jobKey = jobKey;
+        this.endTime = endTime;
+        this.fireTime = fireTime;
+        this.scheduledFireTime = scheduledFireTime;
+        this.runTime = runTime;
+        this.refireCount = refireCount;
+        this.resultCode = resultCode;
+    }
+
+    public JobKey getJobKey() {
+        return jobKey;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public long getFireTime() {
+        return fireTime;
+    }
+
+    public long getScheduledFireTime() {
+        return scheduledFireTime;
+    }
+
+    public long getRunTime() {
+        return runTime;
+    }
+
+    public int getRefireCount() {
+        return refireCount;
+    }
+
+    public int getResultCode() {
+        return resultCode;
+    }
+
+    public boolean isSuccess() {
+        return resultCode == RESULT_SUCCESS;
+    }
+
+    @Override
+    public String toString() {
+        return "JobHistoryRecord{" +
+                "jobKey=" + jobKey +
+                ", endTime=" + new Date(endTime) +
+                ", fireTime=" + new Date(fireTime) +
+                ", scheduledFireTime=" + new Date(scheduledFireTime) +
+                ", runTime=" + runTime +
+                ", refireCount=" + refireCount +
+                ", resultCode=" + resultCode +
+                '}';
+    }
+}
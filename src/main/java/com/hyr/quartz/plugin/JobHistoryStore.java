@@ -0,0 +1,796 @@
+package com.hyr.quartz.plugin;
+
+import org.quartz.JobKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*******************************************************************************
+ * @date 2026-10-17 4:30 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 任务执行历史存储,只追加的二进制内存映射分段文件
+ *
+ * 每条记录定长{@link #RECORD_SIZE}字节,写入当前内存映射的分段文件,写满后滚动到新的分段。
+ * 记录的写入时间(endTime)单调不减,每个分段每{@link #INDEX_INTERVAL}条记录保存一个稀疏时间索引点,
+ * 按时间范围查询时先跳过不相交的分段,再通过稀疏索引定位起始位置顺序扫描,不访问数据库。
+ *
+ * JobKey写入字典文件,记录中只保存字典编号。按分段删除实现保留策略,当前写入的分段不会被删除,
+ * 滚动分段时检查,追加时与最旧分段的过期时间比较一次,到期后删除。
+ * 写入的数据由操作系统回写磁盘,进程崩溃不丢失,滚动分段和关闭时调用force刷盘。
+ *
+ * 追加应只由一个写入线程调用({@link QuartzBinaryJobHistoryPlugin}通过{@link AsyncHistorySink}的消费线程写入),
+ * 不在Quartz工作线程中做磁盘IO。当前分段写到一半时由后台线程预先创建并映射下一个分段,滚动时直接切换,
+ * 旧分段的force也在后台线程执行。保留策略删除的分段和关闭时的所有分段在没有查询使用后立即解除映射,不等GC回收。
+ *
+ * 文件格式:
+ * <pre>
+ * 分段头(64字节): magic(int) version(int) recordSize(int) capacity(int) sequence(long) createTime(long)
+ * 记录(48字节):  endTime(long) fireTime(long) scheduledFireTime(long) runTime(long)
+ *                jobKeyId(int) refireCount(int) resultCode(int) marker(int)
+ * </pre>
+ * marker最后写入,启动时以此判断记录是否完整。
+ * 启动时无法打开或格式不正确的分段、内容损坏的字典文件被改名隔离(后缀.corrupt),不影响插件启动。
+ ******************************************************************************/
+public class JobHistoryStore {
+
+    private final static Logger log = LoggerFactory.getLogger(JobHistoryStore.class);
+
+    final static int RECORD_SIZE = 48;
+
+    final static int INDEX_INTERVAL = 256;
+
+    private final static int HEADER_SIZE = 64;
+
+    private final static int SEGMENT_MAGIC = 0x51484953;
+
+    private final static int RECORD_MAGIC = 0x52454344;
+
+    private final static int VERSION = 1;
+
+    private final static String SEGMENT_SUFFIX = ".seg";
+
+    private final static String JOB_KEY_FILE = "jobkeys.dat";
+
+    private final static String CORRUPT_SUFFIX = ".corrupt";
+
+    /**
+     * 字典中占位的组名,字典损坏丢失的编号用它补齐,读出时对应null
+     */
+    private final static String PLACEHOLDER_GROUP = "\u0000";
+
+    // 记录字段偏移
+
+    private final static int END_TIME_OFFSET = 0;
+    private final static int FIRE_TIME_OFFSET = 8;
+    private final static int SCHEDULED_FIRE_TIME_OFFSET = 16;
+    private final static int RUN_TIME_OFFSET = 24;
+    private final static int JOB_KEY_ID_OFFSET = 32;
+    private final static int REFIRE_COUNT_OFFSET = 36;
+    private final static int RESULT_CODE_OFFSET = 40;
+    private final static int MARKER_OFFSET = 44;
+
+    private final File directory;
+
+    private final int segmentCapacity; // 每个分段的记录数
+
+    private final long retentionMillis; // 保留时间,<=0不按时间清理
+
+    private final int maxSegments; // 最多保留的分段数,<=0不限制
+
+    /**
+     * 按序号排列的分段,修改需持有this锁。查询时复制后遍历,不阻塞写入。
+     */
+    private final List<Segment> segments = new ArrayList<>();
+
+    private Segment active;
+
+    private final ConcurrentHashMap<JobKey, Integer> jobKeyIds = new ConcurrentHashMap<>();
+
+    private final CopyOnWriteArrayList<JobKey> jobKeys = new CopyOnWriteArrayList<>();
+
+    private DataOutputStream jobKeyOut;
+
+    private long lastEndTime;
+
+    /**
+     * 最旧分段的过期时间,追加时到达后执行保留策略
+     */
+    private long nextRetentionTime = Long.MAX_VALUE;
+
+    private boolean closed;
+
+    /**
+     * 预先创建分段、force旧分段的后台线程
+     */
+    private final ExecutorService background;
+
+    /**
+     * 预先创建的下一个分段,没有时为null
+     */
+    private Future<Segment> nextSegment;
+
+    /**
+     * @param directory       存储目录
+     * @param segmentSize     分段文件大小(字节)
+     * @param retentionMillis 保留时间(毫秒),<=0不按时间清理
+     * @param maxSegments     最多保留的分段数,<=0不限制
+     * @throws IOException
+     */
+    public JobHistoryStore(File directory, int segmentSize, long retentionMillis, int maxSegments) throws IOException {
+        if (segmentSize < HEADER_SIZE + RECORD_SIZE * INDEX_INTERVAL) {
+            throw new IllegalArgumentException("segmentSize is too small:" + segmentSize);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("cannot create history directory:" + directory.getAbsolutePath());
+        }
+        this.directory = directory;
+        this.segmentCapacity = (segmentSize - HEADER_SIZE) / RECORD_SIZE;
+        this.retentionMillis = retentionMillis;
+        this.maxSegments = maxSegments;
+        final String threadName = "JobHistoryStore-" + directory.getName();
+        this.background = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        int maxJobKeyId = loadSegments();
+        loadJobKeys(maxJobKeyId);
+        applyRetention();
+    }
+
+    /**
+     * 追加一条执行记录,已关闭时忽略
+     *
+     * @return 是否写入
+     */
+    public synchronized boolean append(JobKey jobKey, long fireTime, long scheduledFireTime, long runTime, int refireCount, int resultCode) throws IOException {
+        if (closed) {
+            return false;
+        }
+        int jobKeyId = getOrCreateJobKeyId(jobKey);
+        long endTime = Math.max(System.currentTimeMillis(), lastEndTime);
+        if (active == null || active.isFull()) {
+            roll();
+        } else if (endTime >= nextRetentionTime) {
+            applyRetention();
+        }
+        active.append(endTime, fireTime, scheduledFireTime, runTime, jobKeyId, refireCount, resultCode);
+        lastEndTime = endTime;
+        if (nextSegment == null && active.count >= active.capacity / 2) {
+            preallocate(active.sequence + 1);
+        }
+        return true;
+    }
+
+    /**
+     * 查询任务在时间范围内的执行记录,按写入时间排序
+     *
+     * @param jobKey   任务
+     * @param fromTime 开始时间(包含)
+     * @param toTime   结束时间(包含)
+     * @return
+     */
+    public List<JobHistoryRecord> query(JobKey jobKey, long fromTime, long toTime) {
+        Integer jobKeyId = jobKeyIds.get(jobKey);
+        if (jobKeyId == null) {
+            return Collections.emptyList();
+        }
+        return scan(jobKeyId, fromTime, toTime);
+    }
+
+    /**
+     * 查询所有任务在时间范围内的执行记录,按写入时间排序
+     *
+     * @param fromTime 开始时间(包含)
+     * @param toTime   结束时间(包含)
+     * @return
+     */
+    public List<JobHistoryRecord> query(long fromTime, long toTime) {
+        return scan(-1, fromTime, toTime);
+    }
+
+    private List<JobHistoryRecord> scan(int jobKeyId, long fromTime, long toTime) {
+        List<Segment> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(segments);
+        }
+        List<JobHistoryRecord> records = new ArrayList<>();
+        for (Segment segment : snapshot) {
+            // 已被删除并解除映射的分段跳过,读取期间持有引用,不会被解除映射
+            if (!segment.retain()) {
+                continue;
+            }
+            try {
+                int count = segment.count;
+                if (count == 0 || segment.endTime(count - 1) < fromTime) {
+                    continue;
+                }
+                if (segment.endTime(0) > toTime) {
+                    break;
+                }
+                for (int i = segment.seek(fromTime, count); i < count; i++) {
+                    long endTime = segment.endTime(i);
+                    if (endTime > toTime) {
+                        break;
+                    }
+                    if (endTime < fromTime || (jobKeyId >= 0 && segment.jobKeyId(i) != jobKeyId)) {
+                        continue;
+                    }
+                    records.add(segment.read(i, getJobKey(segment.jobKeyId(i))));
+                }
+            } finally {
+                segment.release();
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 按保留策略删除过期的分段
+     */
+    public synchronized void purge() {
+        applyRetention();
+    }
+
+    /**
+     * 刷盘并关闭,解除所有分段的映射,之后的追加被忽略,查询返回空
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // 未使用的预建分段删除,避免重新打开时留下空分段
+        Segment unused = takeNextSegment();
+        if (unused != null) {
+            unused.retire();
+            if (!unused.file.delete()) {
+                log.warn("delete unused history segment:{} failed.", unused.file.getAbsolutePath());
+            }
+        }
+        background.shutdown();
+        try {
+            // 等待后台的force完成
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (active != null) {
+            active.force();
+        }
+        for (Segment segment : segments) {
+            segment.retire();
+        }
+        segments.clear();
+        active = null;
+        try {
+            jobKeyOut.close();
+        } catch (IOException e) {
+            log.warn("close job key file error.", e);
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * 当前写入分段的序号,没有分段时返回-1
+     */
+    public synchronized long getActiveSegmentSequence() {
+        return active == null ? -1 : active.sequence;
+    }
+
+    private void roll() throws IOException {
+        long sequence = 0;
+        if (active != null) {
+            forceInBackground(active);
+            sequence = active.sequence + 1;
+        } else if (!segments.isEmpty()) {
+            sequence = segments.get(segments.size() - 1).sequence + 1;
+        }
+        Segment next = takeNextSegment();
+        if (next != null && next.sequence != sequence) {
+            next.retire();
+            next = null;
+        }
+        active = next != null ? next : Segment.create(segmentFile(sequence), sequence, segmentCapacity);
+        segments.add(active);
+        applyRetention();
+    }
+
+    /**
+     * 在后台线程创建并映射下一个分段
+     */
+    private void preallocate(final long sequence) {
+        final File file = segmentFile(sequence);
+        nextSegment = background.submit(new Callable<Segment>() {
+            @Override
+            public Segment call() throws IOException {
+                return Segment.create(file, sequence, segmentCapacity);
+            }
+        });
+    }
+
+    /**
+     * 取出预先创建的分段,还在创建时等待完成。没有或创建失败返回null
+     */
+    private Segment takeNextSegment() {
+        Future<Segment> future = nextSegment;
+        nextSegment = null;
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            log.warn("preallocate history segment error.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // 创建完成后不会再被使用,在后台释放
+            background.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Segment segment = future.get();
+                        segment.retire();
+                    } catch (Exception ignore) {
+                    }
+                }
+            });
+        }
+        return null;
+    }
+
+    private void forceInBackground(final Segment segment) {
+        background.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!segment.retain()) {
+                    return;
+                }
+                try {
+                    segment.force();
+                } finally {
+                    segment.release();
+                }
+            }
+        });
+    }
+
+    private void applyRetention() {
+        long expireTime = System.currentTimeMillis() - retentionMillis;
+        while (segments.size() > 1 && segments.get(0) != active) {
+            Segment oldest = segments.get(0);
+            boolean overCount = maxSegments > 0 && segments.size() > maxSegments;
+            boolean expired = retentionMillis > 0 && (oldest.count == 0 || oldest.endTime(oldest.count - 1) < expireTime);
+            if (!overCount && !expired) {
+                break;
+            }
+            segments.remove(0);
+            if (!oldest.file.delete()) {
+                log.warn("delete history segment:{} failed.", oldest.file.getAbsolutePath());
+            } else {
+                log.info("delete history segment:{}.", oldest.file.getName());
+            }
+            // 正在进行的查询结束后解除映射
+            oldest.retire();
+        }
+        Segment oldest = segments.isEmpty() ? null : segments.get(0);
+        if (retentionMillis > 0 && oldest != null && oldest != active && oldest.count > 0) {
+            nextRetentionTime = oldest.endTime(oldest.count - 1) + retentionMillis;
+        } else {
+            // 只剩当前写入的分段,滚动时再检查
+            nextRetentionTime = Long.MAX_VALUE;
+        }
+    }
+
+    private File segmentFile(long sequence) {
+        return new File(directory, String.format("%020d", sequence) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * 加载分段,返回记录中引用的最大字典编号
+     */
+    private int loadSegments() {
+        int maxJobKeyId = -1;
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return maxJobKeyId;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            Segment segment;
+            try {
+                segment = Segment.open(file);
+            } catch (IOException e) {
+                log.warn("open history segment:{} error.", file.getAbsolutePath(), e);
+                segment = null;
+            }
+            if (segment == null) {
+                // 移走,避免之后滚动的分段用到相同的文件名
+                quarantine(file);
+                continue;
+            }
+            segments.add(segment);
+            maxJobKeyId = Math.max(maxJobKeyId, segment.maxJobKeyId);
+            if (segment.count > 0) {
+                lastEndTime = Math.max(lastEndTime, segment.endTime(segment.count - 1));
+            }
+        }
+        if (!segments.isEmpty()) {
+            Segment last = segments.get(segments.size() - 1);
+            if (!last.isFull() && last.writable) {
+                active = last;
+            }
+        }
+        return maxJobKeyId;
+    }
+
+    /**
+     * 加载字典。最后一条不完整时截掉;内容损坏(如UTFDataFormatException)时先复制隔离,保留可读的部分。
+     * 分段中引用了字典之外的编号时用占位补齐,新任务的编号从其后开始,不会被算成旧记录的任务。
+     *
+     * @param maxJobKeyId 分段中引用的最大字典编号
+     */
+    private void loadJobKeys(int maxJobKeyId) throws IOException {
+        File file = new File(directory, JOB_KEY_FILE);
+        long validLength = 0;
+        if (file.exists()) {
+            boolean corrupt = false;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                while (true) {
+                    String group = in.readUTF();
+                    String name = in.readUTF();
+                    if (PLACEHOLDER_GROUP.equals(group)) {
+                        jobKeys.add(null);
+                    } else {
+                        JobKey jobKey = new JobKey(name, group);
+                        jobKeyIds.put(jobKey, jobKeys.size());
+                        jobKeys.add(jobKey);
+                    }
+                    validLength += 4 + utfLength(group) + utfLength(name);
+                }
+            } catch (EOFException e) {
+                // 读到末尾,或最后一条不完整
+            } catch (IOException e) {
+                corrupt = true;
+                log.warn("job key file:{} is corrupt after {} keys.", file.getAbsolutePath(), jobKeys.size(), e);
+            } finally {
+                in.close();
+            }
+            if (corrupt) {
+                File copy = new File(directory, JOB_KEY_FILE + CORRUPT_SUFFIX + "." + System.currentTimeMillis());
+                try {
+                    Files.copy(file.toPath(), copy.toPath());
+                    log.warn("job key file copied to:{}.", copy.getName());
+                } catch (IOException e) {
+                    log.warn("copy corrupt job key file error.", e);
+                }
+            }
+            if (validLength < file.length()) {
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                    raf.setLength(validLength);
+                } finally {
+                    raf.close();
+                }
+            }
+        }
+        jobKeyOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        if (jobKeys.size() <= maxJobKeyId) {
+            log.warn("job key file is missing ids {}-{}, records of them will have no job key.", jobKeys.size(), maxJobKeyId);
+            while (jobKeys.size() <= maxJobKeyId) {
+                jobKeyOut.writeUTF(PLACEHOLDER_GROUP);
+                jobKeyOut.writeUTF("");
+                jobKeys.add(null);
+            }
+            jobKeyOut.flush();
+        }
+    }
+
+    /**
+     * 改名隔离无法加载的文件
+     */
+    private void quarantine(File file) {
+        File target = new File(file.getPath() + CORRUPT_SUFFIX);
+        if (file.renameTo(target)) {
+            log.warn("invalid history file:{} moved to:{}.", file.getAbsolutePath(), target.getName());
+        } else {
+            log.warn("skip invalid history file:{}, rename failed.", file.getAbsolutePath());
+        }
+    }
+
+    private int getOrCreateJobKeyId(JobKey jobKey) throws IOException {
+        Integer jobKeyId = jobKeyIds.get(jobKey);
+        if (jobKeyId != null) {
+            return jobKeyId;
+        }
+        // 先落盘字典,再写引用它的记录
+        jobKeyOut.writeUTF(jobKey.getGroup());
+        jobKeyOut.writeUTF(jobKey.getName());
+        jobKeyOut.flush();
+        int id = jobKeys.size();
+        jobKeys.add(jobKey);
+        jobKeyIds.put(jobKey, id);
+        return id;
+    }
+
+    private JobKey getJobKey(int jobKeyId) {
+        return jobKeyId >= 0 && jobKeyId < jobKeys.size() ? jobKeys.get(jobKeyId) : null;
+    }
+
+    private static int utfLength(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                length++;
+            } else if (c > 0x07FF) {
+                length += 3;
+            } else {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 解除内存映射。JDK没有公开的接口,Java 9及以上通过Unsafe.invokeCleaner,Java 8通过DirectBuffer.cleaner,
+     * 都不可用时留给GC回收
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (NoSuchMethodException e) {
+            // Java 8
+        } catch (Exception e) {
+            log.debug("unmap history segment error.", e);
+            return;
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            log.debug("unmap history segment error.", e);
+        }
+    }
+
+    /**
+     * 分段文件
+     */
+    private static final class Segment {
+
+        final File file;
+
+        final long sequence;
+
+        final int capacity;
+
+        final boolean writable;
+
+        final MappedByteBuffer buffer;
+
+        /**
+         * 稀疏索引,第i项为第i*INDEX_INTERVAL条记录的写入时间
+         */
+        final long[] index;
+
+        /**
+         * 已写入的记录数,记录和索引写完后再更新,查询线程先读count
+         */
+        volatile int count;
+
+        /**
+         * 打开时记录中的最大字典编号
+         */
+        int maxJobKeyId = -1;
+
+        /**
+         * 引用计数,初始的1由存储持有,retire时释放,降到0时解除映射
+         */
+        private final AtomicInteger refs = new AtomicInteger(1);
+
+        private final AtomicInteger retired = new AtomicInteger();
+
+        private Segment(File file, long sequence, int capacity, boolean writable, MappedByteBuffer buffer) {
+            this.file = file;
+            this.sequence = sequence;
+            this.capacity = capacity;
+            this.writable = writable;
+            this.buffer = buffer;
+            this.index = new long[(capacity + INDEX_INTERVAL - 1) / INDEX_INTERVAL];
+        }
+
+        static Segment create(File file, long sequence, int capacity) throws IOException {
+            MappedByteBuffer buffer = map(file, FileChannel.MapMode.READ_WRITE, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            buffer.putInt(0, SEGMENT_MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, RECORD_SIZE);
+            buffer.putInt(12, capacity);
+            buffer.putLong(16, sequence);
+            buffer.putLong(24, System.currentTimeMillis());
+            return new Segment(file, sequence, capacity, true, buffer);
+        }
+
+        /**
+         * 打开已有分段,恢复记录数和稀疏索引。格式不正确返回null。
+         */
+        static Segment open(File file) throws IOException {
+            long length = file.length();
+            if (length < HEADER_SIZE) {
+                return null;
+            }
+            boolean writable = file.canWrite();
+            MappedByteBuffer buffer = map(file, writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, length);
+            if (buffer.getInt(0) != SEGMENT_MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != RECORD_SIZE) {
+                return null;
+            }
+            int capacity = buffer.getInt(12);
+            if (capacity <= 0 || HEADER_SIZE + (long) capacity * RECORD_SIZE > length) {
+                return null;
+            }
+            Segment segment = new Segment(file, buffer.getLong(16), capacity, writable, buffer);
+            int count = 0;
+            while (count < capacity && buffer.getInt(segment.offset(count) + MARKER_OFFSET) == RECORD_MAGIC) {
+                if (count % INDEX_INTERVAL == 0) {
+                    segment.index[count / INDEX_INTERVAL] = segment.endTime(count);
+                }
+                segment.maxJobKeyId = Math.max(segment.maxJobKeyId, segment.jobKeyId(count));
+                count++;
+            }
+            segment.count = count;
+            return segment;
+        }
+
+        private static MappedByteBuffer map(File file, FileChannel.MapMode mode, long size) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw");
+            try {
+                // 映射建立后关闭文件不影响映射
+                return raf.getChannel().map(mode, 0, size);
+            } finally {
+                raf.close();
+            }
+        }
+
+        boolean isFull() {
+            return count >= capacity;
+        }
+
+        /**
+         * 读取前获取引用,已解除映射返回false
+         */
+        boolean retain() {
+            while (true) {
+                int n = refs.get();
+                if (n <= 0) {
+                    return false;
+                }
+                if (refs.compareAndSet(n, n + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release() {
+            if (refs.decrementAndGet() == 0) {
+                unmap(buffer);
+            }
+        }
+
+        /**
+         * 存储不再使用该分段,释放存储持有的引用
+         */
+        void retire() {
+            if (retired.compareAndSet(0, 1)) {
+                release();
+            }
+        }
+
+        void append(long endTime, long fireTime, long scheduledFireTime, long runTime, int jobKeyId, int refireCount, int resultCode) {
+            int n = count;
+            int offset = offset(n);
+            buffer.putLong(offset + END_TIME_OFFSET, endTime);
+            buffer.putLong(offset + FIRE_TIME_OFFSET, fireTime);
+            buffer.putLong(offset + SCHEDULED_FIRE_TIME_OFFSET, scheduledFireTime);
+            buffer.putLong(offset + RUN_TIME_OFFSET, runTime);
+            buffer.putInt(offset + JOB_KEY_ID_OFFSET, jobKeyId);
+            buffer.putInt(offset + REFIRE_COUNT_OFFSET, refireCount);
+            buffer.putInt(offset + RESULT_CODE_OFFSET, resultCode);
+            buffer.putInt(offset + MARKER_OFFSET, RECORD_MAGIC);
+            if (n % INDEX_INTERVAL == 0) {
+                index[n / INDEX_INTERVAL] = endTime;
+            }
+            count = n + 1;
+        }
+
+        /**
+         * 通过稀疏索引找到可能包含fromTime的第一条记录
+         */
+        int seek(long fromTime, int count) {
+            int low = 0;
+            int high = (count - 1) / INDEX_INTERVAL;
+            // 找最后一个时间小于fromTime的索引点
+            int found = 0;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (index[mid] < fromTime) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found * INDEX_INTERVAL;
+        }
+
+        long endTime(int i) {
+            return buffer.getLong(offset(i) + END_TIME_OFFSET);
+        }
+
+        int jobKeyId(int i) {
+            return buffer.getInt(offset(i) + JOB_KEY_ID_OFFSET);
+        }
+
+        JobHistoryRecord read(int i, JobKey jobKey) {
+            int offset = offset(i);
+            return new JobHistoryRecord(jobKey,
+                    buffer.getLong(offset + END_TIME_OFFSET),
+                    buffer.getLong(offset + FIRE_TIME_OFFSET),
+                    buffer.getLong(offset + SCHEDULED_FIRE_TIME_OFFSET),
+                    buffer.getLong(offset + RUN_TIME_OFFSET),
+                    buffer.getInt(offset + REFIRE_COUNT_OFFSET),
+                    buffer.getInt(offset + RESULT_CODE_OFFSET));
+        }
+
+        void force() {
+            if (writable) {
+                buffer.force();
+            }
+        }
+
+        private int offset(int i) {
+            return HEADER_SIZE + i * RECORD_SIZE;
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package com.hyr.quartz.plugin;
+
+import java.text.DateFormat;
+import java.text.Format;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/*******************************************************************************
+ * @date 2026-10-17 2:10 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 预编译的日志消息模板
+ *
+ * 兼容java.text.MessageFormat语法,设置模板时解析一次,之后每次渲染不再解析模板。
+ * 渲染写入线程内复用的StringBuilder,日期格式化使用线程内缓存的SimpleDateFormat,
+ * 同一秒内的时间直接复用上一次的格式化结果。参数通过{@link Arguments}按下标读取,不需要构造Object[]。
+ * 支持 {n}、{n,date}、{n,time}(含short/medium/long/full及自定义pattern)、{n,number}、{n,number,integer},
+ * 其余格式(choice、自定义数字格式等)退回到MessageFormat。
+ ******************************************************************************/
+public final class MessageTemplate {
+
+    /**
+     * 渲染参数,按MessageFormat的下标读取
+     */
+    public interface Arguments {
+
+        /**
+         * 参数个数,超出范围的下标原样输出{n}
+         */
+        int size();
+
+        Object get(int index);
+    }
+
+    private final static int MAX_BUILDER_CAPACITY = 8 * 1024;
+
+    private final static ThreadLocal<StringBuilder> BUILDER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    private final String pattern;
+
+    private final Segment[] segments;
+
+    /**
+     * 无法预编译时退回MessageFormat,MessageFormat非线程安全,每个线程一份
+     */
+    private final ThreadLocal<MessageFormat> fallback;
+
+    private MessageTemplate(String pattern, Segment[] segments, ThreadLocal<MessageFormat> fallback) {
+        this.pattern = pattern;
+        this.segments = segments;
+        this.fallback = fallback;
+    }
+
+    /**
+     * 编译模板
+     *
+     * @param pattern java.text.MessageFormat语法的模板
+     * @return
+     * @throws IllegalArgumentException 模板语法错误
+     */
+    public static MessageTemplate compile(final String pattern) {
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        boolean inQuote = false;
+        int length = pattern.length();
+        int i = 0;
+        while (i < length) {
+            char ch = pattern.charAt(i);
+            if (ch == '\'') {
+                if (i + 1 < length && pattern.charAt(i + 1) == '\'') {
+                    literal.append('\'');
+                    i += 2;
+                } else {
+                    inQuote = !inQuote;
+                    i++;
+                }
+                continue;
+            }
+            if (ch == '{' && !inQuote) {
+                int end = findElementEnd(pattern, i + 1);
+                ArgumentSegment argument = parseArgument(pattern.substring(i + 1, end));
+                if (argument == null) {
+                    return compileFallback(pattern);
+                }
+                if (literal.length() > 0) {
+                    segments.add(new LiteralSegment(literal.toString()));
+                    literal.setLength(0);
+                }
+                segments.add(argument);
+                i = end + 1;
+                continue;
+            }
+            literal.append(ch);
+            i++;
+        }
+        if (literal.length() > 0) {
+            segments.add(new LiteralSegment(literal.toString()));
+        }
+        return new MessageTemplate(pattern, segments.toArray(new Segment[segments.size()]), null);
+    }
+
+    private static MessageTemplate compileFallback(final String pattern) {
+        // 提前校验模板
+        new MessageFormat(pattern);
+        ThreadLocal<MessageFormat> fallback = new ThreadLocal<MessageFormat>() {
+            @Override
+            protected MessageFormat initialValue() {
+                return new MessageFormat(pattern);
+            }
+        };
+        return new MessageTemplate(pattern, null, fallback);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * 渲染消息
+     *
+     * @param arguments 参数
+     * @return
+     */
+    public String render(Arguments arguments) {
+        if (segments == null) {
+            Object[] args = new Object[arguments.size()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = arguments.get(i);
+            }
+            return fallback.get().format(args);
+        }
+
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        for (Segment segment : segments) {
+            segment.appendTo(builder, arguments);
+        }
+        String message = builder.toString();
+        if (builder.capacity() > MAX_BUILDER_CAPACITY) {
+            // 避免个别超长消息长期占用内存
+            BUILDER.set(new StringBuilder(256));
+        }
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * 模板解析
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * 查找格式元素的结束'}',元素内的引号和嵌套大括号与MessageFormat一致
+     */
+    private static int findElementEnd(String pattern, int start) {
+        int depth = 1;
+        boolean inQuote = false;
+        for (int i = start; i < pattern.length(); i++) {
+            char ch = pattern.charAt(i);
+            if (ch == '\'') {
+                inQuote = !inQuote;
+            } else if (!inQuote) {
+                if (ch == '{') {
+                    depth++;
+                } else if (ch == '}' && --depth == 0) {
+                    return i;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unmatched braces in the pattern. pattern:" + pattern);
+    }
+
+    /**
+     * 解析{index,type,style},不支持的格式返回null
+     */
+    private static ArgumentSegment parseArgument(String element) {
+        String indexPart = element;
+        String type = "";
+        String style = "";
+        int firstComma = element.indexOf(',');
+        if (firstComma >= 0) {
+            indexPart = element.substring(0, firstComma);
+            String rest = element.substring(firstComma + 1);
+            int secondComma = rest.indexOf(',');
+            if (secondComma >= 0) {
+                type = rest.substring(0, secondComma);
+                style = rest.substring(secondComma + 1);
+            } else {
+                type = rest;
+            }
+        }
+
+        int index;
+        try {
+            index = Integer.parseInt(indexPart.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("can't parse argument number: " + indexPart, e);
+        }
+        if (index < 0) {
+            throw new IllegalArgumentException("negative argument number: " + index);
+        }
+
+        type = type.trim().toLowerCase(Locale.ROOT);
+        if (type.isEmpty()) {
+            return new ArgumentSegment(index, FormatKind.PLAIN, null);
+        }
+        if ("date".equals(type) || "time".equals(type)) {
+            boolean isDate = "date".equals(type);
+            String styleKeyword = style.trim().toLowerCase(Locale.ROOT);
+            if (styleKeyword.isEmpty()) {
+                return new ArgumentSegment(index, isDate ? FormatKind.DATE : FormatKind.TIME, DateFormat.DEFAULT);
+            }
+            int dateStyle = dateStyleOf(styleKeyword);
+            if (dateStyle >= 0) {
+                return new ArgumentSegment(index, isDate ? FormatKind.DATE : FormatKind.TIME, dateStyle);
+            }
+            // 提前校验pattern
+            new SimpleDateFormat(style);
+            return new ArgumentSegment(index, FormatKind.DATE_PATTERN, style);
+        }
+        if ("number".equals(type)) {
+            String styleKeyword = style.trim().toLowerCase(Locale.ROOT);
+            if (styleKeyword.isEmpty()) {
+                return new ArgumentSegment(index, FormatKind.NUMBER, null);
+            }
+            if ("integer".equals(styleKeyword)) {
+                return new ArgumentSegment(index, FormatKind.INTEGER, null);
+            }
+        }
+        return null;
+    }
+
+    private static int dateStyleOf(String keyword) {
+        switch (keyword) {
+            case "short":
+                return DateFormat.SHORT;
+            case "medium":
+                return DateFormat.MEDIUM;
+            case "long":
+                return DateFormat.LONG;
+            case "full":
+                return DateFormat.FULL;
+            default:
+                return -1;
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * 模板片段
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private enum FormatKind {
+        PLAIN, DATE, TIME, DATE_PATTERN, NUMBER, INTEGER
+    }
+
+    private interface Segment {
+        void appendTo(StringBuilder builder, Arguments arguments);
+    }
+
+    private static final class LiteralSegment implements Segment {
+
+        private final String text;
+
+        LiteralSegment(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void appendTo(StringBuilder builder, Arguments arguments) {
+            builder.append(text);
+        }
+    }
+
+    private static final class ArgumentSegment implements Segment {
+
+        private final int index;
+
+        private final FormatKind kind;
+
+        private final Object style;
+
+        /**
+         * 线程内缓存的格式化器,PLAIN类型按参数类型懒加载
+         */
+        private final ThreadLocal<CachedFormats> formats = new ThreadLocal<CachedFormats>() {
+            @Override
+            protected CachedFormats initialValue() {
+                return new CachedFormats();
+            }
+        };
+
+        ArgumentSegment(int index, FormatKind kind, Object style) {
+            this.index = index;
+            this.kind = kind;
+            this.style = style;
+        }
+
+        @Override
+        public void appendTo(StringBuilder builder, Arguments arguments) {
+            if (index >= arguments.size()) {
+                builder.append('{').append(index).append('}');
+                return;
+            }
+            Object arg = arguments.get(index);
+            if (arg == null) {
+                builder.append("null");
+                return;
+            }
+            CachedFormats cached = formats.get();
+            switch (kind) {
+                case PLAIN:
+                    if (arg instanceof String) {
+                        builder.append((String) arg);
+                    } else if (arg instanceof Number) {
+                        builder.append(cached.number(false).format(arg));
+                    } else if (arg instanceof Date) {
+                        builder.append(cached.dateTime().format((Date) arg));
+                    } else {
+                        builder.append(arg.toString());
+                    }
+                    break;
+                case DATE:
+                case TIME:
+                case DATE_PATTERN:
+                    builder.append(cached.date(this).format(arg));
+                    break;
+                case NUMBER:
+                    builder.append(cached.number(false).format(arg));
+                    break;
+                case INTEGER:
+                    builder.append(cached.number(true).format(arg));
+                    break;
+            }
+        }
+
+        Format newDateFormat() {
+            Locale locale = Locale.getDefault();
+            switch (kind) {
+                case DATE:
+                    return DateFormat.getDateInstance((Integer) style, locale);
+                case TIME:
+                    return DateFormat.getTimeInstance((Integer) style, locale);
+                default:
+                    return new SimpleDateFormat((String) style, locale);
+            }
+        }
+
+        boolean isSecondCacheable() {
+            // 不包含毫秒字段时,同一秒内的格式化结果相同
+            return kind != FormatKind.DATE_PATTERN || ((String) style).indexOf('S') < 0;
+        }
+    }
+
+    /**
+     * 单个线程内的格式化器缓存
+     */
+    private static final class CachedFormats {
+
+        private NumberFormat numberFormat;
+
+        private NumberFormat integerFormat;
+
+        private SecondCachedDateFormat dateTimeFormat;
+
+        private SecondCachedDateFormat dateFormat;
+
+        NumberFormat number(boolean integer) {
+            if (integer) {
+                if (integerFormat == null) {
+                    integerFormat = NumberFormat.getIntegerInstance(Locale.getDefault());
+                }
+                return integerFormat;
+            }
+            if (numberFormat == null) {
+                numberFormat = NumberFormat.getInstance(Locale.getDefault());
+            }
+            return numberFormat;
+        }
+
+        SecondCachedDateFormat dateTime() {
+            if (dateTimeFormat == null) {
+                dateTimeFormat = new SecondCachedDateFormat(DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, Locale.getDefault()), true);
+            }
+            return dateTimeFormat;
+        }
+
+        SecondCachedDateFormat date(ArgumentSegment segment) {
+            if (dateFormat == null) {
+                dateFormat = new SecondCachedDateFormat(segment.newDateFormat(), segment.isSecondCacheable());
+            }
+            return dateFormat;
+        }
+    }
+
+    /**
+     * 按秒缓存上一次格式化结果的日期格式化器
+     */
+    private static final class SecondCachedDateFormat {
+
+        private final Format format;
+
+        private final boolean cacheable;
+
+        private long lastSecond = Long.MIN_VALUE;
+
+        private String lastText;
+
+        SecondCachedDateFormat(Format format, boolean cacheable) {
+            this.format = format;
+            this.cacheable = cacheable;
+        }
+
+        String format(Object arg) {
+            if (!cacheable || !(arg instanceof Date)) {
+                return format.format(arg);
+            }
+            long millis = ((Date) arg).getTime();
+            long second = millis / 1000;
+            if (millis < 0 && millis % 1000 != 0) {
+                second--;
+            }
+            if (second != lastSecond || lastText == null) {
+                lastText = format.format(arg);
+                lastSecond = second;
+            }
+            return lastText;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.hyr.quartz.plugin;
+
+import com.hyr.quartz.common.Constant;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.JobListener;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.matchers.EverythingMatcher;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.SchedulerPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/*******************************************************************************
+ * @date 2026-10-17 4:30 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 任务执行历史插件,写入本地二进制分段文件
+ *
+ * 每次执行(包括被否决)追加一条定长记录到{@link JobHistoryStore},用于审计和按时间范围查询,
+ * 不占用数据库写入。工作线程只把记录写入{@link AsyncHistorySink}的环形缓冲区,由其消费线程写入存储,
+ * 滚动分段和刷盘不阻塞任务执行。缓冲区满时默认等待(overflowPolicy=BLOCK),不丢失审计记录。
+ * 可通过quartz配置设置属性,例如:
+ * <pre>
+ * org.quartz.plugin.binaryHistory.class = com.hyr.quartz.plugin.QuartzBinaryJobHistoryPlugin
+ * org.quartz.plugin.binaryHistory.storeDirectory = /data/quartz/history
+ * org.quartz.plugin.binaryHistory.retentionHours = 72
+ * </pre>
+ ******************************************************************************/
+public class QuartzBinaryJobHistoryPlugin implements SchedulerPlugin, JobListener, HistoryEventWriter {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private String name;
+
+    private String storeDirectory = "quartz-history"; // 存储目录
+
+    private int segmentSize = 64 * 1024 * 1024; // 分段文件大小(字节)
+
+    private int retentionHours = 72; // 保留时间(小时),<=0不按时间清理
+
+    private int maxSegments = 0; // 最多保留的分段数,<=0不限制
+
+    private int bufferSize = Constant.HISTORY_SINK_BUFFER_SIZE; // 写入缓冲区大小
+
+    private String overflowPolicy = AsyncHistorySink.OverflowPolicy.BLOCK.name(); // 缓冲区满时DROP丢弃或BLOCK等待
+
+    private JobHistoryStore historyStore;
+
+    private final HistoryEventChannel channel = new HistoryEventChannel();
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constructors.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public QuartzBinaryJobHistoryPlugin() {
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    public String getStoreDirectory() {
+        return storeDirectory;
+    }
+
+    public void setStoreDirectory(String storeDirectory) {
+        this.storeDirectory = storeDirectory;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public int getRetentionHours() {
+        return retentionHours;
+    }
+
+    public void setRetentionHours(int retentionHours) {
+        this.retentionHours = retentionHours;
+    }
+
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    public void setMaxSegments(int maxSegments) {
+        this.maxSegments = maxSegments;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public String getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(String overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * 写入缓冲区,initialize之后可用,可用于flush后再查询
+     */
+    public AsyncHistorySink getHistorySink() {
+        return channel.getSink();
+    }
+
+    /**
+     * 历史存储,initialize之后可用
+     */
+    public JobHistoryStore getHistoryStore() {
+        return historyStore;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * SchedulerPlugin Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public void initialize(String pname, Scheduler scheduler, ClassLoadHelper classLoadHelper)
+            throws SchedulerException {
+        this.name = pname;
+        try {
+            historyStore = new JobHistoryStore(new File(storeDirectory), segmentSize,
+                    TimeUnit.HOURS.toMillis(retentionHours), maxSegments);
+        } catch (IOException e) {
+            throw new SchedulerException("open job history store error. directory:" + storeDirectory, e);
+        }
+        AsyncHistorySink.OverflowPolicy policy;
+        try {
+            policy = AsyncHistorySink.OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            historyStore.close();
+            throw new SchedulerException("invalid overflowPolicy:" + overflowPolicy, e);
+        }
+        channel.setSink(new AsyncHistorySink(pname, bufferSize, policy));
+        scheduler.getListenerManager().addJobListener(this, EverythingMatcher.allJobs());
+        getLog().info("job history store opened. directory:{}, segments:{}", storeDirectory, historyStore.getSegmentCount());
+    }
+
+    public void start() {
+        channel.getSink().start();
+    }
+
+    /**
+     * 等待缓冲区中的记录写入后刷盘并关闭存储,之后的执行不再记录
+     */
+    public void shutdown() {
+        AsyncHistorySink historySink = channel.getSink();
+        if (historySink != null) {
+            historySink.shutdown();
+        }
+        if (historyStore != null) {
+            historyStore.close();
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * JobListener Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public String getName() {
+        return name;
+    }
+
+    public void jobToBeExecuted(JobExecutionContext context) {
+        // 执行完成后记录
+    }
+
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        int resultCode = jobException == null ? JobHistoryRecord.RESULT_SUCCESS : JobHistoryRecord.RESULT_FAILED;
+        append(context, context.getJobRunTime(), resultCode);
+    }
+
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        append(context, 0, JobHistoryRecord.RESULT_VETOED);
+    }
+
+    private void append(JobExecutionContext context, long runTime, int resultCode) {
+        HistoryEvent event = channel.begin();
+        if (event == null) {
+            return;
+        }
+        event.fill(this, 0, context.getTrigger(), context);
+        event.fireTime = timeOf(context.getFireTime());
+        event.scheduledFireTime = timeOf(context.getScheduledFireTime());
+        event.runTime = runTime;
+        event.resultCode = resultCode;
+        channel.commit(event);
+    }
+
+    /**
+     * 在缓冲区的消费线程中写入存储
+     */
+    @Override
+    public void write(HistoryEvent event) {
+        JobKey jobKey = JobKey.jobKey(event.jobName, event.jobGroup);
+        try {
+            historyStore.append(jobKey, event.fireTime, event.scheduledFireTime, event.runTime, event.refireCount, event.resultCode);
+        } catch (IOException e) {
+            getLog().error("append job history error. jobKey:{}", jobKey, e);
+        }
+    }
+
+    private static long timeOf(Date date) {
+        return date == null ? 0 : date.getTime();
+    }
+
+}
@@ -23,13 +23,12 @@ import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
-import org.quartz.Trigger;
 import org.quartz.JobListener;
 import org.quartz.impl.matchers.EverythingMatcher;
 import org.quartz.spi.ClassLoadHelper;
 import org.quartz.spi.SchedulerPlugin;
 
-import java.text.MessageFormat;
+import java.util.Date;
 
 /**
  * Logs a history of all job executions (and execution vetos) via the
@@ -270,7 +269,7 @@ import java.text.MessageFormat;
  *
  * @Description: 对Quartz默认插件的扩充
  */
-public class QuartzLoggingJobHistoryPlugin implements SchedulerPlugin, JobListener {
+public class QuartzLoggingJobHistoryPlugin implements SchedulerPlugin, JobListener, HistoryEventWriter {
 
     @SuppressWarnings("WeakerAccess")
     public final static int LOG_TRACE = 0;
@@ -287,6 +286,16 @@ public class QuartzLoggingJobHistoryPlugin implements SchedulerPlugin, JobListen
     @SuppressWarnings("WeakerAccess")
     public final static int LOG_ERROR = 40;
 
+    // 历史事件类型
+
+    private final static int JOB_TO_BE_FIRED = 1;
+
+    private final static int JOB_SUCCESS = 2;
+
+    private final static int JOB_FAILED = 3;
+
+    private final static int JOB_WAS_VETOED = 4;
+
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
      *
@@ -305,6 +314,28 @@ public class QuartzLoggingJobHistoryPlugin implements SchedulerPlugin, JobListen
 
     private String jobWasVetoedMessage = "Job {1}.{0} was vetoed.  It was to be fired (by trigger {4}.{3}) at: {2, date, HH:mm:ss MM/dd/yyyy}";
 
+    // 预编译的消息模板,设置消息时重新编译
+
+    private MessageTemplate jobToBeFiredTemplate = MessageTemplate.compile(jobToBeFiredMessage);
+
+    private MessageTemplate jobSuccessTemplate = MessageTemplate.compile(jobSuccessMessage);
+
+    private MessageTemplate jobFailedTemplate = MessageTemplate.compile(jobFailedMessage);
+
+    private MessageTemplate jobWasVetoedTemplate = MessageTemplate.compile(jobWasVetoedMessage);
+
+    /**
+     * 线程内复用的消息参数
+     */
+    private final ThreadLocal<JobEventArguments> messageArguments = new ThreadLocal<JobEventArguments>() {
+        @Override
+        protected JobEventArguments initialValue() {
+            return new JobEventArguments();
+        }
+    };
+
+    private final HistoryEventChannel channel = new HistoryEventChannel();
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private int log_level = LOG_INFO; // 日志打印级别
@@ -317,6 +348,19 @@ public class QuartzLoggingJobHistoryPlugin implements SchedulerPlugin, JobListen
         this.log_level = log_level;
     }
 
+    public AsyncHistorySink getHistorySink() {
+        return channel.getSink();
+    }
+
+    /**
+     * 设置异步输出,为null时在工作线程中同步输出
+     *
+     * @param historySink
+     */
+    public void setHistorySink(AsyncHistorySink historySink) {
+        channel.setSink(historySink);
+    }
+
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
      *
@@ -370,6 +414,7 @@ public class QuartzLoggingJobHistoryPlugin implements SchedulerPlugin, JobListen
      * @param jobSuccessMessage String in java.text.MessageFormat syntax.
      */
     public void setJobSuccessMessage(String jobSuccessMessage) {
+        this.jobSuccessTemplate = MessageTemplate.compile(jobSuccessMessage);
         this.jobSuccessMessage = jobSuccessMessage;
     }
 
@@ -380,6 +425,7 @@ public class QuartzLoggingJobHistoryPlugin implements SchedulerPlugin, JobListen
      * @param jobFailedMessage String in java.text.MessageFormat syntax.
      */
     public void setJobFailedMessage(String jobFailedMessage) {
+        this.jobFailedTemplate = MessageTemplate.compile(jobFailedMessage);
         this.jobFailedMessage = jobFailedMessage;
     }
 
@@ -389,6 +435,7 @@ public class QuartzLoggingJobHistoryPlugin implements SchedulerPlugin, JobListen
      * @param jobToBeFiredMessage String in java.text.MessageFormat syntax.
      */
     public void setJobToBeFiredMessage(String jobToBeFiredMessage) {
+        this.jobToBeFiredTemplate = MessageTemplate.compile(jobToBeFiredMessage);
         this.jobToBeFiredMessage = jobToBeFiredMessage;
     }
 
@@ -407,6 +454,7 @@ public class QuartzLoggingJobHistoryPlugin implements SchedulerPlugin, JobListen
      * @param jobWasVetoedMessage String in java.text.MessageFormat syntax.
      */
     public void setJobWasVetoedMessage(String jobWasVetoedMessage) {
+        this.jobWasVetoedTemplate = MessageTemplate.compile(jobWasVetoedMessage);
         this.jobWasVetoedMessage = jobWasVetoedMessage;
     }
 
@@ -442,9 +490,13 @@ public class QuartzLoggingJobHistoryPlugin implements SchedulerPlugin, JobListen
      * should free up all of it's resources because the scheduler is shutting
      * down.
      * </p>
+     * 配置了{@link AsyncHistorySink}时停止并等待缓冲区中的事件输出完成,与同一个输出共用的插件重复调用无影响。
      */
     public void shutdown() {
-        // nothing to do...
+        AsyncHistorySink historySink = channel.getSink();
+        if (historySink != null) {
+            historySink.shutdown();
+        }
     }
 
     /*
@@ -475,17 +527,7 @@ public class QuartzLoggingJobHistoryPlugin implements SchedulerPlugin, JobListen
             return;
         }
 
-        Trigger trigger = context.getTrigger();
-
-        Object[] args = {
-                context.getJobDetail().getKey().getName(),
-                context.getJobDetail().getKey().getGroup(), new java.util.Date(),
-                trigger.getKey().getName(), trigger.getKey().getGroup(),
-                trigger.getPreviousFireTime(), trigger.getNextFireTime(),
-                Integer.valueOf(context.getRefireCount())
-        };
-
-        logging(MessageFormat.format(getJobToBeFiredMessage(), args));
+        publish(JOB_TO_BE_FIRED, context, null, null);
     }
 
     /**
@@ -494,42 +536,18 @@ public class QuartzLoggingJobHistoryPlugin implements SchedulerPlugin, JobListen
     public void jobWasExecuted(JobExecutionContext context,
                                JobExecutionException jobException) {
 
-        Trigger trigger = context.getTrigger();
-
-        Object[] args = null;
-
         if (jobException != null) {
             if (!getLog().isErrorEnabled()) {
                 return;
             }
 
-            String errMsg = jobException.getMessage();
-            args =
-                    new Object[]{
-                            context.getJobDetail().getKey().getName(),
-                            context.getJobDetail().getKey().getGroup(), new java.util.Date(),
-                            trigger.getKey().getName(), trigger.getKey().getGroup(),
-                            trigger.getPreviousFireTime(), trigger.getNextFireTime(),
-                            Integer.valueOf(context.getRefireCount()), errMsg
-                    };
-
-            getLog().error(MessageFormat.format(getJobFailedMessage(), args), jobException);
+            publish(JOB_FAILED, context, jobException.getMessage(), jobException);
         } else {
             if (isLogLevelUnabled()) {
                 return;
             }
 
-            String result = String.valueOf(context.getResult());
-            args =
-                    new Object[]{
-                            context.getJobDetail().getKey().getName(),
-                            context.getJobDetail().getKey().getGroup(), new java.util.Date(),
-                            trigger.getKey().getName(), trigger.getKey().getGroup(),
-                            trigger.getPreviousFireTime(), trigger.getNextFireTime(),
-                            Integer.valueOf(context.getRefireCount()), result
-                    };
-
-            logging(MessageFormat.format(getJobSuccessMessage(), args));
+            publish(JOB_SUCCESS, context, String.valueOf(context.getResult()), null);
         }
     }
 
@@ -542,17 +560,67 @@ public class QuartzLoggingJobHistoryPlugin implements SchedulerPlugin, JobListen
             return;
         }
 
-        Trigger trigger = context.getTrigger();
+        publish(JOB_WAS_VETOED, context, null, null);
+    }
 
-        Object[] args = {
-                context.getJobDetail().getKey().getName(),
-                context.getJobDetail().getKey().getGroup(), new java.util.Date(),
-                trigger.getKey().getName(), trigger.getKey().getGroup(),
-                trigger.getPreviousFireTime(), trigger.getNextFireTime(),
-                Integer.valueOf(context.getRefireCount())
-        };
+    /**
+     * 发布历史事件,异步模式下由消费线程调用{@link #write(HistoryEvent)}输出
+     *
+     * @param type      事件类型
+     * @param context   任务上下文
+     * @param report    下标8的参数,执行结果或异常信息
+     * @param throwable 任务异常
+     */
+    private void publish(int type, JobExecutionContext context, String report, Throwable throwable) {
+        HistoryEvent event = channel.begin();
+        if (event == null) {
+            return;
+        }
+        event.fill(this, type, context.getTrigger(), context);
+        event.report = report;
+        event.throwable = throwable;
+        channel.commit(event);
+    }
+
+    /**
+     * 格式化并输出历史事件
+     *
+     * @param event
+     */
+    @Override
+    public void write(HistoryEvent event) {
+        switch (event.type) {
+            case JOB_TO_BE_FIRED:
+                logging(render(jobToBeFiredTemplate, event, 8));
+                break;
+            case JOB_SUCCESS:
+                logging(render(jobSuccessTemplate, event, 9));
+                break;
+            case JOB_FAILED:
+                getLog().error(render(jobFailedTemplate, event, 9), event.throwable);
+                break;
+            case JOB_WAS_VETOED:
+                logging(render(jobWasVetoedTemplate, event, 8));
+                break;
+        }
+    }
 
-        logging(MessageFormat.format(getJobWasVetoedMessage(), args));
+    /**
+     * 渲染消息,参数下标与MessageFormat模板说明一致
+     *
+     * @param template 消息模板
+     * @param event    历史事件
+     * @param size     参数个数
+     * @return
+     */
+    private String render(MessageTemplate template, HistoryEvent event, int size) {
+        JobEventArguments arguments = messageArguments.get();
+        arguments.reset(event, size);
+        try {
+            return template.render(arguments);
+        } finally {
+            arguments.reset(null, 0);
+        }
     }
 
     /**
@@ -602,6 +670,58 @@ public class QuartzLoggingJobHistoryPlugin implements SchedulerPlugin, JobListen
         }
     }
 
+    /**
+     * 任务消息参数,按下标从HistoryEvent中读取,时间写入复用的Date,不构造Object[]
+     */
+    private static final class JobEventArguments implements MessageTemplate.Arguments {
+
+        private final Date now = new Date();
+
+        private final Date previousFireTime = new Date();
+
+        private final Date nextFireTime = new Date();
+
+        private HistoryEvent event;
+
+        private int size;
+
+        void reset(HistoryEvent event, int size) {
+            this.event = event;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Object get(int index) {
+            switch (index) {
+                case 0:
+                    return event.jobName;
+                case 1:
+                    return event.jobGroup;
+                case 2:
+                    return HistoryEvent.toDate(event.timestamp, now);
+                case 3:
+                    return event.triggerName;
+                case 4:
+                    return event.triggerGroup;
+                case 5:
+                    return HistoryEvent.toDate(event.previousFireTime, previousFireTime);
+                case 6:
+                    return HistoryEvent.toDate(event.nextFireTime, nextFireTime);
+                case 7:
+                    return Integer.valueOf(event.refireCount);
+                case 8:
+                    return event.report;
+                default:
+                    return null;
+            }
+        }
+    }
+
 }
 
 // EOF
@@ -17,7 +17,7 @@
 
 package com.hyr.quartz.plugin;
 
-import java.text.MessageFormat;
+import java.util.Date;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -210,7 +210,7 @@ import org.quartz.spi.SchedulerPlugin;
  * @Description: 对Quartz默认插件的扩充
  */
 public class QuartzLoggingTriggerHistoryPlugin implements SchedulerPlugin,
-        TriggerListener {
+        TriggerListener, HistoryEventWriter {
 
     @SuppressWarnings("WeakerAccess")
     public final static int LOG_TRACE = 0;
@@ -227,6 +227,14 @@ public class QuartzLoggingTriggerHistoryPlugin implements SchedulerPlugin,
     @SuppressWarnings("WeakerAccess")
     public final static int LOG_ERROR = 40;
 
+    // 历史事件类型
+
+    private final static int TRIGGER_FIRED = 1;
+
+    private final static int TRIGGER_MISFIRED = 2;
+
+    private final static int TRIGGER_COMPLETE = 3;
+
 
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
@@ -244,6 +252,26 @@ public class QuartzLoggingTriggerHistoryPlugin implements SchedulerPlugin,
 
     private String triggerCompleteMessage = "Trigger {1}.{0} completed firing job {6}.{5} at {4, date, HH:mm:ss MM/dd/yyyy} with resulting trigger instruction code: {9}";
 
+    // 预编译的消息模板,设置消息时重新编译
+
+    private MessageTemplate triggerFiredTemplate = MessageTemplate.compile(triggerFiredMessage);
+
+    private MessageTemplate triggerMisfiredTemplate = MessageTemplate.compile(triggerMisfiredMessage);
+
+    private MessageTemplate triggerCompleteTemplate = MessageTemplate.compile(triggerCompleteMessage);
+
+    /**
+     * 线程内复用的消息参数
+     */
+    private final ThreadLocal<TriggerEventArguments> messageArguments = new ThreadLocal<TriggerEventArguments>() {
+        @Override
+        protected TriggerEventArguments initialValue() {
+            return new TriggerEventArguments();
+        }
+    };
+
+    private final HistoryEventChannel channel = new HistoryEventChannel();
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private int log_level = LOG_INFO; // 日志打印级别
@@ -255,6 +283,19 @@ public class QuartzLoggingTriggerHistoryPlugin implements SchedulerPlugin,
     public void setLog_level(int log_level) {
         this.log_level = log_level;
     }
+
+    public AsyncHistorySink getHistorySink() {
+        return channel.getSink();
+    }
+
+    /**
+     * 设置异步输出,为null时在工作线程中同步输出
+     *
+     * @param historySink
+     */
+    public void setHistorySink(AsyncHistorySink historySink) {
+        channel.setSink(historySink);
+    }
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
      *
@@ -313,6 +354,7 @@ public class QuartzLoggingTriggerHistoryPlugin implements SchedulerPlugin,
      * @param triggerCompleteMessage String in java.text.MessageFormat syntax.
      */
     public void setTriggerCompleteMessage(String triggerCompleteMessage) {
+        this.triggerCompleteTemplate = MessageTemplate.compile(triggerCompleteMessage);
         this.triggerCompleteMessage = triggerCompleteMessage;
     }
 
@@ -322,6 +364,7 @@ public class QuartzLoggingTriggerHistoryPlugin implements SchedulerPlugin,
      * @param triggerFiredMessage String in java.text.MessageFormat syntax.
      */
     public void setTriggerFiredMessage(String triggerFiredMessage) {
+        this.triggerFiredTemplate = MessageTemplate.compile(triggerFiredMessage);
         this.triggerFiredMessage = triggerFiredMessage;
     }
 
@@ -331,6 +374,7 @@ public class QuartzLoggingTriggerHistoryPlugin implements SchedulerPlugin,
      * @param triggerMisfiredMessage String in java.text.MessageFormat syntax.
      */
     public void setTriggerMisfiredMessage(String triggerMisfiredMessage) {
+        this.triggerMisfiredTemplate = MessageTemplate.compile(triggerMisfiredMessage);
         this.triggerMisfiredMessage = triggerMisfiredMessage;
     }
 
@@ -366,9 +410,13 @@ public class QuartzLoggingTriggerHistoryPlugin implements SchedulerPlugin,
      * should free up all of it's resources because the scheduler is shutting
      * down.
      * </p>
+     * 配置了{@link AsyncHistorySink}时停止并等待缓冲区中的事件输出完成,与同一个输出共用的插件重复调用无影响。
      */
     public void shutdown() {
-        // nothing to do...
+        AsyncHistorySink historySink = channel.getSink();
+        if (historySink != null) {
+            historySink.shutdown();
+        }
     }
 
     /*
@@ -396,15 +444,7 @@ public class QuartzLoggingTriggerHistoryPlugin implements SchedulerPlugin,
             return;
         }
 
-        Object[] args = {
-                trigger.getKey().getName(), trigger.getKey().getGroup(),
-                trigger.getPreviousFireTime(), trigger.getNextFireTime(),
-                new java.util.Date(), context.getJobDetail().getKey().getName(),
-                context.getJobDetail().getKey().getGroup(),
-                Integer.valueOf(context.getRefireCount())
-        };
-
-        logging(MessageFormat.format(getTriggerFiredMessage(), args));
+        publish(TRIGGER_FIRED, trigger, context, null, null);
     }
 
     public void triggerMisfired(Trigger trigger) {
@@ -412,14 +452,7 @@ public class QuartzLoggingTriggerHistoryPlugin implements SchedulerPlugin,
             return;
         }
 
-        Object[] args = {
-                trigger.getKey().getName(), trigger.getKey().getGroup(),
-                trigger.getPreviousFireTime(), trigger.getNextFireTime(),
-                new java.util.Date(), trigger.getJobKey().getName(),
-                trigger.getJobKey().getGroup()
-        };
-
-        logging(MessageFormat.format(getTriggerMisfiredMessage(), args));
+        publish(TRIGGER_MISFIRED, trigger, null, null, null);
     }
 
     public void triggerComplete(Trigger trigger, JobExecutionContext context,
@@ -441,16 +474,65 @@ public class QuartzLoggingTriggerHistoryPlugin implements SchedulerPlugin,
             instrCode = "SET THIS TRIGGER COMPLETE";
         }
 
-        Object[] args = {
-                trigger.getKey().getName(), trigger.getKey().getGroup(),
-                trigger.getPreviousFireTime(), trigger.getNextFireTime(),
-                new java.util.Date(), context.getJobDetail().getKey().getName(),
-                context.getJobDetail().getKey().getGroup(),
-                Integer.valueOf(context.getRefireCount()),
-                triggerInstructionCode.toString(), instrCode
-        };
+        publish(TRIGGER_COMPLETE, trigger, context, triggerInstructionCode.toString(), instrCode);
+    }
+
+    /**
+     * 发布历史事件,异步模式下由消费线程调用{@link #write(HistoryEvent)}输出
+     *
+     * @param type            事件类型
+     * @param trigger         触发器
+     * @param context         任务上下文,misfire时为null
+     * @param instruction     下标8的参数,触发器完成指令
+     * @param instructionDesc 下标9的参数,触发器完成指令说明
+     */
+    private void publish(int type, Trigger trigger, JobExecutionContext context, String instruction, String instructionDesc) {
+        HistoryEvent event = channel.begin();
+        if (event == null) {
+            return;
+        }
+        event.fill(this, type, trigger, context);
+        event.report = instruction;
+        event.reportDetail = instructionDesc;
+        channel.commit(event);
+    }
+
+    /**
+     * 格式化并输出历史事件
+     *
+     * @param event
+     */
+    @Override
+    public void write(HistoryEvent event) {
+        switch (event.type) {
+            case TRIGGER_FIRED:
+                logging(render(triggerFiredTemplate, event, 8));
+                break;
+            case TRIGGER_MISFIRED:
+                logging(render(triggerMisfiredTemplate, event, 7));
+                break;
+            case TRIGGER_COMPLETE:
+                logging(render(triggerCompleteTemplate, event, 10));
+                break;
+        }
+    }
 
-        logging(MessageFormat.format(getTriggerCompleteMessage(), args));
+    /**
+     * 渲染消息,参数下标与MessageFormat模板说明一致
+     *
+     * @param template 消息模板
+     * @param event    历史事件
+     * @param size     参数个数
+     * @return
+     */
+    private String render(MessageTemplate template, HistoryEvent event, int size) {
+        TriggerEventArguments arguments = messageArguments.get();
+        arguments.reset(event, size);
+        try {
+            return template.render(arguments);
+        } finally {
+            arguments.reset(null, 0);
+        }
     }
 
     public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
@@ -504,4 +586,58 @@ public class QuartzLoggingTriggerHistoryPlugin implements SchedulerPlugin,
         }
     }
 
+    /**
+     * 触发器消息参数,按下标从HistoryEvent中读取,时间写入复用的Date,不构造Object[]
+     */
+    private static final class TriggerEventArguments implements MessageTemplate.Arguments {
+
+        private final Date now = new Date();
+
+        private final Date previousFireTime = new Date();
+
+        private final Date nextFireTime = new Date();
+
+        private HistoryEvent event;
+
+        private int size;
+
+        void reset(HistoryEvent event, int size) {
+            this.event = event;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Object get(int index) {
+            switch (index) {
+                case 0:
+                    return event.triggerName;
+                case 1:
+                    return event.triggerGroup;
+                case 2:
+                    return HistoryEvent.toDate(event.previousFireTime, previousFireTime);
+                case 3:
+                    return HistoryEvent.toDate(event.nextFireTime, nextFireTime);
+                case 4:
+                    return HistoryEvent.toDate(event.timestamp, now);
+                case 5:
+                    return event.jobName;
+                case 6:
+                    return event.jobGroup;
+                case 7:
+                    return Integer.valueOf(event.refireCount);
+                case 8:
+                    return event.report;
+                case 9:
+                    return event.reportDetail;
+                default:
+                    return null;
+            }
+        }
+    }
+
 }
@@ -0,0 +1,27 @@
+package com.hyr.quartz.threadpool;
+
+import org.quartz.Job;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.simpl.PropertySettingJobFactory;
+import org.quartz.spi.TriggerFiredBundle;
+
+/*******************************************************************************
+ * @date 2026-10-17 5:40 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 为{@link GroupBulkheadThreadPool}登记任务组的JobFactory
+ *
+ * QuartzSchedulerThread在调度线程中先创建任务实例,紧接着把JobRunShell交给线程池。
+ * 这里在创建任务实例时登记任务组,线程池在runInThread中取出,按组选择分区。其余行为与PropertySettingJobFactory相同。
+ *
+ * 配置:
+ * org.quartz.scheduler.jobFactory.class = com.hyr.quartz.threadpool.GroupBulkheadJobFactory
+ ******************************************************************************/
+public class GroupBulkheadJobFactory extends PropertySettingJobFactory {
+
+    @Override
+    public Job newJob(TriggerFiredBundle bundle, Scheduler scheduler) throws SchedulerException {
+        GroupBulkheadThreadPool.bindGroup(bundle);
+        return super.newJob(bundle, scheduler);
+    }
+}
@@ -0,0 +1,710 @@
+package com.hyr.quartz.threadpool;
+
+import com.hyr.quartz.common.Constant;
+import org.quartz.SchedulerConfigException;
+import org.quartz.core.JobRunShell;
+import org.quartz.spi.ThreadPool;
+import org.quartz.spi.TriggerFiredBundle;
+import org.quartz.utils.Key;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*******************************************************************************
+ * @date 2026-10-17 5:40 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 按任务组隔离的工作线程池
+ *
+ * 每个JobKey组一个分区,分区有独占的min个线程,最多可以再从共享的溢出线程中借用到max个。
+ * 某个组的任务阻塞时最多占满自己的max,其他组仍有独占线程和剩余的溢出线程可用,不会一起misfire。
+ *
+ * 分区已满时任务进入分区队列,不阻塞调度线程,分区有任务结束时按顺序执行。队列有上限(groupQueueCapacity),
+ * 某个分区的队列满说明该组持续阻塞,此时{@link #blockForAvailableThreads()}不再报告空闲线程,调度线程停止取触发器,
+ * 未取出的触发器留在JobStore中按misfire规则处理,不会在内存中无限堆积;同一批中仍属于该组的任务在runInThread中等待分区空出。
+ * 未配置的组按默认上限(min=0,max=defaultGroupMaxThreads)创建分区,只使用溢出线程。
+ * {@link #getPartitionStats()}提供每个分区的运行数、队列深度和饱和次数。
+ *
+ * ThreadPool接口只传入Runnable,任务组由{@link GroupBulkheadJobFactory}在创建任务实例时登记,
+ * 需要同时配置该JobFactory(或在自定义JobFactory中调用{@link #bindGroup(TriggerFiredBundle)}),否则所有任务归入默认组。
+ *
+ * 配置:
+ * <pre>
+ * org.quartz.threadPool.class = com.hyr.quartz.threadpool.GroupBulkheadThreadPool
+ * # 共享溢出线程数
+ * org.quartz.threadPool.threadCount = 10
+ * # 分区配置 组名:min:max,多个用逗号分隔
+ * org.quartz.threadPool.groupLimits = report:2:6,sync:1:3
+ * # 未配置组的最大线程数,默认等于threadCount
+ * org.quartz.threadPool.defaultGroupMaxThreads = 5
+ * # 每个分区的队列上限
+ * org.quartz.threadPool.groupQueueCapacity = 10
+ * # 关闭时等待队列执行完的最长时间
+ * org.quartz.threadPool.shutdownDrainTimeoutMillis = 30000
+ * org.quartz.scheduler.jobFactory.class = com.hyr.quartz.threadpool.GroupBulkheadJobFactory
+ * </pre>
+ ******************************************************************************/
+public class GroupBulkheadThreadPool implements ThreadPool {
+
+    private final static Logger log = LoggerFactory.getLogger(GroupBulkheadThreadPool.class);
+
+    /**
+     * 调度线程上即将提交的任务的组。QuartzSchedulerThread在同一线程中先创建任务实例再调用runInThread。
+     */
+    private final static ThreadLocal<String> NEXT_GROUP = new ThreadLocal<>();
+
+    private int threadCount = -1; // 共享溢出线程数
+
+    private int threadPriority = Thread.NORM_PRIORITY;
+
+    private String threadNamePrefix;
+
+    private String groupLimits;
+
+    private int defaultGroupMaxThreads = -1;
+
+    private int groupQueueCapacity = Constant.GROUP_BULKHEAD_QUEUE_CAPACITY;
+
+    private long shutdownDrainTimeoutMillis = Constant.GROUP_BULKHEAD_SHUTDOWN_DRAIN_MILLIS;
+
+    private volatile boolean unboundWarned = false;
+
+    private String schedulerInstanceName;
+
+    /*
+     * 以下状态都由lock保护
+     */
+
+    private final Object lock = new Object();
+
+    private final Map<String, Partition> partitions = new LinkedHashMap<>();
+
+    private int overflowInUse; // 已借出的溢出线程数
+
+    private int reservedIdle; // 所有分区空闲的独占线程数
+
+    private int queuedCount; // 所有分区排队的任务数
+
+    private int fullQueues; // 队列已满的分区数
+
+    private boolean isShutdown = false;
+
+    private ExecutorService executor;
+
+    public GroupBulkheadThreadPool() {
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * 共享溢出线程数
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public int getThreadPriority() {
+        return threadPriority;
+    }
+
+    public void setThreadPriority(int threadPriority) {
+        this.threadPriority = threadPriority;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public void setThreadNamePrefix(String threadNamePrefix) {
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    public String getGroupLimits() {
+        return groupLimits;
+    }
+
+    /**
+     * 分区配置,格式 组名:min:max,多个用逗号分隔
+     */
+    public void setGroupLimits(String groupLimits) {
+        this.groupLimits = groupLimits;
+    }
+
+    public int getDefaultGroupMaxThreads() {
+        return defaultGroupMaxThreads;
+    }
+
+    public void setDefaultGroupMaxThreads(int defaultGroupMaxThreads) {
+        this.defaultGroupMaxThreads = defaultGroupMaxThreads;
+    }
+
+    public int getGroupQueueCapacity() {
+        return groupQueueCapacity;
+    }
+
+    /**
+     * 每个分区的队列上限
+     */
+    public void setGroupQueueCapacity(int groupQueueCapacity) {
+        this.groupQueueCapacity = groupQueueCapacity;
+    }
+
+    public long getShutdownDrainTimeoutMillis() {
+        return shutdownDrainTimeoutMillis;
+    }
+
+    /**
+     * shutdown(true)时等待队列按分区上限执行完的最长时间,超时后剩余任务不受分区上限直接执行
+     */
+    public void setShutdownDrainTimeoutMillis(long shutdownDrainTimeoutMillis) {
+        this.shutdownDrainTimeoutMillis = shutdownDrainTimeoutMillis;
+    }
+
+    /**
+     * 登记当前线程下一个提交的任务所属的组,由JobFactory在调度线程中创建任务实例时调用
+     */
+    public static void bindGroup(TriggerFiredBundle bundle) {
+        if (bundle != null && bundle.getJobDetail() != null) {
+            NEXT_GROUP.set(bundle.getJobDetail().getKey().getGroup());
+        }
+    }
+
+    /**
+     * 设置分区上限,需要在initialize之前调用
+     *
+     * @param group 任务组
+     * @param min   独占线程数
+     * @param max   最大线程数,超过min的部分从溢出线程中借用
+     */
+    public void setGroupLimit(String group, int min, int max) {
+        synchronized (lock) {
+            if (executor != null) {
+                throw new IllegalStateException("thread pool already initialized.");
+            }
+            partitions.put(group, new Partition(group, min, max));
+        }
+    }
+
+    /**
+     * 已借出的溢出线程数
+     */
+    public int getOverflowInUse() {
+        synchronized (lock) {
+            return overflowInUse;
+        }
+    }
+
+    /**
+     * 所有分区的统计快照
+     */
+    public Map<String, PartitionStat> getPartitionStats() {
+        synchronized (lock) {
+            Map<String, PartitionStat> stats = new LinkedHashMap<>(partitions.size() * 4 / 3 + 1);
+            for (Partition partition : partitions.values()) {
+                stats.put(partition.group, partition.stat());
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * 单个分区的统计快照,分区不存在返回null
+     */
+    public PartitionStat getPartitionStat(String group) {
+        synchronized (lock) {
+            Partition partition = partitions.get(group);
+            return partition == null ? null : partition.stat();
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * ThreadPool Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    @Override
+    public void initialize() throws SchedulerConfigException {
+        synchronized (lock) {
+            if (executor != null) {
+                return;
+            }
+            if (threadCount < 0) {
+                throw new SchedulerConfigException("Thread count must be >= 0");
+            }
+            if (threadPriority < Thread.MIN_PRIORITY || threadPriority > Thread.MAX_PRIORITY) {
+                throw new SchedulerConfigException("Thread priority must be >= 1 and <= 10");
+            }
+            if (groupQueueCapacity < 0) {
+                throw new SchedulerConfigException("Group queue capacity must be >= 0");
+            }
+            if (defaultGroupMaxThreads < 0) {
+                defaultGroupMaxThreads = threadCount;
+            }
+            if (threadNamePrefix == null) {
+                threadNamePrefix = schedulerInstanceName + "_Worker";
+            }
+            parseGroupLimits();
+            for (Partition partition : partitions.values()) {
+                if (partition.min < 0 || partition.max < partition.min || partition.max <= 0) {
+                    throw new SchedulerConfigException("invalid group limit. group:" + partition.group + ", min:" + partition.min + ", max:" + partition.max);
+                }
+                reservedIdle += partition.min;
+            }
+            if (threadCount + reservedIdle <= 0) {
+                throw new SchedulerConfigException("Thread count must be > 0");
+            }
+            executor = newExecutor(threadNamePrefix + "-", threadPriority);
+            log.info("group bulkhead thread pool initialized. overflowThreadCount:{}, partitions:{}", threadCount, partitions.keySet());
+        }
+    }
+
+    /**
+     * 阻塞直到有空闲线程(独占或溢出),返回空闲线程数。有分区队列已满时视为没有空闲线程。
+     */
+    @Override
+    public int blockForAvailableThreads() {
+        synchronized (lock) {
+            while (available() < 1 && !isShutdown) {
+                try {
+                    lock.wait(500);
+                } catch (InterruptedException ignore) {
+                }
+            }
+            return available();
+        }
+    }
+
+    /**
+     * 分区有空闲线程时立即执行,否则进入分区队列。分区队列已满时阻塞到分区有任务结束,与SimpleThreadPool没有空闲线程时一致。
+     * 不返回false,返回false时QuartzSchedulerThread会把任务的所有触发器置为ERROR。
+     */
+    @Override
+    public boolean runInThread(Runnable runnable) {
+        if (runnable == null) {
+            return false;
+        }
+        String group = groupOf(runnable);
+        Task task;
+        synchronized (lock) {
+            if (isShutdown) {
+                return runLastJob(runnable);
+            }
+            Partition partition = getOrCreatePartition(group);
+            task = new Task(partition, runnable);
+            boolean blocked = false;
+            while (!tryAcquire(task)) {
+                if (partition.queue.size() < groupQueueCapacity) {
+                    partition.queue.addLast(task);
+                    partition.saturatedCount++;
+                    queuedCount++;
+                    if (partition.queue.size() == groupQueueCapacity) {
+                        fullQueues++;
+                        log.warn("group {} queue is full, running:{} queued:{}. stop acquiring triggers until it drains.", partition.group, partition.running, partition.queue.size());
+                    }
+                    return true;
+                }
+                if (!blocked) {
+                    blocked = true;
+                    partition.blockedCount++;
+                    log.warn("group {} is saturated, running:{} queued:{}. scheduler thread waits for it.", partition.group, partition.running, partition.queue.size());
+                }
+                try {
+                    lock.wait(500);
+                } catch (InterruptedException ignore) {
+                }
+                if (isShutdown) {
+                    return runLastJob(runnable);
+                }
+            }
+        }
+        dispatch(task);
+        return true;
+    }
+
+    @Override
+    public int getPoolSize() {
+        synchronized (lock) {
+            int size = threadCount;
+            for (Partition partition : partitions.values()) {
+                size += partition.min;
+            }
+            return size;
+        }
+    }
+
+    /**
+     * 队列中的任务已经从JobStore中取出,关闭时仍然执行。
+     * 等待任务完成时按分区上限继续执行队列,否则不再限制并发立即全部执行。
+     */
+    @Override
+    public void shutdown(boolean waitForJobsToComplete) {
+        List<Task> pending = new ArrayList<>();
+        synchronized (lock) {
+            if (isShutdown) {
+                return;
+            }
+            isShutdown = true;
+            lock.notifyAll();
+            if (waitForJobsToComplete) {
+                long deadline = System.currentTimeMillis() + shutdownDrainTimeoutMillis;
+                long remaining;
+                while (queuedCount > 0 && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                    try {
+                        lock.wait(Math.min(500, remaining));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                if (queuedCount > 0) {
+                    log.warn("{} queued jobs not started within {}ms, run them without group limits.", queuedCount, shutdownDrainTimeoutMillis);
+                }
+            }
+            for (Partition partition : partitions.values()) {
+                Task task;
+                while ((task = partition.queue.pollFirst()) != null) {
+                    partition.running++;
+                    task.unbounded = true;
+                    pending.add(task);
+                }
+            }
+            queuedCount = 0;
+            fullQueues = 0;
+        }
+        if (executor == null) {
+            return;
+        }
+        for (Task task : pending) {
+            dispatch(task);
+        }
+        executor.shutdown();
+        if (waitForJobsToComplete) {
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    log.debug("waiting for jobs to complete.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.debug("group bulkhead thread pool shutdown complete.");
+    }
+
+    @Override
+    public void setInstanceId(String schedInstId) {
+    }
+
+    @Override
+    public void setInstanceName(String schedName) {
+        this.schedulerInstanceName = schedName;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Partition.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * 空闲的独占和溢出线程数。排队的任务只能使用本分区的线程,分区有空闲时已经取出执行,不会占用这里的线程。
+     * 有分区队列已满时返回0,停止取触发器,避免该组的任务继续在内存中堆积。
+     */
+    private int available() {
+        if (fullQueues > 0) {
+            return 0;
+        }
+        return Math.max(0, threadCount - overflowInUse) + reservedIdle;
+    }
+
+    /**
+     * 优先占用分区独占线程,其次在max范围内借用溢出线程
+     */
+    private boolean tryAcquire(Task task) {
+        Partition partition = task.partition;
+        if (partition.running < partition.min) {
+            partition.running++;
+            reservedIdle--;
+            return true;
+        }
+        if (partition.running < partition.max && overflowInUse < threadCount) {
+            partition.running++;
+            overflowInUse++;
+            task.overflow = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 任务结束,归还线程并取出可以执行的排队任务
+     */
+    private void complete(Task task) {
+        List<Task> next = null;
+        synchronized (lock) {
+            Partition partition = task.partition;
+            partition.running--;
+            partition.executedCount++;
+            if (task.overflow) {
+                overflowInUse--;
+            } else if (!task.unbounded) {
+                reservedIdle++;
+            }
+            if (queuedCount > 0) {
+                // 先本分区,再按顺序给其他分区借出溢出线程
+                next = new ArrayList<>(1);
+                pollQueued(partition, next);
+                for (Partition other : partitions.values()) {
+                    if (overflowInUse >= threadCount) {
+                        break;
+                    }
+                    if (other != partition) {
+                        pollQueued(other, next);
+                    }
+                }
+            }
+            lock.notifyAll();
+        }
+        if (next != null) {
+            for (Task queued : next) {
+                dispatch(queued);
+            }
+        }
+    }
+
+    private void pollQueued(Partition partition, List<Task> next) {
+        Task queued;
+        while ((queued = partition.queue.peekFirst()) != null && tryAcquire(queued)) {
+            if (partition.queue.size() == groupQueueCapacity) {
+                fullQueues--;
+            }
+            partition.queue.pollFirst();
+            queuedCount--;
+            next.add(queued);
+        }
+    }
+
+    private Partition getOrCreatePartition(String group) {
+        Partition partition = partitions.get(group);
+        if (partition == null) {
+            partition = new Partition(group, 0, Math.max(1, defaultGroupMaxThreads));
+            partitions.put(group, partition);
+        }
+        return partition;
+    }
+
+    private void parseGroupLimits() throws SchedulerConfigException {
+        if (groupLimits == null || groupLimits.trim().length() == 0) {
+            return;
+        }
+        for (String limit : groupLimits.split(",")) {
+            limit = limit.trim();
+            if (limit.length() == 0) {
+                continue;
+            }
+            // 组名中可能有冒号,从后往前取min和max
+            int maxIndex = limit.lastIndexOf(':');
+            int minIndex = maxIndex > 0 ? limit.lastIndexOf(':', maxIndex - 1) : -1;
+            if (minIndex <= 0) {
+                throw new SchedulerConfigException("invalid group limit:" + limit + ", expected group:min:max");
+            }
+            try {
+                String group = limit.substring(0, minIndex);
+                int min = Integer.parseInt(limit.substring(minIndex + 1, maxIndex).trim());
+                int max = Integer.parseInt(limit.substring(maxIndex + 1).trim());
+                partitions.put(group, new Partition(group, min, max));
+            } catch (NumberFormatException e) {
+                throw new SchedulerConfigException("invalid group limit:" + limit + ", expected group:min:max", e);
+            }
+        }
+    }
+
+    /**
+     * 取得并清除当前线程登记的任务组,没有登记时归入默认组
+     */
+    private String groupOf(Runnable runnable) {
+        String group = NEXT_GROUP.get();
+        if (group != null) {
+            NEXT_GROUP.remove();
+            return group;
+        }
+        if (runnable instanceof JobRunShell && !unboundWarned) {
+            unboundWarned = true;
+            log.warn("job group is not bound, all jobs use the default group partition. configure org.quartz.scheduler.jobFactory.class = {}",
+                    GroupBulkheadJobFactory.class.getName());
+        }
+        return Key.DEFAULT_GROUP;
+    }
+
+    /**
+     * 提交到执行线程。关闭过程中执行器已停止时在新线程中执行。
+     */
+    private void dispatch(Task task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            runLastJob(task);
+        }
+    }
+
+    private boolean runLastJob(Runnable runnable) {
+        Thread thread = new Thread(runnable, threadNamePrefix + "-LastJob");
+        thread.start();
+        return true;
+    }
+
+    private static ExecutorService newExecutor(final String namePrefix, final int priority) {
+        ThreadFactory factory = new ThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, namePrefix + index.getAndIncrement());
+                thread.setPriority(priority);
+                return thread;
+            }
+        };
+        // 并发由分区限制,线程按需创建,空闲60秒后回收
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), factory);
+    }
+
+    private final class Task implements Runnable {
+
+        final Partition partition;
+
+        final Runnable runnable;
+
+        boolean overflow; // 是否占用溢出线程
+
+        boolean unbounded; // 关闭时不受分区上限直接执行
+
+        Task(Partition partition, Runnable runnable) {
+            this.partition = partition;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            try {
+                runnable.run();
+            } finally {
+                complete(this);
+            }
+        }
+    }
+
+    private static final class Partition {
+
+        final String group;
+
+        final int min;
+
+        final int max;
+
+        int running;
+
+        long saturatedCount;
+
+        long blockedCount;
+
+        long executedCount;
+
+        final ArrayDeque<Task> queue = new ArrayDeque<>();
+
+        Partition(String group, int min, int max) {
+            this.group = group;
+            this.min = min;
+            this.max = max;
+        }
+
+        PartitionStat stat() {
+            return new PartitionStat(group, min, max, running, queue.size(), saturatedCount, blockedCount, executedCount);
+        }
+    }
+
+    /**
+     * 分区统计快照
+     */
+    public static class PartitionStat {
+
+        private final String group;
+        private final int min; // 独占线程数
+        private final int max; // 最大线程数
+        private final int running; // 正在执行的任务数
+        private final int queueDepth; // 排队的任务数
+        private final long saturatedCount; // 分区已满任务进入队列的次数
+        private final long blockedCount; // 分区队列已满调度线程等待的次数
+        private final long executedCount; // 执行完成的任务数
+
+        PartitionStat(String group, int min, int max, int running, int queueDepth, long saturatedCount, long blockedCount, long executedCount) {
+            this.group = group;
+            this.min = min;
+            this.max = max;
+            this.running = running;
+            this.queueDepth = queueDepth;
+            this.saturatedCount = saturatedCount;
+            this.blockedCount = blockedCount;
+            this.executedCount = executedCount;
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public int getMin() {
+            return min;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        public int getRunning() {
+            return running;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public long getSaturatedCount() {
+            return saturatedCount;
+        }
+
+        public long getBlockedCount() {
+            return blockedCount;
+        }
+
+        public long getExecutedCount() {
+            return executedCount;
+        }
+
+        @Override
+        public String toString() {
+            return "PartitionStat{" +
+                    "group='" + group + '\'' +
+                    ", min=" + min +
+                    ", max=" + max +
+                    ", running=" + running +
+                    ", queueDepth=" + queueDepth +
+                    ", saturatedCount=" + saturatedCount +
+                    ", blockedCount=" + blockedCount +
+                    ", executedCount=" + executedCount +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.hyr.quartz.threadpool;
+
+import org.quartz.SchedulerConfigException;
+import org.quartz.spi.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*******************************************************************************
+ * @date 2026-10-17 5:10 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 虚拟线程工作线程池
+ *
+ * 每个任务在一个新的虚拟线程中执行,并发数由信号量限制为threadCount。
+ * IO密集型任务阻塞时不占用平台线程,并发上限可以远大于SimpleThreadPool的线程数。
+ *
+ * blockForAvailableThreads在没有空闲许可时阻塞,调度线程不会取出超过并发上限的触发器,保持背压。
+ * 运行环境不支持虚拟线程(JDK 21以下)时退化为按需创建的平台线程,并发上限不变。
+ *
+ * 配置:
+ * <pre>
+ * org.quartz.threadPool.class = com.hyr.quartz.threadpool.VirtualThreadPool
+ * org.quartz.threadPool.threadCount = 500
+ * org.quartz.threadPool.threadNamePrefix = quartz-vt
+ * </pre>
+ ******************************************************************************/
+public class VirtualThreadPool implements ThreadPool {
+
+    private final static Logger log = LoggerFactory.getLogger(VirtualThreadPool.class);
+
+    private int threadCount = -1; // 并发上限
+
+    private int threadPriority = Thread.NORM_PRIORITY; // 只对退化的平台线程生效
+
+    private String threadNamePrefix;
+
+    private String schedulerInstanceName;
+
+    private Semaphore permits;
+
+    /**
+     * 等待空闲许可的锁,任务结束释放许可时唤醒
+     */
+    private final Object availableLock = new Object();
+
+    private ExecutorService executor;
+
+    private boolean virtual;
+
+    private volatile boolean isShutdown = false;
+
+    public VirtualThreadPool() {
+    }
+
+    public VirtualThreadPool(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public int getThreadPriority() {
+        return threadPriority;
+    }
+
+    public void setThreadPriority(int threadPriority) {
+        this.threadPriority = threadPriority;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public void setThreadNamePrefix(String threadNamePrefix) {
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    /**
+     * 是否运行在虚拟线程上,initialize之后有效
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * 正在执行的任务数
+     */
+    public int getActiveCount() {
+        return permits == null ? 0 : threadCount - permits.availablePermits();
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * ThreadPool Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    @Override
+    public void initialize() throws SchedulerConfigException {
+        if (executor != null) {
+            return;
+        }
+        if (threadCount <= 0) {
+            throw new SchedulerConfigException("Thread count must be > 0");
+        }
+        if (threadPriority < Thread.MIN_PRIORITY || threadPriority > Thread.MAX_PRIORITY) {
+            throw new SchedulerConfigException("Thread priority must be >= 1 and <= 10");
+        }
+        if (threadNamePrefix == null) {
+            threadNamePrefix = schedulerInstanceName + "_Worker";
+        }
+        permits = new Semaphore(threadCount);
+
+        executor = newVirtualThreadExecutor(threadNamePrefix + "-");
+        virtual = executor != null;
+        if (executor == null) {
+            executor = newPlatformThreadExecutor(threadNamePrefix + "-", threadPriority);
+        }
+        log.info("virtual thread pool initialized. threadCount:{}, virtual:{}", threadCount, virtual);
+    }
+
+    /**
+     * 阻塞直到有空闲许可,返回空闲许可数。已关闭时立即返回。
+     */
+    @Override
+    public int blockForAvailableThreads() {
+        synchronized (availableLock) {
+            while (permits.availablePermits() < 1 && !isShutdown) {
+                try {
+                    availableLock.wait(500);
+                } catch (InterruptedException ignore) {
+                }
+            }
+            return permits.availablePermits();
+        }
+    }
+
+    /**
+     * 获取许可后在新线程中执行。线程池关闭后不再限制并发,与SimpleThreadPool一致保证任务被执行。
+     */
+    @Override
+    public boolean runInThread(final Runnable runnable) {
+        if (runnable == null) {
+            return false;
+        }
+        if (isShutdown) {
+            return runLastJob(runnable);
+        }
+        permits.acquireUninterruptibly();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        runnable.run();
+                    } finally {
+                        release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release();
+            return runLastJob(runnable);
+        }
+        return true;
+    }
+
+    @Override
+    public int getPoolSize() {
+        return threadCount;
+    }
+
+    @Override
+    public void shutdown(boolean waitForJobsToComplete) {
+        isShutdown = true;
+        synchronized (availableLock) {
+            availableLock.notifyAll();
+        }
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        if (waitForJobsToComplete) {
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    log.debug("waiting for {} jobs to complete.", getActiveCount());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.debug("virtual thread pool shutdown complete.");
+    }
+
+    @Override
+    public void setInstanceId(String schedInstId) {
+    }
+
+    @Override
+    public void setInstanceName(String schedName) {
+        this.schedulerInstanceName = schedName;
+    }
+
+    private void release() {
+        permits.release();
+        synchronized (availableLock) {
+            availableLock.notifyAll();
+        }
+    }
+
+    private boolean runLastJob(Runnable runnable) {
+        Thread thread = new Thread(runnable, threadNamePrefix + "-LastJob");
+        thread.start();
+        return true;
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器,编译和运行都不依赖JDK 21。不支持时返回null。
+     */
+    private static ExecutorService newVirtualThreadExecutor(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+        } catch (Exception e) {
+            // JDK 21以下没有虚拟线程,JDK 19/20未开启预览特性时调用抛出异常
+            log.info("virtual threads are not available, fall back to platform threads. cause:{}", e.toString());
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor(final String namePrefix, final int priority) {
+        ThreadFactory factory = new ThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, namePrefix + index.getAndIncrement());
+                thread.setPriority(priority);
+                return thread;
+            }
+        };
+        // 并发由信号量限制,空闲线程60秒后回收
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), factory);
+    }
+}
@@ -0,0 +1,147 @@
+package com.hyr.quartz.utils;
+
+import org.quartz.Job;
+import org.quartz.JobDataMap;
+import org.quartz.JobKey;
+
+import java.util.concurrent.TimeUnit;
+
+/*******************************************************************************
+ * @date 2026-10-17 10:20 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 批量调度的任务描述
+ *
+ * 参数与{@link QuartzUtils#scheduleWithFixedDelayByCron}、{@link QuartzUtils#scheduleWithFixedDelay}一致,
+ * 交给{@link QuartzUtils#scheduleJobsBatch}统一提交。
+ ******************************************************************************/
+public class JobSpec {
+
+    private final Class<? extends Job> job; // JobClass
+    private final String jobName; // 任务名称
+    private final String groupName; // 组名
+    private final long initialDelay; // 首次延时启动时间
+    private final TimeUnit timeUnit; // 时间单位
+    private final String timer; // cron表达式,为null表示固定间隔任务
+    private final long delay; // 间隔时间
+    private final int repeatCount; // 重复执行次数 -1无限次数 0不执行
+    private final JobDataMap dataMap; // 属性注入,可为null
+
+    private JobSpec(Class<? extends Job> job, String jobName, String groupName, long initialDelay, TimeUnit timeUnit, String timer, long delay, int repeatCount, JobDataMap dataMap) {
+        this.job = job;
+        this.jobName = jobName;
+        this.groupName = groupName;
+        this.initialDelay = initialDelay;
+        this.timeUnit = timeUnit;
+        this.timer = timer;
+        this.delay = delay;
+        this.repeatCount = repeatCount;
+        this.dataMap = dataMap;
+    }
+
+    /**
+     * cron任务
+     *
+     * @param job          JobClass
+     * @param initialDelay 首次延时启动时间
+     * @param timeUnit     时间单位
+     * @param timer        cron表达式
+     * @param jobName      任务名称
+     * @param groupName    组名
+     * @return
+     */
+    public static JobSpec cron(Class<? extends Job> job, long initialDelay, TimeUnit timeUnit, String timer, String jobName, String groupName) {
+        return new JobSpec(job, jobName, groupName, initialDelay, timeUnit, timer, 0, 0, null);
+    }
+
+    /**
+     * cron任务,注入属性
+     *
+     * @param dataMap 属性注入 以JavaBean的形式注入，需要该属性名和set方法
+     */
+    public static JobSpec cron(Class<? extends Job> job, long initialDelay, TimeUnit timeUnit, String timer, String jobName, String groupName, JobDataMap dataMap) {
+        return new JobSpec(job, jobName, groupName, initialDelay, timeUnit, timer, 0, 0, dataMap);
+    }
+
+    /**
+     * 固定间隔任务
+     *
+     * @param job          JobClass
+     * @param initialDelay 首次延时启动时间
+     * @param delay        间隔时间
+     * @param timeUnit     时间单位
+     * @param repeatCount  重复执行次数 -1无限次数 0不执行
+     * @param jobName      任务名称
+     * @param groupName    组名
+     * @return
+     */
+    public static JobSpec fixedDelay(Class<? extends Job> job, long initialDelay, long delay, TimeUnit timeUnit, int repeatCount, String jobName, String groupName) {
+        return new JobSpec(job, jobName, groupName, initialDelay, timeUnit, null, delay, repeatCount, null);
+    }
+
+    /**
+     * 固定间隔任务,注入属性
+     *
+     * @param dataMap 属性注入 以JavaBean的形式注入，需要该属性名和set方法
+     */
+    public static JobSpec fixedDelay(Class<? extends Job> job, long initialDelay, long delay, TimeUnit timeUnit, int repeatCount, String jobName, String groupName, JobDataMap dataMap) {
+        return new JobSpec(job, jobName, groupName, initialDelay, timeUnit, null, delay, repeatCount, dataMap);
+    }
+
+    public boolean isCron() {
+        return timer != null;
+    }
+
+    public JobKey getJobKey() {
+        return JobKey.jobKey(jobName, groupName);
+    }
+
+    public Class<? extends Job> getJob() {
+        return job;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    public TimeUnit getTimeUnit() {
+        return timeUnit;
+    }
+
+    public String getTimer() {
+        return timer;
+    }
+
+    public long getDelay() {
+        return delay;
+    }
+
+    public int getRepeatCount() {
+        return repeatCount;
+    }
+
+    public JobDataMap getDataMap() {
+        return dataMap;
+    }
+
+    @Override
+    public String toString() {
+        return "JobSpec{" +
+                "job=" + job +
+                ", jobName='" + jobName + '\'' +
+                ", groupName='" + groupName + '\'' +
+                ", initialDelay=" + initialDelay +
+                ", timeUnit=" + timeUnit +
+                ", timer='" + timer + '\'' +
+                ", delay=" + delay +
+                ", repeatCount=" + repeatCount +
+                '}';
+    }
+}
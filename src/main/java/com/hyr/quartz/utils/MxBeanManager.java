@@ -3,6 +3,8 @@ package com.hyr.quartz.utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.lang.management.*;
 import java.text.MessageFormat;
 
@@ -138,6 +140,47 @@ public class MxBeanManager {
     }
 
 
+    /**
+     * 注册到平台MBeanServer,JConsole等工具中可以查看指标
+     *
+     * @param type 类型,ObjectName中的type
+     * @param name 名称,ObjectName中的name
+     * @param bean 实现了MXBean接口的对象
+     * @return 注册的ObjectName,失败时返回null
+     */
+    public static ObjectName registerMBean(String type, String name, Object bean) {
+        try {
+            ObjectName objectName = new ObjectName("com.hyr.quartz:type=" + type + ",name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                log.warn("mbean already registered. name:{}", objectName);
+                return null;
+            }
+            server.registerMBean(bean, objectName);
+            return objectName;
+        } catch (Exception e) {
+            log.error("register mbean error. type:{} name:{}", type, name, e);
+            return null;
+        }
+    }
+
+    /**
+     * 从平台MBeanServer注销
+     */
+    public static void unregisterMBean(ObjectName objectName) {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            log.error("unregister mbean error. name:{}", objectName, e);
+        }
+    }
+
     public static Logger getLog() {
         return log;
     }
@@ -0,0 +1,203 @@
+package com.hyr.quartz.utils;
+
+import com.hyr.quartz.common.Constant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/*******************************************************************************
+ * @date 2026-10-17 11:50 PM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: quartz配置加载
+ *
+ * 配置文件解析一次后作为只读的基础配置发布,{@link #snapshot()}每次返回它的一份拷贝,
+ * 调用方修改快照不会影响基础配置和其他调用方,并发创建SchedulerFactory时读配置无需加锁。
+ *
+ * 使用外部配置文件({@link Constant#QUARTZ_CONF_ENV_NAME})时,后台线程通过WatchService监听文件变化,
+ * 重新解析后整体替换基础配置。已经创建的SchedulerFactory不受影响,之后获取的快照使用新配置。
+ * 外部配置文件被删除或暂时不存在时保留当前配置,不回退到classpath中的quartz.properties。
+ ******************************************************************************/
+final class QuartzPropertiesLoader {
+
+    private final static Logger log = LoggerFactory.getLogger(QuartzPropertiesLoader.class);
+
+    // 已发布的基础配置,发布后不再修改
+    private volatile static Properties base = null;
+
+    private static WatchService watchService = null;
+
+    // 文件最后一次变化后等待的毫秒数
+    private final static long RELOAD_QUIET_MILLIS = 200L;
+
+    private QuartzPropertiesLoader() {
+    }
+
+    /**
+     * @return 基础配置的拷贝,加载失败时为空配置
+     */
+    static Properties snapshot() {
+        Properties props = base;
+        if (props == null) {
+            synchronized (QuartzPropertiesLoader.class) {
+                props = base;
+                if (props == null) {
+                    props = load(externalFile());
+                    if (props == null) {
+                        return new Properties();
+                    }
+                    base = props;
+                    File file = externalFile();
+                    if (file != null) {
+                        watch(file);
+                    }
+                }
+            }
+        }
+        // 拷贝而不是作为defaults,get、keySet、size等方法才能看到配置项
+        Properties copy = new Properties();
+        copy.putAll(props);
+        return copy;
+    }
+
+    /**
+     * 重新加载配置,解析失败时保留原配置
+     *
+     * @return 是否发布了新配置
+     */
+    static boolean reload() {
+        String configPath = System.getProperty(Constant.QUARTZ_CONF_ENV_NAME, "");
+        File file = externalFile();
+        if (configPath.length() != 0 && file == null) {
+            log.warn("quartz external configuration not found, keep the current configuration. path:{}", configPath);
+            return false;
+        }
+        Properties props = load(file);
+        if (props == null) {
+            return false;
+        }
+        if (props.isEmpty()) {
+            log.warn("quartz configuration is empty, keep the current configuration.");
+            return false;
+        }
+        base = props;
+        log.info("quartz configuration reloaded. size:{}", props.size());
+        return true;
+    }
+
+    /**
+     * 停止监听配置文件
+     */
+    static synchronized void stopWatching() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.error("close quartz configuration watch service error.", e);
+            }
+            watchService = null;
+        }
+    }
+
+    private static File externalFile() {
+        // 获取进程内环境变量中quartz配置路径
+        String configPath = System.getProperty(Constant.QUARTZ_CONF_ENV_NAME, "");
+        File file = new File(configPath);
+        return configPath.length() != 0 && file.isFile() ? file : null;
+    }
+
+    /**
+     * 解析配置文件
+     *
+     * @param file 外部配置文件,为null时使用项目中的默认配置
+     * @return 解析失败时返回null
+     */
+    private static Properties load(File file) {
+        Properties props = new Properties();
+        InputStream inputStream = null;
+        try {
+            if (file != null) {
+                log.info("load quartz external configuration. path:{}", file.getPath());
+                // 文件存在
+                inputStream = new BufferedInputStream(new FileInputStream(file));
+            } else {
+                // 文件不存在,在家项目中的默认配置
+                log.info("load quartz default configuration.");
+                inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("quartz.properties");
+            }
+
+            if (inputStream != null) {
+                props.load(inputStream);
+            }
+            return props;
+        } catch (Exception e) {
+            log.error("get quartz properties error.", e);
+            return null;
+        } finally {
+            try {
+                if (inputStream != null) {
+                    inputStream.close();
+                }
+            } catch (IOException e) {
+                log.error("input stream close error.", e);
+            }
+        }
+    }
+
+    /**
+     * 监听配置文件所在目录,文件被修改或重新创建时重新加载
+     */
+    private static synchronized void watch(File file) {
+        if (watchService != null) {
+            return;
+        }
+        final Path path = file.getAbsoluteFile().toPath();
+        final WatchService service;
+        try {
+            service = path.getFileSystem().newWatchService();
+            path.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            log.error("watch quartz configuration error. path:{}", path, e);
+            return;
+        }
+        watchService = service;
+
+        Thread watcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        WatchKey key = service.take();
+                        boolean changed = false;
+                        // 一次保存通常产生多个事件,文件安静一段时间后合并为一次加载,避免读到写了一半的文件
+                        while (key != null) {
+                            for (WatchEvent<?> event : key.pollEvents()) {
+                                if (path.getFileName().equals(event.context())) {
+                                    changed = true;
+                                }
+                            }
+                            if (!key.reset()) {
+                                log.warn("quartz configuration directory is no longer accessible. path:{}", path.getParent());
+                                return;
+                            }
+                            key = service.poll(RELOAD_QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                        }
+                        if (changed && path.toFile().isFile()) {
+                            reload();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ClosedWatchServiceException e) {
+                    // stopWatching
+                }
+            }
+        }, "quartz-config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("watch quartz configuration. path:{}", path);
+    }
+}
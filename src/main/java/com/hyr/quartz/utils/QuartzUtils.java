@@ -2,19 +2,32 @@ package com.hyr.quartz.utils;
 
 import com.hyr.quartz.common.Constant;
 import com.hyr.quartz.common.JOB_STORE_CLASS;
+import com.hyr.quartz.common.THREAD_POOL_CLASS;
+import com.hyr.quartz.connection.DruidConnectionPoolProvider;
+import com.hyr.quartz.connection.DruidDataSourceRegistry;
+import com.hyr.quartz.connection.DruidPoolAutoSizer;
+import com.hyr.quartz.connection.ReadOnlyRouting;
+import com.hyr.quartz.cron.CompiledCronScheduleBuilder;
 import com.hyr.quartz.job.QuartzJob;
+import com.hyr.quartz.listener.CircuitBreakerListener;
+import com.hyr.quartz.listener.ExecutingJobRegistryListener;
+import com.hyr.quartz.listener.JobTriggerIndexListener;
+import com.hyr.quartz.plugin.AsyncHistorySink;
+import com.hyr.quartz.plugin.QuartzBinaryJobHistoryPlugin;
 import com.hyr.quartz.plugin.QuartzLoggingJobHistoryPlugin;
 import com.hyr.quartz.plugin.QuartzLoggingTriggerHistoryPlugin;
 import com.hyr.quartz.plugin.QuartzShutdownHookPlugin;
+import com.hyr.quartz.threadpool.GroupBulkheadJobFactory;
 import org.quartz.*;
 import org.quartz.impl.StdSchedulerFactory;
 import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.listeners.SchedulerListenerSupport;
 import org.quartz.simpl.SimpleClassLoadHelper;
 import org.quartz.spi.SchedulerPlugin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
+import java.lang.reflect.Method;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
@@ -34,6 +47,9 @@ import java.util.concurrent.TimeUnit;
  * JVM监控服务{@link MxBeanManager}
  * 带有优先级的关闭钩子工具类{@link ShutdownHookManager}
  * Quartz任务的抽象类,抽象封装一些通用方法{@link QuartzJob}
+ * 预编译Cron表达式缓存{@link com.hyr.quartz.cron.CronExpressionCache}
+ * 并发启动多个调度器{@link SchedulerFleet}
+ * 只读查询路由到从库{@link ReadOnlyRouting}
  ******************************************************************************/
 public class QuartzUtils {
 
@@ -41,9 +57,6 @@ public class QuartzUtils {
 
     private static ShutdownHookManager shutdownHookManager = ShutdownHookManager.get();
 
-    // quartz配置文件
-    private volatile static Properties properties = null;
-
     // QuartzLoggingPlugin 日志级别
 
     @SuppressWarnings("WeakerAccess")
@@ -69,18 +82,49 @@ public class QuartzUtils {
      * @throws SchedulerException
      */
     public static StdSchedulerFactory getStdSchedulerFactory(int threadCount, int threadPriority, String threadNamePrefix, JOB_STORE_CLASS job_store_class) throws SchedulerException {
+        return getStdSchedulerFactory(threadCount, threadPriority, threadNamePrefix, job_store_class, THREAD_POOL_CLASS.SIMPLETHREADPOOL);
+    }
+
+    /**
+     * @param threadCount       线程数,虚拟线程池为并发上限
+     * @param threadPriority    线程优先级 5默认优先级
+     * @param threadNamePrefix  工作线程池中线程名称的前缀将被附加前缀
+     * @param job_store_class   Job持久化方式
+     * @param thread_pool_class 工作线程池
+     * @return
+     * @throws SchedulerException
+     */
+    public static StdSchedulerFactory getStdSchedulerFactory(int threadCount, int threadPriority, String threadNamePrefix, JOB_STORE_CLASS job_store_class, THREAD_POOL_CLASS thread_pool_class) throws SchedulerException {
+        return new StdSchedulerFactory(getSchedulerProperties(threadCount, threadPriority, threadNamePrefix, job_store_class, thread_pool_class));
+    }
+
+    /**
+     * 配置快照上叠加线程池和Job持久化参数
+     */
+    static Properties getSchedulerProperties(int threadCount, int threadPriority, String threadNamePrefix, JOB_STORE_CLASS job_store_class, THREAD_POOL_CLASS thread_pool_class) {
         Properties props = getProperties();
-        props.setProperty("org.quartz.threadPool.class", "org.quartz.simpl.SimpleThreadPool");
+        props.setProperty("org.quartz.threadPool.class", thread_pool_class.getClassName());
         props.setProperty("org.quartz.threadPool.threadCount", String.valueOf(threadCount)); // 线程数
         props.setProperty("org.quartz.threadPool.threadPriority", String.valueOf(threadPriority)); // 线程优先级 5默认优先级
         props.setProperty("org.quartz.threadPool.threadNamePrefix", threadNamePrefix); // 工作线程池中线程名称的前缀将被附加前缀
         props.setProperty("org.quartz.jobStore.class", job_store_class.getClassName()); // 将job数据保存在ram,性能最高。但程序崩溃，job调度数据会丢失。
         props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
-        return new StdSchedulerFactory(props);
+        stripJdbcProperties(props, job_store_class);
+        if (thread_pool_class == THREAD_POOL_CLASS.GROUPBULKHEADTHREADPOOL && props.getProperty("org.quartz.scheduler.jobFactory.class") == null) {
+            // 分组隔离线程池通过JobFactory取得任务组
+            props.setProperty("org.quartz.scheduler.jobFactory.class", GroupBulkheadJobFactory.class.getName());
+        }
+        bindDataSources(props);
+        return props;
     }
 
     public static StdSchedulerFactory getStdSchedulerFactory(Properties props) throws SchedulerException {
-        return new StdSchedulerFactory(props);
+        Properties copy = new Properties();
+        for (String key : props.stringPropertyNames()) {
+            copy.setProperty(key, props.getProperty(key));
+        }
+        bindDataSources(copy);
+        return new StdSchedulerFactory(copy);
     }
 
     public static StdSchedulerFactory getStdSchedulerFactory(String schedulerName, JOB_STORE_CLASS job_store_class) throws SchedulerException {
@@ -91,53 +135,123 @@ public class QuartzUtils {
         props.setProperty("org.quartz.threadPool.threadNamePrefix", schedulerName); // 工作线程池中线程名称的前缀将被附加前缀
         props.setProperty("org.quartz.jobStore.class", job_store_class.getClassName()); // 将job数据保存在ram,性能最高。但程序崩溃，job调度数据会丢失。
         props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        stripJdbcProperties(props, job_store_class);
+        bindDataSources(props);
         return new StdSchedulerFactory(props);
     }
 
     /**
-     * 加载配置文件
-     *
-     * @return
+     * 选用内存JobStore时去掉配置文件中它没有setter的jobStore参数(useProperties、dataSource、tablePrefix等)和数据源,
+     * 否则StdSchedulerFactory报No setter for property,数据源也会白白创建连接池
      */
-    public static Properties getProperties() {
-        if (properties == null) {
-            synchronized (Properties.class) {
-                if (properties == null) {
-                    Properties props = new Properties();
-                    InputStream inputStream = null;
-                    try {
-                        // 获取进程内环境变量中quartz配置路径
-                        String configPath = System.getProperty(Constant.QUARTZ_CONF_ENV_NAME, "");
-                        File file = new File(configPath);
-                        if (file.isFile() && configPath.length() != 0) {
-                            log.info("load quartz external configuration. path:{}", file.getPath());
-                            // 文件存在
-                            inputStream = new BufferedInputStream(new FileInputStream(file));
-                        } else {
-                            // 文件不存在,在家项目中的默认配置
-                            log.info("load quartz default configuration.");
-                            inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("quartz.properties");
-                        }
+    static void stripJdbcProperties(Properties props, JOB_STORE_CLASS job_store_class) {
+        if (job_store_class.isJdbc()) {
+            return;
+        }
+        Set<String> setters = new HashSet<>();
+        try {
+            for (Method method : Class.forName(job_store_class.getClassName()).getMethods()) {
+                if (method.getName().startsWith("set") && method.getParameterTypes().length == 1) {
+                    setters.add(method.getName());
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            log.warn("job store class not found. class:{}", job_store_class.getClassName());
+            return;
+        }
+        List<String> removed = new ArrayList<>();
+        String jobStorePrefix = StdSchedulerFactory.PROP_JOB_STORE_PREFIX + ".";
+        for (String key : props.stringPropertyNames()) {
+            boolean strip;
+            if (key.startsWith(jobStorePrefix) && !key.equals(StdSchedulerFactory.PROP_JOB_STORE_CLASS)) {
+                String name = key.substring(jobStorePrefix.length());
+                strip = name.isEmpty() || !setters.contains("set" + name.substring(0, 1).toUpperCase(Locale.US) + name.substring(1));
+            } else {
+                strip = key.startsWith(StdSchedulerFactory.PROP_DATASOURCE_PREFIX + ".");
+            }
+            if (strip) {
+                props.remove(key);
+                removed.add(key);
+            }
+        }
+        if (!removed.isEmpty()) {
+            log.info("strip properties not used by {}. properties:{}", job_store_class, removed);
+        }
+    }
 
-                        if (inputStream != null) {
-                            props.load(inputStream);
-                        }
-                        properties = props;
-                    } catch (Exception e) {
-                        log.error("get quartz properties error.", e);
-                    } finally {
-                        try {
-                            if (inputStream != null) {
-                                inputStream.close();
-                            }
-                        } catch (IOException e) {
-                            log.error("input stream close error.",e);
-                        }
-                    }
+    /**
+     * 为Druid数据源填入数据源名和JobStore使用的数据源需要的连接数(threadCount+2),已配置的不覆盖。
+     * 多个调度器使用同名数据源时DBConnectionManager只保留最后一个Provider,按名称登记后被替换的Provider随调度器关闭释放。
+     * JobStore的数据源名同时放入SchedulerContext,用于绑定连接池的自动调整。
+     */
+    static void bindDataSources(Properties props) {
+        // 分片JobStore配置了dataSources时不使用dataSource
+        Set<String> jobStoreDataSources = new LinkedHashSet<>();
+        String dataSources = props.getProperty("org.quartz.jobStore.dataSources");
+        String dataSource = props.getProperty("org.quartz.jobStore.dataSource");
+        if (dataSources != null && !dataSources.trim().isEmpty()) {
+            for (String name : dataSources.split(",")) {
+                jobStoreDataSources.add(name.trim());
+            }
+        } else if (dataSource != null) {
+            jobStoreDataSources.add(dataSource.trim());
+        }
+        if (!jobStoreDataSources.isEmpty()) {
+            StringBuilder names = new StringBuilder();
+            for (String name : jobStoreDataSources) {
+                if (names.length() > 0) {
+                    names.append(',');
                 }
+                names.append(name);
+            }
+            props.setProperty(StdSchedulerFactory.PROP_SCHED_CONTEXT_PREFIX + "." + Constant.JOB_STORE_DATA_SOURCES_CONTEXT_KEY, names.toString());
+        }
+        int threadCount = 0;
+        try {
+            threadCount = Integer.parseInt(props.getProperty("org.quartz.threadPool.threadCount", "0").trim());
+        } catch (NumberFormatException e) {
+            log.warn("invalid threadCount:{}", props.getProperty("org.quartz.threadPool.threadCount"));
+        }
+        String suffix = "." + StdSchedulerFactory.PROP_CONNECTION_PROVIDER_CLASS;
+        for (String key : props.stringPropertyNames()) {
+            if (!key.startsWith(StdSchedulerFactory.PROP_DATASOURCE_PREFIX + ".") || !key.endsWith(suffix)
+                    || !DruidConnectionPoolProvider.class.getName().equals(props.getProperty(key).trim())) {
+                continue;
+            }
+            String prefix = key.substring(0, key.length() - suffix.length());
+            String name = prefix.substring(StdSchedulerFactory.PROP_DATASOURCE_PREFIX.length() + 1);
+            if (props.getProperty(prefix + ".dataSourceName") == null) {
+                props.setProperty(prefix + ".dataSourceName", name);
+            }
+            if (threadCount > 0 && jobStoreDataSources.contains(name) && props.getProperty(prefix + ".connectionDemand") == null) {
+                props.setProperty(prefix + ".connectionDemand", String.valueOf(threadCount + 2));
             }
         }
-        return properties;
+    }
+
+    /**
+     * 加载配置文件
+     *
+     * @return 配置快照,每次调用返回新的实例,修改快照不影响其他调用方
+     */
+    public static Properties getProperties() {
+        return QuartzPropertiesLoader.snapshot();
+    }
+
+    /**
+     * 重新加载配置文件,之后创建的SchedulerFactory使用新配置
+     *
+     * @return 是否加载成功,失败时保留原配置
+     */
+    public static boolean reloadProperties() {
+        return QuartzPropertiesLoader.reload();
+    }
+
+    /**
+     * 停止监听外部配置文件的变化
+     */
+    public static void stopWatchingProperties() {
+        QuartzPropertiesLoader.stopWatching();
     }
 
     /**
@@ -160,6 +274,7 @@ public class QuartzUtils {
         if (triggerListener != null) {
             listenerManager.addTriggerListener(triggerListener);
         }
+        bindPoolAutoSizers(scheduler);
     }
 
     /**
@@ -188,6 +303,25 @@ public class QuartzUtils {
                 listenerManager.addTriggerListener(triggerListener);
             }
         }
+        bindPoolAutoSizers(scheduler);
+    }
+
+    /**
+     * 把JobStore数据源的连接池自动调整绑定到调度器上统计触发速率,已绑定的跳过
+     */
+    private static void bindPoolAutoSizers(Scheduler scheduler) throws SchedulerException {
+        Object dataSources = scheduler.getContext().get(Constant.JOB_STORE_DATA_SOURCES_CONTEXT_KEY);
+        if (dataSources == null) {
+            return;
+        }
+        ListenerManager listenerManager = scheduler.getListenerManager();
+        for (String name : dataSources.toString().split(",")) {
+            DruidPoolAutoSizer autoSizer = DruidDataSourceRegistry.getAutoSizer(name.trim());
+            if (autoSizer != null && listenerManager.getTriggerListener(autoSizer.getTriggerListener().getName()) == null) {
+                listenerManager.addTriggerListener(autoSizer.getTriggerListener());
+                log.info("bind druid connection pool auto sizer. scheduler:{} dataSource:{}", scheduler.getSchedulerName(), name.trim());
+            }
+        }
     }
 
     /**
@@ -308,6 +442,117 @@ public class QuartzUtils {
         }
     }
 
+    /**
+     * 批量调度任务,分片大小{@link Constant#SCHEDULE_BATCH_CHUNK_SIZE}
+     *
+     * @param scheduler 调度器
+     * @param jobSpecs  任务描述
+     * @return 每个分片的耗时及失败的任务
+     */
+    public static ScheduleBatchResult scheduleJobsBatch(Scheduler scheduler, Collection<JobSpec> jobSpecs) {
+        return scheduleJobsBatch(scheduler, jobSpecs, Constant.SCHEDULE_BATCH_CHUNK_SIZE, false);
+    }
+
+    /**
+     * 批量调度任务
+     *
+     * @param scheduler 调度器
+     * @param jobSpecs  任务描述
+     * @param chunkSize 分片大小
+     * @return 每个分片的耗时及失败的任务
+     */
+    public static ScheduleBatchResult scheduleJobsBatch(Scheduler scheduler, Collection<JobSpec> jobSpecs, int chunkSize) {
+        return scheduleJobsBatch(scheduler, jobSpecs, chunkSize, false);
+    }
+
+    /**
+     * 批量调度任务
+     * 每个分片通过{@link Scheduler#scheduleJobs(Map, boolean)}一次提交,JobStoreTX下一个分片只占用一次事务和一次TRIGGER_ACCESS锁。
+     * 分片提交失败时,该分片逐个重新提交,只记录真正失败的任务,不中断整个批次。
+     *
+     * @param scheduler 调度器
+     * @param jobSpecs  任务描述
+     * @param chunkSize 分片大小
+     * @param replace   已存在的任务是否覆盖
+     * @return 每个分片的耗时及失败的任务
+     */
+    public static ScheduleBatchResult scheduleJobsBatch(Scheduler scheduler, Collection<JobSpec> jobSpecs, int chunkSize, boolean replace) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive. chunkSize:" + chunkSize);
+        }
+        ScheduleBatchResult result = new ScheduleBatchResult();
+        Map<JobDetail, Set<? extends Trigger>> chunk = new LinkedHashMap<>();
+        int chunkIndex = 0;
+        for (JobSpec jobSpec : jobSpecs) {
+            try {
+                chunk.put(getJobDetail(jobSpec), Collections.singleton(getTrigger(jobSpec)));
+            } catch (Exception e) {
+                // cron表达式错误等,只影响当前任务
+                log.error("build job error. jobSpec:{}", jobSpec, e);
+                result.addFailed(jobSpec.getJobKey(), e);
+                continue;
+            }
+            if (chunk.size() >= chunkSize) {
+                scheduleChunk(scheduler, chunk, replace, chunkIndex++, result);
+                chunk = new LinkedHashMap<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            scheduleChunk(scheduler, chunk, replace, chunkIndex, result);
+        }
+        log.info("schedule jobs batch finish. result:{}", result);
+        return result;
+    }
+
+    /**
+     * 提交一个分片
+     */
+    private static void scheduleChunk(Scheduler scheduler, Map<JobDetail, Set<? extends Trigger>> chunk, boolean replace, int chunkIndex, ScheduleBatchResult result) {
+        long start = System.currentTimeMillis();
+        try {
+            scheduler.scheduleJobs(chunk, replace);
+            long cost = System.currentTimeMillis() - start;
+            result.addChunk(new ScheduleBatchResult.ChunkStat(chunkIndex, chunk.size(), chunk.size(), cost, false));
+            log.info("schedule jobs chunk:{} success. size:{}, cost:{}ms", chunkIndex, chunk.size(), cost);
+            return;
+        } catch (SchedulerException e) {
+            // 整个分片回滚,逐个提交找出失败的任务
+            log.warn("schedule jobs chunk:{} error, retry one by one. size:{}", chunkIndex, chunk.size(), e);
+        }
+
+        int scheduledCount = 0;
+        for (Map.Entry<JobDetail, Set<? extends Trigger>> entry : chunk.entrySet()) {
+            JobKey jobKey = entry.getKey().getKey();
+            try {
+                scheduler.scheduleJob(entry.getKey(), entry.getValue(), replace);
+                scheduledCount++;
+            } catch (SchedulerException e) {
+                log.error("add job error. jobKey:{}", jobKey, e);
+                result.addFailed(jobKey, e);
+            }
+        }
+        long cost = System.currentTimeMillis() - start;
+        result.addChunk(new ScheduleBatchResult.ChunkStat(chunkIndex, chunk.size(), scheduledCount, cost, true));
+        log.info("schedule jobs chunk:{} finish. size:{}, scheduled:{}, cost:{}ms", chunkIndex, chunk.size(), scheduledCount, cost);
+    }
+
+    private static JobDetail getJobDetail(JobSpec jobSpec) {
+        if (jobSpec.getDataMap() != null) {
+            return getJobDetailBindData(jobSpec.getJob(), jobSpec.getJobName(), jobSpec.getGroupName(), jobSpec.getDataMap());
+        }
+        return getJobDetail(jobSpec.getJob(), jobSpec.getJobName(), jobSpec.getGroupName());
+    }
+
+    private static Trigger getTrigger(JobSpec jobSpec) {
+        long delayMillis = jobSpec.getTimeUnit().toMillis(jobSpec.getInitialDelay()); // 延时启动时间
+        Date statTime = new Date(System.currentTimeMillis() + delayMillis); // 启动时间
+        if (jobSpec.isCron()) {
+            return getTrigger(jobSpec.getTimer(), jobSpec.getJobName(), jobSpec.getGroupName(), statTime);
+        }
+        long intervalTime = jobSpec.getTimeUnit().toMillis(jobSpec.getDelay());
+        return getSimpleTrigger(intervalTime, jobSpec.getJobName(), jobSpec.getGroupName(), jobSpec.getRepeatCount(), statTime);
+    }
+
     private static Trigger getSimpleTrigger(long delay, String jobName, String groupName, int repeatCount, Date statTime) {
         SimpleScheduleBuilder simpleScheduleBuilder = SimpleScheduleBuilder.simpleSchedule();
         simpleScheduleBuilder.withIntervalInMilliseconds(delay).withRepeatCount(repeatCount);
@@ -347,7 +592,7 @@ public class QuartzUtils {
     }
 
     private static Trigger getTrigger(String timer, String jobName, String groupName, Date statTime) {
-        CronScheduleBuilder cronScheduleBuilder = CronScheduleBuilder.cronSchedule(timer);
+        CompiledCronScheduleBuilder cronScheduleBuilder = CompiledCronScheduleBuilder.cronSchedule(timer); // 相同的表达式共享编译结果
         cronScheduleBuilder.withMisfireHandlingInstructionFireAndProceed(); // 默认 以当前时间为触发频率立刻触发一次执行,然后按照Cron频率依次执行.会合并部分的misfire,正常执行下一个周期的任务.
         // cronScheduleBuilder.withMisfireHandlingInstructionDoNothing(); // 所有的misfire不管，执行下一个周期的任务)
         // cronScheduleBuilder.withMisfireHandlingInstructionIgnoreMisfires(); //所有misfire的任务会马上执行
@@ -371,7 +616,7 @@ public class QuartzUtils {
      * @return
      */
     private static Trigger getTriggerBindData(String timer, String jobName, String groupName, Date statTime, JobDataMap dataMap) {
-        CronScheduleBuilder cronScheduleBuilder = CronScheduleBuilder.cronSchedule(timer);
+        CompiledCronScheduleBuilder cronScheduleBuilder = CompiledCronScheduleBuilder.cronSchedule(timer); // 相同的表达式共享编译结果
         cronScheduleBuilder.withMisfireHandlingInstructionFireAndProceed(); // 默认 以当前时间为触发频率立刻触发一次执行,然后按照Cron频率依次执行.会合并部分的misfire,正常执行下一个周期的任务.
         // cronScheduleBuilder.withMisfireHandlingInstructionDoNothing(); // 所有的misfire不管，执行下一个周期的任务)
         // cronScheduleBuilder.withMisfireHandlingInstructionIgnoreMisfires(); //所有misfire的任务会马上执行
@@ -409,6 +654,7 @@ public class QuartzUtils {
 
     /**
      * 删除定时Job
+     * 一次调用删除任务及其所有触发器,JobStoreTX下在同一个事务中完成
      *
      * @param scheduler
      * @param jobName
@@ -416,24 +662,9 @@ public class QuartzUtils {
      * @throws SchedulerException
      */
     public static void removeJob(Scheduler scheduler, String jobName, String groupName) throws SchedulerException {
-        TriggerKey triggerKey = TriggerKey.triggerKey(String.format(Constant.TRIGGER_NAME_FORMAT, jobName), String.format(Constant.TRIGGER_GROUP_NAME_FORMAT, groupName));
-        scheduler.pauseTrigger(triggerKey);// 停止触发器
-        scheduler.unscheduleJob(triggerKey);// 移除触发器
-        // 获取调度器中所有的触发器组
-        List<String> triggerGroupNames = scheduler.getTriggerGroupNames();
-        List<String> triggerNames = scheduler.getTriggerGroupNames();
-        // 重新恢复指定的触发器任务
-        for (String triggerGroupName : triggerGroupNames) {
-            for (String triggerName : triggerNames) {
-                Trigger tg = scheduler.getTrigger(new TriggerKey(triggerName, triggerGroupName));
-                // 如存在该任务,进行恢复运行
-                if (tg instanceof SimpleTrigger
-                        && tg.getDescription().equals(groupName + "." + jobName)) {
-                    boolean result = scheduler.deleteJob(JobKey.jobKey(jobName, groupName));
-                    log.info("delete job result:{}", result);
-                }
-            }
-        }
+        JobKey jobKey = JobKey.jobKey(jobName, groupName);
+        boolean result = scheduler.deleteJob(jobKey);
+        log.info("delete job result:{}", result);
     }
 
     /**
@@ -450,7 +681,16 @@ public class QuartzUtils {
      * 从数据库中找到指定的job，重新开始执行该定时任务
      */
     public static void resumeJob(Scheduler scheduler, String jobName, String groupName) throws SchedulerException {
-        scheduler.resumeJob(new JobKey(jobName, groupName));
+        JobKey jobKey = JobKey.jobKey(jobName, groupName);
+        Set<TriggerKey> triggerKeys = getIndexedTriggerKeys(scheduler, jobKey);
+        if (triggerKeys == null) {
+            // 未绑定索引或索引中不存在,由JobStore查询该任务的触发器
+            scheduler.resumeJob(jobKey);
+            return;
+        }
+        for (TriggerKey triggerKey : triggerKeys) {
+            scheduler.resumeTrigger(triggerKey);
+        }
     }
 
     /**
@@ -472,19 +712,62 @@ public class QuartzUtils {
      * @throws SchedulerException
      */
     public static void pasueJob(Scheduler scheduler, String jobName, String groupName) throws SchedulerException {
-        // 获取调度器中所有的触发器组
-        List<String> triggerGroupNames = scheduler.getTriggerGroupNames();
-        List<String> triggerNames = scheduler.getTriggerGroupNames();
-        // 重新恢复指定的触发器任务
-        for (String triggerGroupName : triggerGroupNames) {
-            for (String triggerName : triggerNames) {
-                Trigger tg = scheduler.getTrigger(new TriggerKey(triggerName, triggerGroupName));
-                // 如存在该任务,进行恢复运行
-                if (tg instanceof SimpleTrigger && tg.getDescription().equals(groupName + "." + jobName)) {
-                    scheduler.pauseJob(new JobKey(triggerName, triggerGroupName));
-                }
+        JobKey jobKey = JobKey.jobKey(jobName, groupName);
+        Set<TriggerKey> triggerKeys = getIndexedTriggerKeys(scheduler, jobKey);
+        if (triggerKeys == null) {
+            // 未绑定索引或索引中不存在,由JobStore查询该任务的触发器
+            scheduler.pauseJob(jobKey);
+            return;
+        }
+        for (TriggerKey triggerKey : triggerKeys) {
+            scheduler.pauseTrigger(triggerKey);
+        }
+    }
+
+    /**
+     * 绑定任务与触发器的索引监听器,并从JobStore全量加载一次
+     * 绑定后{@link #pasueJob}、{@link #resumeJob}直接从索引中定位触发器
+     * 索引只能感知本节点上的变更,集群中其他节点新增的触发器不在索引中,集群部署时需要定期{@link JobTriggerIndexListener#rebuild}
+     *
+     * @param scheduler
+     * @return
+     * @throws SchedulerException
+     */
+    public static JobTriggerIndexListener bindJobTriggerIndex(Scheduler scheduler) throws SchedulerException {
+        SchedulerContext context = scheduler.getContext();
+        synchronized (context) {
+            JobTriggerIndexListener index = (JobTriggerIndexListener) context.get(Constant.JOB_TRIGGER_INDEX_CONTEXT_KEY);
+            if (index == null) {
+                index = new JobTriggerIndexListener("JobTriggerIndexListener");
+                // 先注册监听器再加载,避免加载期间的变更丢失
+                scheduler.getListenerManager().addSchedulerListener(index);
+                index.rebuild(scheduler);
+                context.put(Constant.JOB_TRIGGER_INDEX_CONTEXT_KEY, index);
             }
+            return index;
+        }
+    }
+
+    /**
+     * 获取已绑定的索引监听器,未绑定返回null
+     *
+     * @param scheduler
+     * @return
+     * @throws SchedulerException
+     */
+    public static JobTriggerIndexListener getJobTriggerIndex(Scheduler scheduler) throws SchedulerException {
+        return (JobTriggerIndexListener) scheduler.getContext().get(Constant.JOB_TRIGGER_INDEX_CONTEXT_KEY);
+    }
+
+    /**
+     * 从索引中获取任务的触发器,未绑定索引或索引中不存在该任务返回null
+     */
+    private static Set<TriggerKey> getIndexedTriggerKeys(Scheduler scheduler, JobKey jobKey) throws SchedulerException {
+        JobTriggerIndexListener index = getJobTriggerIndex(scheduler);
+        if (index == null || !index.containsJob(jobKey)) {
+            return null;
         }
+        return index.getTriggerKeys(jobKey);
     }
 
     /**
@@ -498,6 +781,10 @@ public class QuartzUtils {
      * 获取运行中指定的任务
      */
     public static JobExecutionContext getExecutingJobsByJobName(Scheduler scheduler, String jobName) throws SchedulerException {
+        ExecutingJobRegistryListener registry = getExecutingJobRegistry(scheduler);
+        if (registry != null) {
+            return registry.getExecutingJobByName(jobName);
+        }
         List<JobExecutionContext> jobContexts = scheduler.getCurrentlyExecutingJobs();
         for (JobExecutionContext context : jobContexts) {
             // 该任务名存在,表示任务正在执行
@@ -508,6 +795,76 @@ public class QuartzUtils {
         return null;
     }
 
+    /**
+     * 获取运行中指定的任务,需要先绑定{@link #bindExecutingJobRegistry}
+     *
+     * @param scheduler
+     * @param jobName
+     * @param groupName
+     * @return 不存在返回null
+     * @throws SchedulerException
+     */
+    public static JobExecutionContext getExecutingJob(Scheduler scheduler, String jobName, String groupName) throws SchedulerException {
+        ExecutingJobRegistryListener registry = getExecutingJobRegistry(scheduler);
+        if (registry == null) {
+            throw new SchedulerException("executing job registry is not bound. scheduler:" + scheduler.getSchedulerName());
+        }
+        return registry.getExecutingJob(JobKey.jobKey(jobName, groupName));
+    }
+
+    /**
+     * 绑定运行中任务登记表,需要在Scheduler启动前绑定
+     * 绑定后{@link #getExecutingJobsByJobName}不再复制运行中任务列表
+     *
+     * @param scheduler
+     * @return
+     * @throws SchedulerException
+     */
+    public static ExecutingJobRegistryListener bindExecutingJobRegistry(Scheduler scheduler) throws SchedulerException {
+        SchedulerContext context = scheduler.getContext();
+        synchronized (context) {
+            ExecutingJobRegistryListener registry = (ExecutingJobRegistryListener) context.get(Constant.EXECUTING_JOB_REGISTRY_CONTEXT_KEY);
+            if (registry == null) {
+                registry = new ExecutingJobRegistryListener("ExecutingJobRegistryListener");
+                scheduler.getListenerManager().addJobListener(registry);
+                context.put(Constant.EXECUTING_JOB_REGISTRY_CONTEXT_KEY, registry);
+            }
+            return registry;
+        }
+    }
+
+    /**
+     * 获取已绑定的运行中任务登记表,未绑定返回null
+     *
+     * @param scheduler
+     * @return
+     * @throws SchedulerException
+     */
+    public static ExecutingJobRegistryListener getExecutingJobRegistry(Scheduler scheduler) throws SchedulerException {
+        return (ExecutingJobRegistryListener) scheduler.getContext().get(Constant.EXECUTING_JOB_REGISTRY_CONTEXT_KEY);
+    }
+
+    /**
+     * 绑定熔断监听器,任务类声明了{@link com.hyr.quartz.job.Dependency}时,依赖熔断期间的触发会被否决
+     *
+     * @param scheduler
+     * @return
+     * @throws SchedulerException
+     */
+    public static CircuitBreakerListener bindCircuitBreaker(Scheduler scheduler) throws SchedulerException {
+        SchedulerContext context = scheduler.getContext();
+        synchronized (context) {
+            CircuitBreakerListener listener = (CircuitBreakerListener) context.get(Constant.CIRCUIT_BREAKER_LISTENER_CONTEXT_KEY);
+            if (listener == null) {
+                listener = new CircuitBreakerListener("CircuitBreakerListener");
+                scheduler.getListenerManager().addTriggerListener(listener);
+                scheduler.getListenerManager().addJobListener(listener);
+                context.put(Constant.CIRCUIT_BREAKER_LISTENER_CONTEXT_KEY, listener);
+            }
+            return listener;
+        }
+    }
+
     /**
      * 获取系统中已添加的所有任务
      *
@@ -515,7 +872,12 @@ public class QuartzUtils {
      * @return
      */
     public static Set<JobKey> listJobs(Scheduler scheduler) throws SchedulerException {
-        return scheduler.getJobKeys(GroupMatcher.<JobKey>anyGroup());
+        boolean previous = ReadOnlyRouting.enter();
+        try {
+            return scheduler.getJobKeys(GroupMatcher.<JobKey>anyGroup());
+        } finally {
+            ReadOnlyRouting.exit(previous);
+        }
     }
 
     /**
@@ -525,7 +887,7 @@ public class QuartzUtils {
      * @return
      */
     public static JobKey getJobByGroupAndName(Scheduler scheduler, String jobGroupName, String jobName) throws SchedulerException {
-        Set<JobKey> jobKeys = scheduler.getJobKeys(GroupMatcher.<JobKey>anyGroup());
+        Set<JobKey> jobKeys = listJobs(scheduler);
         for (JobKey jobKey : jobKeys) {
             String key = jobKey.getGroup() + "." + jobKey.getName();
             if (key.equals(jobGroupName + "." + jobName)) {
@@ -535,6 +897,24 @@ public class QuartzUtils {
         return null;
     }
 
+    /**
+     * 获取任务触发器的状态,触发器不存在时返回NONE
+     *
+     * @param scheduler
+     * @param jobName
+     * @param groupName
+     * @return
+     */
+    public static Trigger.TriggerState getTriggerState(Scheduler scheduler, String jobName, String groupName) throws SchedulerException {
+        TriggerKey triggerKey = TriggerKey.triggerKey(String.format(Constant.TRIGGER_NAME_FORMAT, jobName), String.format(Constant.TRIGGER_GROUP_NAME_FORMAT, groupName));
+        boolean previous = ReadOnlyRouting.enter();
+        try {
+            return scheduler.getTriggerState(triggerKey);
+        } finally {
+            ReadOnlyRouting.exit(previous);
+        }
+    }
+
 
     /**
      * 启动命令 会启动调度访问并恢复上次持久化的任务,如任务已被删除则无法恢复
@@ -543,6 +923,7 @@ public class QuartzUtils {
      * @throws SchedulerException
      */
     public static void start(Scheduler scheduler) throws SchedulerException {
+        bindPoolAutoSizers(scheduler);
         scheduler.start();
         scheduler.resumeAll();
     }
@@ -555,26 +936,108 @@ public class QuartzUtils {
      */
     public static void startLogPlugin(Scheduler scheduler, int log_level) {
         try {
-            String schedulerName = scheduler.getSchedulerName();
-            // trigger log plugin
-            QuartzLoggingTriggerHistoryPlugin triggerLogPlugin = new QuartzLoggingTriggerHistoryPlugin();
-            triggerLogPlugin.initialize(schedulerName, scheduler, new SimpleClassLoadHelper());
-            triggerLogPlugin.setLog_level(log_level);
-            // job log plugin
-            QuartzLoggingJobHistoryPlugin jobLogPlugin = new QuartzLoggingJobHistoryPlugin();
-            jobLogPlugin.initialize(schedulerName, scheduler, new SimpleClassLoadHelper());
-            jobLogPlugin.setLog_level(log_level);
-
-            addPluginShutdownHook(triggerLogPlugin);
-            addPluginShutdownHook(jobLogPlugin);
-
-            triggerLogPlugin.start();
-            jobLogPlugin.start();
+            startLogPlugin(scheduler, log_level, null);
         } catch (SchedulerException e) {
             log.error("start log plugin error.", e);
         }
     }
 
+    /**
+     * 启动日志插件,历史日志由后台线程异步输出,工作线程只写入缓冲区
+     *
+     * @param scheduler
+     * @param log_level      日志统一打印级别
+     * @param overflowPolicy 缓冲区满时丢弃或等待
+     * @return 异步输出,调度器关闭时随插件一起停止,也可由调用方flush或提前shutdown。启动失败返回null
+     */
+    public static AsyncHistorySink startAsyncLogPlugin(Scheduler scheduler, int log_level, AsyncHistorySink.OverflowPolicy overflowPolicy) {
+        return startAsyncLogPlugin(scheduler, log_level, Constant.HISTORY_SINK_BUFFER_SIZE, overflowPolicy);
+    }
+
+    /**
+     * 启动日志插件,历史日志由后台线程异步输出,工作线程只写入缓冲区
+     *
+     * @param scheduler
+     * @param log_level      日志统一打印级别
+     * @param bufferSize     缓冲区大小
+     * @param overflowPolicy 缓冲区满时丢弃或等待
+     * @return 异步输出,调度器关闭时随插件一起停止,也可由调用方flush或提前shutdown。启动失败返回null
+     */
+    public static AsyncHistorySink startAsyncLogPlugin(Scheduler scheduler, int log_level, int bufferSize, AsyncHistorySink.OverflowPolicy overflowPolicy) {
+        AsyncHistorySink historySink = null;
+        try {
+            historySink = new AsyncHistorySink(scheduler.getSchedulerName(), bufferSize, overflowPolicy);
+            historySink.start();
+            startLogPlugin(scheduler, log_level, historySink);
+            return historySink;
+        } catch (SchedulerException e) {
+            log.error("start async log plugin error.", e);
+            if (historySink != null) {
+                historySink.shutdown();
+            }
+        }
+        return null;
+    }
+
+    private static void startLogPlugin(Scheduler scheduler, int log_level, AsyncHistorySink historySink) throws SchedulerException {
+        String schedulerName = scheduler.getSchedulerName();
+        // trigger log plugin
+        final QuartzLoggingTriggerHistoryPlugin triggerLogPlugin = new QuartzLoggingTriggerHistoryPlugin();
+        triggerLogPlugin.initialize(schedulerName, scheduler, new SimpleClassLoadHelper());
+        triggerLogPlugin.setLog_level(log_level);
+        triggerLogPlugin.setHistorySink(historySink);
+        // job log plugin
+        final QuartzLoggingJobHistoryPlugin jobLogPlugin = new QuartzLoggingJobHistoryPlugin();
+        jobLogPlugin.initialize(schedulerName, scheduler, new SimpleClassLoadHelper());
+        jobLogPlugin.setLog_level(log_level);
+        jobLogPlugin.setHistorySink(historySink);
+
+        addPluginShutdownHook(triggerLogPlugin);
+        addPluginShutdownHook(jobLogPlugin);
+        if (historySink != null) {
+            // 插件不在调度器的插件列表中,调度器关闭时不会调用shutdown,由监听器停止异步输出的消费线程
+            scheduler.getListenerManager().addSchedulerListener(new SchedulerListenerSupport() {
+                @Override
+                public void schedulerShutdown() {
+                    triggerLogPlugin.shutdown();
+                    jobLogPlugin.shutdown();
+                }
+            });
+        }
+
+        triggerLogPlugin.start();
+        jobLogPlugin.start();
+    }
+
+    /**
+     * 启动任务执行历史插件,执行记录写入本地二进制分段文件
+     *
+     * @param scheduler
+     * @param storeDirectory 存储目录
+     * @return 插件,通过{@link QuartzBinaryJobHistoryPlugin#getHistoryStore()}查询历史。启动失败返回null
+     */
+    public static QuartzBinaryJobHistoryPlugin startBinaryHistoryPlugin(Scheduler scheduler, String storeDirectory) {
+        try {
+            String schedulerName = scheduler.getSchedulerName();
+            final QuartzBinaryJobHistoryPlugin historyPlugin = new QuartzBinaryJobHistoryPlugin();
+            historyPlugin.setStoreDirectory(storeDirectory);
+            historyPlugin.initialize(schedulerName, scheduler, new SimpleClassLoadHelper());
+            addPluginShutdownHook(historyPlugin);
+            // 调度器关闭时写完缓冲区并关闭存储,停止写入线程
+            scheduler.getListenerManager().addSchedulerListener(new SchedulerListenerSupport() {
+                @Override
+                public void schedulerShutdown() {
+                    historyPlugin.shutdown();
+                }
+            });
+            historyPlugin.start();
+            return historyPlugin;
+        } catch (SchedulerException e) {
+            log.error("start binary history plugin error.", e);
+        }
+        return null;
+    }
+
     /**
      * 启动ShutDownHook插件
      *
@@ -0,0 +1,121 @@
+package com.hyr.quartz.utils;
+
+import org.quartz.JobKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*******************************************************************************
+ * @date 2026-10-17 10:20 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 批量调度结果
+ *
+ * 记录每个分片的提交耗时,以及提交失败的任务。单个任务失败不会中断整个批次。
+ ******************************************************************************/
+public class ScheduleBatchResult {
+
+    private final List<ChunkStat> chunkStats = new ArrayList<>();
+
+    private final Map<JobKey, Exception> failedJobs = new LinkedHashMap<>();
+
+    private int scheduledCount;
+
+    void addChunk(ChunkStat chunkStat) {
+        chunkStats.add(chunkStat);
+        scheduledCount += chunkStat.getScheduledCount();
+    }
+
+    void addFailed(JobKey jobKey, Exception e) {
+        failedJobs.put(jobKey, e);
+    }
+
+    /**
+     * 每个分片的统计信息,按提交顺序
+     */
+    public List<ChunkStat> getChunkStats() {
+        return Collections.unmodifiableList(chunkStats);
+    }
+
+    /**
+     * 提交失败的任务及失败原因
+     */
+    public Map<JobKey, Exception> getFailedJobs() {
+        return Collections.unmodifiableMap(failedJobs);
+    }
+
+    public int getScheduledCount() {
+        return scheduledCount;
+    }
+
+    public int getFailedCount() {
+        return failedJobs.size();
+    }
+
+    public boolean isAllSuccess() {
+        return failedJobs.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ScheduleBatchResult{" +
+                "chunks=" + chunkStats.size() +
+                ", scheduledCount=" + scheduledCount +
+                ", failedCount=" + failedJobs.size() +
+                ", failedJobs=" + failedJobs.keySet() +
+                '}';
+    }
+
+    /**
+     * 单个分片的统计信息
+     */
+    public static class ChunkStat {
+
+        private final int index; // 分片序号
+        private final int size; // 分片内任务数
+        private final int scheduledCount; // 成功调度数
+        private final long costMillis; // 提交耗时
+        private final boolean fallback; // 整片提交失败,逐个重试
+
+        ChunkStat(int index, int size, int scheduledCount, long costMillis, boolean fallback) {
+            this.index = index;
+            this.size = size;
+            this.scheduledCount = scheduledCount;
+            this.costMillis = costMillis;
+            this.fallback = fallback;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getScheduledCount() {
+            return scheduledCount;
+        }
+
+        public long getCostMillis() {
+            return costMillis;
+        }
+
+        public boolean isFallback() {
+            return fallback;
+        }
+
+        @Override
+        public String toString() {
+            return "ChunkStat{" +
+                    "index=" + index +
+                    ", size=" + size +
+                    ", scheduledCount=" + scheduledCount +
+                    ", costMillis=" + costMillis +
+                    ", fallback=" + fallback +
+                    '}';
+        }
+    }
+}
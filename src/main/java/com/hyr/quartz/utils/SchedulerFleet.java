@@ -0,0 +1,364 @@
+package com.hyr.quartz.utils;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.hyr.quartz.common.Constant;
+import com.hyr.quartz.connection.DruidConnectionPoolProvider;
+import com.hyr.quartz.connection.DruidDataSourceRegistry;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.utils.DBConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*******************************************************************************
+ * @date 2026-10-18 12:20 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: 并发创建和启动一组调度器
+ *
+ * 一个进程内有几十个调度器时,逐个创建、绑定监听器、启动插件和start,每个调度器都要初始化连接池并做JobStore恢复,
+ * 启动时间随调度器数量线性增长。SchedulerFleet在有界线程池中并发完成这些步骤,并记录每个阶段的耗时。
+ *
+ * JobStore使用{@link DruidConnectionPoolProvider}时开启shared(配置中未指定时),连接配置相同的调度器由{@link DruidDataSourceRegistry}
+ * 按引用计数共用一个连接池,最后一个使用它的调度器关闭时关闭;所有调度器创建完成后并发预热这些连接池。
+ * 数据源由Quartz在创建调度器时注册,DBConnectionManager不是线程安全的,这类调度器的创建串行执行;
+ * 并且所有调度器创建完成后才开始启动,JobStore在启动和运行中读取DBConnectionManager时不会再有写入。
+ * 单个调度器的配置或连接池创建失败时记入报告,不影响其他调度器。
+ *
+ * <pre>
+ * SchedulerFleet fleet = new SchedulerFleet(8);
+ * fleet.add(SchedulerSpec.of("order", 10, JOB_STORE_CLASS.JOBSTORETX).logPlugin(QuartzUtils.LOG_INFO).shutdownHookPlugin());
+ * fleet.add(SchedulerSpec.of("report", 5, JOB_STORE_CLASS.JOBSTORETX));
+ * SchedulerFleetReport report = fleet.start();
+ * Scheduler order = fleet.getScheduler("order");
+ * </pre>
+ ******************************************************************************/
+public class SchedulerFleet {
+
+    private final static Logger log = LoggerFactory.getLogger(SchedulerFleet.class);
+
+    private final static String DATA_SOURCE_PREFIX = "org.quartz.dataSource.";
+
+    private final static String JOB_STORE_DATA_SOURCES = StdSchedulerFactory.PROP_SCHED_CONTEXT_PREFIX + "." + Constant.JOB_STORE_DATA_SOURCES_CONTEXT_KEY;
+
+    private final static AtomicInteger fleetIndex = new AtomicInteger();
+
+    private final int parallelism;
+
+    private final Map<String, SchedulerSpec> specs = new LinkedHashMap<>();
+
+    private final Map<String, Scheduler> schedulers = new ConcurrentHashMap<>();
+
+    private final String fleetName = "fleet" + fleetIndex.incrementAndGet();
+
+    private volatile boolean started;
+
+    /**
+     * @param parallelism 同时启动的调度器数量
+     */
+    public SchedulerFleet(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be > 0. parallelism:" + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public synchronized SchedulerFleet add(SchedulerSpec spec) {
+        if (started) {
+            throw new IllegalStateException("scheduler fleet already started.");
+        }
+        if (specs.containsKey(spec.getName())) {
+            throw new IllegalArgumentException("duplicate scheduler name:" + spec.getName());
+        }
+        specs.put(spec.getName(), spec);
+        return this;
+    }
+
+    /**
+     * 并发创建、绑定并启动所有调度器,等待全部完成后返回
+     *
+     * @return 各阶段耗时,失败的调度器不会出现在{@link #getSchedulers()}中
+     */
+    public synchronized SchedulerFleetReport start() {
+        if (started) {
+            throw new IllegalStateException("scheduler fleet already started.");
+        }
+        started = true;
+        final SchedulerFleetReport report = new SchedulerFleetReport();
+        long begin = System.currentTimeMillis();
+
+        // 配置在提交前串行准备
+        final Map<String, Properties> propsByName = new LinkedHashMap<>();
+        for (SchedulerSpec spec : specs.values()) {
+            long start = System.currentTimeMillis();
+            try {
+                propsByName.put(spec.getName(), buildProperties(spec));
+            } catch (Exception e) {
+                log.error("build scheduler properties error. name:{}", spec.getName(), e);
+                report.addScheduler(new SchedulerFleetReport.SchedulerStat(spec.getName(), System.currentTimeMillis() - start, 0, 0, e));
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, fleetName + "-bootstrap-" + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            // 先创建全部调度器,创建期间会向DBConnectionManager注册数据源
+            List<Future<?>> futures = new ArrayList<>();
+            final Map<String, Bootstrap> created = new ConcurrentHashMap<>();
+            for (final SchedulerSpec spec : specs.values()) {
+                final Properties props = propsByName.get(spec.getName());
+                if (props == null) {
+                    continue;
+                }
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        Bootstrap bootstrap = create(spec, props);
+                        if (bootstrap.exception != null) {
+                            report.addScheduler(bootstrap.stat());
+                        } else {
+                            created.put(spec.getName(), bootstrap);
+                        }
+                    }
+                }));
+            }
+            await(futures);
+
+            // 预热JobStore的连接池,建立initialSize个连接
+            futures.clear();
+            Set<String> dataSources = new LinkedHashSet<>();
+            for (String name : created.keySet()) {
+                String names = propsByName.get(name).getProperty(JOB_STORE_DATA_SOURCES);
+                if (names != null) {
+                    dataSources.addAll(Arrays.asList(names.split(",")));
+                }
+            }
+            for (final String dataSource : dataSources) {
+                final DruidDataSource pool = DruidDataSourceRegistry.getDataSource(dataSource);
+                if (pool == null) {
+                    continue;
+                }
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        long start = System.currentTimeMillis();
+                        try {
+                            pool.init();
+                        } catch (SQLException e) {
+                            log.error("init connection pool error. dataSource:{}", dataSource, e);
+                        }
+                        report.addPool(dataSource, System.currentTimeMillis() - start);
+                    }
+                }));
+            }
+            await(futures);
+
+            // 再并发绑定和启动,此后不再注册数据源
+            futures.clear();
+            for (final Bootstrap bootstrap : created.values()) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        report.addScheduler(wireAndStart(bootstrap));
+                    }
+                }));
+            }
+            await(futures);
+        } finally {
+            executor.shutdown();
+        }
+
+        report.setTotalMillis(System.currentTimeMillis() - begin);
+        log.info("scheduler fleet started. {}", report);
+        return report;
+    }
+
+    /**
+     * 并发关闭所有调度器,连接池随最后一个使用它的调度器关闭
+     *
+     * @param waitForJobsToComplete 是否等待执行中的任务完成
+     */
+    public synchronized void shutdown(final boolean waitForJobsToComplete) {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (final Scheduler scheduler : schedulers.values()) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            scheduler.shutdown(waitForJobsToComplete);
+                        } catch (SchedulerException e) {
+                            log.error("shutdown scheduler error.", e);
+                        }
+                    }
+                }));
+            }
+            await(futures);
+        } finally {
+            executor.shutdown();
+        }
+        schedulers.clear();
+        log.info("scheduler fleet shutdown. pools:{}", DruidDataSourceRegistry.getPoolCount());
+    }
+
+    public Scheduler getScheduler(String name) {
+        return schedulers.get(name);
+    }
+
+    /**
+     * 启动成功的调度器
+     */
+    public Map<String, Scheduler> getSchedulers() {
+        return Collections.unmodifiableMap(schedulers);
+    }
+
+    /**
+     * 创建调度器。配置了数据源的调度器会向DBConnectionManager注册,串行执行。
+     */
+    private Bootstrap create(SchedulerSpec spec, Properties props) {
+        Bootstrap bootstrap = new Bootstrap(spec);
+        long start = System.currentTimeMillis();
+        try {
+            if (hasDataSource(props)) {
+                synchronized (DBConnectionManager.class) {
+                    bootstrap.scheduler = new StdSchedulerFactory(props).getScheduler();
+                }
+            } else {
+                bootstrap.scheduler = new StdSchedulerFactory(props).getScheduler();
+            }
+        } catch (Exception e) {
+            log.error("create scheduler error. name:{}", spec.getName(), e);
+            bootstrap.exception = e;
+        }
+        bootstrap.createMillis = System.currentTimeMillis() - start;
+        return bootstrap;
+    }
+
+    /**
+     * 绑定监听器和插件后启动
+     */
+    private SchedulerFleetReport.SchedulerStat wireAndStart(Bootstrap bootstrap) {
+        SchedulerSpec spec = bootstrap.spec;
+        Scheduler scheduler = bootstrap.scheduler;
+        long start = System.currentTimeMillis();
+        boolean wired = false;
+        try {
+            QuartzUtils.bindSchedulerListenerManagers(scheduler, spec.getSchedulerListeners(), spec.getJobListeners(), spec.getTriggerListeners());
+            if (spec.getLogLevel() != null) {
+                QuartzUtils.startLogPlugin(scheduler, spec.getLogLevel());
+            }
+            if (spec.isShutdownHookPlugin()) {
+                QuartzUtils.startShutDownHookPlugin(scheduler);
+            }
+            bootstrap.wireMillis = System.currentTimeMillis() - start;
+            wired = true;
+
+            start = System.currentTimeMillis();
+            QuartzUtils.start(scheduler);
+            bootstrap.startMillis = System.currentTimeMillis() - start;
+
+            schedulers.put(spec.getName(), scheduler);
+        } catch (Exception e) {
+            log.error("bootstrap scheduler error. name:{}", spec.getName(), e);
+            if (!wired) {
+                bootstrap.wireMillis = System.currentTimeMillis() - start;
+            } else {
+                bootstrap.startMillis = System.currentTimeMillis() - start;
+            }
+            bootstrap.exception = e;
+        }
+        return bootstrap.stat();
+    }
+
+    /**
+     * 调度器配置,JobStore的Druid数据源未指定shared时开启共享
+     */
+    private Properties buildProperties(SchedulerSpec spec) {
+        Properties layered = QuartzUtils.getSchedulerProperties(spec.getThreadCount(), spec.getThreadPriority(), spec.getName(),
+                spec.getJobStoreClass(), spec.getThreadPoolClass());
+        layered.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, spec.getName());
+        layered.putAll(spec.getProperties());
+
+        // 展开成单层,调度器的配置可能覆盖了数据源,重新填入数据源名
+        Properties props = new Properties();
+        for (String key : layered.stringPropertyNames()) {
+            props.setProperty(key, layered.getProperty(key));
+        }
+        QuartzUtils.bindDataSources(props);
+
+        String dataSources = props.getProperty(JOB_STORE_DATA_SOURCES);
+        if (dataSources == null) {
+            return props;
+        }
+        for (String dataSource : dataSources.split(",")) {
+            String prefix = DATA_SOURCE_PREFIX + dataSource + ".";
+            if (DruidConnectionPoolProvider.class.getName().equals(props.getProperty(prefix + StdSchedulerFactory.PROP_CONNECTION_PROVIDER_CLASS))
+                    && props.getProperty(prefix + "shared") == null) {
+                props.setProperty(prefix + "shared", "true");
+            }
+        }
+        return props;
+    }
+
+    private static boolean hasDataSource(Properties props) {
+        for (String name : props.stringPropertyNames()) {
+            if (name.startsWith(DATA_SOURCE_PREFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void await(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.error("scheduler fleet task error.", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * 单个调度器的启动过程
+     */
+    private static class Bootstrap {
+
+        private final SchedulerSpec spec;
+
+        private Scheduler scheduler;
+
+        private long createMillis;
+
+        private long wireMillis;
+
+        private long startMillis;
+
+        private Exception exception;
+
+        Bootstrap(SchedulerSpec spec) {
+            this.spec = spec;
+        }
+
+        SchedulerFleetReport.SchedulerStat stat() {
+            return new SchedulerFleetReport.SchedulerStat(spec.getName(), createMillis, wireMillis, startMillis, exception);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.hyr.quartz.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*******************************************************************************
+ * @date 2026-10-18 12:20 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: SchedulerFleet启动结果
+ *
+ * 记录共享连接池的初始化耗时和每个调度器各阶段的耗时。单个调度器失败不影响其他调度器。
+ ******************************************************************************/
+public class SchedulerFleetReport {
+
+    private final List<SchedulerStat> schedulerStats = new ArrayList<>();
+
+    private final Map<String, Long> poolInitMillis = new LinkedHashMap<>();
+
+    private long totalMillis;
+
+    synchronized void addScheduler(SchedulerStat schedulerStat) {
+        schedulerStats.add(schedulerStat);
+    }
+
+    synchronized void addPool(String dataSource, long costMillis) {
+        poolInitMillis.put(dataSource, costMillis);
+    }
+
+    void setTotalMillis(long totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+
+    /**
+     * 每个调度器的统计信息,按完成顺序
+     */
+    public synchronized List<SchedulerStat> getSchedulerStats() {
+        return Collections.unmodifiableList(new ArrayList<>(schedulerStats));
+    }
+
+    /**
+     * 共享连接池名称及初始化耗时
+     */
+    public synchronized Map<String, Long> getPoolInitMillis() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(poolInitMillis));
+    }
+
+    /**
+     * 整体启动耗时
+     */
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public synchronized int getFailedCount() {
+        int failed = 0;
+        for (SchedulerStat schedulerStat : schedulerStats) {
+            if (!schedulerStat.isSuccess()) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    public boolean isAllSuccess() {
+        return getFailedCount() == 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SchedulerFleetReport{" +
+                "schedulers=" + schedulerStats.size() +
+                ", failedCount=" + getFailedCount() +
+                ", pools=" + poolInitMillis +
+                ", totalMillis=" + totalMillis +
+                '}';
+    }
+
+    /**
+     * 单个调度器的统计信息
+     */
+    public static class SchedulerStat {
+
+        private final String name; // 调度器实例名
+        private final long createMillis; // 创建SchedulerFactory和Scheduler,包括JobStore和线程池初始化
+        private final long wireMillis; // 绑定监听器和插件
+        private final long startMillis; // 启动,包括JobStore的任务恢复
+        private final Exception exception; // 失败原因,成功为null
+
+        SchedulerStat(String name, long createMillis, long wireMillis, long startMillis, Exception exception) {
+            this.name = name;
+            this.createMillis = createMillis;
+            this.wireMillis = wireMillis;
+            this.startMillis = startMillis;
+            this.exception = exception;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCreateMillis() {
+            return createMillis;
+        }
+
+        public long getWireMillis() {
+            return wireMillis;
+        }
+
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        public long getTotalMillis() {
+            return createMillis + wireMillis + startMillis;
+        }
+
+        public Exception getException() {
+            return exception;
+        }
+
+        public boolean isSuccess() {
+            return exception == null;
+        }
+
+        @Override
+        public String toString() {
+            return "SchedulerStat{" +
+                    "name='" + name + '\'' +
+                    ", createMillis=" + createMillis +
+                    ", wireMillis=" + wireMillis +
+                    ", startMillis=" + startMillis +
+                    ", success=" + isSuccess() +
+                    '}';
+        }
+    }
+}
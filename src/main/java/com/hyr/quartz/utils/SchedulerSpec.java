@@ -0,0 +1,149 @@
+package com.hyr.quartz.utils;
+
+import com.hyr.quartz.common.JOB_STORE_CLASS;
+import com.hyr.quartz.common.THREAD_POOL_CLASS;
+import org.quartz.JobListener;
+import org.quartz.SchedulerListener;
+import org.quartz.TriggerListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/*******************************************************************************
+ * @date 2026-10-18 12:20 AM
+ * @author: <a href=mailto:huangyr>黄跃然</a>
+ * @Description: SchedulerFleet中单个调度器的描述
+ *
+ * 对应逐个调用{@link QuartzUtils#getStdSchedulerFactory}、{@link QuartzUtils#bindSchedulerListenerManager}、
+ * {@link QuartzUtils#startLogPlugin}、{@link QuartzUtils#startShutDownHookPlugin}、{@link QuartzUtils#start}的参数。
+ * 名称同时作为调度器实例名和工作线程名前缀,同一个Fleet中不能重复。
+ ******************************************************************************/
+public class SchedulerSpec {
+
+    private final String name; // 调度器实例名
+    private final int threadCount; // 线程数
+    private final JOB_STORE_CLASS jobStoreClass; // Job持久化方式
+    private int threadPriority = Thread.NORM_PRIORITY; // 线程优先级
+    private THREAD_POOL_CLASS threadPoolClass = THREAD_POOL_CLASS.SIMPLETHREADPOOL; // 工作线程池
+    private final List<SchedulerListener> schedulerListeners = new ArrayList<>();
+    private final List<JobListener> jobListeners = new ArrayList<>();
+    private final List<TriggerListener> triggerListeners = new ArrayList<>();
+    private Integer logLevel; // 日志插件级别,为null不启动
+    private boolean shutdownHookPlugin; // 是否启动ShutDownHook插件
+    private final Properties properties = new Properties(); // 覆盖配置文件的参数
+
+    private SchedulerSpec(String name, int threadCount, JOB_STORE_CLASS jobStoreClass) {
+        this.name = name;
+        this.threadCount = threadCount;
+        this.jobStoreClass = jobStoreClass;
+    }
+
+    /**
+     * @param name          调度器实例名
+     * @param threadCount   线程数
+     * @param jobStoreClass Job持久化方式
+     * @return
+     */
+    public static SchedulerSpec of(String name, int threadCount, JOB_STORE_CLASS jobStoreClass) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("scheduler name cannot be empty");
+        }
+        return new SchedulerSpec(name, threadCount, jobStoreClass);
+    }
+
+    public SchedulerSpec threadPriority(int threadPriority) {
+        this.threadPriority = threadPriority;
+        return this;
+    }
+
+    public SchedulerSpec threadPool(THREAD_POOL_CLASS threadPoolClass) {
+        this.threadPoolClass = threadPoolClass;
+        return this;
+    }
+
+    public SchedulerSpec schedulerListener(SchedulerListener schedulerListener) {
+        schedulerListeners.add(schedulerListener);
+        return this;
+    }
+
+    public SchedulerSpec jobListener(JobListener jobListener) {
+        jobListeners.add(jobListener);
+        return this;
+    }
+
+    public SchedulerSpec triggerListener(TriggerListener triggerListener) {
+        triggerListeners.add(triggerListener);
+        return this;
+    }
+
+    /**
+     * 启动日志插件
+     *
+     * @param logLevel 日志统一打印级别 {@link QuartzUtils#LOG_INFO}等
+     */
+    public SchedulerSpec logPlugin(int logLevel) {
+        this.logLevel = logLevel;
+        return this;
+    }
+
+    /**
+     * 启动ShutDownHook插件
+     */
+    public SchedulerSpec shutdownHookPlugin() {
+        this.shutdownHookPlugin = true;
+        return this;
+    }
+
+    /**
+     * 覆盖配置文件中的参数
+     */
+    public SchedulerSpec property(String key, String value) {
+        properties.setProperty(key, value);
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public JOB_STORE_CLASS getJobStoreClass() {
+        return jobStoreClass;
+    }
+
+    public int getThreadPriority() {
+        return threadPriority;
+    }
+
+    public THREAD_POOL_CLASS getThreadPoolClass() {
+        return threadPoolClass;
+    }
+
+    public List<SchedulerListener> getSchedulerListeners() {
+        return schedulerListeners;
+    }
+
+    public List<JobListener> getJobListeners() {
+        return jobListeners;
+    }
+
+    public List<TriggerListener> getTriggerListeners() {
+        return triggerListeners;
+    }
+
+    public Integer getLogLevel() {
+        return logLevel;
+    }
+
+    public boolean isShutdownHookPlugin() {
+        return shutdownHookPlugin;
+    }
+
+    public Properties getProperties() {
+        return properties;
+    }
+}